@@ -0,0 +1,130 @@
+package com.upi.payment.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The shared Redis tier behind every node's near-caches, plus the invalidation channel between them.
+ * Each entry is a hash of the serialised value ({@code d}) and, for {@link Versioned} values, its
+ * version ({@code v}). While Redis is unreachable the tier reads as empty and drops writes, retrying
+ * after {@code retryMs}. Writes report whether they reached Redis, so the caller can replay lost
+ * invalidations from the {@link #onRecovery} hook, which runs once Redis answers again.
+ */
+@Slf4j
+public class RemoteCacheTier {
+
+    // KEYS[1] entry; ARGV[1] version (-1 = unversioned), ARGV[2] value, ARGV[3] TTL ms. 0 if a newer version is stored.
+    private static final RedisScript<Long> PUT = new DefaultRedisScript<>("""
+        if ARGV[1] ~= '-1' then
+            local current = redis.call('HGET', KEYS[1], 'v')
+            if current and tonumber(current) > tonumber(ARGV[1]) then return 0 end
+        end
+        redis.call('HSET', KEYS[1], 'v', ARGV[1], 'd', ARGV[2])
+        redis.call('PEXPIRE', KEYS[1], ARGV[3])
+        return 1
+        """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+    private final String channel;
+    private final String ttlMillis;
+    private final long retryNanos;
+    private final SerializingConverter serializer = new SerializingConverter();
+    private final DeserializingConverter deserializer = new DeserializingConverter();
+    private final Counter errors;
+    private volatile long unavailableUntil;
+    private volatile boolean unavailable;
+    private volatile Runnable recoveryListener = () -> {};
+
+    public RemoteCacheTier(StringRedisTemplate redisTemplate, String keyPrefix, String channel, Duration ttl,
+                           long retryMs, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+        this.channel = channel;
+        this.ttlMillis = String.valueOf(ttl.toMillis());
+        this.retryNanos = TimeUnit.MILLISECONDS.toNanos(retryMs);
+        this.errors = meterRegistry.counter("cache.remote.errors");
+    }
+
+    Object get(String cacheName, String key) {
+        String encoded = call(() -> (String) redisTemplate.opsForHash().get(entryKey(cacheName, key), "d"));
+        return encoded == null ? null : deserializer.convert(Base64.getDecoder().decode(encoded));
+    }
+
+    /** Runs on the first successful command after Redis was unreachable, on that command's thread. */
+    void onRecovery(Runnable listener) {
+        this.recoveryListener = listener;
+    }
+
+    /** @return false when Redis already holds a newer version, null when Redis was not reached */
+    Boolean put(String cacheName, String key, Object value, long version) {
+        String encoded = Base64.getEncoder().encodeToString(serializer.convert(value));
+        Long stored = call(() -> redisTemplate.execute(PUT, List.of(entryKey(cacheName, key)),
+            String.valueOf(version), encoded, ttlMillis));
+        return stored == null ? null : stored != 0;
+    }
+
+    /** @return false when Redis was not reached */
+    boolean evict(String cacheName, String key) {
+        return call(() -> redisTemplate.delete(entryKey(cacheName, key))) != null;
+    }
+
+    /** @return false when Redis was not reached */
+    boolean clear(String cacheName) {
+        return call(() -> {
+            List<String> keys = new ArrayList<>();
+            ScanOptions options = ScanOptions.scanOptions().match(keyPrefix + cacheName + ":*").count(500).build();
+            try (Cursor<String> cursor = redisTemplate.scan(options)) {
+                cursor.forEachRemaining(keys::add);
+            }
+            return keys.isEmpty() ? 0L : redisTemplate.delete(keys);
+        }) != null;
+    }
+
+    /** @return false when Redis was not reached */
+    boolean publish(String message) {
+        return call(() -> redisTemplate.convertAndSend(channel, message)) != null;
+    }
+
+    private String entryKey(String cacheName, String key) {
+        return keyPrefix + cacheName + ":" + key;
+    }
+
+    private <T> T call(Supplier<T> command) {
+        if (unavailable && System.nanoTime() - unavailableUntil < 0) {
+            return null;
+        }
+        try {
+            T result = command.get();
+            if (unavailable) {
+                unavailable = false;
+                log.info("Redis cache tier reachable again");
+                recoveryListener.run();
+            }
+            return result;
+        } catch (RuntimeException e) {
+            errors.increment();
+            if (!unavailable) {
+                log.warn("Redis cache tier unavailable, serving near-caches only: {}", e.getMessage());
+            }
+            unavailableUntil = System.nanoTime() + retryNanos;
+            unavailable = true;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.upi.payment.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A bounded Caffeine near-cache in front of the shared Redis tier (when configured). Reads try the
+ * near-cache, then Redis, filling the near-cache from it. Writes and evictions go to both tiers and
+ * are broadcast so other nodes drop their near-cached copy. Those that cannot reach Redis are handed to
+ * the manager, which replays them once Redis is back.
+ *
+ * For {@link Versioned} values an invalidation leaves a marker with the new version in the other
+ * nodes' near-caches, so a read that fetched the older value just before cannot put it back.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    // Near-cache entry for a key whose value was replaced elsewhere; reads treat it as a miss
+    private record Superseded(long version) {}
+
+    private final String name;
+    private final Cache<String, Object> near;
+    private final RemoteCacheTier remote;
+    private final TwoLevelCacheManager manager;
+
+    TwoLevelCache(String name, Cache<String, Object> near, RemoteCacheTier remote, TwoLevelCacheManager manager) {
+        super(true);
+        this.name = name;
+        this.near = near;
+        this.remote = remote;
+        this.manager = manager;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Cache<String, Object> getNativeCache() {
+        return near;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String id = String.valueOf(key);
+        Object value = near.getIfPresent(id);
+        if (value != null && !(value instanceof Superseded)) {
+            return value;
+        }
+        if (remote == null) {
+            return null;
+        }
+        Object fetched = remote.get(name, id);
+        return fetched != null && fill(id, fetched) ? fetched : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String id = String.valueOf(key);
+        Object stored = toStoreValue(value);
+        near.put(id, stored);
+        if (remote != null) {
+            if (remote.put(name, id, stored, -1) == null) {
+                manager.invalidationLost(name, id);
+            }
+            manager.broadcast(name, id, -1);
+        }
+    }
+
+    /**
+     * Stores {@code value} unless a higher version is already cached.
+     *
+     * @return false when a newer value was kept
+     */
+    public boolean putIfNewer(Object key, Versioned value) {
+        String id = String.valueOf(key);
+        boolean[] stored = {false};
+        near.asMap().compute(id, (k, current) -> {
+            stored[0] = version(current) <= value.version();
+            return stored[0] ? value : current;
+        });
+        if (!stored[0]) {
+            return false;
+        }
+        if (remote != null) {
+            Boolean newest = remote.put(name, id, value, value.version());
+            if (newest == null) {
+                manager.invalidationLost(name, id);
+            } else if (!newest) {
+                // Another node wrote a newer version that has not reached this near-cache yet
+                near.asMap().remove(id, value);
+                return false;
+            }
+            manager.broadcast(name, id, value.version());
+        }
+        return true;
+    }
+
+    @Override
+    public void evict(Object key) {
+        String id = String.valueOf(key);
+        near.invalidate(id);
+        if (remote != null) {
+            if (!remote.evict(name, id)) {
+                manager.invalidationLost(name, id);
+            }
+            manager.broadcast(name, id, -1);
+        }
+    }
+
+    @Override
+    public void clear() {
+        near.invalidateAll();
+        if (remote != null) {
+            if (!remote.clear(name)) {
+                manager.invalidationLost(name, null);
+            }
+            manager.broadcast(name, null, -1);
+        }
+    }
+
+    /** Applies another node's write: {@code version} is -1 for unversioned values, {@code key} null for a clear. */
+    void invalidateLocal(String key, long version) {
+        if (key == null) {
+            near.invalidateAll();
+        } else if (version < 0) {
+            near.invalidate(key);
+        } else {
+            near.asMap().compute(key, (k, current) -> version(current) >= version ? current : new Superseded(version));
+        }
+    }
+
+    private boolean fill(String id, Object fetched) {
+        if (!(fetched instanceof Versioned versioned)) {
+            near.asMap().putIfAbsent(id, fetched);
+            return true;
+        }
+        boolean[] stored = {false};
+        near.asMap().compute(id, (k, current) -> {
+            stored[0] = version(current) <= versioned.version();
+            return stored[0] ? fetched : current;
+        });
+        return stored[0];
+    }
+
+    private static long version(Object entry) {
+        if (entry instanceof Versioned versioned) {
+            return versioned.version();
+        }
+        return entry instanceof Superseded superseded ? superseded.version() : -1;
+    }
+}
@@ -0,0 +1,161 @@
+package com.upi.payment.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Creates a {@link TwoLevelCache} per cache name, sized by the Caffeine spec {@code specs} returns
+ * for that name, and applies invalidations broadcast by other nodes. Without a {@link RemoteCacheTier}
+ * the caches are near-caches only.
+ *
+ * Invalidation messages are {@code node \n cache \n version \n key}; a message without a key clears
+ * the cache. A node ignores its own messages.
+ *
+ * Writes and evictions made while Redis is unreachable reach neither the shared tier nor the other
+ * nodes. Their keys are remembered and, once Redis answers again, deleted from it and broadcast, so
+ * other nodes hold a stale entry for no longer than the outage. Past {@value #MAX_LOST_KEYS} keys the
+ * affected caches are cleared instead.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private final Function<String, String> specs;
+    private final RemoteCacheTier remote;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    static final int MAX_LOST_KEYS = 10_000;
+
+    // Invalidations that did not reach Redis, replayed once it is reachable again
+    private final Map<String, Set<String>> lostKeys = new ConcurrentHashMap<>();
+    private final Set<String> lostClears = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger lostKeyCount = new AtomicInteger();
+    private final AtomicBoolean replaying = new AtomicBoolean();
+
+    public TwoLevelCacheManager(Function<String, String> specs, RemoteCacheTier remote, MeterRegistry meterRegistry) {
+        this.specs = specs;
+        this.remote = remote;
+        this.meterRegistry = meterRegistry;
+        if (remote != null) {
+            remote.onRecovery(this::replayLostInvalidations);
+        }
+    }
+
+    @Override
+    public TwoLevelCache getCache(String name) {
+        return caches.computeIfAbsent(name, this::create);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return List.copyOf(caches.keySet());
+    }
+
+    private TwoLevelCache create(String name) {
+        Cache<String, Object> near = Caffeine.from(CaffeineSpec.parse(specs.apply(name))).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, near, name);
+        Gauge.builder("cache.hit.ratio", near, cache -> cache.stats().hitRate())
+            .tag("cache", name)
+            .description("Near-cache hit rate since start")
+            .register(meterRegistry);
+        return new TwoLevelCache(name, near, remote, this);
+    }
+
+    void broadcast(String cacheName, String key, long version) {
+        if (!remote.publish(message(cacheName, key, version))) {
+            invalidationLost(cacheName, key);
+        }
+    }
+
+    /** Records a write or eviction of {@code key} ({@code null}: the whole cache) that did not reach Redis. */
+    void invalidationLost(String cacheName, String key) {
+        if (key == null || lostKeyCount.get() >= MAX_LOST_KEYS) {
+            lostClears.add(cacheName);
+        } else if (!lostClears.contains(cacheName)
+                && lostKeys.computeIfAbsent(cacheName, name -> ConcurrentHashMap.newKeySet()).add(key)) {
+            lostKeyCount.incrementAndGet();
+        }
+    }
+
+    private void replayLostInvalidations() {
+        if (!replaying.compareAndSet(false, true)) {
+            return;
+        }
+        int replayed = 0;
+        try {
+            for (String cacheName : List.copyOf(lostClears)) {
+                lostClears.remove(cacheName);
+                // The clear covers every key lost for the cache
+                Set<String> keys = lostKeys.remove(cacheName);
+                if (keys != null) {
+                    lostKeyCount.addAndGet(-keys.size());
+                }
+                if (!remote.clear(cacheName) || !remote.publish(message(cacheName, null, -1))) {
+                    lostClears.add(cacheName);
+                    return;
+                }
+                replayed++;
+            }
+            for (Map.Entry<String, Set<String>> lost : lostKeys.entrySet()) {
+                for (String key : List.copyOf(lost.getValue())) {
+                    if (!lost.getValue().remove(key)) {
+                        continue;
+                    }
+                    lostKeyCount.decrementAndGet();
+                    if (!remote.evict(lost.getKey(), key) || !remote.publish(message(lost.getKey(), key, -1))) {
+                        // Down again: keep it for the next recovery
+                        invalidationLost(lost.getKey(), key);
+                        return;
+                    }
+                    replayed++;
+                }
+            }
+        } finally {
+            replaying.set(false);
+            if (replayed > 0) {
+                log.info("Replayed {} cache invalidations lost while Redis was unreachable", replayed);
+            }
+        }
+    }
+
+    private String message(String cacheName, String key, long version) {
+        return nodeId + "\n" + cacheName + "\n" + version + (key != null ? "\n" + key : "");
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n", 4);
+        if (parts.length < 3 || parts[0].equals(nodeId)) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;  // Never used on this node, so nothing is near-cached
+        }
+        try {
+            cache.invalidateLocal(parts.length == 4 ? parts[3] : null, Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed cache invalidation for {}", parts[1]);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.upi.payment.cache;
+
+/**
+ * A cached value that carries the version of the row it was read from. {@link TwoLevelCache#putIfNewer}
+ * never replaces a value with one of a lower version.
+ */
+public interface Versioned {
+
+    long version();
+}
@@ -0,0 +1,64 @@
+package com.upi.payment.config;
+
+import com.upi.payment.cache.RemoteCacheTier;
+import com.upi.payment.cache.TwoLevelCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+
+/**
+ * Caches are a Caffeine near-cache per node, sized by {@code app.cache.specs.<name>} (falling back to
+ * {@code app.cache.default-spec}). With {@code app.cache.redis.enabled} they share a Redis tier and
+ * nodes drop each other's stale near-cached entries through pub/sub.
+ */
+@Configuration
+@Slf4j
+public class CacheConfig {
+
+    @Value("${app.cache.redis.enabled:false}")
+    private boolean redisEnabled;
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(
+            Environment environment,
+            @Value("${app.cache.default-spec:maximumSize=10000,expireAfterWrite=10m}") String defaultSpec,
+            @Value("${app.cache.redis.key-prefix:cache:}") String keyPrefix,
+            @Value("${app.cache.redis.channel:cache:invalidations}") String channel,
+            @Value("${app.cache.redis.ttl-minutes:60}") long ttlMinutes,
+            @Value("${app.cache.redis.retry-ms:5000}") long retryMs,
+            ObjectProvider<StringRedisTemplate> redisTemplate,
+            MeterRegistry meterRegistry) {
+        RemoteCacheTier remote = null;
+        if (redisEnabled) {
+            log.info("Caches are shared through Redis under '{}'", keyPrefix);
+            remote = new RemoteCacheTier(redisTemplate.getObject(), keyPrefix, channel,
+                Duration.ofMinutes(ttlMinutes), retryMs, meterRegistry);
+        }
+        return new TwoLevelCacheManager(
+            name -> environment.getProperty("app.cache.specs." + name, defaultSpec), remote, meterRegistry);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListener(
+            TwoLevelCacheManager cacheManager,
+            @Value("${app.cache.redis.channel:cache:invalidations}") String channel,
+            ObjectProvider<RedisConnectionFactory> connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory.getObject());
+        // Without a subscription the container never opens a connection
+        if (redisEnabled) {
+            container.addMessageListener(cacheManager, new ChannelTopic(channel));
+        }
+        return container;
+    }
+}
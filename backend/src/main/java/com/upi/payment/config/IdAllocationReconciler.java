@@ -0,0 +1,51 @@
+package com.upi.payment.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Entity IDs are handed out in blocks from the {@code id_allocations} table (pooled-lo), so Hibernate
+ * knows an ID before the INSERT and can batch inserts; each node reserves its own block with one
+ * row-locked UPDATE. Tables created when IDs were AUTO_INCREMENT already hold rows, so on startup
+ * every allocation row is moved past the table's current max(id) before anything is inserted.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdAllocationReconciler {
+
+    private static final List<String> TABLES =
+        List.of("users", "wallets", "wallet_stripes", "bank_accounts", "transactions", "audit_logs", "payout_jobs");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Schema update runs when the EntityManagerFactory is built, so id_allocations exists after it
+    private final EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    void reconcile() {
+        for (String table : TABLES) {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            long floor = maxId + 1;
+            int updated = jdbcTemplate.update(
+                "UPDATE id_allocations SET next_id = ? WHERE entity = ? AND next_id < ?", floor, table, floor);
+            if (updated == 0) {
+                Integer rows = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM id_allocations WHERE entity = ?", Integer.class, table);
+                if (rows == 0) {
+                    jdbcTemplate.update("INSERT INTO id_allocations (entity, next_id) VALUES (?, ?)", table, floor);
+                    updated = 1;
+                }
+            }
+            if (updated > 0 && maxId > 0) {
+                log.info("ID allocation for {} moved past existing max id {}", table, maxId);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.upi.payment.config;
+
+import com.upi.payment.ratelimit.LocalRateLimiter;
+import com.upi.payment.ratelimit.RateLimiter;
+import com.upi.payment.ratelimit.RedisRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Picks the bucket store for {@code RateLimitFilter}: {@code local} keeps per-node buckets,
+ * {@code redis} shares them across nodes.
+ */
+@Configuration
+@Slf4j
+public class RateLimitConfig {
+
+    @Bean
+    public RateLimiter rateLimiter(
+            @Value("${app.rate-limit.backend:local}") String backend,
+            @Value("${app.rate-limit.max-keys:100000}") long maxKeys,
+            @Value("${app.rate-limit.redis.key-prefix:rl:}") String keyPrefix,
+            @Value("${app.rate-limit.redis.retry-ms:5000}") long retryMs,
+            ObjectProvider<StringRedisTemplate> redisTemplate,
+            MeterRegistry meterRegistry) {
+        LocalRateLimiter local = new LocalRateLimiter(maxKeys);
+        if (!"redis".equalsIgnoreCase(backend)) {
+            return local;
+        }
+        log.info("Rate limit buckets are kept in Redis under '{}'", keyPrefix);
+        return new RedisRateLimiter(redisTemplate.getObject(), keyPrefix, local, retryMs, meterRegistry);
+    }
+}
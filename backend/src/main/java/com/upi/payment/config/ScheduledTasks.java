@@ -1,27 +1,43 @@
 package com.upi.payment.config;
 
-import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.idempotency.IdempotencyStore;
+import com.upi.payment.service.impl.HotWalletService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class ScheduledTasks {
 
-    private final WalletRepository walletRepository;
+    private final HotWalletService hotWalletService;
+    private final IdempotencyStore idempotencyStore;
 
     /**
-     * Reset daily spending limits for all wallets at midnight IST.
-     * Cron: second minute hour day month weekday
+     * Fold hot-wallet credit stripes back into their wallet rows,
+     * so stripes stay small and debits rarely have to fold inline.
      */
-    @Scheduled(cron = "0 0 0 * * ?", zone = "Asia/Kolkata")
-    @Transactional
-    public void resetDailySpentLimits() {
-        int updated = walletRepository.resetDailySpentForAllWallets();
-        log.info("Daily limit reset complete. Wallets updated: {}", updated);
+    @Scheduled(fixedDelayString = "${app.wallet.hot.consolidate-interval-ms:5000}")
+    public void consolidateHotWallets() {
+        for (Long walletId : hotWalletService.walletsToConsolidate()) {
+            try {
+                hotWalletService.consolidate(walletId);
+            } catch (Exception e) {
+                log.warn("Stripe consolidation failed for wallet {}: {}", walletId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Purge idempotency records past their TTL, hourly.
+     */
+    @Scheduled(cron = "0 0 * * * ?")
+    public void purgeExpiredIdempotencyKeys() {
+        int purged = idempotencyStore.purgeExpired();
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
     }
 }
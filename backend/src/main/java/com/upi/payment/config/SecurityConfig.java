@@ -1,6 +1,7 @@
 package com.upi.payment.config;
 
 import com.upi.payment.filter.JwtAuthFilter;
+import com.upi.payment.filter.RateLimitFilter;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.context.annotation.Bean;
@@ -38,6 +39,7 @@ import java.util.List;
 public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final UserDetailsService userDetailsService;
 
     private static final String[] PUBLIC_ENDPOINTS = {
@@ -72,6 +74,7 @@ public class SecurityConfig {
 
                 // Admin endpoints
                 .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
 
                 // Everything else requires authentication
                 .anyRequest().authenticated()
@@ -93,6 +96,12 @@ public class SecurityConfig {
                 UsernamePasswordAuthenticationFilter.class
             )
 
+            // Rate limits, once the caller is known
+            .addFilterAfter(
+                rateLimitFilter,
+                JwtAuthFilter.class
+            )
+
             .build();
     }
 
@@ -1,16 +1,21 @@
 package com.upi.payment.controller;
 
+import com.upi.payment.dto.request.AdminRequest;
 import com.upi.payment.dto.response.ApiResponse;
 import com.upi.payment.service.impl.AdminService;
+import com.upi.payment.service.impl.FraudReplayService;
 import com.upi.payment.util.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/admin")
 @RequiredArgsConstructor
@@ -20,6 +25,7 @@ import org.springframework.web.bind.annotation.*;
 public class AdminController {
 
     private final AdminService adminService;
+    private final FraudReplayService fraudReplayService;
 
     @GetMapping("/dashboard")
     @Operation(summary = "Get dashboard statistics")
@@ -49,6 +55,14 @@ public class AdminController {
         return ResponseEntity.ok(ApiResponse.Response.success("Account unfrozen", null));
     }
 
+    @PatchMapping("/users/{userId}/hot-wallet")
+    @Operation(summary = "Configure striped credits for a high fan-in wallet (0 turns it off)")
+    public ResponseEntity<ApiResponse.Response<Void>> hotWallet(@PathVariable Long userId,
+                                                                @RequestParam int stripes) {
+        adminService.configureHotWallet(userId, stripes, SecurityUtils.getCurrentUserId());
+        return ResponseEntity.ok(ApiResponse.Response.success("Hot wallet configured", null));
+    }
+
     @GetMapping("/transactions/flagged")
     @Operation(summary = "Get all flagged transactions")
     public ResponseEntity<ApiResponse.Response<ApiResponse.PageResponse<ApiResponse.TransactionResponse>>> flagged(
@@ -56,4 +70,25 @@ public class AdminController {
             @RequestParam(defaultValue = "20") int size) {
         return ResponseEntity.ok(ApiResponse.Response.success("Flagged transactions", adminService.getFlaggedTransactions(page, size)));
     }
+
+    @GetMapping("/transactions/flagged/mule-suspects")
+    @Operation(summary = "Users the transaction graph ranks as likely money-mule ring members")
+    public ResponseEntity<ApiResponse.Response<List<ApiResponse.MuleSuspectResponse>>> muleSuspects(
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(ApiResponse.Response.success("Mule suspects", adminService.getMuleSuspects(limit)));
+    }
+
+    @PostMapping("/fraud/replays")
+    @Operation(summary = "Replay historical transfers through the current and a candidate fraud rule set")
+    public ResponseEntity<ApiResponse.Response<ApiResponse.FraudReplayResponse>> startReplay(
+            @Valid @RequestBody AdminRequest.FraudReplay request) {
+        var response = fraudReplayService.start(request, SecurityUtils.getCurrentUserId());
+        return ResponseEntity.accepted().body(ApiResponse.Response.success("Fraud replay started", response));
+    }
+
+    @GetMapping("/fraud/replays/{replayId}")
+    @Operation(summary = "Get fraud replay progress and report")
+    public ResponseEntity<ApiResponse.Response<ApiResponse.FraudReplayResponse>> getReplay(@PathVariable Long replayId) {
+        return ResponseEntity.ok(ApiResponse.Response.success("Fraud replay", fraudReplayService.get(replayId)));
+    }
 }
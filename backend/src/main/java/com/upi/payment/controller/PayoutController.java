@@ -0,0 +1,68 @@
+package com.upi.payment.controller;
+
+import com.upi.payment.dto.response.ApiResponse;
+import com.upi.payment.service.impl.PayoutService;
+import com.upi.payment.util.SecurityUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+@RestController
+@RequestMapping("/api/v1/payouts")
+@RequiredArgsConstructor
+@Tag(name = "Payouts", description = "Bulk payout files (payroll, cashback)")
+@SecurityRequirement(name = "bearerAuth")
+public class PayoutController {
+
+    private final PayoutService payoutService;
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Submit a CSV or NDJSON payout file; lines are paid in the background")
+    public ResponseEntity<ApiResponse.Response<ApiResponse.PayoutJobResponse>> submit(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam String upiPin,
+            @RequestParam String idempotencyKey,
+            HttpServletRequest httpRequest) {
+        var response = payoutService.submit(
+            SecurityUtils.getCurrentUserId(), file, upiPin, idempotencyKey, getClientIp(httpRequest));
+        return ResponseEntity.accepted().body(ApiResponse.Response.success("Payout job accepted", response));
+    }
+
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Get payout job progress")
+    public ResponseEntity<ApiResponse.Response<ApiResponse.PayoutJobResponse>> getJob(@PathVariable Long jobId) {
+        var response = payoutService.getJob(SecurityUtils.getCurrentUserId(), jobId);
+        return ResponseEntity.ok(ApiResponse.Response.success("Payout job", response));
+    }
+
+    @GetMapping("/{jobId}/results")
+    @Operation(summary = "Download the per-line result file (CSV) written so far")
+    public ResponseEntity<Resource> results(@PathVariable Long jobId) {
+        var path = payoutService.resultFile(SecurityUtils.getCurrentUserId(), jobId);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("text/csv"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payout-" + jobId + "-results.csv\"")
+            .body(new FileSystemResource(path));
+    }
+
+    @PostMapping("/{jobId}/resume")
+    @Operation(summary = "Resume a halted payout job from its checkpoint")
+    public ResponseEntity<ApiResponse.Response<ApiResponse.PayoutJobResponse>> resume(@PathVariable Long jobId) {
+        var response = payoutService.resume(SecurityUtils.getCurrentUserId(), jobId);
+        return ResponseEntity.accepted().body(ApiResponse.Response.success("Payout job resumed", response));
+    }
+
+    private String getClientIp(HttpServletRequest request) {
+        String forwarded = request.getHeader("X-Forwarded-For");
+        return (forwarded != null) ? forwarded.split(",")[0].trim() : request.getRemoteAddr();
+    }
+}
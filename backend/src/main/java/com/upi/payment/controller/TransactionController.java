@@ -32,6 +32,16 @@ public class TransactionController {
         return ResponseEntity.ok(ApiResponse.Response.success("Transfer successful", response));
     }
 
+    @PostMapping("/transfer/split")
+    @Operation(summary = "Transfer money to several users at once (all or nothing)")
+    public ResponseEntity<ApiResponse.Response<ApiResponse.SplitTransferResponse>> splitTransfer(
+            @Valid @RequestBody TransactionRequest.SplitTransfer request,
+            HttpServletRequest httpRequest) {
+        var response = transactionService.splitTransfer(
+            SecurityUtils.getCurrentUserId(), request, getClientIp(httpRequest));
+        return ResponseEntity.ok(ApiResponse.Response.success("Split transfer successful", response));
+    }
+
     @PostMapping("/add-money")
     @Operation(summary = "Add money from bank account to wallet")
     public ResponseEntity<ApiResponse.Response<ApiResponse.TransactionResponse>> addMoney(
@@ -0,0 +1,24 @@
+package com.upi.payment.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+public class AdminRequest {
+
+    // Backtest a fraud rule change over historical transfers
+    @Data
+    public static class FraudReplay {
+        @NotNull(message = "Start of the replay window is required")
+        private LocalDateTime from;
+
+        @NotNull(message = "End of the replay window is required")
+        private LocalDateTime to;
+
+        // app.fraud.* properties as the candidate would set them, e.g. "app.fraud.high-value-threshold": "20000"
+        private Map<String, String> overrides = new HashMap<>();
+    }
+}
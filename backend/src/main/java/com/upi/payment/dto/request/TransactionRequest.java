@@ -1,9 +1,11 @@
 package com.upi.payment.dto.request;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import lombok.Data;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 public class TransactionRequest {
 
@@ -31,6 +33,38 @@ public class TransactionRequest {
         private String idempotencyKey;
     }
 
+    // One debit, several receivers; all legs succeed or none do
+    @Data
+    public static class SplitTransfer {
+        @NotEmpty(message = "At least one recipient is required")
+        @Size(max = 20, message = "At most 20 recipients per request")
+        private List<@Valid Leg> legs;
+
+        @NotBlank(message = "UPI PIN is required")
+        @Pattern(regexp = "^\\d{4}(\\d{2})?$", message = "Invalid UPI PIN")
+        private String upiPin;
+
+        // Each leg is stored under this key plus "#<leg index>"
+        @NotBlank(message = "Idempotency key is required")
+        @Size(min = 10, max = 96)
+        private String idempotencyKey;
+
+        @Data
+        public static class Leg {
+            @NotBlank(message = "Receiver identifier is required (UPI ID / phone / email)")
+            private String receiverIdentifier;
+
+            @NotNull(message = "Amount is required")
+            @DecimalMin(value = "1.00", message = "Minimum transfer amount is ₹1")
+            @DecimalMax(value = "50000.00", message = "Maximum single transfer is ₹50,000")
+            @Digits(integer = 10, fraction = 2)
+            private BigDecimal amount;
+
+            @Size(max = 200, message = "Description too long")
+            private String description;
+        }
+    }
+
     @Data
     public static class AddMoney {
         @NotNull(message = "Bank account ID required")
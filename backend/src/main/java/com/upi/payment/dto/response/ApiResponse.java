@@ -2,15 +2,19 @@ package com.upi.payment.dto.response;
 
 import com.upi.payment.enums.AccountStatus;
 import com.upi.payment.enums.FraudRiskLevel;
+import com.upi.payment.enums.PayoutJobStatus;
 import com.upi.payment.enums.TransactionStatus;
 import com.upi.payment.enums.TransactionType;
 import com.upi.payment.enums.UserRole;
+import com.upi.payment.fraud.ReplayReport;
 import lombok.Builder;
 import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public class ApiResponse {
 
@@ -93,9 +97,10 @@ public class ApiResponse {
         private Boolean isVerified;
     }
 
-    // Transaction
+    // Transaction (also stored as JSON for idempotent replays)
     @Data
     @Builder
+    @Jacksonized
     public static class TransactionResponse {
         private Long id;
         private String referenceId;
@@ -115,6 +120,64 @@ public class ApiResponse {
         private LocalDateTime createdAt;
     }
 
+    // Multi-recipient transfer: one entry per leg, in request order
+    @Data
+    @Builder
+    public static class SplitTransferResponse {
+        private List<TransactionResponse> transfers;
+        private BigDecimal totalAmount;
+        private BigDecimal balanceAfter;
+    }
+
+    // Bulk payout job progress
+    @Data
+    @Builder
+    public static class PayoutJobResponse {
+        private Long id;
+        private String fileName;
+        private PayoutJobStatus status;
+        private long totalLines;
+        private long succeededCount;
+        private long failedCount;
+        private BigDecimal totalAmount;
+        private BigDecimal paidAmount;
+        private String haltReason;
+        private LocalDateTime createdAt;
+        private LocalDateTime completedAt;
+    }
+
+    // Fraud rule replay job; report is filled in once it completes
+    @Data
+    @Builder
+    public static class FraudReplayResponse {
+        private Long id;
+        private String status;
+        private LocalDateTime from;
+        private LocalDateTime to;
+        private Map<String, String> overrides;
+        private long transfersRead;
+        private ReplayReport report;
+        private String error;
+        private LocalDateTime startedAt;
+        private LocalDateTime completedAt;
+    }
+
+    // Suspected mule-ring member, ranked by transaction-graph risk
+    @Data
+    @Builder
+    public static class MuleSuspectResponse {
+        private Long userId;
+        private String fullName;
+        private String upiId;
+        private AccountStatus status;
+        private int risk;
+        private String pattern;
+        private int payers;
+        private int payees;
+        private BigDecimal inFlow;
+        private BigDecimal outFlow;
+    }
+
     // Admin Dashboard
     @Data
     @Builder
@@ -19,7 +19,9 @@ import java.time.LocalDateTime;
 public class AuditLog {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "audit_logs_ids")
+    @TableGenerator(name = "audit_logs_ids", table = "id_allocations", pkColumnName = "entity",
+        valueColumnName = "next_id", pkColumnValue = "audit_logs", allocationSize = 100)
     private Long id;
 
     @Column(name = "user_id")
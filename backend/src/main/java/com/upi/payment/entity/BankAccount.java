@@ -19,7 +19,9 @@ import java.math.BigDecimal;
 public class BankAccount extends BaseEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "bank_accounts_ids")
+    @TableGenerator(name = "bank_accounts_ids", table = "id_allocations", pkColumnName = "entity",
+        valueColumnName = "next_id", pkColumnValue = "bank_accounts", allocationSize = 20)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,62 @@
+package com.upi.payment.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stored outcome of a completed money movement, keyed by the client's idempotency key.
+ * Rows expire after {@code app.idempotency.ttl-hours} and are purged by the scheduler,
+ * so the table stays small no matter how large {@code transactions} grows.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+    @Index(name = "idx_idempotency_expires", columnList = "expires_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord implements Persistable<String> {
+
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "reference_id", nullable = false, length = 50)
+    private String referenceId;
+
+    // ApiResponse.TransactionResponse as JSON
+    @Column(nullable = false, length = 2000)
+    private String response;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Always INSERT: a concurrent record for the same key must fail on the primary key, not be merged over
+    @Transient
+    @Builder.Default
+    private boolean fresh = true;
+
+    @Override
+    public String getId() {
+        return idempotencyKey;
+    }
+
+    @Override
+    public boolean isNew() {
+        return fresh;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markStored() {
+        fresh = false;
+    }
+}
@@ -0,0 +1,102 @@
+package com.upi.payment.entity;
+
+import com.upi.payment.enums.PayoutFileFormat;
+import com.upi.payment.enums.PayoutJobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A bulk payout file and its progress. Lines before {@code nextLine} are settled and their results
+ * occupy the first {@code resultOffset} bytes of the result file; {@code reservedAmount} is held
+ * from the payer's wallet for the chunk in flight.
+ */
+@Entity
+@Table(name = "payout_jobs", indexes = {
+    @Index(name = "idx_payout_idempotency", columnList = "idempotency_key", unique = true),
+    @Index(name = "idx_payout_payer", columnList = "payer_id"),
+    @Index(name = "idx_payout_status", columnList = "status")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PayoutJob extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "payout_jobs_ids")
+    @TableGenerator(name = "payout_jobs_ids", table = "id_allocations", pkColumnName = "entity",
+        valueColumnName = "next_id", pkColumnValue = "payout_jobs", allocationSize = 20)
+    private Long id;
+
+    @Column(name = "payer_id", nullable = false)
+    private Long payerId;
+
+    @Column(name = "idempotency_key", nullable = false, unique = true, length = 100)
+    private String idempotencyKey;
+
+    @Column(name = "file_name", length = 255)
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private PayoutFileFormat format;
+
+    @Column(name = "source_path", nullable = false, length = 500)
+    private String sourcePath;
+
+    @Column(name = "result_path", nullable = false, length = 500)
+    private String resultPath;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private PayoutJobStatus status = PayoutJobStatus.PENDING;
+
+    // Fixed per job so chunk boundaries stay the same across restarts
+    @Column(name = "chunk_size", nullable = false)
+    private Integer chunkSize;
+
+    @Column(name = "total_lines", nullable = false)
+    private Long totalLines;
+
+    @Column(name = "total_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal totalAmount;
+
+    // ── Checkpoint ────────────────────────────────────────────────────────────
+    @Column(name = "next_line", nullable = false)
+    @Builder.Default
+    private Long nextLine = 0L;
+
+    @Column(name = "result_offset", nullable = false)
+    @Builder.Default
+    private Long resultOffset = 0L;
+
+    @Column(name = "reserved_amount", nullable = false, precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal reservedAmount = BigDecimal.ZERO;
+
+    @Column(name = "succeeded_count", nullable = false)
+    @Builder.Default
+    private Long succeededCount = 0L;
+
+    @Column(name = "failed_count", nullable = false)
+    @Builder.Default
+    private Long failedCount = 0L;
+
+    @Column(name = "paid_amount", nullable = false, precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal paidAmount = BigDecimal.ZERO;
+
+    @Column(name = "halt_reason", length = 300)
+    private String haltReason;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Version
+    private Long version;
+}
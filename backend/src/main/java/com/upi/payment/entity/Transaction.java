@@ -26,7 +26,9 @@ import java.time.LocalDateTime;
 public class Transaction extends BaseEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "transactions_ids")
+    @TableGenerator(name = "transactions_ids", table = "id_allocations", pkColumnName = "entity",
+        valueColumnName = "next_id", pkColumnValue = "transactions", allocationSize = 100)
     private Long id;
 
     // Unique reference for every transaction (shown to user)
@@ -22,7 +22,9 @@ import java.util.List;
 public class User extends BaseEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "users_ids")
+    @TableGenerator(name = "users_ids", table = "id_allocations", pkColumnName = "entity",
+        valueColumnName = "next_id", pkColumnValue = "users", allocationSize = 20)
     private Long id;
 
     @Column(name = "full_name", nullable = false, length = 100)
@@ -4,6 +4,9 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 @Entity
 @Table(name = "wallets", indexes = {
@@ -16,8 +19,13 @@ import java.math.BigDecimal;
 @Builder
 public class Wallet extends BaseEntity {
 
+    // Daily limits run from midnight to midnight IST
+    public static final ZoneId SPEND_ZONE = ZoneId.of("Asia/Kolkata");
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "wallets_ids")
+    @TableGenerator(name = "wallets_ids", table = "id_allocations", pkColumnName = "entity",
+        valueColumnName = "next_id", pkColumnValue = "wallets", allocationSize = 20)
     private Long id;
 
     @OneToOne(fetch = FetchType.LAZY)
@@ -32,30 +40,67 @@ public class Wallet extends BaseEntity {
     @Builder.Default
     private BigDecimal dailySpent = BigDecimal.ZERO;
 
+    // Day dailySpent belongs to; spend from an earlier day counts as zero and is reset by the next debit
+    @Column(name = "spend_date")
+    private LocalDate spendDate;
+
     @Column(name = "daily_limit", precision = 15, scale = 2)
     @Builder.Default
     private BigDecimal dailyLimit = new BigDecimal("100000.00");
 
+    // Hot-account mode: credits are spread over this many wallet_stripes rows (0 = off)
+    @Column(name = "credit_stripes")
+    @Builder.Default
+    private Integer creditStripes = 0;
+
     // Optimistic locking — prevents race conditions on concurrent balance updates
     @Version
     private Long version;
 
+    public boolean isHot() {
+        return this.creditStripes != null && this.creditStripes > 0;
+    }
+
     public boolean hasSufficientBalance(BigDecimal amount) {
         return this.balance.compareTo(amount) >= 0;
     }
 
+    public static LocalDate spendDay(LocalDateTime at) {
+        return at.atZone(ZoneId.systemDefault()).withZoneSameInstant(SPEND_ZONE).toLocalDate();
+    }
+
+    public static LocalDate today() {
+        return LocalDate.now(SPEND_ZONE);
+    }
+
+    public BigDecimal spentToday() {
+        return today().equals(this.spendDate) ? this.dailySpent : BigDecimal.ZERO;
+    }
+
     public boolean isDailyLimitExceeded(BigDecimal amount) {
-        return this.dailySpent.add(amount).compareTo(this.dailyLimit) > 0;
+        return spentToday().add(amount).compareTo(this.dailyLimit) > 0;
     }
 
     public void debit(BigDecimal amount) {
         if (!hasSufficientBalance(amount)) {
             throw new IllegalStateException("Insufficient wallet balance");
         }
+        LocalDate today = today();
+        if (!today.equals(this.spendDate)) {
+            this.dailySpent = BigDecimal.ZERO;
+            this.spendDate = today;
+        }
         this.balance = this.balance.subtract(amount);
         this.dailySpent = this.dailySpent.add(amount);
     }
 
+    /** Gives back daily limit taken by a debit that was undone, unless that debit was on an earlier day. */
+    public void refundDailySpent(BigDecimal amount) {
+        if (today().equals(this.spendDate)) {
+            this.dailySpent = this.dailySpent.subtract(amount).max(BigDecimal.ZERO);
+        }
+    }
+
     public void credit(BigDecimal amount) {
         this.balance = this.balance.add(amount);
     }
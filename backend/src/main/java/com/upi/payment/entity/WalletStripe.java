@@ -0,0 +1,42 @@
+package com.upi.payment.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Credit-side sub-balance of a hot wallet.
+ * Incoming payments to a wallet with {@code creditStripes > 0} land on one of these rows instead
+ * of the wallet row itself; the consolidator periodically folds them back into {@link Wallet#getBalance()}.
+ */
+@Entity
+@Table(name = "wallet_stripes", indexes = {
+    @Index(name = "idx_stripe_wallet_index", columnList = "wallet_id, stripe_index", unique = true)
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WalletStripe {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "wallet_stripes_ids")
+    @TableGenerator(name = "wallet_stripes_ids", table = "id_allocations", pkColumnName = "entity",
+        valueColumnName = "next_id", pkColumnValue = "wallet_stripes", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Column(name = "stripe_index", nullable = false)
+    private Integer stripeIndex;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    @Version
+    private Long version;
+}
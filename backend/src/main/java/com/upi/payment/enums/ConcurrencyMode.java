@@ -0,0 +1,7 @@
+package com.upi.payment.enums;
+
+public enum ConcurrencyMode {
+    PESSIMISTIC,
+    OPTIMISTIC,
+    ATOMIC
+}
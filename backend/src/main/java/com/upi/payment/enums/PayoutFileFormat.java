@@ -0,0 +1,6 @@
+package com.upi.payment.enums;
+
+public enum PayoutFileFormat {
+    CSV,        // receiver,amount[,description]
+    NDJSON      // {"receiver": ..., "amount": ..., "description": ...} per line
+}
@@ -0,0 +1,8 @@
+package com.upi.payment.enums;
+
+public enum PayoutJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    HALTED      // Stopped at a chunk boundary (balance, daily limit); can be resumed
+}
@@ -4,5 +4,6 @@ public enum TransactionType {
     DEPOSIT,       // Bank -> Wallet
     WITHDRAWAL,    // Wallet -> Bank
     TRANSFER,      // Wallet -> Wallet (P2P)
+    PAYOUT,        // Wallet -> Wallet (bulk payout file line)
     REFUND
 }
@@ -0,0 +1,8 @@
+package com.upi.payment.event;
+
+import com.upi.payment.enums.AccountStatus;
+
+/**
+ * Published when an admin freezes or unfreezes a user; handled after the change commits.
+ */
+public record AccountStatusChangedEvent(Long userId, AccountStatus status) {}
@@ -0,0 +1,9 @@
+package com.upi.payment.event;
+
+import com.upi.payment.fraud.FraudContext;
+
+/**
+ * A transfer that committed without waiting for the fraud rules. {@code context} holds the rule
+ * inputs as they were before the transfer, so scoring it later sees what inline scoring would have.
+ */
+public record DeferredFraudCheckEvent(String referenceId, FraudContext context) {}
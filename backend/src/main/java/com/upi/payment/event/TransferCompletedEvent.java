@@ -0,0 +1,12 @@
+package com.upi.payment.event;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A wallet-to-wallet transfer that succeeded. Published inside the transfer's DB transaction
+ * (listeners run after it commits) or, for the ledger and group-commit paths, once the transfer
+ * has been acknowledged. {@code referenceId} is the transaction's, as stored in the table.
+ */
+public record TransferCompletedEvent(Long senderId, Long receiverId, BigDecimal amount, Instant completedAt,
+                                     String referenceId) {}
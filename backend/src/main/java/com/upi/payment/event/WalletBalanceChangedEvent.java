@@ -0,0 +1,10 @@
+package com.upi.payment.event;
+
+import com.upi.payment.service.impl.WalletBalanceCache;
+
+/**
+ * Committed state of a wallet after a balance change, published inside the changing transaction
+ * (listeners run after it commits). {@code snapshot.version()} is the row version that state was
+ * written with, so listeners can drop events that arrive after a newer one.
+ */
+public record WalletBalanceChangedEvent(Long userId, WalletBalanceCache.Snapshot snapshot) {}
@@ -2,6 +2,7 @@ package com.upi.payment.exception;
 
 import com.upi.payment.dto.response.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
@@ -45,6 +46,14 @@ public class GlobalExceptionHandler {
             .body(ApiResponse.Response.error("Transaction conflict. Please try again."));
     }
 
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ApiResponse.Response<Void>> handleServiceBusy(ServiceBusyException ex) {
+        // 503 — nothing was attempted, the client may retry after a short pause
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(ApiResponse.Response.error(ex.getMessage()));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiResponse.Response<Void>> handleValidation(MethodArgumentNotValidException ex) {
         String errors = ex.getBindingResult().getFieldErrors().stream()
@@ -1,6 +1,9 @@
 package com.upi.payment.filter;
 
+import com.upi.payment.enums.AccountStatus;
+import com.upi.payment.security.AccountStatusCache;
 import com.upi.payment.security.JwtService;
+import com.upi.payment.security.TokenVerifier;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,8 +13,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -23,8 +24,8 @@ import java.io.IOException;
 @Slf4j
 public class JwtAuthFilter extends OncePerRequestFilter {
 
-    private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final TokenVerifier tokenVerifier;
+    private final AccountStatusCache accountStatusCache;
 
     @Override
     protected void doFilterInternal(
@@ -42,15 +43,15 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         final String jwt = authHeader.substring(7);
 
         try {
-            final String userEmail = jwtService.extractUsername(jwt);
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                JwtService.TokenPrincipal token = tokenVerifier.verify(jwt);
 
-            if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
-
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                // Claims identify the user; only the (cached) status is checked, so freezes apply at once
+                if (token != null && token.issuedStatus() == AccountStatus.ACTIVE
+                        && accountStatusCache.statusOf(token.user().id()) == AccountStatus.ACTIVE) {
                     UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities());
+                            token.user(), null, token.user().authorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
                 }
@@ -0,0 +1,136 @@
+package com.upi.payment.filter;
+
+import com.upi.payment.ratelimit.RateLimiter;
+import com.upi.payment.security.AuthenticatedUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user and per-IP token buckets, checked right after {@link JwtAuthFilter} so the caller is known.
+ * Auth endpoints are limited per IP only; transfers, add-money and payouts get their own, tighter
+ * per-user bucket; everything else shares the general per-user bucket. Every request also draws from
+ * its client IP's bucket. A rejection is answered here with 429 and {@code Retry-After}, before any
+ * controller, transaction or pool connection is touched.
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    enum EndpointClass { AUTH, TRANSFER, GENERAL }
+
+    private final RateLimiter rateLimiter;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.rate-limit.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.rate-limit.requests-per-minute:60}")
+    private int requestsPerMinute = 60;
+
+    @Value("${app.rate-limit.transfer-per-minute:10}")
+    private int transferPerMinute = 10;
+
+    @Value("${app.rate-limit.ip-requests-per-minute:600}")
+    private int ipRequestsPerMinute = 600;
+
+    @Value("${app.rate-limit.auth-per-minute:20}")
+    private int authPerMinute = 20;
+
+    private final Map<EndpointClass, Counter> rejected = new EnumMap<>(EndpointClass.class);
+
+    @PostConstruct
+    void init() {
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            rejected.put(endpointClass, meterRegistry.counter("rate_limit.rejected", "class", endpointClass.name()));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        EndpointClass endpointClass = classify(request);
+        // Behind a proxy, server.forward-headers-strategy decides what getRemoteAddr reports
+        String ip = request.getRemoteAddr();
+
+        long wait = endpointClass == EndpointClass.AUTH
+            ? rateLimiter.tryAcquire("auth:" + ip, authPerMinute)
+            : rateLimiter.tryAcquire("ip:" + ip, ipRequestsPerMinute);
+
+        if (wait == 0 && endpointClass != EndpointClass.AUTH) {
+            Long userId = currentUserId();
+            if (userId != null) {
+                wait = endpointClass == EndpointClass.TRANSFER
+                    ? rateLimiter.tryAcquire("transfer:" + userId, transferPerMinute)
+                    : rateLimiter.tryAcquire("user:" + userId, requestsPerMinute);
+            }
+        }
+
+        if (wait > 0) {
+            reject(response, endpointClass, wait);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    static EndpointClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (path.startsWith("/api/v1/auth/")) {
+            return EndpointClass.AUTH;
+        }
+        if ("POST".equals(request.getMethod())
+                && (path.startsWith("/api/v1/transactions/transfer")
+                    || path.equals("/api/v1/transactions/add-money")
+                    || path.startsWith("/api/v1/payouts"))) {
+            return EndpointClass.TRANSFER;
+        }
+        return EndpointClass.GENERAL;
+    }
+
+    private static Long currentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getPrincipal() instanceof AuthenticatedUser user ? user.id() : null;
+    }
+
+    private void reject(HttpServletResponse response, EndpointClass endpointClass, long waitNanos) throws IOException {
+        rejected.get(endpointClass).increment();
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        byte[] body = ("{\"success\":false,\"message\":\"Too many requests. Retry in " + seconds
+            + "s.\",\"data\":null,\"timestamp\":\"" + LocalDateTime.now() + "\"}").getBytes(StandardCharsets.UTF_8);
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -0,0 +1,79 @@
+package com.upi.payment.fraud;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.annotation.QualifierAnnotationAutowireCandidateResolver;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySourcesPropertyResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds a rule engine as it would be with some {@code app.fraud.*} properties changed, e.g.
+ * {@code app.fraud.high-value-threshold=20000} or {@code app.fraud.disabled-rules=ODD_HOURS}.
+ * Every {@link FraudRule} bean class is instantiated afresh with the overrides taking precedence
+ * over the application's configuration; other dependencies come from the application context.
+ * Used by fraud replay and shadow mode; the live engine is never touched.
+ */
+@Component
+public class CandidateRules {
+
+    private final List<FraudRule> liveRules;
+    private final ConfigurableEnvironment environment;
+    private final BeanFactory beanFactory;
+
+    public CandidateRules(List<FraudRule> liveRules, ConfigurableEnvironment environment, BeanFactory beanFactory) {
+        this.liveRules = liveRules;
+        this.environment = environment;
+        this.beanFactory = beanFactory;
+    }
+
+    /**
+     * A started engine over candidate rule instances, reporting to {@code meterRegistry}. The
+     * caller owns it and must {@link #release release} it.
+     */
+    public FraudRuleEngine engine(Map<String, String> overrides, FraudSources sources, MeterRegistry meterRegistry) {
+        MutablePropertySources propertySources = new MutablePropertySources(environment.getPropertySources());
+        propertySources.addFirst(new MapPropertySource("fraud-candidate", new LinkedHashMap<>(overrides)));
+        PropertySourcesPropertyResolver resolver = new PropertySourcesPropertyResolver(propertySources);
+
+        DefaultListableBeanFactory factory = new DefaultListableBeanFactory(beanFactory);
+        factory.setAutowireCandidateResolver(new QualifierAnnotationAutowireCandidateResolver());
+        factory.setConversionService(ApplicationConversionService.getSharedInstance());
+        factory.addEmbeddedValueResolver(resolver::resolvePlaceholders);
+        AutowiredAnnotationBeanPostProcessor injector = new AutowiredAnnotationBeanPostProcessor();
+        injector.setBeanFactory(factory);
+        factory.addBeanPostProcessor(injector);
+
+        List<FraudRule> rules = new ArrayList<>(liveRules.size());
+        for (FraudRule rule : liveRules) {
+            rules.add((FraudRule) factory.createBean(ClassUtils.getUserClass(rule)));
+        }
+
+        Set<String> disabled = StringUtils.commaDelimitedListToSet(
+            resolver.getProperty("app.fraud.disabled-rules", "").replace(" ", ""));
+        disabled.remove("");
+        FraudRuleEngine engine = new FraudRuleEngine(rules, sources.velocityTracker(), sources.knownPayeeIndex(),
+            sources.spendingProfileStore(), sources.transactionGraph(), meterRegistry);
+        engine.configure(resolver.getProperty("app.fraud.rule-budget-ms", Long.class, 50L),
+            resolver.getProperty("app.fraud.rule-threads", Integer.class, 4), disabled);
+        engine.start();
+        return engine;
+    }
+
+    public void release(FraudRuleEngine engine) {
+        engine.stop();
+    }
+}
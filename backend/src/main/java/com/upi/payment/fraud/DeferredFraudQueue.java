@@ -0,0 +1,68 @@
+package com.upi.payment.fraud;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers waiting to be fraud-scored after commit. Bounded in size and in age: while the oldest
+ * entry is older than {@code app.fraud.async.max-lag-ms}, or the queue is full, {@link FraudTriage}
+ * stops deferring and transfers are scored inline again until the scorer catches up.
+ *
+ * {@code fraud.async.depth} and {@code fraud.async.lag} (age of the oldest entry) show how far
+ * behind it is; {@code fraud.async.delay} times commit-to-scored per transfer.
+ */
+@Component
+public class DeferredFraudQueue {
+
+    @Value("${app.fraud.async.max-lag-ms:5000}")
+    private long maxLagMs = 5000;
+
+    private final BlockingQueue<Entry> queue;
+    private final Timer delay;
+
+    public DeferredFraudQueue(@Value("${app.fraud.async.queue-capacity:10000}") int capacity,
+                              MeterRegistry meterRegistry) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        Gauge.builder("fraud.async.depth", queue, BlockingQueue::size)
+            .description("Committed transfers waiting for fraud scoring")
+            .register(meterRegistry);
+        Gauge.builder("fraud.async.lag", this, DeferredFraudQueue::lagMillis)
+            .description("Age of the oldest transfer waiting for fraud scoring")
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
+        this.delay = Timer.builder("fraud.async.delay")
+            .description("Commit to fraud score, for transfers scored after commit")
+            .register(meterRegistry);
+    }
+
+    /** Whether a new transfer may be deferred without breaking the lag bound. */
+    public boolean accepting() {
+        return queue.remainingCapacity() > 0 && lagMillis() < maxLagMs;
+    }
+
+    public boolean offer(String referenceId, FraudContext context) {
+        return queue.offer(new Entry(referenceId, context, System.nanoTime()));
+    }
+
+    public Entry poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    public void scored(Entry entry) {
+        delay.record(System.nanoTime() - entry.enqueuedNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    long lagMillis() {
+        Entry head = queue.peek();
+        return head == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - head.enqueuedNanos());
+    }
+
+    public record Entry(String referenceId, FraudContext context, long enqueuedNanos) {}
+}
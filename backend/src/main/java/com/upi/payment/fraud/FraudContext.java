@@ -0,0 +1,23 @@
+package com.upi.payment.fraud;
+
+import com.upi.payment.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * What a rule gets to look at. Data no enabled rule requires is null; {@code receiver},
+ * {@code pairVelocity} and {@code knownPayee} are also null for split transfers, which are
+ * assessed once on their total, and {@code graph} is null in fraud replays.
+ */
+public record FraudContext(
+    User sender,
+    User receiver,
+    BigDecimal amount,
+    LocalDateTime now,
+    VelocitySnapshot senderVelocity,
+    VelocitySnapshot pairVelocity,
+    Boolean knownPayee,
+    SpendingProfile senderProfile,
+    GraphSignal graph
+) {}
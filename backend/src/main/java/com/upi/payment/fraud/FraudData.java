@@ -0,0 +1,12 @@
+package com.upi.payment.fraud;
+
+/**
+ * Inputs shared between fraud rules, loaded once per assessment when any rule requires them.
+ */
+public enum FraudData {
+    SENDER_VELOCITY,
+    PAIR_VELOCITY,
+    KNOWN_PAYEE,
+    SPENDING_PROFILE,
+    TRANSACTION_GRAPH
+}
@@ -0,0 +1,317 @@
+package com.upi.payment.fraud;
+
+import com.upi.payment.entity.User;
+import com.upi.payment.enums.TransactionStatus;
+import com.upi.payment.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backtests a rule change: streams historical transfers oldest first, rebuilds the state the rules
+ * read (velocity, known payees, spending profiles) as it goes, and scores every transfer with both
+ * the current rules and a candidate built from property overrides (see {@link CandidateRules}).
+ *
+ * All rule state is per sender, so transfers are partitioned by sender and each partition keeps
+ * its own detached state. The cursor is read on the calling thread in chunks of
+ * {@code app.fraud.replay.chunk-size}; each chunk is scored by one fork-join task per partition
+ * while the next chunk is read. The {@code warmup-days} before {@code from} only build state.
+ * State follows what actually happened: failed attempts are scored but never recorded, whatever
+ * the candidate would have decided. Split transfers are scored per leg rather than on their total.
+ *
+ * On MySQL the connection URL needs {@code useCursorFetch=true} for the fetch size to stream.
+ */
+@Component
+@Slf4j
+public class FraudReplayer {
+
+    @Value("${app.fraud.replay.partitions:0}")
+    private int partitions = 0;
+
+    @Value("${app.fraud.replay.warmup-days:30}")
+    private int warmupDays = 30;
+
+    @Value("${app.fraud.replay.chunk-size:50000}")
+    private int chunkSize = 50_000;
+
+    @Value("${app.fraud.replay.known-payee-mb:16}")
+    private long knownPayeeMb = 16;
+
+    @Value("${app.fraud.replay.max-changes:100}")
+    private int maxChanges = 100;
+
+    private final TransactionRepository transactionRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final CandidateRules candidateRules;
+    private final SpendingProfileStore spendingProfileStore;
+
+    public FraudReplayer(TransactionRepository transactionRepository,
+                         PlatformTransactionManager transactionManager,
+                         CandidateRules candidateRules,
+                         SpendingProfileStore spendingProfileStore) {
+        this.transactionRepository = transactionRepository;
+        this.transactionManager = transactionManager;
+        this.candidateRules = candidateRules;
+        this.spendingProfileStore = spendingProfileStore;
+    }
+
+    /**
+     * @param progress incremented per transfer read, warm-up included
+     */
+    public ReplayReport replay(LocalDateTime from, LocalDateTime to, Map<String, String> overrides,
+                               AtomicLong progress) {
+        long started = System.nanoTime();
+        int count = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        Partition[] parts = new Partition[count];
+        for (int i = 0; i < count; i++) {
+            parts[i] = new Partition(from);
+        }
+
+        SimpleMeterRegistry currentMetrics = new SimpleMeterRegistry();
+        SimpleMeterRegistry candidateMetrics = new SimpleMeterRegistry();
+        FraudRuleEngine current = candidateRules.engine(Map.of(), parts[0].sources, currentMetrics);
+        FraudRuleEngine candidate = candidateRules.engine(overrides, parts[0].sources, candidateMetrics);
+        Set<FraudData> required = EnumSet.noneOf(FraudData.class);
+        required.addAll(current.required());
+        required.addAll(candidate.required());
+        for (Partition part : parts) {
+            part.bind(current, candidate, required);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(count);
+        try {
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            template.setReadOnly(true);
+            template.executeWithoutResult(status -> {
+                List<List<Row>> chunk = emptyChunk(count);
+                int rows = 0;
+                ForkJoinTask<?> inFlight = null;
+                try (var transfers = transactionRepository.streamTransfersBetween(from.minusDays(warmupDays), to)) {
+                    for (var iterator = transfers.iterator(); iterator.hasNext(); ) {
+                        Row row = Row.of(iterator.next());
+                        chunk.get((int) Math.floorMod(row.senderId(), (long) count)).add(row);
+                        progress.incrementAndGet();
+                        if (++rows == chunkSize) {
+                            inFlight = dispatch(pool, parts, chunk, inFlight);
+                            chunk = emptyChunk(count);
+                            rows = 0;
+                        }
+                    }
+                }
+                dispatch(pool, parts, chunk, inFlight).join();
+            });
+        } finally {
+            pool.shutdownNow();
+            candidateRules.release(current);
+            candidateRules.release(candidate);
+        }
+
+        ReplayReport report = report(from, to, overrides, parts, currentMetrics, candidateMetrics,
+            (System.nanoTime() - started) / 1_000_000);
+        log.info("Fraud replay {} to {} ({} overrides): {} transfers scored, {} warm-up, {} ms, blocks {} -> {}, flags {} -> {}",
+            from, to, overrides.size(), report.evaluated(), report.warmupTransfers(), report.elapsedMs(),
+            report.currentBlocked(), report.candidateBlocked(), report.currentFlagged(), report.candidateFlagged());
+        return report;
+    }
+
+    // Waits for the previous chunk, so each partition sees its transfers in order
+    private static ForkJoinTask<?> dispatch(ForkJoinPool pool, Partition[] parts, List<List<Row>> chunk,
+                                            ForkJoinTask<?> previous) {
+        if (previous != null) {
+            previous.join();
+        }
+        List<RecursiveAction> tasks = new ArrayList<>(parts.length);
+        for (int i = 0; i < parts.length; i++) {
+            Partition part = parts[i];
+            List<Row> rows = chunk.get(i);
+            if (!rows.isEmpty()) {
+                tasks.add(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        part.process(rows);
+                    }
+                });
+            }
+        }
+        return pool.submit(() -> ForkJoinTask.invokeAll(tasks));
+    }
+
+    private static List<List<Row>> emptyChunk(int count) {
+        List<List<Row>> chunk = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            chunk.add(new ArrayList<>());
+        }
+        return chunk;
+    }
+
+    private ReplayReport report(LocalDateTime from, LocalDateTime to, Map<String, String> overrides,
+                                Partition[] parts, SimpleMeterRegistry currentMetrics,
+                                SimpleMeterRegistry candidateMetrics, long elapsedMs) {
+        long[][] matrix = new long[3][3];
+        long warmup = 0;
+        List<ReplayReport.Change> changes = new ArrayList<>();
+        for (Partition part : parts) {
+            warmup += part.warmup;
+            for (int c = 0; c < 3; c++) {
+                for (int d = 0; d < 3; d++) {
+                    matrix[c][d] += part.matrix[c][d];
+                }
+            }
+            changes.addAll(part.changes);
+        }
+        changes.sort((a, b) -> a.at().compareTo(b.at()));
+
+        FraudRuleEngine.Decision[] decisions = FraudRuleEngine.Decision.values();
+        Map<String, Map<String, Long>> table = new LinkedHashMap<>();
+        long evaluated = 0;
+        long[] currentTotals = new long[3];
+        long[] candidateTotals = new long[3];
+        for (int c = 0; c < 3; c++) {
+            Map<String, Long> row = new LinkedHashMap<>();
+            for (int d = 0; d < 3; d++) {
+                row.put(decisions[d].name(), matrix[c][d]);
+                evaluated += matrix[c][d];
+                currentTotals[c] += matrix[c][d];
+                candidateTotals[d] += matrix[c][d];
+            }
+            table.put(decisions[c].name(), row);
+        }
+        int allow = FraudRuleEngine.Decision.ALLOW.ordinal();
+        int flag = FraudRuleEngine.Decision.FLAG.ordinal();
+        int block = FraudRuleEngine.Decision.BLOCK.ordinal();
+        long newlyBlocked = 0, noLongerBlocked = 0;
+        for (int i = 0; i < 3; i++) {
+            if (i != block) {
+                newlyBlocked += matrix[i][block];
+                noLongerBlocked += matrix[block][i];
+            }
+        }
+
+        Map<String, Map<String, Long>> ruleHits = new LinkedHashMap<>();
+        ruleHits.put("current", hits(currentMetrics));
+        ruleHits.put("candidate", hits(candidateMetrics));
+        long perSecond = elapsedMs == 0 ? 0 : (evaluated + warmup) * 1000 / elapsedMs;
+        return new ReplayReport(from, to, Map.copyOf(overrides), parts.length, warmup, evaluated, table,
+            evaluated - currentTotals[allow], evaluated - candidateTotals[allow],
+            currentTotals[block], candidateTotals[block],
+            // Flagged here means FLAG or BLOCK, as shouldFlag does in FraudDetectionService
+            matrix[allow][flag] + matrix[allow][block], matrix[flag][allow] + matrix[block][allow],
+            newlyBlocked, noLongerBlocked, ruleHits,
+            changes.subList(0, Math.min(maxChanges, changes.size())), elapsedMs, perSecond);
+    }
+
+    private static Map<String, Long> hits(SimpleMeterRegistry metrics) {
+        Map<String, Long> hits = new TreeMap<>();
+        for (Counter counter : metrics.find("fraud.rule.evaluations").tag("result", "hit").counters()) {
+            hits.put(counter.getId().getTag("rule"), (long) counter.count());
+        }
+        return hits;
+    }
+
+    private record Row(Long id, Long senderId, Long receiverId, BigDecimal amount, LocalDateTime at,
+                       boolean failed) {
+
+        static Row of(Object[] columns) {
+            return new Row((Long) columns[0], (Long) columns[1], (Long) columns[2], (BigDecimal) columns[3],
+                (LocalDateTime) columns[4], columns[5] == TransactionStatus.FAILED);
+        }
+    }
+
+    /** One sender partition: detached rule state plus its share of the tallies. Single-threaded. */
+    private final class Partition {
+
+        private final LocalDateTime from;
+        private final ReplayClock clock = new ReplayClock();
+        private final FraudSources sources;
+        private final long[][] matrix = new long[3][3];
+        private final List<ReplayReport.Change> changes = new ArrayList<>();
+        private long warmup;
+
+        private FraudRuleEngine current;
+        private FraudRuleEngine candidate;
+        private Set<FraudData> required;
+
+        Partition(LocalDateTime from) {
+            this.from = from;
+            this.sources = new FraudSources(new VelocityTracker(clock),
+                new KnownPayeeIndex(knownPayeeMb * 1024 * 1024), spendingProfileStore.detached(), null);
+        }
+
+        void bind(FraudRuleEngine current, FraudRuleEngine candidate, Set<FraudData> required) {
+            this.current = current;
+            this.candidate = candidate;
+            this.required = required;
+        }
+
+        void process(List<Row> rows) {
+            for (Row row : rows) {
+                Instant at = row.at().atZone(ZoneId.systemDefault()).toInstant();
+                clock.now = at;
+                if (row.at().isBefore(from)) {
+                    warmup++;
+                } else {
+                    score(row);
+                }
+                if (!row.failed()) {
+                    sources.velocityTracker().record(row.senderId(), row.receiverId(), row.amount(), at);
+                    sources.knownPayeeIndex().record(row.senderId(), row.receiverId());
+                    sources.spendingProfileStore().record(row.senderId(), row.receiverId(), row.amount(), at, null);
+                }
+            }
+        }
+
+        private void score(Row row) {
+            FraudContext context = sources.load(required, User.builder().id(row.senderId()).build(),
+                User.builder().id(row.receiverId()).build(), row.amount(), row.at());
+            FraudRuleEngine.Evaluation before = current.evaluate(context);
+            FraudRuleEngine.Evaluation after = candidate.evaluate(context);
+            matrix[before.decision().ordinal()][after.decision().ordinal()]++;
+            if (before.decision() != after.decision() && changes.size() < maxChanges) {
+                changes.add(new ReplayReport.Change(row.id(), row.at(), before.score(), before.reasons(),
+                    after.score(), after.reasons()));
+            }
+        }
+    }
+
+    private static final class ReplayClock extends Clock {
+
+        private Instant now = Instant.EPOCH;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
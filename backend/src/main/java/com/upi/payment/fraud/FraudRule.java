@@ -0,0 +1,33 @@
+package com.upi.payment.fraud;
+
+import java.util.Set;
+
+/**
+ * One fraud signal. Rules are Spring beans picked up by {@link FraudRuleEngine}; a new rule is a
+ * new bean, with no change to the engine or to {@code FraudDetectionService}.
+ */
+public interface FraudRule {
+
+    enum Cost {
+        // In-memory checks, run in order on the calling thread
+        CHEAP,
+        // May block (I/O, large scans); run in parallel under the engine's latency budget
+        EXPENSIVE
+    }
+
+    /** Short upper-case name, used as the metric tag and in disabled-rules config. */
+    String name();
+
+    Cost cost();
+
+    /** Shared inputs this rule reads from the {@link FraudContext}; the engine loads each once. */
+    Set<FraudData> requires();
+
+    /** Most points a hit can add; cheap rules with more at stake run first. */
+    int maxScore();
+
+    /** Null when the rule does not fire. */
+    RuleHit evaluate(FraudContext context);
+
+    record RuleHit(int score, String reason) {}
+}
@@ -0,0 +1,237 @@
+package com.upi.payment.fraud;
+
+import com.upi.payment.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the {@link FraudRule} beans for one transfer.
+ *
+ * Inputs required by any enabled rule are loaded once into the {@link FraudContext}. Cheap rules
+ * run first, highest {@code maxScore} first, and evaluation stops as soon as the score reaches
+ * {@link #BLOCK_SCORE}, since points are only ever added. Expensive rules then run in parallel;
+ * whatever has not finished within {@code app.fraud.rule-budget-ms} is skipped and counted as a
+ * timeout rather than delaying the transfer.
+ *
+ * Per rule, {@code fraud.rule.latency} times each evaluation and {@code fraud.rule.evaluations}
+ * counts outcomes (hit, miss, timeout, error, skipped).
+ */
+@Component
+@Slf4j
+public class FraudRuleEngine {
+
+    public static final int FLAG_SCORE = 40;
+    public static final int BLOCK_SCORE = 80;
+    public static final int MAX_SCORE = 100;
+
+    @Value("${app.fraud.rule-budget-ms:50}")
+    private long budgetMs = 50;
+
+    @Value("${app.fraud.rule-threads:4}")
+    private int ruleThreads = 4;
+
+    @Value("${app.fraud.disabled-rules:}")
+    private Set<String> disabledRules = Set.of();
+
+    private final List<FraudRule> allRules;
+    private final FraudSources sources;
+    private final MeterRegistry meterRegistry;
+
+    private List<FraudRule> cheapRules;
+    private List<FraudRule> expensiveRules;
+    private Set<FraudData> required;
+    private ExecutorService executor;
+    private Timer assessTimer;
+
+    public FraudRuleEngine(List<FraudRule> allRules, VelocityTracker velocityTracker,
+                           KnownPayeeIndex knownPayeeIndex, SpendingProfileStore spendingProfileStore,
+                           TransactionGraph transactionGraph, MeterRegistry meterRegistry) {
+        this.allRules = allRules;
+        this.sources = new FraudSources(velocityTracker, knownPayeeIndex, spendingProfileStore, transactionGraph);
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Settings normally injected from app.fraud.*, for engines built outside the container
+    void configure(long budgetMs, int ruleThreads, Set<String> disabledRules) {
+        this.budgetMs = budgetMs;
+        this.ruleThreads = ruleThreads;
+        this.disabledRules = disabledRules;
+    }
+
+    @PostConstruct
+    void start() {
+        List<FraudRule> enabled = allRules.stream()
+            .filter(rule -> !disabledRules.contains(rule.name()))
+            .sorted(Comparator.comparingInt(FraudRule::maxScore).reversed())
+            .toList();
+        cheapRules = enabled.stream().filter(rule -> rule.cost() == FraudRule.Cost.CHEAP).toList();
+        expensiveRules = enabled.stream().filter(rule -> rule.cost() == FraudRule.Cost.EXPENSIVE).toList();
+        Set<FraudData> inputs = EnumSet.noneOf(FraudData.class);
+        enabled.forEach(rule -> inputs.addAll(rule.requires()));
+        required = Collections.unmodifiableSet(inputs);
+
+        if (!expensiveRules.isEmpty()) {
+            AtomicInteger sequence = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(ruleThreads, r -> {
+                Thread t = new Thread(r, "fraud-rule-" + sequence.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        assessTimer = Timer.builder("fraud.assess")
+            .description("Fraud rule evaluation time per transfer")
+            .register(meterRegistry);
+        log.info("Fraud rules: cheap={}, expensive={}, disabled={}",
+            cheapRules.stream().map(FraudRule::name).toList(),
+            expensiveRules.stream().map(FraudRule::name).toList(), disabledRules);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public Evaluation evaluate(User sender, User receiver, BigDecimal amount) {
+        return evaluate(context(sender, receiver, amount, Set.of()));
+    }
+
+    /**
+     * Live inputs for one transfer, as of now: whatever the enabled rules require plus {@code extra},
+     * so another rule set (shadow mode) can be evaluated on exactly the same context.
+     */
+    public FraudContext context(User sender, User receiver, BigDecimal amount, Set<FraudData> extra) {
+        Set<FraudData> needed = required;
+        if (!extra.isEmpty() && !required.containsAll(extra)) {
+            needed = EnumSet.noneOf(FraudData.class);
+            needed.addAll(required);
+            needed.addAll(extra);
+        }
+        return sources.load(needed, sender, receiver, amount, LocalDateTime.now());
+    }
+
+    /** Inputs the enabled rules read from the {@link FraudContext}. */
+    public Set<FraudData> required() {
+        return required;
+    }
+
+    public Evaluation evaluate(FraudContext context) {
+        long started = System.nanoTime();
+        Map<String, FraudRule.RuleHit> hits = new LinkedHashMap<>();
+        int score = 0;
+        for (int i = 0; i < cheapRules.size(); i++) {
+            FraudRule rule = cheapRules.get(i);
+            score += record(rule, timed(rule, context), hits);
+            if (score >= BLOCK_SCORE) {
+                skip(cheapRules.subList(i + 1, cheapRules.size()));
+                skip(expensiveRules);
+                return finish(score, hits, started);
+            }
+        }
+        if (!expensiveRules.isEmpty()) {
+            score += runExpensive(context, hits);
+        }
+        return finish(score, hits, started);
+    }
+
+    private int runExpensive(FraudContext context, Map<String, FraudRule.RuleHit> hits) {
+        List<CompletableFuture<FraudRule.RuleHit>> futures = new ArrayList<>(expensiveRules.size());
+        for (FraudRule rule : expensiveRules) {
+            futures.add(CompletableFuture.supplyAsync(() -> timed(rule, context), executor));
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        int score = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            FraudRule rule = expensiveRules.get(i);
+            CompletableFuture<FraudRule.RuleHit> future = futures.get(i);
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                score += record(rule, future.get(remaining, TimeUnit.NANOSECONDS), hits);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                outcome(rule, "timeout");
+            } catch (ExecutionException e) {
+                outcome(rule, "error");
+                log.warn("Fraud rule {} failed: {}", rule.name(), e.getCause().toString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                outcome(rule, "timeout");
+            }
+        }
+        return score;
+    }
+
+    private FraudRule.RuleHit timed(FraudRule rule, FraudContext context) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return rule.evaluate(context);
+        } finally {
+            sample.stop(meterRegistry.timer("fraud.rule.latency", "rule", rule.name()));
+        }
+    }
+
+    private int record(FraudRule rule, FraudRule.RuleHit hit, Map<String, FraudRule.RuleHit> hits) {
+        if (hit == null || hit.score() <= 0) {
+            outcome(rule, "miss");
+            return 0;
+        }
+        outcome(rule, "hit");
+        hits.put(rule.name(), hit);
+        return hit.score();
+    }
+
+    private void skip(List<FraudRule> rules) {
+        rules.forEach(rule -> outcome(rule, "skipped"));
+    }
+
+    private void outcome(FraudRule rule, String result) {
+        meterRegistry.counter("fraud.rule.evaluations", "rule", rule.name(), "result", result).increment();
+    }
+
+    private Evaluation finish(int score, Map<String, FraudRule.RuleHit> hits, long started) {
+        assessTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        StringBuilder reasons = new StringBuilder();
+        hits.values().forEach(hit -> reasons.append(hit.reason()).append(';'));
+        return new Evaluation(Math.min(score, MAX_SCORE), reasons.toString());
+    }
+
+    public record Evaluation(int score, String reasons) {
+
+        public Decision decision() {
+            return Decision.of(score);
+        }
+    }
+
+    public enum Decision {
+        ALLOW, FLAG, BLOCK;
+
+        public static Decision of(int score) {
+            if (score >= BLOCK_SCORE) return BLOCK;
+            return score >= FLAG_SCORE ? FLAG : ALLOW;
+        }
+    }
+}
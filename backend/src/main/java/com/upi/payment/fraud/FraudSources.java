@@ -0,0 +1,34 @@
+package com.upi.payment.fraud;
+
+import com.upi.payment.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Where the shared rule inputs come from: the live trackers, or private copies that a replay
+ * feeds with historical transfers. A replay has no transaction graph: its sender partitions would
+ * each see only part of it.
+ */
+public record FraudSources(
+    VelocityTracker velocityTracker,
+    KnownPayeeIndex knownPayeeIndex,
+    SpendingProfileStore spendingProfileStore,
+    TransactionGraph transactionGraph
+) {
+
+    /** Loads only the {@code required} inputs; the rest stay null. */
+    public FraudContext load(Set<FraudData> required, User sender, User receiver, BigDecimal amount,
+                             LocalDateTime now) {
+        return new FraudContext(sender, receiver, amount, now,
+            required.contains(FraudData.SENDER_VELOCITY) ? velocityTracker.sender(sender.getId()) : null,
+            receiver != null && required.contains(FraudData.PAIR_VELOCITY)
+                ? velocityTracker.pair(sender.getId(), receiver.getId()) : null,
+            receiver != null && required.contains(FraudData.KNOWN_PAYEE)
+                ? knownPayeeIndex.hasPaid(sender.getId(), receiver.getId()) : null,
+            required.contains(FraudData.SPENDING_PROFILE) ? spendingProfileStore.profile(sender.getId()) : null,
+            transactionGraph != null && required.contains(FraudData.TRANSACTION_GRAPH)
+                ? transactionGraph.signal(sender.getId(), receiver != null ? receiver.getId() : null, amount) : null);
+    }
+}
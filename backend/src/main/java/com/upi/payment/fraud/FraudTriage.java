@@ -0,0 +1,63 @@
+package com.upi.payment.fraud;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Decides, from inputs already in the {@link FraudContext}, whether a transfer can commit before
+ * its fraud score is known. Only routine transfers qualify: a small amount to a receiver the sender
+ * has paid before, in line with an established spending profile, from a sender who is not already
+ * busy this hour, and only while the {@link DeferredFraudQueue} is within its lag bound.
+ */
+@Component
+public class FraudTriage {
+
+    private static final Set<FraudData> REQUIRED =
+        EnumSet.of(FraudData.SENDER_VELOCITY, FraudData.KNOWN_PAYEE, FraudData.SPENDING_PROFILE);
+
+    @Value("${app.fraud.async.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.fraud.async.max-amount:2000.00}")
+    private BigDecimal maxAmount = new BigDecimal("2000.00");
+
+    @Value("${app.fraud.async.max-hourly-transfers:5}")
+    private int maxHourlyTransfers = 5;
+
+    @Value("${app.fraud.async.max-deviation:2.0}")
+    private double maxDeviation = 2.0;
+
+    private final DeferredFraudQueue queue;
+    private final Counter inline;
+    private final Counter deferred;
+
+    public FraudTriage(DeferredFraudQueue queue, MeterRegistry meterRegistry) {
+        this.queue = queue;
+        this.inline = meterRegistry.counter("fraud.triage", "path", "inline");
+        this.deferred = meterRegistry.counter("fraud.triage", "path", "deferred");
+    }
+
+    /** Inputs {@link #canDefer} reads; empty when deferral is off. */
+    public Set<FraudData> required() {
+        return enabled ? REQUIRED : Set.of();
+    }
+
+    public boolean canDefer(FraudContext context) {
+        boolean routine = enabled
+            && context.receiver() != null
+            && context.amount().compareTo(maxAmount) <= 0
+            && Boolean.TRUE.equals(context.knownPayee())
+            && context.senderVelocity() != null && context.senderVelocity().count1h() < maxHourlyTransfers
+            && context.senderProfile() != null && context.senderProfile().established()
+            && context.senderProfile().amountDeviation(context.amount()) < maxDeviation
+            && queue.accepting();
+        (routine ? deferred : inline).increment();
+        return routine;
+    }
+}
@@ -0,0 +1,19 @@
+package com.upi.payment.fraud;
+
+/**
+ * What the transaction graph knows about a transfer's two parties before it commits.
+ *
+ * @param senderRisk       the sender's decayed mule-ring risk, 0–100
+ * @param receiverRisk     the receiver's decayed mule-ring risk, 0–100
+ * @param receiverPattern  what raised the receiver's risk (CYCLE, FAN_IN, FAN_OUT), or null
+ * @param cycleLength      length of the cycle this transfer would close, 0 when none was found
+ */
+public record GraphSignal(
+    int senderRisk,
+    int receiverRisk,
+    String receiverPattern,
+    int cycleLength
+) {
+
+    public static final GraphSignal NONE = new GraphSignal(0, 0, null, 0);
+}
@@ -0,0 +1,120 @@
+package com.upi.payment.fraud;
+
+import com.upi.payment.event.TransferCompletedEvent;
+import com.upi.payment.repository.TransactionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers "has this sender paid this receiver before" from memory, so first-time-payee scoring
+ * needs no query on {@code transactions}. Pairs go into a fixed-size {@link PairBloomFilter}
+ * ({@code app.fraud.known-payee.memory-mb}; 64 MB holds about 50 million pairs at a 1%
+ * false-positive rate), fed by {@link TransferCompletedEvent} after each transfer commits.
+ *
+ * A false positive only means a new payee goes unscored, never that a transfer is blocked.
+ * The filter is rebuilt from the table at startup and on {@code rebuild-cron}, so the rate stays
+ * near its target as pairs accumulate; while a rebuild runs both filters are held and new
+ * transfers go into both.
+ */
+@Component
+@Slf4j
+public class KnownPayeeIndex {
+
+    @Value("${app.fraud.known-payee.memory-mb:64}")
+    private long memoryMb = 64;
+
+    private final TransactionRepository transactionRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private volatile PairBloomFilter current;
+    private volatile PairBloomFilter building;
+    private final AtomicLong pairs = new AtomicLong();
+
+    // Detached instance fed by hand (fraud replay): no table, no metrics
+    KnownPayeeIndex(long bytes) {
+        this.transactionRepository = null;
+        this.transactionManager = null;
+        this.current = new PairBloomFilter(bytes);
+    }
+
+    @Autowired
+    public KnownPayeeIndex(TransactionRepository transactionRepository,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.transactionManager = transactionManager;
+        Gauge.builder("fraud.known_payee.pairs", pairs, AtomicLong::get)
+            .description("Distinct sender/receiver pairs in the known-payee filter")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        rebuild();
+    }
+
+    /**
+     * Replace the filter with a fresh one loaded from every successful transfer.
+     */
+    @Scheduled(cron = "${app.fraud.known-payee.rebuild-cron:0 30 3 * * ?}", zone = "Asia/Kolkata")
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        PairBloomFilter next = new PairBloomFilter(memoryMb * 1024 * 1024);
+        AtomicLong added = new AtomicLong();
+        building = next;
+        try {
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            template.setReadOnly(true);
+            template.executeWithoutResult(status -> {
+                try (var transfers = transactionRepository.streamTransferPairs()) {
+                    transfers.forEach(row -> {
+                        if (next.put((Long) row[0], (Long) row[1])) {
+                            added.incrementAndGet();
+                        }
+                    });
+                }
+            });
+            // Transfers that committed during the load were written to both filters
+            current = next;
+            pairs.set(added.get());
+        } finally {
+            building = null;
+        }
+        log.info("Known-payee filter rebuilt in {} ms: {} pairs, {} MB",
+            System.currentTimeMillis() - started, added.get(), next.sizeInBytes() / (1024 * 1024));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransferCompleted(TransferCompletedEvent event) {
+        if (event.receiverId() != null) {
+            record(event.senderId(), event.receiverId());
+        }
+    }
+
+    void record(long senderId, long receiverId) {
+        PairBloomFilter next = building;
+        if (next != null) {
+            next.put(senderId, receiverId);
+        }
+        PairBloomFilter filter = current;
+        if (filter != null && filter.put(senderId, receiverId)) {
+            pairs.incrementAndGet();
+        }
+    }
+
+    public boolean hasPaid(Long senderId, Long receiverId) {
+        PairBloomFilter filter = current;
+        return filter != null && filter.mightContain(senderId, receiverId);
+    }
+}
@@ -0,0 +1,78 @@
+package com.upi.payment.fraud;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free blocked Bloom filter over (sender, receiver) id pairs with a fixed size in bytes.
+ * Every probe for a pair lands in one 512-bit block (a single cache line), so a lookup costs one
+ * memory access however large the filter is. At 10 bits per pair the false-positive rate is about 1%.
+ */
+final class PairBloomFilter {
+
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final int HASH_COUNT = 7;
+
+    private final AtomicLongArray words;
+    private final long blockCount;
+
+    PairBloomFilter(long bytes) {
+        long blocks = Math.max(1, bytes / (WORDS_PER_BLOCK * Long.BYTES));
+        this.blockCount = Math.min(blocks, Integer.MAX_VALUE / WORDS_PER_BLOCK);
+        this.words = new AtomicLongArray((int) (blockCount * WORDS_PER_BLOCK));
+    }
+
+    /**
+     * @return true if the pair was not already (apparently) present
+     */
+    boolean put(long senderId, long receiverId) {
+        long hash = mix(senderId * 0x9e3779b97f4a7c15L + receiverId);
+        int base = block(hash);
+        long probes = mix(hash ^ 0x5bd1e9955bd1e995L);
+        boolean added = false;
+        for (int i = 0; i < HASH_COUNT; i++, probes >>>= 9) {
+            int bit = (int) (probes & 511);
+            int word = base + (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = words.get(word)) & mask) == 0) {
+                if (words.compareAndSet(word, current, current | mask)) {
+                    added = true;
+                    break;
+                }
+                Thread.onSpinWait();
+            }
+        }
+        return added;
+    }
+
+    boolean mightContain(long senderId, long receiverId) {
+        long hash = mix(senderId * 0x9e3779b97f4a7c15L + receiverId);
+        int base = block(hash);
+        long probes = mix(hash ^ 0x5bd1e9955bd1e995L);
+        for (int i = 0; i < HASH_COUNT; i++, probes >>>= 9) {
+            int bit = (int) (probes & 511);
+            if ((words.get(base + (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long sizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    private int block(long hash) {
+        return (int) Long.remainderUnsigned(hash, blockCount) * WORDS_PER_BLOCK;
+    }
+
+    // MurmurHash3 fmix64 avalanche
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
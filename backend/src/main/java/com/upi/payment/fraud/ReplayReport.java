@@ -0,0 +1,44 @@
+package com.upi.payment.fraud;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of replaying {@code [from, to)} through the current and a candidate rule set.
+ *
+ * @param decisions    current decision → candidate decision → transfers
+ * @param ruleHits     per rule set ("current", "candidate"), rule → transfers it fired on
+ * @param changes      a sample of transfers whose decision differs
+ */
+public record ReplayReport(
+    LocalDateTime from,
+    LocalDateTime to,
+    Map<String, String> overrides,
+    int partitions,
+    long warmupTransfers,
+    long evaluated,
+    Map<String, Map<String, Long>> decisions,
+    long currentFlagged,
+    long candidateFlagged,
+    long currentBlocked,
+    long candidateBlocked,
+    long newlyFlagged,
+    long noLongerFlagged,
+    long newlyBlocked,
+    long noLongerBlocked,
+    Map<String, Map<String, Long>> ruleHits,
+    List<Change> changes,
+    long elapsedMs,
+    long transfersPerSecond
+) {
+
+    public record Change(
+        Long transactionId,
+        LocalDateTime at,
+        int currentScore,
+        String currentReasons,
+        int candidateScore,
+        String candidateReasons
+    ) {}
+}
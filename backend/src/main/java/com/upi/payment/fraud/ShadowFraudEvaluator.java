@@ -0,0 +1,122 @@
+package com.upi.payment.fraud;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shadow mode: when {@code app.fraud.shadow.enabled}, every live assessment is also scored by a
+ * candidate rule set ({@code app.fraud.shadow.overrides}, see {@link CandidateRules}) on the same
+ * {@link FraudContext}. The candidate runs on its own thread after the live decision is made and
+ * its result is only counted, in {@code fraud.shadow.decisions{live,candidate}}; when the queue is
+ * full the comparison is dropped ({@code fraud.shadow.dropped}) rather than slowing transfers.
+ */
+@Component
+@Slf4j
+public class ShadowFraudEvaluator {
+
+    @Value("${app.fraud.shadow.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.fraud.shadow.queue-capacity:1000}")
+    private int queueCapacity = 1000;
+
+    private final CandidateRules candidateRules;
+    private final VelocityTracker velocityTracker;
+    private final KnownPayeeIndex knownPayeeIndex;
+    private final SpendingProfileStore spendingProfileStore;
+    private final TransactionGraph transactionGraph;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    private FraudRuleEngine candidate;
+    private ThreadPoolExecutor executor;
+    private Counter dropped;
+
+    public ShadowFraudEvaluator(CandidateRules candidateRules, VelocityTracker velocityTracker,
+                                KnownPayeeIndex knownPayeeIndex, SpendingProfileStore spendingProfileStore,
+                                TransactionGraph transactionGraph, Environment environment,
+                                MeterRegistry meterRegistry) {
+        this.candidateRules = candidateRules;
+        this.velocityTracker = velocityTracker;
+        this.knownPayeeIndex = knownPayeeIndex;
+        this.spendingProfileStore = spendingProfileStore;
+        this.transactionGraph = transactionGraph;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        Map<String, String> overrides = Binder.get(environment)
+            .bind("app.fraud.shadow.overrides", Bindable.mapOf(String.class, String.class))
+            .orElse(Map.of());
+        // Candidate rule metrics stay out of the live fraud.rule.* series
+        candidate = candidateRules.engine(overrides,
+            new FraudSources(velocityTracker, knownPayeeIndex, spendingProfileStore, transactionGraph),
+            new SimpleMeterRegistry());
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), r -> {
+                Thread t = new Thread(r, "fraud-shadow");
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        dropped = Counter.builder("fraud.shadow.dropped")
+            .description("Live assessments not compared because the shadow queue was full")
+            .register(meterRegistry);
+        log.info("Fraud shadow mode on, overrides: {}", overrides);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            candidateRules.release(candidate);
+        }
+    }
+
+    /** Inputs the candidate needs beyond the live rules'; empty when shadow mode is off. */
+    public Set<FraudData> required() {
+        return candidate == null ? Set.of() : candidate.required();
+    }
+
+    public void observe(FraudContext context, FraudRuleEngine.Evaluation live) {
+        if (executor == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> compare(context, live));
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+        }
+    }
+
+    private void compare(FraudContext context, FraudRuleEngine.Evaluation live) {
+        FraudRuleEngine.Evaluation shadow = candidate.evaluate(context);
+        meterRegistry.counter("fraud.shadow.decisions",
+            "live", live.decision().name(), "candidate", shadow.decision().name()).increment();
+        if (live.decision() != shadow.decision()) {
+            log.debug("Shadow fraud decision differs for user {}: live {} ({}, {}), candidate {} ({}, {})",
+                context.sender().getId(), live.decision(), live.score(), live.reasons(),
+                shadow.decision(), shadow.score(), shadow.reasons());
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.upi.payment.fraud;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The {@link VelocityTracker} windows kept in Redis, so every node counts the transfers committed by
+ * all of them. One hash per subject (sender, or sender/receiver pair) holds the same rings as
+ * {@link VelocityWindow}: 60 minute and 24 hour slots, each a stamp (the minute or hour it holds)
+ * with a count and an amount in paise, and a slot whose stamp is older is reset when reused. A
+ * transfer updates its sender's and pair's hashes in one script, and a snapshot reads one hash.
+ * Both keys carry the sender ID as hash tag, so each script touches only its declared keys, in one
+ * cluster slot.
+ *
+ * While Redis is unreachable callers fall back to their local windows and Redis is retried after
+ * {@code retryMs}. Transfers recorded meanwhile are kept (up to {@link #MAX_PENDING}) and written
+ * once Redis answers again, so the shared counts do not stay short of them.
+ */
+@Slf4j
+public class SharedVelocityWindows {
+
+    static final int MAX_PENDING = 10_000;
+
+    // KEYS subjects (sender, then pair if any); ARGV[1] minute, ARGV[2] hour, ARGV[3] amount in paise.
+    // Slot fields: m<slot> stamp, mc<slot> count, ma<slot> amount (h... for hours).
+    private static final RedisScript<Long> RECORD = new DefaultRedisScript<>("""
+        local function add(key, ring, index, size, paise)
+          local slot = index % size
+          local stamp = tonumber(redis.call('HGET', key, ring .. slot))
+          if stamp == nil or stamp < index then
+            redis.call('HMSET', key, ring .. slot, index, ring .. 'c' .. slot, 1, ring .. 'a' .. slot, paise)
+          elseif stamp == index then
+            redis.call('HINCRBY', key, ring .. 'c' .. slot, 1)
+            redis.call('HINCRBY', key, ring .. 'a' .. slot, paise)
+          end
+        end
+        local minute, hour = tonumber(ARGV[1]), tonumber(ARGV[2])
+        for _, key in ipairs(KEYS) do
+          add(key, 'm', minute, 60, ARGV[3])
+          add(key, 'h', hour, 24, ARGV[3])
+          redis.call('EXPIRE', key, 90000)
+        end
+        return 1
+        """, Long.class);
+
+    // KEYS[1] subject, ARGV[1] current minute. Returns the VelocitySnapshot fields in order.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SNAPSHOT = new DefaultRedisScript<>("""
+        local now = tonumber(ARGV[1])
+        local hour = math.floor(now / 60)
+        local fields = {}
+        local all = redis.call('HGETALL', KEYS[1])
+        for i = 1, #all, 2 do fields[all[i]] = tonumber(all[i + 1]) end
+        local r = {0, 0, 0, 0, 0, 0, 0, 0}
+        for age = 0, 59 do
+          local slot = (now - age) % 60
+          if fields['m' .. slot] == now - age then
+            local c, a = fields['mc' .. slot] or 0, fields['ma' .. slot] or 0
+            if age == 0 then r[1], r[2] = c, a end
+            if age < 10 then r[3], r[4] = r[3] + c, r[4] + a end
+            r[5], r[6] = r[5] + c, r[6] + a
+          end
+        end
+        for age = 0, 23 do
+          local slot = (hour - age) % 24
+          if fields['h' .. slot] == hour - age then
+            r[7], r[8] = r[7] + (fields['hc' .. slot] or 0), r[8] + (fields['ha' .. slot] or 0)
+          end
+        end
+        return r
+        """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+    private final long retryNanos;
+    private final Counter errors;
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private volatile long unavailableUntil = Long.MIN_VALUE;
+    private volatile boolean unavailable;
+
+    public SharedVelocityWindows(StringRedisTemplate redisTemplate, String keyPrefix, long retryMs,
+                                 MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+        this.retryNanos = TimeUnit.MILLISECONDS.toNanos(retryMs);
+        this.errors = meterRegistry.counter("fraud.velocity.redis.errors");
+    }
+
+    void record(Long senderId, Long receiverId, long epochMinute, long amountPaise) {
+        Pending transfer = new Pending(receiverId == null
+            ? List.of(sender(senderId)) : List.of(sender(senderId), pair(senderId, receiverId)),
+            epochMinute, amountPaise);
+        if (call(() -> write(transfer)) == null) {
+            keep(transfer);
+        }
+    }
+
+    /** Null while Redis is unreachable; the caller then reads its local window. */
+    VelocitySnapshot sender(Long senderId, long epochMinute) {
+        return call(() -> snapshot(sender(senderId), epochMinute));
+    }
+
+    VelocitySnapshot pair(Long senderId, Long receiverId, long epochMinute) {
+        return call(() -> snapshot(pair(senderId, receiverId), epochMinute));
+    }
+
+    int pendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    private <T> T call(Supplier<T> command) {
+        if (unavailable && System.nanoTime() - unavailableUntil < 0) {
+            return null;
+        }
+        try {
+            T result = command.get();
+            if (unavailable) {
+                unavailable = false;
+                log.info("Redis velocity windows reachable again, writing {} pending transfers", pendingCount());
+                writePending();
+            }
+            return result;
+        } catch (RuntimeException e) {
+            markUnavailable(e);
+            return null;
+        }
+    }
+
+    private void writePending() {
+        Pending transfer;
+        while ((transfer = poll()) != null) {
+            try {
+                write(transfer);
+            } catch (RuntimeException e) {
+                synchronized (pending) {
+                    pending.addFirst(transfer);
+                }
+                markUnavailable(e);
+                return;
+            }
+        }
+    }
+
+    private Boolean write(Pending transfer) {
+        redisTemplate.execute(RECORD, transfer.subjects(), String.valueOf(transfer.epochMinute()),
+            String.valueOf(Math.floorDiv(transfer.epochMinute(), 60)), String.valueOf(transfer.amountPaise()));
+        return Boolean.TRUE;
+    }
+
+    private VelocitySnapshot snapshot(String subject, long epochMinute) {
+        List<?> fields = redisTemplate.execute(SNAPSHOT, List.of(subject), String.valueOf(epochMinute));
+        if (fields == null || fields.size() != 8) {
+            throw new IllegalStateException("Unexpected velocity snapshot reply: " + fields);
+        }
+        return new VelocitySnapshot(
+            count(fields, 0), amount(fields, 1), count(fields, 2), amount(fields, 3),
+            count(fields, 4), amount(fields, 5), count(fields, 6), amount(fields, 7));
+    }
+
+    private void keep(Pending transfer) {
+        synchronized (pending) {
+            // Oldest first out: it leaves the windows soonest
+            if (pending.size() >= MAX_PENDING) {
+                pending.pollFirst();
+            }
+            pending.addLast(transfer);
+        }
+    }
+
+    private Pending poll() {
+        synchronized (pending) {
+            return pending.pollFirst();
+        }
+    }
+
+    private void markUnavailable(RuntimeException e) {
+        errors.increment();
+        if (!unavailable) {
+            log.warn("Redis velocity windows unavailable, using local counts: {}", e.getMessage());
+        }
+        unavailableUntil = System.nanoTime() + retryNanos;
+        unavailable = true;
+    }
+
+    private String sender(Long senderId) {
+        return keyPrefix + "{" + senderId + "}:s";
+    }
+
+    private String pair(Long senderId, Long receiverId) {
+        return keyPrefix + "{" + senderId + "}:p:" + receiverId;
+    }
+
+    private static int count(List<?> fields, int index) {
+        return ((Number) fields.get(index)).intValue();
+    }
+
+    private static long amount(List<?> fields, int index) {
+        return ((Number) fields.get(index)).longValue();
+    }
+
+    private record Pending(List<String> subjects, long epochMinute, long amountPaise) {}
+}
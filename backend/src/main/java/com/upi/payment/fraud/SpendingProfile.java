@@ -0,0 +1,49 @@
+package com.upi.payment.fraud;
+
+import java.math.BigDecimal;
+
+/**
+ * A sender's own spending habits as of the last committed transfer. Amount statistics are over
+ * the natural log of the amount in paise, since payment amounts are roughly log-normal: a jump
+ * from ₹100 to ₹10,000 and a drop from ₹10,000 to ₹100 are the same distance.
+ *
+ * @param established     enough transfers ({@code app.fraud.profile.min-transfers}) to score against
+ * @param ewmaLogAmount   recent typical amount; deviations are measured from here
+ * @param stdLogAmount    spread over the whole history (Welford)
+ * @param hourCounts      transfers per local hour of day, decayed by halving
+ * @param typicalReceivers estimated distinct receivers
+ */
+public record SpendingProfile(
+    int transfers,
+    boolean established,
+    double meanLogAmount,
+    double stdLogAmount,
+    double ewmaLogAmount,
+    int[] hourCounts,
+    int typicalReceivers
+) {
+
+    public static final SpendingProfile NONE = new SpendingProfile(0, false, 0, 0, 0, new int[24], 0);
+
+    // A user who always pays the same amount would otherwise flag any change of a few rupees
+    private static final double MIN_LOG_STD = 0.25;
+
+    /** Standard deviations between this amount and the user's recent typical amount, in log space. */
+    public double amountDeviation(BigDecimal amount) {
+        double logAmount = Math.log(Math.max(1, amount.movePointRight(2).doubleValue()));
+        return Math.abs(logAmount - ewmaLogAmount) / Math.max(stdLogAmount, MIN_LOG_STD);
+    }
+
+    /** Share of the user's transfers made within an hour either side of {@code hour}. */
+    public double hourShare(int hour) {
+        int total = 0;
+        for (int count : hourCounts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        int near = hourCounts[(hour + 23) % 24] + hourCounts[hour] + hourCounts[(hour + 1) % 24];
+        return (double) near / total;
+    }
+}
@@ -0,0 +1,438 @@
+package com.upi.payment.fraud;
+
+import com.upi.payment.event.TransferCompletedEvent;
+import com.upi.payment.repository.TransactionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-sender spending profiles ({@link SpendingProfile}) updated incrementally as each transfer
+ * commits, so fraud rules can judge an amount or an hour against the sender's own history rather
+ * than global constants.
+ *
+ * Profiles live in parallel primitive arrays behind an open-addressing table on user id (about
+ * 70 bytes per slot, no object per user). They are snapshotted to
+ * {@code app.fraud.profile.snapshot-path} (blank to disable) every {@code snapshot-interval-ms}
+ * and on shutdown. At startup the snapshot is loaded and transfers since it are replayed from the
+ * table; without one, the last {@code rebuild-days} of transfers are replayed. The replay starts a
+ * little before the snapshot, and the snapshot lists the reference IDs applied in that overlap, so
+ * exactly those rows are skipped: same-second transfers and rows that committed out of timestamp
+ * order are still counted.
+ */
+@Component
+@Slf4j
+public class SpendingProfileStore {
+
+    private static final int MAGIC = 0x55505346;
+    private static final int VERSION = 2;
+    private static final int HOURS = 24;
+    // Replay overlaps the snapshot by this much; the references applied in it drop the duplicates
+    private static final long REPLAY_OVERLAP_SECONDS = 60;
+    // References are kept longer than the overlap: a ledger row is stamped when it is projected,
+    // after its event was applied here
+    private static final long RECENT_SECONDS = 2 * REPLAY_OVERLAP_SECONDS;
+
+    @Value("${app.fraud.profile.min-transfers:10}")
+    private int minTransfers = 10;
+
+    @Value("${app.fraud.profile.ewma-alpha:0.1}")
+    private double ewmaAlpha = 0.1;
+
+    @Value("${app.fraud.profile.snapshot-path:data/fraud/spending-profiles.bin}")
+    private String snapshotPath = "data/fraud/spending-profiles.bin";
+
+    @Value("${app.fraud.profile.rebuild-days:90}")
+    private int rebuildDays = 90;
+
+    private final TransactionRepository transactionRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Transfers applied in the last RECENT_SECONDS, oldest first; guarded by the write lock
+    private final Deque<Applied> recent = new ArrayDeque<>();
+
+    private Clock clock = Clock.systemUTC();
+
+    // Slot i holds user keys[i]; 0 marks an empty slot (ids start at 1)
+    private long[] keys;
+    private int[] counts;
+    private double[] logMeans;
+    private double[] logM2s;
+    private double[] logEwmas;
+    private long[] receiverBits;
+    private byte[] hours;
+    private int size;
+
+    // Detached instance fed by hand (fraud replay): no table, no snapshots, no metrics
+    private SpendingProfileStore(SpendingProfileStore settings) {
+        this.transactionRepository = null;
+        this.transactionManager = null;
+        this.minTransfers = settings.minTransfers;
+        this.ewmaAlpha = settings.ewmaAlpha;
+        this.snapshotPath = "";
+        allocate(1 << 10);
+    }
+
+    /** An empty store with this one's settings. */
+    SpendingProfileStore detached() {
+        return new SpendingProfileStore(this);
+    }
+
+    @Autowired
+    public SpendingProfileStore(TransactionRepository transactionRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.transactionManager = transactionManager;
+        allocate(1 << 10);
+        Gauge.builder("fraud.profile.users", this, store -> store.size)
+            .description("Senders with a spending profile")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        Set<String> inSnapshot = new HashSet<>();
+        Instant snapshotAt = load(inSnapshot);
+        Instant since = snapshotAt != null
+            ? snapshotAt.minusSeconds(REPLAY_OVERLAP_SECONDS)
+            : clock.instant().minus(Duration.ofDays(rebuildDays));
+        long replayed = replay(since, inSnapshot);
+        log.info("Spending profiles ready: {} users ({} from snapshot, {} transfers replayed)",
+            size, snapshotAt != null ? "loaded" : "none", replayed);
+    }
+
+    @PreDestroy
+    void close() {
+        snapshot();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransferCompleted(TransferCompletedEvent event) {
+        record(event.senderId(), event.receiverId(), event.amount(), event.completedAt(), event.referenceId());
+    }
+
+    public SpendingProfile profile(Long userId) {
+        lock.readLock().lock();
+        try {
+            int slot = find(userId);
+            if (slot < 0) {
+                return SpendingProfile.NONE;
+            }
+            int n = counts[slot];
+            int[] hourCounts = new int[HOURS];
+            for (int h = 0; h < HOURS; h++) {
+                hourCounts[h] = hours[slot * HOURS + h] & 0xFF;
+            }
+            return new SpendingProfile(n, n >= minTransfers, logMeans[slot],
+                n > 1 ? Math.sqrt(logM2s[slot] / (n - 1)) : 0, logEwmas[slot], hourCounts,
+                distinctEstimate(receiverBits[slot]));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write every profile to the snapshot file. Arrays are copied under the read lock and written
+     * outside it, so transfers are not held up by disk I/O.
+     */
+    @Scheduled(fixedDelayString = "${app.fraud.profile.snapshot-interval-ms:300000}",
+        initialDelayString = "${app.fraud.profile.snapshot-interval-ms:300000}")
+    public synchronized void snapshot() {
+        if (snapshotPath.isBlank()) {
+            return;
+        }
+        long[] keysCopy;
+        int[] countsCopy;
+        double[] meansCopy, m2sCopy, ewmasCopy;
+        long[] receiversCopy;
+        byte[] hoursCopy;
+        List<String> recentCopy;
+        int entries;
+        Instant takenAt = clock.instant();
+        // Write lock: pruning the recent references mutates them
+        lock.writeLock().lock();
+        try {
+            keysCopy = keys.clone();
+            countsCopy = counts.clone();
+            meansCopy = logMeans.clone();
+            m2sCopy = logM2s.clone();
+            ewmasCopy = logEwmas.clone();
+            receiversCopy = receiverBits.clone();
+            hoursCopy = hours.clone();
+            entries = size;
+            pruneRecent(takenAt.getEpochSecond());
+            recentCopy = recent.stream().map(Applied::referenceId).toList();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Path path = Paths.get(snapshotPath);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(takenAt.toEpochMilli());
+                out.writeInt(entries);
+                for (int slot = 0; slot < keysCopy.length; slot++) {
+                    if (keysCopy[slot] == 0) continue;
+                    out.writeLong(keysCopy[slot]);
+                    out.writeInt(countsCopy[slot]);
+                    out.writeDouble(meansCopy[slot]);
+                    out.writeDouble(m2sCopy[slot]);
+                    out.writeDouble(ewmasCopy[slot]);
+                    out.writeLong(receiversCopy[slot]);
+                    out.write(hoursCopy, slot * HOURS, HOURS);
+                }
+                out.writeInt(recentCopy.size());
+                for (String referenceId : recentCopy) {
+                    out.writeUTF(referenceId);
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Spending profile snapshot written: {} users", entries);
+        } catch (IOException e) {
+            log.warn("Spending profile snapshot failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Adds a transfer to its sender's profile. A non-null {@code referenceId} is remembered for the
+     * next snapshot, so a replay after it does not apply the transfer again.
+     */
+    void record(Long senderId, Long receiverId, BigDecimal amount, Instant at, String referenceId) {
+        double logAmount = Math.log(Math.max(1, amount.movePointRight(2).doubleValue()));
+        int hour = at.atZone(ZoneId.systemDefault()).getHour();
+        lock.writeLock().lock();
+        try {
+            int slot = slotFor(senderId);
+            int n = ++counts[slot];
+            double delta = logAmount - logMeans[slot];
+            logMeans[slot] += delta / n;
+            logM2s[slot] += delta * (logAmount - logMeans[slot]);
+            logEwmas[slot] = n == 1 ? logAmount : logEwmas[slot] + ewmaAlpha * (logAmount - logEwmas[slot]);
+            if (receiverId != null) {
+                receiverBits[slot] |= 1L << (int) (mix(receiverId) & 63);
+            }
+
+            int base = slot * HOURS;
+            if ((hours[base + hour] & 0xFF) == 0xFF) {
+                // Halve the whole histogram, which also lets old habits fade
+                for (int h = 0; h < HOURS; h++) {
+                    hours[base + h] = (byte) ((hours[base + h] & 0xFF) >>> 1);
+                }
+            }
+            hours[base + hour]++;
+
+            if (referenceId != null && !snapshotPath.isBlank()) {
+                long now = clock.instant().getEpochSecond();
+                pruneRecent(now);
+                recent.addLast(new Applied(referenceId, now));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private void pruneRecent(long nowSecond) {
+        while (!recent.isEmpty() && recent.peekFirst().second() < nowSecond - RECENT_SECONDS) {
+            recent.pollFirst();
+        }
+    }
+
+    /** Replays transfers since {@code since}, except those {@code inSnapshot} already holds. */
+    private long replay(Instant since, Set<String> inSnapshot) {
+        LocalDateTime from = LocalDateTime.ofInstant(since, ZoneId.systemDefault());
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        Long replayed = template.execute(status -> {
+            long[] rows = {0};
+            try (var transfers = transactionRepository.streamTransfersSince(from)) {
+                transfers.forEach(row -> {
+                    String referenceId = (String) row[4];
+                    if (inSnapshot.remove(referenceId)) {
+                        return;
+                    }
+                    record((Long) row[0], (Long) row[1], (BigDecimal) row[2],
+                        ((LocalDateTime) row[3]).atZone(ZoneId.systemDefault()).toInstant(), referenceId);
+                    rows[0]++;
+                });
+            }
+            return rows[0];
+        });
+        return replayed == null ? 0 : replayed;
+    }
+
+    /** Loads the snapshot, if any, and adds the references it lists to {@code inSnapshot}. */
+    private Instant load(Set<String> inSnapshot) {
+        if (snapshotPath.isBlank()) {
+            return null;
+        }
+        Path path = Paths.get(snapshotPath);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.warn("Ignoring spending profile snapshot {}: unknown format", path);
+                return null;
+            }
+            Instant takenAt = Instant.ofEpochMilli(in.readLong());
+            int entries = in.readInt();
+            lock.writeLock().lock();
+            try {
+                allocate(Integer.highestOneBit(Math.max(entries, 1) * 2) * 2);
+                byte[] hourRow = new byte[HOURS];
+                for (int i = 0; i < entries; i++) {
+                    int slot = slotFor(in.readLong());
+                    counts[slot] = in.readInt();
+                    logMeans[slot] = in.readDouble();
+                    logM2s[slot] = in.readDouble();
+                    logEwmas[slot] = in.readDouble();
+                    receiverBits[slot] = in.readLong();
+                    in.readFully(hourRow);
+                    System.arraycopy(hourRow, 0, hours, slot * HOURS, HOURS);
+                }
+                int references = in.readInt();
+                for (int i = 0; i < references; i++) {
+                    inSnapshot.add(in.readUTF());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return takenAt;
+        } catch (IOException e) {
+            // Start from the table instead; a half-loaded snapshot would double-count on replay
+            log.warn("Ignoring unreadable spending profile snapshot {}: {}", path, e.getMessage());
+            inSnapshot.clear();
+            lock.writeLock().lock();
+            try {
+                allocate(1 << 10);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return null;
+        }
+    }
+
+    // Caller holds the write lock
+    private int slotFor(long userId) {
+        if ((size + 1) * 10L > keys.length * 7L) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = (int) mix(userId) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == userId) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = userId;
+        size++;
+        return slot;
+    }
+
+    private int find(long userId) {
+        int mask = keys.length - 1;
+        int slot = (int) mix(userId) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == userId) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        double[] oldMeans = logMeans, oldM2s = logM2s, oldEwmas = logEwmas;
+        long[] oldReceivers = receiverBits;
+        byte[] oldHours = hours;
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (oldKeys[old] == 0) continue;
+            int slot = (int) mix(oldKeys[old]) & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[old];
+            counts[slot] = oldCounts[old];
+            logMeans[slot] = oldMeans[old];
+            logM2s[slot] = oldM2s[old];
+            logEwmas[slot] = oldEwmas[old];
+            receiverBits[slot] = oldReceivers[old];
+            System.arraycopy(oldHours, old * HOURS, hours, slot * HOURS, HOURS);
+            size++;
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        counts = new int[capacity];
+        logMeans = new double[capacity];
+        logM2s = new double[capacity];
+        logEwmas = new double[capacity];
+        receiverBits = new long[capacity];
+        hours = new byte[capacity * HOURS];
+        size = 0;
+    }
+
+    // Linear counting over a 64-bit bitmap: accurate to a few dozen receivers, saturates near 260
+    private static int distinctEstimate(long bits) {
+        int zeros = 64 - Long.bitCount(bits);
+        return (int) Math.round(-64 * Math.log(Math.max(zeros, 1) / 64.0));
+    }
+
+    private record Applied(String referenceId, long second) {}
+
+    // MurmurHash3 fmix64
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
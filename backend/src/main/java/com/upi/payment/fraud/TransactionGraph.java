@@ -0,0 +1,611 @@
+package com.upi.payment.fraud;
+
+import com.upi.payment.event.TransferCompletedEvent;
+import com.upi.payment.repository.TransactionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Directed graph of who paid whom, kept in memory to find money-mule patterns no single transfer
+ * shows: short cycles (A→B→C→A) and pass-through hubs that collect from many payers and forward
+ * most of it (FAN_IN), or spread one inflow across many receivers (FAN_OUT).
+ *
+ * Nodes and edges live in primitive arrays allocated once from {@code app.fraud.graph.memory-mb},
+ * about 40 bytes per edge including its share of nodes (1 GB holds roughly 26 million edges), with
+ * each node's out-edges as an intrusive list, newest first. Edge weights are rupee amounts
+ * decayed with {@code half-life-hours}; edges below {@code min-edge-amount} are ignored by the
+ * searches and reclaimed by {@link #prune()}, which also evicts the oldest edges when the arrays fill.
+ *
+ * Each committed transfer ({@link TransferCompletedEvent}) adds or reinforces one edge and re-checks
+ * only around it: both endpoints' hub ratios, and a search for a path of live edges back from the
+ * receiver to the sender, bounded by {@code max-cycle-length}, {@code max-fan-out} edges per node
+ * and {@code max-visits} edges in total. Findings become a per-user risk (0–100, decaying like the
+ * edges) that {@link FraudSources} passes to rules and {@link #topSuspects} ranks for admins.
+ */
+@Component
+@Slf4j
+public class TransactionGraph {
+
+    public static final String CYCLE = "CYCLE";
+    public static final String FAN_IN = "FAN_IN";
+    public static final String FAN_OUT = "FAN_OUT";
+
+    private static final String[] PATTERNS = {null, CYCLE, FAN_IN, FAN_OUT};
+    private static final int NONE = -1;
+    private static final int EDGE_BYTES = 28;
+    private static final int NODE_BYTES = 52;
+    private static final int EDGES_PER_NODE = 4;
+    private static final int MAX_AGE_HOURS = 1 << 16;
+
+    @Value("${app.fraud.graph.memory-mb:256}")
+    private long memoryMb = 256;
+
+    @Value("${app.fraud.graph.half-life-hours:72}")
+    private double halfLifeHours = 72;
+
+    @Value("${app.fraud.graph.min-edge-amount:100.00}")
+    private double minEdgeAmount = 100;
+
+    @Value("${app.fraud.graph.max-cycle-length:5}")
+    private int maxCycleLength = 5;
+
+    @Value("${app.fraud.graph.max-fan-out:64}")
+    private int maxFanOut = 64;
+
+    @Value("${app.fraud.graph.max-visits:2000}")
+    private int maxVisits = 2000;
+
+    @Value("${app.fraud.graph.hub-min-degree:10}")
+    private int hubMinDegree = 10;
+
+    @Value("${app.fraud.graph.pass-through:0.7}")
+    private double passThrough = 0.7;
+
+    @Value("${app.fraud.graph.rebuild-days:30}")
+    private int rebuildDays = 30;
+
+    private final TransactionRepository transactionRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Clock clock = Clock.systemUTC();
+    private double decayPerMinute;
+
+    // Node n is user nodeIds[n]; nodeTable holds n + 1 by hashed user id, 0 when empty
+    private long[] nodeIds;
+    private int[] nodeTable;
+    private int[] outHead;
+    private int[] outDegree;
+    private int[] inDegree;
+    private float[] inFlow;
+    private float[] outFlow;
+    private int[] flowMinute;
+    private float[] risk;
+    private int[] riskMinute;
+    private byte[] pattern;
+    private int nodeCapacity;
+    private int nodeCount;
+
+    // Edge e runs edgeFrom[e] -> edgeTo[e]; edgeTable holds e + 1 by hashed node pair
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    private int[] nextOut;
+    private float[] edgeWeight;
+    private int[] edgeMinute;
+    private int[] edgeTable;
+    private int edgeCapacity;
+    private int edgeCount;
+
+    public TransactionGraph(TransactionRepository transactionRepository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.transactionManager = transactionManager;
+        Gauge.builder("fraud.graph.edges", this, graph -> graph.edgeCount)
+            .description("Payer/payee edges held in the transaction graph")
+            .register(meterRegistry);
+        Gauge.builder("fraud.graph.nodes", this, graph -> graph.nodeCount)
+            .description("Users held in the transaction graph")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        allocate(memoryMb * 1024 * 1024);
+        long started = System.currentTimeMillis();
+        LocalDateTime from = LocalDateTime.ofInstant(clock.instant().minus(Duration.ofDays(rebuildDays)),
+            ZoneId.systemDefault());
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        long[] rows = {0};
+        template.executeWithoutResult(status -> {
+            try (var transfers = transactionRepository.streamTransfersSince(from)) {
+                transfers.forEach(row -> {
+                    if (row[1] != null) {
+                        add((Long) row[0], (Long) row[1], (BigDecimal) row[2],
+                            ((LocalDateTime) row[3]).atZone(ZoneId.systemDefault()).toInstant(), false);
+                        rows[0]++;
+                    }
+                });
+            }
+        });
+        // Cycle marks are not rebuilt; hubs are cheap to re-derive from the loaded flows
+        int now = minute(clock.instant());
+        lock.writeLock().lock();
+        try {
+            for (int n = 0; n < nodeCount; n++) {
+                checkHub(n, now);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Transaction graph loaded in {} ms: {} transfers, {} users, {} edges (capacity {})",
+            System.currentTimeMillis() - started, rows[0], nodeCount, edgeCount, edgeCapacity);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransferCompleted(TransferCompletedEvent event) {
+        if (event.receiverId() != null) {
+            add(event.senderId(), event.receiverId(), event.amount(), event.completedAt(), true);
+        }
+    }
+
+    /** Reclaim edges that have decayed below {@code min-edge-amount} and users left with none. */
+    @Scheduled(fixedDelayString = "${app.fraud.graph.prune-interval-ms:600000}",
+        initialDelayString = "${app.fraud.graph.prune-interval-ms:600000}")
+    public void prune() {
+        lock.writeLock().lock();
+        try {
+            compact(minute(clock.instant()), Integer.MAX_VALUE, false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Both parties' risk, and whether a transfer of {@code amount} from sender to receiver would
+     * close a cycle of live edges. Runs the same bounded search as a committed transfer, under the
+     * read lock.
+     */
+    public GraphSignal signal(Long senderId, Long receiverId, BigDecimal amount) {
+        int now = minute(clock.instant());
+        lock.readLock().lock();
+        try {
+            int u = findNode(senderId);
+            int v = receiverId == null ? NONE : findNode(receiverId);
+            if (u == NONE && v == NONE) {
+                return GraphSignal.NONE;
+            }
+            int cycle = 0;
+            if (u != NONE && v != NONE && amount.doubleValue() >= minEdgeAmount) {
+                int edges = findPath(v, u, now, new int[maxCycleLength]);
+                cycle = edges > 0 ? edges + 1 : 0;
+            }
+            int receiverRisk = v == NONE ? 0 : riskAt(v, now);
+            return new GraphSignal(u == NONE ? 0 : riskAt(u, now), receiverRisk,
+                receiverRisk == 0 ? null : PATTERNS[pattern[v]], cycle);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The {@code limit} users with the highest current risk, highest first. */
+    public List<Suspect> topSuspects(int limit) {
+        int now = minute(clock.instant());
+        PriorityQueue<Suspect> top = new PriorityQueue<>(Comparator.comparingInt(Suspect::risk));
+        lock.readLock().lock();
+        try {
+            for (int n = 0; n < nodeCount; n++) {
+                int r = riskAt(n, now);
+                if (r == 0 || (top.size() == limit && r <= top.peek().risk())) {
+                    continue;
+                }
+                top.add(new Suspect(nodeIds[n], r, PATTERNS[pattern[n]], inDegree[n], outDegree[n],
+                    rupees(decay(inFlow[n], now - flowMinute[n])), rupees(decay(outFlow[n], now - flowMinute[n]))));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Suspect> ranked = new ArrayList<>(top);
+        ranked.sort(Comparator.comparingInt(Suspect::risk).reversed());
+        return ranked;
+    }
+
+    /**
+     * @param inFlow   decayed rupees received from the {@code inDegree} payers still in the graph
+     * @param outFlow  decayed rupees sent to the {@code outDegree} payees still in the graph
+     */
+    public record Suspect(long userId, int risk, String pattern, int inDegree, int outDegree,
+                          BigDecimal inFlow, BigDecimal outFlow) {}
+
+    private void add(Long senderId, Long receiverId, BigDecimal amount, Instant at, boolean detect) {
+        if (senderId.equals(receiverId)) {
+            return;
+        }
+        int now = minute(at);
+        double rupees = amount.doubleValue();
+        lock.writeLock().lock();
+        try {
+            if (nodeCount + 2 > nodeCapacity || edgeCount + 1 > edgeCapacity) {
+                makeRoom(now);
+            }
+            int u = nodeFor(senderId, now);
+            int v = nodeFor(receiverId, now);
+            int e = findEdge(u, v);
+            if (e == NONE) {
+                e = addEdge(u, v);
+                edgeWeight[e] = (float) rupees;
+            } else {
+                edgeWeight[e] = (float) (decay(edgeWeight[e], now - edgeMinute[e]) + rupees);
+            }
+            edgeMinute[e] = Math.max(edgeMinute[e], now);
+            addFlow(u, now, 0, rupees);
+            addFlow(v, now, rupees, 0);
+
+            if (detect) {
+                checkHub(u, now);
+                checkHub(v, now);
+            }
+            if (detect && edgeWeight[e] >= minEdgeAmount) {
+                int[] path = new int[maxCycleLength];
+                int edges = findPath(v, u, now, path);
+                if (edges > 0) {
+                    // A 3-cycle scores highest; each extra hop makes coincidence likelier
+                    int score = 90 - 10 * (edges - 2);
+                    for (int i = 0; i <= edges; i++) {
+                        mark(path[i], score, 1, now);
+                    }
+                    log.info("Transfer {} -> {} closes a {}-cycle in the transaction graph",
+                        senderId, receiverId, edges + 1);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ── Detection (caller holds a lock) ──────────────────────────────────────
+
+    /**
+     * Shortest path of 2 to {@code max-cycle-length - 1} live edges from {@code from} to {@code to}
+     * found within the visit budget, by iterative deepening; {@code path[0..edges]} holds its nodes.
+     * A direct edge back does not count: two people paying each other back is normal.
+     */
+    private int findPath(int from, int to, int now, int[] path) {
+        int[] budget = {maxVisits};
+        path[0] = from;
+        for (int limit = 2; limit < maxCycleLength && budget[0] > 0; limit++) {
+            int edges = search(from, to, 0, limit, now, path, budget);
+            if (edges > 0) {
+                return edges;
+            }
+        }
+        return 0;
+    }
+
+    private int search(int node, int target, int depth, int limit, int now, int[] path, int[] budget) {
+        int scanned = 0;
+        for (int e = outHead[node]; e != NONE && scanned < maxFanOut; e = nextOut[e], scanned++) {
+            if (--budget[0] < 0) {
+                return 0;
+            }
+            if (decay(edgeWeight[e], now - edgeMinute[e]) < minEdgeAmount) {
+                continue;
+            }
+            int next = edgeTo[e];
+            if (next == target) {
+                if (depth > 0) {
+                    path[depth + 1] = next;
+                    return depth + 1;
+                }
+                continue;
+            }
+            if (depth + 1 >= limit || onPath(path, depth, next)) {
+                continue;
+            }
+            path[depth + 1] = next;
+            int edges = search(next, target, depth + 1, limit, now, path, budget);
+            if (edges > 0) {
+                return edges;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean onPath(int[] path, int depth, int node) {
+        for (int i = 0; i <= depth; i++) {
+            if (path[i] == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Marks a user who has many counterparties on one side and passes most of the money to the other. */
+    private void checkHub(int n, int now) {
+        double in = decay(inFlow[n], now - flowMinute[n]);
+        double out = decay(outFlow[n], now - flowMinute[n]);
+        double minFlow = minEdgeAmount * hubMinDegree;
+        if (inDegree[n] >= hubMinDegree && in >= minFlow && out >= passThrough * in) {
+            mark(n, 60 + Math.min(30, 2 * (inDegree[n] - hubMinDegree)), 2, now);
+        } else if (outDegree[n] >= hubMinDegree && out >= minFlow && in >= passThrough * out) {
+            mark(n, 60 + Math.min(30, 2 * (outDegree[n] - hubMinDegree)), 3, now);
+        }
+    }
+
+    private void mark(int n, int score, int kind, int now) {
+        if (score >= riskAt(n, now)) {
+            risk[n] = score;
+            riskMinute[n] = now;
+            pattern[n] = (byte) kind;
+        }
+    }
+
+    private int riskAt(int n, int now) {
+        return (int) decay(risk[n], now - riskMinute[n]);
+    }
+
+    private void addFlow(int n, int now, double in, double out) {
+        int elapsed = now - flowMinute[n];
+        if (elapsed > 0) {
+            inFlow[n] = (float) decay(inFlow[n], elapsed);
+            outFlow[n] = (float) decay(outFlow[n], elapsed);
+            flowMinute[n] = now;
+        }
+        inFlow[n] += (float) in;
+        outFlow[n] += (float) out;
+    }
+
+    private double decay(double value, int elapsedMinutes) {
+        return elapsedMinutes <= 0 ? value : value * Math.exp(-decayPerMinute * elapsedMinutes);
+    }
+
+    // ── Storage (caller holds the write lock) ────────────────────────────────
+
+    private int findNode(long userId) {
+        int mask = nodeTable.length - 1;
+        int slot = (int) mix(userId) & mask;
+        while (nodeTable[slot] != 0) {
+            int n = nodeTable[slot] - 1;
+            if (nodeIds[n] == userId) {
+                return n;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    private int nodeFor(long userId, int now) {
+        int n = findNode(userId);
+        if (n != NONE) {
+            return n;
+        }
+        n = nodeCount++;
+        nodeIds[n] = userId;
+        outHead[n] = NONE;
+        outDegree[n] = 0;
+        inDegree[n] = 0;
+        inFlow[n] = 0;
+        outFlow[n] = 0;
+        flowMinute[n] = now;
+        risk[n] = 0;
+        riskMinute[n] = now;
+        pattern[n] = 0;
+        indexNode(n);
+        return n;
+    }
+
+    private void indexNode(int n) {
+        int mask = nodeTable.length - 1;
+        int slot = (int) mix(nodeIds[n]) & mask;
+        while (nodeTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        nodeTable[slot] = n + 1;
+    }
+
+    private int findEdge(int u, int v) {
+        int mask = edgeTable.length - 1;
+        int slot = (int) mix(((long) u << 32) | v) & mask;
+        while (edgeTable[slot] != 0) {
+            int e = edgeTable[slot] - 1;
+            if (edgeFrom[e] == u && edgeTo[e] == v) {
+                return e;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    private int addEdge(int u, int v) {
+        int e = edgeCount++;
+        edgeFrom[e] = u;
+        edgeTo[e] = v;
+        edgeMinute[e] = 0;
+        link(e);
+        return e;
+    }
+
+    private void link(int e) {
+        int u = edgeFrom[e];
+        int v = edgeTo[e];
+        nextOut[e] = outHead[u];
+        outHead[u] = e;
+        outDegree[u]++;
+        inDegree[v]++;
+        int mask = edgeTable.length - 1;
+        int slot = (int) mix(((long) u << 32) | v) & mask;
+        while (edgeTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        edgeTable[slot] = e + 1;
+    }
+
+    /** Evicts the oldest edges, halving them each round, until both arrays are at most 3/4 full. */
+    private void makeRoom(int now) {
+        int maxAge = Integer.MAX_VALUE;
+        while (true) {
+            compact(now, maxAge, true);
+            if (edgeCount <= edgeCapacity / 4 * 3 && nodeCount <= nodeCapacity / 4 * 3) {
+                break;
+            }
+            // Everything left is from this minute: give up on history rather than loop
+            maxAge = maxAge == 0 ? -1 : medianEdgeAge(now);
+        }
+        log.warn("Transaction graph full: kept {} users and {} edges no older than {} hours",
+            nodeCount, edgeCount, maxAge == Integer.MAX_VALUE ? "any" : String.valueOf(maxAge / 60));
+    }
+
+    private int medianEdgeAge(int now) {
+        int[] hours = new int[MAX_AGE_HOURS];
+        for (int e = 0; e < edgeCount; e++) {
+            hours[Math.min(MAX_AGE_HOURS - 1, Math.max(0, now - edgeMinute[e]) / 60)]++;
+        }
+        int seen = 0;
+        for (int h = 0; h < MAX_AGE_HOURS; h++) {
+            seen += hours[h];
+            if (seen * 2L >= edgeCount) {
+                return h * 60;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Drops edges below {@code min-edge-amount} or older than {@code maxAgeMinutes}, then users with
+     * no edges left (kept while they still carry risk unless {@code dropIdle}), and relinks the rest
+     * in place.
+     */
+    private void compact(int now, int maxAgeMinutes, boolean dropIdle) {
+        int[] nodeMap = new int[nodeCount];
+        Arrays.fill(nodeMap, NONE);
+        for (int e = 0; e < edgeCount; e++) {
+            if (keepEdge(e, now, maxAgeMinutes)) {
+                nodeMap[edgeFrom[e]] = 0;
+                nodeMap[edgeTo[e]] = 0;
+            }
+        }
+        int nodes = 0;
+        for (int n = 0; n < nodeCount; n++) {
+            if (nodeMap[n] == NONE && (dropIdle || riskAt(n, now) == 0)) {
+                continue;
+            }
+            nodeIds[nodes] = nodeIds[n];
+            inFlow[nodes] = inFlow[n];
+            outFlow[nodes] = outFlow[n];
+            flowMinute[nodes] = flowMinute[n];
+            risk[nodes] = risk[n];
+            riskMinute[nodes] = riskMinute[n];
+            pattern[nodes] = pattern[n];
+            nodeMap[n] = nodes++;
+        }
+        int edges = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            if (!keepEdge(e, now, maxAgeMinutes)) {
+                continue;
+            }
+            edgeFrom[edges] = nodeMap[edgeFrom[e]];
+            edgeTo[edges] = nodeMap[edgeTo[e]];
+            edgeWeight[edges] = edgeWeight[e];
+            edgeMinute[edges] = edgeMinute[e];
+            edges++;
+        }
+
+        nodeCount = nodes;
+        edgeCount = edges;
+        Arrays.fill(nodeTable, 0);
+        Arrays.fill(edgeTable, 0);
+        Arrays.fill(outHead, 0, nodes, NONE);
+        Arrays.fill(outDegree, 0, nodes, 0);
+        Arrays.fill(inDegree, 0, nodes, 0);
+        for (int n = 0; n < nodes; n++) {
+            indexNode(n);
+        }
+        // Oldest first, so each list ends up newest first again
+        for (int e = 0; e < edges; e++) {
+            link(e);
+        }
+    }
+
+    private boolean keepEdge(int e, int now, int maxAgeMinutes) {
+        return now - edgeMinute[e] <= maxAgeMinutes
+            && decay(edgeWeight[e], now - edgeMinute[e]) >= minEdgeAmount;
+    }
+
+    private void allocate(long bytes) {
+        long edges = bytes / (EDGE_BYTES + NODE_BYTES / EDGES_PER_NODE);
+        edgeCapacity = (int) Math.min(edges, Integer.MAX_VALUE / 4);
+        nodeCapacity = Math.max(edgeCapacity / EDGES_PER_NODE, 2);
+        decayPerMinute = Math.log(2) / (halfLifeHours * 60);
+
+        nodeIds = new long[nodeCapacity];
+        nodeTable = new int[tableSize(nodeCapacity)];
+        outHead = new int[nodeCapacity];
+        outDegree = new int[nodeCapacity];
+        inDegree = new int[nodeCapacity];
+        inFlow = new float[nodeCapacity];
+        outFlow = new float[nodeCapacity];
+        flowMinute = new int[nodeCapacity];
+        risk = new float[nodeCapacity];
+        riskMinute = new int[nodeCapacity];
+        pattern = new byte[nodeCapacity];
+        nodeCount = 0;
+
+        edgeFrom = new int[edgeCapacity];
+        edgeTo = new int[edgeCapacity];
+        nextOut = new int[edgeCapacity];
+        edgeWeight = new float[edgeCapacity];
+        edgeMinute = new int[edgeCapacity];
+        edgeTable = new int[tableSize(edgeCapacity)];
+        edgeCount = 0;
+    }
+
+    // Power of two with the table at most 2/3 full
+    private static int tableSize(int capacity) {
+        return Integer.highestOneBit(Math.max(capacity + capacity / 2, 2)) << 1;
+    }
+
+    private static int minute(Instant at) {
+        return (int) (at.getEpochSecond() / 60);
+    }
+
+    private static BigDecimal rupees(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // MurmurHash3 fmix64
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,24 @@
+package com.upi.payment.fraud;
+
+import java.math.BigDecimal;
+
+/**
+ * Transfer counts and amounts (paise) per window, as of the minute the snapshot was taken.
+ */
+public record VelocitySnapshot(
+    int count1m, long amount1mPaise,
+    int count10m, long amount10mPaise,
+    int count1h, long amount1hPaise,
+    int count24h, long amount24hPaise
+) {
+
+    public static final VelocitySnapshot EMPTY = new VelocitySnapshot(0, 0, 0, 0, 0, 0, 0, 0);
+
+    public BigDecimal amount1h() {
+        return BigDecimal.valueOf(amount1hPaise, 2);
+    }
+
+    public BigDecimal amount24h() {
+        return BigDecimal.valueOf(amount24hPaise, 2);
+    }
+}
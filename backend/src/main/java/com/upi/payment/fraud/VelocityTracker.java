@@ -0,0 +1,178 @@
+package com.upi.payment.fraud;
+
+import com.upi.payment.event.TransferCompletedEvent;
+import com.upi.payment.repository.TransactionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sliding-window transfer velocity per sender and per sender/receiver pair, kept in memory so
+ * fraud scoring needs no COUNT queries. Fed by {@link TransferCompletedEvent} after each transfer
+ * commits, and rebuilt from the last 24 hours of the {@code transactions} table at startup, before
+ * the application takes traffic.
+ *
+ * The local windows are per instance: each sees the transfers it committed plus what was in the
+ * table when it started, so with N instances a sender can make up to about N times the velocity
+ * thresholds before any one of them notices, and async triage defers transfers it should not. With
+ * {@code app.fraud.velocity.backend: redis} every committed transfer is also recorded in
+ * {@link SharedVelocityWindows} and snapshots are read from there, falling back to the local
+ * windows while Redis is unreachable.
+ */
+@Component
+@Slf4j
+public class VelocityTracker {
+
+    private final TransactionRepository transactionRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final SharedVelocityWindows shared;
+
+    private final Map<Long, VelocityWindow> bySender = new ConcurrentHashMap<>();
+    private final Map<Pair, VelocityWindow> byPair = new ConcurrentHashMap<>();
+
+    private Clock clock = Clock.systemUTC();
+
+    // Detached instance fed by hand (fraud replay): no table, no metrics, time from the given clock
+    VelocityTracker(Clock clock) {
+        this.transactionRepository = null;
+        this.transactionManager = null;
+        this.shared = null;
+        this.clock = clock;
+    }
+
+    @Autowired
+    public VelocityTracker(TransactionRepository transactionRepository,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.fraud.velocity.backend:local}") String backend,
+                           @Value("${app.fraud.velocity.redis.key-prefix:vel:}") String keyPrefix,
+                           @Value("${app.fraud.velocity.redis.retry-ms:5000}") long retryMs,
+                           ObjectProvider<StringRedisTemplate> redisTemplate) {
+        this(transactionRepository, transactionManager, meterRegistry, "redis".equalsIgnoreCase(backend)
+            ? new SharedVelocityWindows(redisTemplate.getObject(), keyPrefix, retryMs, meterRegistry) : null);
+        if (shared != null) {
+            log.info("Velocity windows are shared through Redis under '{}'", keyPrefix);
+        }
+    }
+
+    /** {@code shared} null keeps the counts local to this instance. */
+    public VelocityTracker(TransactionRepository transactionRepository,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           SharedVelocityWindows shared) {
+        this.transactionRepository = transactionRepository;
+        this.transactionManager = transactionManager;
+        this.shared = shared;
+        Gauge.builder("fraud.velocity.senders", bySender, Map::size)
+            .description("Senders with transfers in the last 24 hours")
+            .register(meterRegistry);
+        Gauge.builder("fraud.velocity.pairs", byPair, Map::size)
+            .description("Sender/receiver pairs with transfers in the last 24 hours")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void rebuild() {
+        LocalDateTime since = LocalDateTime.now(clock.withZone(ZoneId.systemDefault())).minusHours(24);
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        long loaded = template.execute(status -> {
+            long[] rows = {0};
+            try (var transfers = transactionRepository.streamTransfersSince(since)) {
+                transfers.forEach(row -> {
+                    record((Long) row[0], (Long) row[1], (BigDecimal) row[2],
+                        ((LocalDateTime) row[3]).atZone(ZoneId.systemDefault()).toInstant());
+                    rows[0]++;
+                });
+            }
+            return rows[0];
+        });
+        log.info("Velocity counters rebuilt from {} transfers: {} senders, {} pairs",
+            loaded, bySender.size(), byPair.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransferCompleted(TransferCompletedEvent event) {
+        record(event.senderId(), event.receiverId(), event.amount(), event.completedAt());
+        if (shared != null) {
+            shared.record(event.senderId(), event.receiverId(),
+                Math.floorDiv(event.completedAt().getEpochSecond(), 60), paise(event.amount()));
+        }
+    }
+
+    public VelocitySnapshot sender(Long senderId) {
+        VelocitySnapshot snapshot = shared != null ? shared.sender(senderId, nowMinute()) : null;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        VelocityWindow window = bySender.get(senderId);
+        return window == null ? VelocitySnapshot.EMPTY : window.snapshot(nowMinute());
+    }
+
+    public VelocitySnapshot pair(Long senderId, Long receiverId) {
+        VelocitySnapshot snapshot = shared != null ? shared.pair(senderId, receiverId, nowMinute()) : null;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        VelocityWindow window = byPair.get(new Pair(senderId, receiverId));
+        return window == null ? VelocitySnapshot.EMPTY : window.snapshot(nowMinute());
+    }
+
+    /**
+     * Drop windows with nothing left in the last 24 hours.
+     */
+    @Scheduled(fixedDelay = 600_000)
+    public void evictIdle() {
+        long now = nowMinute();
+        // Per key, under the map's lock, so a transfer recorded concurrently is not dropped with its window
+        for (Long senderId : bySender.keySet()) {
+            bySender.computeIfPresent(senderId, (id, window) -> window.isIdle(now) ? null : window);
+        }
+        for (Pair pair : byPair.keySet()) {
+            byPair.computeIfPresent(pair, (key, window) -> window.isIdle(now) ? null : window);
+        }
+    }
+
+    void record(Long senderId, Long receiverId, BigDecimal amount, Instant at) {
+        long minute = Math.floorDiv(at.getEpochSecond(), 60);
+        long paise = paise(amount);
+        bySender.compute(senderId, (id, window) -> recorded(window, minute, paise));
+        if (receiverId != null) {
+            byPair.compute(new Pair(senderId, receiverId), (pair, window) -> recorded(window, minute, paise));
+        }
+    }
+
+    private static VelocityWindow recorded(VelocityWindow window, long minute, long paise) {
+        VelocityWindow target = window != null ? window : new VelocityWindow();
+        target.record(minute, paise);
+        return target;
+    }
+
+    private static long paise(BigDecimal amount) {
+        return amount.movePointRight(2).longValue();
+    }
+
+    private long nowMinute() {
+        return Math.floorDiv(clock.instant().getEpochSecond(), 60);
+    }
+
+    private record Pair(long senderId, long receiverId) {}
+}
@@ -0,0 +1,123 @@
+package com.upi.payment.fraud;
+
+import java.util.Arrays;
+
+/**
+ * Transfer count and amount (in paise) over the last 1, 10 and 60 minutes and 24 hours, for one
+ * sender or one sender/receiver pair.
+ *
+ * Minutes are kept in a 60-slot ring and hours in a 24-slot ring, each slot stamped implicitly by
+ * its position relative to the newest minute/hour seen. Running totals for each window are updated
+ * as slots enter and leave it, so a read costs O(1) plus the slots that expired since the last
+ * call. Windows are bucket-aligned: "10 minutes" is the current minute and the nine before it.
+ */
+final class VelocityWindow {
+
+    private static final int MINUTES = 60;
+    private static final int HOURS = 24;
+    private static final int SHORT_WINDOW = 10;
+
+    private final int[] minuteCount = new int[MINUTES];
+    private final long[] minuteAmount = new long[MINUTES];
+    private final int[] hourCount = new int[HOURS];
+    private final long[] hourAmount = new long[HOURS];
+
+    private long currentMinute = Long.MIN_VALUE;
+    private long currentHour = Long.MIN_VALUE;
+
+    private int count10m;
+    private long amount10m;
+    private int count1h;
+    private long amount1h;
+    private int count24h;
+    private long amount24h;
+
+    synchronized void record(long epochMinute, long amountPaise) {
+        advance(epochMinute);
+        long age = currentMinute - epochMinute;  // > 0 only when replaying older transfers
+        if (age < MINUTES) {
+            int slot = slot(epochMinute, MINUTES);
+            minuteCount[slot]++;
+            minuteAmount[slot] += amountPaise;
+            count1h++;
+            amount1h += amountPaise;
+            if (age < SHORT_WINDOW) {
+                count10m++;
+                amount10m += amountPaise;
+            }
+        }
+        long hour = Math.floorDiv(epochMinute, 60);
+        if (currentHour - hour < HOURS) {
+            int slot = slot(hour, HOURS);
+            hourCount[slot]++;
+            hourAmount[slot] += amountPaise;
+            count24h++;
+            amount24h += amountPaise;
+        }
+    }
+
+    synchronized VelocitySnapshot snapshot(long epochMinute) {
+        advance(epochMinute);
+        int current = slot(currentMinute, MINUTES);
+        return new VelocitySnapshot(
+            minuteCount[current], minuteAmount[current],
+            count10m, amount10m, count1h, amount1h, count24h, amount24h);
+    }
+
+    // True once nothing is left in any window, so the tracker can drop it
+    synchronized boolean isIdle(long epochMinute) {
+        advance(epochMinute);
+        return count24h == 0;
+    }
+
+    private void advance(long epochMinute) {
+        if (epochMinute <= currentMinute) {
+            return;
+        }
+        if (currentMinute == Long.MIN_VALUE || epochMinute - currentMinute >= MINUTES) {
+            Arrays.fill(minuteCount, 0);
+            Arrays.fill(minuteAmount, 0);
+            count10m = 0;
+            amount10m = 0;
+            count1h = 0;
+            amount1h = 0;
+        } else {
+            for (long m = currentMinute + 1; m <= epochMinute; m++) {
+                // Minute m - 10 leaves the 10-minute window; minute m - 60, in m's slot, leaves the hour
+                int leaving = slot(m - SHORT_WINDOW, MINUTES);
+                count10m -= minuteCount[leaving];
+                amount10m -= minuteAmount[leaving];
+                int reused = slot(m, MINUTES);
+                count1h -= minuteCount[reused];
+                amount1h -= minuteAmount[reused];
+                minuteCount[reused] = 0;
+                minuteAmount[reused] = 0;
+            }
+        }
+        currentMinute = epochMinute;
+
+        long hour = Math.floorDiv(epochMinute, 60);
+        if (hour <= currentHour) {
+            return;
+        }
+        if (currentHour == Long.MIN_VALUE || hour - currentHour >= HOURS) {
+            Arrays.fill(hourCount, 0);
+            Arrays.fill(hourAmount, 0);
+            count24h = 0;
+            amount24h = 0;
+        } else {
+            for (long h = currentHour + 1; h <= hour; h++) {
+                int reused = slot(h, HOURS);
+                count24h -= hourCount[reused];
+                amount24h -= hourAmount[reused];
+                hourCount[reused] = 0;
+                hourAmount[reused] = 0;
+            }
+        }
+        currentHour = hour;
+    }
+
+    private static int slot(long index, int size) {
+        return (int) Math.floorMod(index, size);
+    }
+}
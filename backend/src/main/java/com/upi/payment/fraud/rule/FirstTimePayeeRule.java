@@ -0,0 +1,52 @@
+package com.upi.payment.fraud.rule;
+
+import com.upi.payment.fraud.FraudContext;
+import com.upi.payment.fraud.FraudData;
+import com.upi.payment.fraud.FraudRule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * First transfer from this sender to this receiver, per the known-payee index. Skipped for senders
+ * whose profile shows they routinely pay many different receivers (merchants, shared expenses),
+ * and never fires for split transfers, which have no single receiver.
+ */
+@Component
+public class FirstTimePayeeRule implements FraudRule {
+
+    @Value("${app.fraud.profile.many-receivers:20}")
+    private int manyReceivers = 20;
+
+    @Override
+    public String name() {
+        return "NEW_PAYEE";
+    }
+
+    @Override
+    public Cost cost() {
+        return Cost.CHEAP;
+    }
+
+    @Override
+    public Set<FraudData> requires() {
+        return Set.of(FraudData.KNOWN_PAYEE, FraudData.SPENDING_PROFILE);
+    }
+
+    @Override
+    public int maxScore() {
+        return 15;
+    }
+
+    @Override
+    public RuleHit evaluate(FraudContext context) {
+        if (context.senderProfile() != null && context.senderProfile().typicalReceivers() >= manyReceivers) {
+            return null;
+        }
+        if (Boolean.FALSE.equals(context.knownPayee())) {
+            return new RuleHit(15, "NEW_PAYEE");
+        }
+        return null;
+    }
+}
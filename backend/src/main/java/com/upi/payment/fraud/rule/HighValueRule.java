@@ -0,0 +1,49 @@
+package com.upi.payment.fraud.rule;
+
+import com.upi.payment.fraud.FraudContext;
+import com.upi.payment.fraud.FraudData;
+import com.upi.payment.fraud.FraudRule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+/**
+ * Amount at or above the global high-value threshold, for senders without an established
+ * spending profile; {@link UnusualAmountRule} takes over once they have one.
+ */
+@Component
+public class HighValueRule implements FraudRule {
+
+    @Value("${app.fraud.high-value-threshold:10000.00}")
+    private BigDecimal highValueThreshold = new BigDecimal("10000.00");
+
+    @Override
+    public String name() {
+        return "HIGH_VALUE";
+    }
+
+    @Override
+    public Cost cost() {
+        return Cost.CHEAP;
+    }
+
+    @Override
+    public Set<FraudData> requires() {
+        return Set.of(FraudData.SPENDING_PROFILE);
+    }
+
+    @Override
+    public int maxScore() {
+        return 25;
+    }
+
+    @Override
+    public RuleHit evaluate(FraudContext context) {
+        if (context.senderProfile() != null && context.senderProfile().established()) {
+            return null;
+        }
+        return context.amount().compareTo(highValueThreshold) >= 0 ? new RuleHit(25, "HIGH_VALUE") : null;
+    }
+}
@@ -0,0 +1,61 @@
+package com.upi.payment.fraud.rule;
+
+import com.upi.payment.fraud.FraudContext;
+import com.upi.payment.fraud.FraudData;
+import com.upi.payment.fraud.FraudRule;
+import com.upi.payment.fraud.GraphSignal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Money-mule patterns from the transaction graph: the transfer would close a short cycle of recent
+ * payments, or either party has been marked as a ring member or pass-through hub with at least
+ * {@code app.fraud.graph.min-risk}. The graph search itself runs while the context is loaded and is
+ * bounded by {@code app.fraud.graph.max-visits}, so the rule is cheap.
+ */
+@Component
+public class MuleRingRule implements FraudRule {
+
+    @Value("${app.fraud.graph.min-risk:50}")
+    private int minRisk = 50;
+
+    @Override
+    public String name() {
+        return "MULE_RING";
+    }
+
+    @Override
+    public Cost cost() {
+        return Cost.CHEAP;
+    }
+
+    @Override
+    public Set<FraudData> requires() {
+        return Set.of(FraudData.TRANSACTION_GRAPH);
+    }
+
+    @Override
+    public int maxScore() {
+        return 40;
+    }
+
+    @Override
+    public RuleHit evaluate(FraudContext context) {
+        GraphSignal graph = context.graph();
+        if (graph == null) {
+            return null;
+        }
+        if (graph.cycleLength() > 0) {
+            return new RuleHit(40, "CLOSES_CYCLE");
+        }
+        if (graph.receiverRisk() >= minRisk) {
+            return new RuleHit(30, "MULE_RECEIVER");
+        }
+        if (graph.senderRisk() >= minRisk) {
+            return new RuleHit(25, "MULE_SENDER");
+        }
+        return null;
+    }
+}
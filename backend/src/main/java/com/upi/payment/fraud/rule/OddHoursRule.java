@@ -0,0 +1,45 @@
+package com.upi.payment.fraud.rule;
+
+import com.upi.payment.fraud.FraudContext;
+import com.upi.payment.fraud.FraudData;
+import com.upi.payment.fraud.FraudRule;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Transfer between 11 PM and 4 AM (server time, IST in production), for senders without an
+ * established spending profile; {@link UnusualHourRule} takes over once they have one.
+ */
+@Component
+public class OddHoursRule implements FraudRule {
+
+    @Override
+    public String name() {
+        return "ODD_HOURS";
+    }
+
+    @Override
+    public Cost cost() {
+        return Cost.CHEAP;
+    }
+
+    @Override
+    public Set<FraudData> requires() {
+        return Set.of(FraudData.SPENDING_PROFILE);
+    }
+
+    @Override
+    public int maxScore() {
+        return 10;
+    }
+
+    @Override
+    public RuleHit evaluate(FraudContext context) {
+        if (context.senderProfile() != null && context.senderProfile().established()) {
+            return null;
+        }
+        int hour = context.now().getHour();
+        return hour >= 23 || hour <= 4 ? new RuleHit(10, "ODD_HOURS") : null;
+    }
+}
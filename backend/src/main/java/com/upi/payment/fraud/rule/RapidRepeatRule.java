@@ -0,0 +1,44 @@
+package com.upi.payment.fraud.rule;
+
+import com.upi.payment.fraud.FraudContext;
+import com.upi.payment.fraud.FraudData;
+import com.upi.payment.fraud.FraudRule;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Three or more transfers to the same receiver in the last 10 minutes. Never fires for split
+ * transfers, which have no single receiver.
+ */
+@Component
+public class RapidRepeatRule implements FraudRule {
+
+    @Override
+    public String name() {
+        return "RAPID_REPEAT";
+    }
+
+    @Override
+    public Cost cost() {
+        return Cost.CHEAP;
+    }
+
+    @Override
+    public Set<FraudData> requires() {
+        return Set.of(FraudData.PAIR_VELOCITY);
+    }
+
+    @Override
+    public int maxScore() {
+        return 20;
+    }
+
+    @Override
+    public RuleHit evaluate(FraudContext context) {
+        if (context.pairVelocity() != null && context.pairVelocity().count10m() >= 3) {
+            return new RuleHit(20, "RAPID_REPEAT");
+        }
+        return null;
+    }
+}
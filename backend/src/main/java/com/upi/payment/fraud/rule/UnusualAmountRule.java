@@ -0,0 +1,51 @@
+package com.upi.payment.fraud.rule;
+
+import com.upi.payment.fraud.FraudContext;
+import com.upi.payment.fraud.FraudData;
+import com.upi.payment.fraud.FraudRule;
+import com.upi.payment.fraud.SpendingProfile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Amount far from what this sender usually pays, in either direction: a ₹50,000 transfer from
+ * someone who pays ₹200, or a ₹1 probe from someone who pays rent. Only for senders with an
+ * established spending profile.
+ */
+@Component
+public class UnusualAmountRule implements FraudRule {
+
+    @Value("${app.fraud.profile.amount-deviation:3.0}")
+    private double maxDeviation = 3.0;
+
+    @Override
+    public String name() {
+        return "UNUSUAL_AMOUNT";
+    }
+
+    @Override
+    public Cost cost() {
+        return Cost.CHEAP;
+    }
+
+    @Override
+    public Set<FraudData> requires() {
+        return Set.of(FraudData.SPENDING_PROFILE);
+    }
+
+    @Override
+    public int maxScore() {
+        return 25;
+    }
+
+    @Override
+    public RuleHit evaluate(FraudContext context) {
+        SpendingProfile profile = context.senderProfile();
+        if (profile != null && profile.established() && profile.amountDeviation(context.amount()) >= maxDeviation) {
+            return new RuleHit(25, "UNUSUAL_AMOUNT");
+        }
+        return null;
+    }
+}
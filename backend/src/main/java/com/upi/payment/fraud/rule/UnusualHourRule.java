@@ -0,0 +1,50 @@
+package com.upi.payment.fraud.rule;
+
+import com.upi.payment.fraud.FraudContext;
+import com.upi.payment.fraud.FraudData;
+import com.upi.payment.fraud.FraudRule;
+import com.upi.payment.fraud.SpendingProfile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Transfer at an hour this sender rarely pays at (within an hour either side). Only for senders
+ * with an established spending profile, so night-shift workers are judged on their own habits.
+ */
+@Component
+public class UnusualHourRule implements FraudRule {
+
+    @Value("${app.fraud.profile.min-hour-share:0.05}")
+    private double minHourShare = 0.05;
+
+    @Override
+    public String name() {
+        return "UNUSUAL_HOUR";
+    }
+
+    @Override
+    public Cost cost() {
+        return Cost.CHEAP;
+    }
+
+    @Override
+    public Set<FraudData> requires() {
+        return Set.of(FraudData.SPENDING_PROFILE);
+    }
+
+    @Override
+    public int maxScore() {
+        return 10;
+    }
+
+    @Override
+    public RuleHit evaluate(FraudContext context) {
+        SpendingProfile profile = context.senderProfile();
+        if (profile != null && profile.established() && profile.hourShare(context.now().getHour()) < minHourShare) {
+            return new RuleHit(10, "UNUSUAL_HOUR");
+        }
+        return null;
+    }
+}
@@ -0,0 +1,57 @@
+package com.upi.payment.fraud.rule;
+
+import com.upi.payment.fraud.FraudContext;
+import com.upi.payment.fraud.FraudData;
+import com.upi.payment.fraud.FraudRule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Too many transfers from the sender in the last hour.
+ */
+@Component
+@Slf4j
+public class VelocityRule implements FraudRule {
+
+    @Value("${app.fraud.max-transactions-per-hour:10}")
+    private int maxTxnPerHour = 10;
+
+    @Value("${app.fraud.suspicious-velocity-count:5}")
+    private int suspiciousVelocityCount = 5;
+
+    @Override
+    public String name() {
+        return "VELOCITY";
+    }
+
+    @Override
+    public Cost cost() {
+        return Cost.CHEAP;
+    }
+
+    @Override
+    public Set<FraudData> requires() {
+        return Set.of(FraudData.SENDER_VELOCITY);
+    }
+
+    @Override
+    public int maxScore() {
+        return 40;
+    }
+
+    @Override
+    public RuleHit evaluate(FraudContext context) {
+        int txnLastHour = context.senderVelocity().count1h();
+        if (txnLastHour >= maxTxnPerHour) {
+            log.warn("High velocity detected for user {}: {} txns in last hour", context.sender().getId(), txnLastHour);
+            return new RuleHit(40, "HIGH_VELOCITY");
+        }
+        if (txnLastHour >= suspiciousVelocityCount) {
+            return new RuleHit(20, "ELEVATED_VELOCITY");
+        }
+        return null;
+    }
+}
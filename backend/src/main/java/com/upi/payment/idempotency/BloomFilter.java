@@ -0,0 +1,69 @@
+package com.upi.payment.idempotency;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over strings, sized for an expected key count and false-positive rate.
+ * Uses double hashing on one 64-bit hash (Kirsch–Mitzenmacher) to derive the k probe positions.
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    BloomFilter(long expectedKeys, double falsePositiveRate) {
+        long bits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64, bits);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedKeys * Math.log(2)));
+        this.words = new AtomicLongArray((int) ((bitCount + 63) / 64));
+    }
+
+    void put(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = words.get(word)) & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    boolean mightContain(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long index(int combined) {
+        return (combined < 0 ? ~combined : combined) % bitCount;
+    }
+
+    // FNV-1a over UTF-8 bytes, finished with the MurmurHash3 fmix64 avalanche
+    private static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
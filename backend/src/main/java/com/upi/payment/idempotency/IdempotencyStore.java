@@ -0,0 +1,209 @@
+package com.upi.payment.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upi.payment.dto.response.ApiResponse;
+import com.upi.payment.entity.IdempotencyRecord;
+import com.upi.payment.exception.DuplicateTransactionException;
+import com.upi.payment.repository.IdempotencyRecordRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Idempotency keys of completed transfers and deposits, with the response each one produced.
+ *
+ * Three tiers, checked in order:
+ *  1. a bounded LRU of recent keys → stored response, in process
+ *  2. a Bloom filter of every live key; a miss means the key is new and no query is made
+ *  3. the {@code idempotency_keys} table, the source of truth, whose rows expire after the TTL
+ *
+ * The Bloom filter is generational: keys go into the current generation, and the previous one is
+ * dropped once it is a full TTL old, so a key stays visible for at least its TTL. It is rebuilt from
+ * the table on startup; until then every lookup falls through to the table.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyStore {
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${app.idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${app.idempotency.bloom.expected-keys:1000000}")
+    private long bloomExpectedKeys;
+
+    @Value("${app.idempotency.bloom.false-positive-rate:0.01}")
+    private double bloomFalsePositiveRate;
+
+    private Map<String, Stored> recent;
+    private volatile BloomFilter currentKeys;
+    private volatile BloomFilter previousKeys;
+    private volatile LocalDateTime generationStart;
+    private volatile boolean warm;
+
+    private final AtomicLong bloomNegatives = new AtomicLong();
+    private final AtomicLong tableLookups = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        recent = Collections.synchronizedMap(new LinkedHashMap<>(cacheSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        currentKeys = newGeneration();
+        previousKeys = newGeneration();
+        generationStart = LocalDateTime.now();
+    }
+
+    /** Loads every live key into the Bloom filter. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        BloomFilter filter = currentKeys;
+        long loaded;
+        try (Stream<String> keys = repository.streamLiveKeys(LocalDateTime.now())) {
+            loaded = keys.peek(filter::put).count();
+        }
+        warm = true;
+        log.info("Idempotency filter warmed with {} live keys", loaded);
+    }
+
+    /**
+     * The response originally returned for {@code key}, if it was already used by {@code userId}.
+     * A key used by a different user is rejected rather than revealing that user's payment.
+     */
+    public Optional<ApiResponse.TransactionResponse> find(String key, Long userId) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        Stored cached = recent.get(key);
+        if (cached != null && cached.expiresAt().isAfter(LocalDateTime.now())) {
+            return Optional.of(owned(cached, userId));
+        }
+        if (warm && !currentKeys.mightContain(key) && !previousKeys.mightContain(key)) {
+            bloomNegatives.incrementAndGet();
+            return Optional.empty();
+        }
+        return reload(key, userId);
+    }
+
+    /**
+     * Table-only lookup, skipping the Bloom filter. Used after a unique-key conflict, when the key is
+     * known to have been used — possibly by another instance whose keys this filter has never seen.
+     */
+    public Optional<ApiResponse.TransactionResponse> reload(String key, Long userId) {
+        tableLookups.incrementAndGet();
+        return repository.findById(key)
+            .filter(record -> record.getExpiresAt().isAfter(LocalDateTime.now()))
+            .map(record -> {
+                Stored stored = new Stored(record.getUserId(), record.getResponse(), record.getExpiresAt());
+                recent.put(key, stored);
+                return owned(stored, userId);
+            });
+    }
+
+    /**
+     * Records the response of a completed movement. Joins the caller's transaction when there is one,
+     * so the key commits (or rolls back) together with the wallet changes; the LRU is only populated
+     * once that transaction has committed.
+     */
+    public void record(String key, Long userId, ApiResponse.TransactionResponse response) {
+        if (key == null) {
+            return;
+        }
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(ttlHours);
+        Stored stored = new Stored(userId, serialize(response), expiresAt);
+
+        currentKeys.put(key);
+        repository.save(IdempotencyRecord.builder()
+            .idempotencyKey(key)
+            .userId(userId)
+            .referenceId(response.getReferenceId())
+            .response(stored.response())
+            .expiresAt(expiresAt)
+            .build());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recent.put(key, stored);
+                }
+            });
+        } else {
+            recent.put(key, stored);
+        }
+    }
+
+    /** Deletes expired rows and retires the oldest Bloom generation once it is a full TTL old. */
+    public int purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        if (Duration.between(generationStart, now).toHours() >= ttlHours) {
+            previousKeys = currentKeys;
+            currentKeys = newGeneration();
+            generationStart = now;
+        }
+        recent.values().removeIf(stored -> !stored.expiresAt().isAfter(now));
+        return repository.deleteExpired(now);
+    }
+
+    public long bloomNegatives() {
+        return bloomNegatives.get();
+    }
+
+    public long tableLookups() {
+        return tableLookups.get();
+    }
+
+    // ── Internals ─────────────────────────────────────────────────────────────
+
+    private ApiResponse.TransactionResponse owned(Stored stored, Long userId) {
+        if (!stored.userId().equals(userId)) {
+            throw new DuplicateTransactionException("Duplicate transaction. Retry with a new idempotency key.");
+        }
+        try {
+            return objectMapper.readValue(stored.response(), ApiResponse.TransactionResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable stored response", e);
+        }
+    }
+
+    private String serialize(ApiResponse.TransactionResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store transaction response", e);
+        }
+    }
+
+    private BloomFilter newGeneration() {
+        return new BloomFilter(bloomExpectedKeys, bloomFalsePositiveRate);
+    }
+
+    private record Stored(Long userId, String response, LocalDateTime expiresAt) {}
+}
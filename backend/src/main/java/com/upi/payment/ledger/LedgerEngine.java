@@ -0,0 +1,290 @@
+package com.upi.payment.ledger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.exception.BusinessException;
+import com.upi.payment.exception.DuplicateTransactionException;
+import com.upi.payment.repository.TransactionRepository;
+import com.upi.payment.repository.UserRepository;
+import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.service.impl.HotWalletService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * In-memory wallet ledger (optional, {@code app.ledger.enabled}).
+ *
+ * Wallet balances are partitioned by user ID into single-writer shards. A transfer is:
+ *  1. receiver wallet resolved on the receiver's shard
+ *  2. balance / daily-limit check and debit on the sender's shard
+ *  3. entry appended to the journal and fsynced (group commit)
+ *  4. credit on the receiver's shard
+ * and is acknowledged only after step 4. Credits become visible only once durable, so no
+ * wallet can spend money that a crash could take away. The DB is updated afterwards by the
+ * {@link LedgerProjector}; on startup the journal is replayed into the DB before traffic is accepted.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerEngine {
+
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final UserRepository userRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final HotWalletService hotWalletService;
+
+    @Value("${app.ledger.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.ledger.shards:8}")
+    private int shardCount;
+
+    @Value("${app.ledger.journal-path:data/ledger/journal.ndjson}")
+    private String journalPath;
+
+    @Value("${app.ledger.ack-timeout-ms:5000}")
+    private long ackTimeoutMs;
+
+    @Value("${app.ledger.projection-batch-size:256}")
+    private int projectionBatchSize;
+
+    @Value("${app.ledger.journal-compact-bytes:67108864}")
+    private long journalCompactBytes;
+
+    private LedgerShard[] shards;
+    private LedgerJournal journal;
+    private LedgerProjector projector;
+
+    // Idempotency keys acknowledged by the ledger but not yet visible in the transactions table
+    private final Map<String, String> unprojectedKeys = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        TransactionTemplate projectionTx = new TransactionTemplate(transactionManager);
+        journal = new LedgerJournal(Path.of(journalPath), objectMapper);
+        projector = new LedgerProjector(walletRepository, transactionRepository, userRepository,
+            projectionTx, projectionBatchSize, this::onProjected);
+
+        recover();
+
+        shards = new LedgerShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new LedgerShard(i, this::loadWallet);
+        }
+        journal.open();
+        projector.start();
+        log.info("Ledger engine started: {} shards, journal at {}", shardCount, journalPath);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (!enabled) {
+            return;
+        }
+        for (LedgerShard shard : shards) {
+            shard.shutdown();
+        }
+        journal.close();
+        projector.stop();
+        log.info("Ledger engine stopped, projection lag at shutdown: {}", projector.lag());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Debits {@code entry.senderId()} and credits {@code entry.receiverId()}.
+     * The returned entry carries the journal sequence and both balance snapshots.
+     */
+    public LedgerEntry transfer(LedgerEntry entry) {
+        reserveKey(entry);
+        LedgerShard senderShard = shardFor(entry.senderId());
+        LedgerShard receiverShard = shardFor(entry.receiverId());
+
+        CompletableFuture<LedgerEntry> result = receiverShard
+            .submit(shard -> shard.wallet(entry.receiverId()))
+            .thenCompose(ignored -> senderShard.submit(shard -> shard.debit(entry.senderId(), entry.amount())))
+            .thenCompose(debit -> journal.append(entry.withSenderSnapshot(debit.before(), debit.after()))
+                .whenComplete((journaled, failure) -> {
+                    if (failure != null) {
+                        senderShard.submit(shard -> {
+                            shard.revertDebit(entry.senderId(), entry.amount());
+                            return null;
+                        });
+                    }
+                }))
+            .thenCompose(journaled -> creditLeg(receiverShard, journaled));
+
+        return await(entry, result, () -> {});
+    }
+
+    /**
+     * Credit-only movement (bank → wallet deposit). {@code onFailure} undoes the funding side when
+     * the deposit is not taken; it runs once that is known, even if the caller stopped waiting.
+     */
+    public LedgerEntry deposit(LedgerEntry entry, Runnable onFailure) {
+        try {
+            reserveKey(entry);
+        } catch (RuntimeException e) {
+            onFailure.run();
+            throw e;
+        }
+        LedgerShard receiverShard = shardFor(entry.receiverId());
+
+        CompletableFuture<LedgerEntry> result = receiverShard
+            .submit(shard -> shard.wallet(entry.receiverId()))
+            .thenCompose(ignored -> journal.append(entry))
+            .thenCompose(journaled -> creditLeg(receiverShard, journaled));
+
+        return await(entry, result, onFailure);
+    }
+
+    /** Current in-memory state of a wallet; the DB row may lag behind it. */
+    public Wallet wallet(Long userId) {
+        return join(shardFor(userId).submit(shard -> shard.copyOf(userId)));
+    }
+
+    public boolean isPending(String idempotencyKey) {
+        return idempotencyKey != null && unprojectedKeys.containsKey(idempotencyKey);
+    }
+
+    public String pendingReference(String idempotencyKey) {
+        return unprojectedKeys.get(idempotencyKey);
+    }
+
+    public int projectionLag() {
+        return enabled ? projector.lag() : 0;
+    }
+
+    // ── Internals ─────────────────────────────────────────────────────────────
+
+    private CompletableFuture<LedgerEntry> creditLeg(LedgerShard receiverShard, LedgerEntry journaled) {
+        return receiverShard.submit(shard -> {
+            LedgerShard.Snapshot credit = shard.credit(journaled.receiverId(), journaled.amount());
+            LedgerEntry completed = journaled.withReceiverSnapshot(credit.before(), credit.after());
+            projector.enqueue(completed);
+            return completed;
+        });
+    }
+
+    private void reserveKey(LedgerEntry entry) {
+        if (entry.idempotencyKey() == null) {
+            return;
+        }
+        String existing = unprojectedKeys.putIfAbsent(entry.idempotencyKey(), entry.referenceId());
+        if (existing != null) {
+            throw new DuplicateTransactionException("Duplicate transaction. Original ref: " + existing);
+        }
+    }
+
+    private LedgerEntry await(LedgerEntry entry, CompletableFuture<LedgerEntry> result, Runnable onFailure) {
+        // A failure frees the key whether or not the caller is still waiting; a success keeps it until projected
+        CompletableFuture<LedgerEntry> settled = result.whenComplete((posted, failure) -> {
+            if (failure != null) {
+                releaseKey(entry);
+                onFailure.run();
+            }
+        });
+        try {
+            return settled.get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Outcome unknown; the key stays reserved until it is, so a retry cannot pay twice
+            log.error("Ledger did not acknowledge {} within {} ms", entry.referenceId(), ackTimeoutMs);
+            throw new BusinessException("Payment is still processing. Check history before retrying. Ref: "
+                + entry.referenceId());
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Payment interrupted. Ref: " + entry.referenceId());
+        }
+    }
+
+    private void releaseKey(LedgerEntry entry) {
+        if (entry.idempotencyKey() != null) {
+            unprojectedKeys.remove(entry.idempotencyKey(), entry.referenceId());
+        }
+    }
+
+    private void onProjected(List<LedgerEntry> entries) {
+        for (LedgerEntry entry : entries) {
+            if (entry.idempotencyKey() != null) {
+                unprojectedKeys.remove(entry.idempotencyKey(), entry.referenceId());
+            }
+        }
+        journal.markProjected(entries.size());
+        journal.compactIfProjected(journalCompactBytes);
+    }
+
+    private void recover() {
+        List<LedgerEntry> batch = new ArrayList<>(projectionBatchSize);
+        long replayed = journal.replay(entry -> {
+            batch.add(entry);
+            if (batch.size() >= projectionBatchSize) {
+                projector.projectNow(batch);
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            projector.projectNow(batch);
+        }
+        journal.truncate();
+        if (replayed > 0) {
+            log.info("Ledger recovery projected {} journaled entries", replayed);
+        }
+    }
+
+    /** Loads the DB projection of a wallet, with any hot-account stripe credits folded into the balance. */
+    private Optional<Wallet> loadWallet(Long userId) {
+        return walletRepository.findByUserId(userId).map(wallet -> {
+            if (wallet.isHot()) {
+                wallet.setBalance(hotWalletService.totalBalance(wallet));
+            }
+            return wallet;
+        });
+    }
+
+    private LedgerShard shardFor(Long userId) {
+        return shards[(int) Math.floorMod(Long.hashCode(userId) * 0x9E3779B9, shards.length)];
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof RuntimeException re ? re : new IllegalStateException(cause);
+    }
+}
@@ -0,0 +1,84 @@
+package com.upi.payment.ledger;
+
+import com.upi.payment.entity.Transaction;
+import com.upi.payment.entity.User;
+import com.upi.payment.enums.FraudRiskLevel;
+import com.upi.payment.enums.TransactionStatus;
+import com.upi.payment.enums.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One journaled wallet movement.
+ * Written to the journal as a single NDJSON line before the movement is acknowledged,
+ * then projected into the wallets / transactions tables asynchronously.
+ *
+ * Receiver snapshots are filled in after the credit leg is applied in memory and are
+ * therefore not part of the durable record (they are null for entries recovered on startup).
+ */
+public record LedgerEntry(
+    long sequence,
+    String referenceId,
+    String idempotencyKey,
+    TransactionType type,
+    Long senderId,
+    Long receiverId,
+    BigDecimal amount,
+    BigDecimal senderBalanceBefore,
+    BigDecimal senderBalanceAfter,
+    BigDecimal receiverBalanceBefore,
+    BigDecimal receiverBalanceAfter,
+    String description,
+    Integer fraudScore,
+    FraudRiskLevel fraudRiskLevel,
+    boolean flagged,
+    String ipAddress,
+    LocalDateTime processedAt
+) {
+
+    public LedgerEntry withSequence(long sequence) {
+        return new LedgerEntry(sequence, referenceId, idempotencyKey, type, senderId, receiverId, amount,
+            senderBalanceBefore, senderBalanceAfter, receiverBalanceBefore, receiverBalanceAfter,
+            description, fraudScore, fraudRiskLevel, flagged, ipAddress, processedAt);
+    }
+
+    public LedgerEntry withSenderSnapshot(BigDecimal before, BigDecimal after) {
+        return new LedgerEntry(sequence, referenceId, idempotencyKey, type, senderId, receiverId, amount,
+            before, after, receiverBalanceBefore, receiverBalanceAfter,
+            description, fraudScore, fraudRiskLevel, flagged, ipAddress, processedAt);
+    }
+
+    public LedgerEntry withReceiverSnapshot(BigDecimal before, BigDecimal after) {
+        return new LedgerEntry(sequence, referenceId, idempotencyKey, type, senderId, receiverId, amount,
+            senderBalanceBefore, senderBalanceAfter, before, after,
+            description, fraudScore, fraudRiskLevel, flagged, ipAddress, processedAt);
+    }
+
+    public boolean hasDebitLeg() {
+        return senderId != null;
+    }
+
+    /** The {@link Transaction} row this entry projects to (also used for the API response before projection). */
+    public Transaction toTransaction(User sender, User receiver) {
+        return Transaction.builder()
+            .referenceId(referenceId)
+            .idempotencyKey(idempotencyKey)
+            .sender(sender)
+            .receiver(receiver)
+            .amount(amount)
+            .type(type)
+            .status(TransactionStatus.SUCCESS)
+            .fraudRiskLevel(fraudRiskLevel)
+            .fraudScore(fraudScore)
+            .isFlagged(flagged)
+            .description(description)
+            .senderBalanceBefore(senderBalanceBefore)
+            .senderBalanceAfter(senderBalanceAfter)
+            .receiverBalanceBefore(receiverBalanceBefore)
+            .receiverBalanceAfter(receiverBalanceAfter)
+            .processedAt(processedAt)
+            .ipAddress(ipAddress)
+            .build();
+    }
+}
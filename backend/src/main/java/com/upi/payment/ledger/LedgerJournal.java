@@ -0,0 +1,217 @@
+package com.upi.payment.ledger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Append-only NDJSON journal of ledger entries.
+ *
+ * Appends from all shards go through a single writer thread which drains whatever is queued,
+ * writes it and issues one fsync for the whole group, so durability costs one fsync per group
+ * rather than one per transfer. An append's future completes only after its fsync.
+ */
+@Slf4j
+class LedgerJournal {
+
+    private static final int MAX_GROUP = 512;
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong unprojected = new AtomicLong();
+    private final Object fileLock = new Object();
+
+    private FileChannel channel;
+    private Thread writer;
+    private volatile boolean running;
+
+    LedgerJournal(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Streams every entry currently in the journal, in append order.
+     * Used on startup to project whatever was acknowledged but not yet written to the DB.
+     */
+    long replay(Consumer<LedgerEntry> consumer) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                LedgerEntry entry;
+                try {
+                    entry = objectMapper.readValue(line, LedgerEntry.class);
+                } catch (IOException e) {
+                    // A torn last line means the append was never fsynced, hence never acknowledged
+                    log.warn("Skipping unreadable journal line {}: {}", count + 1, e.getMessage());
+                    continue;
+                }
+                sequence.accumulateAndGet(entry.sequence(), Math::max);
+                consumer.accept(entry);
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to replay ledger journal " + path, e);
+        }
+        return count;
+    }
+
+    void open() {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open ledger journal " + path, e);
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "ledger-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    void close() {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (fileLock) {
+            try {
+                if (channel != null) channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close ledger journal: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Queues an entry for the next group commit. The returned future carries the entry
+     * with its journal sequence assigned, and completes once the entry is on disk.
+     */
+    CompletableFuture<LedgerEntry> append(LedgerEntry entry) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Ledger journal is closed"));
+        }
+        PendingAppend pending = new PendingAppend(entry, new CompletableFuture<>());
+        queue.add(pending);
+        return pending.future();
+    }
+
+    /** Called by the projector once an entry is safely in the DB. */
+    void markProjected(int count) {
+        unprojected.addAndGet(-count);
+    }
+
+    /**
+     * Truncates the journal when every appended entry has been projected and the file has
+     * grown beyond {@code maxBytes}. Appends are held off while the check runs.
+     */
+    void compactIfProjected(long maxBytes) {
+        synchronized (fileLock) {
+            try {
+                if (unprojected.get() == 0 && channel.size() > maxBytes) {
+                    channel.truncate(0);
+                    channel.force(true);
+                    log.info("Ledger journal compacted (all entries projected)");
+                }
+            } catch (IOException e) {
+                log.warn("Ledger journal compaction failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /** Drops entries that startup recovery has already projected. */
+    void truncate() {
+        try {
+            if (Files.exists(path)) {
+                try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    ch.truncate(0);
+                    ch.force(true);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to truncate ledger journal " + path, e);
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> group = new ArrayList<>(MAX_GROUP);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingAppend first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                group.add(first);
+                queue.drainTo(group, MAX_GROUP - 1);
+                writeGroup(group);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    queue.drainTo(group);
+                    if (!group.isEmpty()) writeGroup(group);
+                    return;
+                }
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void writeGroup(List<PendingAppend> group) {
+        List<LedgerEntry> written = new ArrayList<>(group.size());
+        try {
+            StringBuilder lines = new StringBuilder(group.size() * 256);
+            for (PendingAppend pending : group) {
+                LedgerEntry entry = pending.entry().withSequence(sequence.incrementAndGet());
+                lines.append(objectMapper.writeValueAsString(entry)).append('\n');
+                written.add(entry);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            synchronized (fileLock) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                unprojected.addAndGet(written.size());
+            }
+        } catch (Exception e) {
+            log.error("Ledger journal write failed for a group of {} entries", group.size(), e);
+            group.forEach(p -> p.future().completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).future().complete(written.get(i));
+        }
+    }
+
+    private record PendingAppend(LedgerEntry entry, CompletableFuture<LedgerEntry> future) {}
+}
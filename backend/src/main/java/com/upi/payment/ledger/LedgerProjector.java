@@ -0,0 +1,148 @@
+package com.upi.payment.ledger;
+
+import com.upi.payment.entity.Transaction;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.repository.TransactionRepository;
+import com.upi.payment.repository.UserRepository;
+import com.upi.payment.repository.WalletRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Writes acknowledged ledger entries into the DB in batches.
+ *
+ * Wallet rows are updated with deltas, so entries may be applied in any order, and each
+ * entry's {@link Transaction} row is inserted in the same DB transaction as its deltas.
+ * An entry whose reference ID already exists is therefore already projected and is skipped,
+ * which makes journal replay after a crash safe.
+ */
+@Slf4j
+class LedgerProjector {
+
+    private final BlockingQueue<LedgerEntry> queue = new LinkedBlockingQueue<>();
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Consumer<List<LedgerEntry>> onProjected;
+
+    private Thread worker;
+    private volatile boolean running;
+
+    LedgerProjector(WalletRepository walletRepository, TransactionRepository transactionRepository,
+                    UserRepository userRepository, TransactionTemplate transactionTemplate,
+                    int batchSize, Consumer<List<LedgerEntry>> onProjected) {
+        this.walletRepository = walletRepository;
+        this.transactionRepository = transactionRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.onProjected = onProjected;
+    }
+
+    void start() {
+        running = true;
+        worker = new Thread(this::projectLoop, "ledger-projector");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    void enqueue(LedgerEntry entry) {
+        queue.add(entry);
+    }
+
+    int lag() {
+        return queue.size();
+    }
+
+    /** Synchronous projection, used for startup recovery before the engine accepts traffic. */
+    void projectNow(List<LedgerEntry> batch) {
+        transactionTemplate.executeWithoutResult(status -> batch.forEach(this::apply));
+    }
+
+    private void projectLoop() {
+        List<LedgerEntry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                LedgerEntry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                projectWithRetry(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    queue.drainTo(batch);
+                    if (!batch.isEmpty()) projectWithRetry(batch);
+                    return;
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void projectWithRetry(List<LedgerEntry> batch) {
+        long backoffMs = 100;
+        while (true) {
+            try {
+                projectNow(batch);
+                onProjected.accept(List.copyOf(batch));
+                return;
+            } catch (Exception e) {
+                if (!running) {
+                    // Still in the journal, so startup recovery projects them
+                    log.warn("Ledger projection of {} entries failed during shutdown: {}", batch.size(), e.getMessage());
+                    return;
+                }
+                // Entries are durable in the journal; keep retrying rather than dropping them
+                log.error("Ledger projection of {} entries failed, retrying in {} ms: {}",
+                    batch.size(), backoffMs, e.getMessage());
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    if (!running) return;
+                }
+                backoffMs = Math.min(backoffMs * 2, 5000);
+            }
+        }
+    }
+
+    private void apply(LedgerEntry entry) {
+        if (transactionRepository.existsByReferenceId(entry.referenceId())) {
+            return;
+        }
+
+        LocalDate spendDay = Wallet.spendDay(entry.processedAt());
+        if (entry.hasDebitLeg()) {
+            walletRepository.applyLedgerDelta(entry.senderId(), entry.amount().negate(), entry.amount(), spendDay);
+        }
+        walletRepository.applyLedgerDelta(entry.receiverId(), entry.amount(), BigDecimal.ZERO, spendDay);
+
+        Transaction txn = entry.toTransaction(
+            entry.hasDebitLeg() ? userRepository.getReferenceById(entry.senderId()) : null,
+            userRepository.getReferenceById(entry.receiverId()));
+        transactionRepository.save(txn);
+    }
+}
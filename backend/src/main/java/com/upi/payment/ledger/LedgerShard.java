@@ -0,0 +1,103 @@
+package com.upi.payment.ledger;
+
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.exception.BusinessException;
+import com.upi.payment.exception.InsufficientBalanceException;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A single-writer partition of wallet balances.
+ * Every read and write of a wallet owned by this shard runs on the shard's own thread,
+ * so wallets never need locks. Wallets are loaded lazily from the DB projection and
+ * kept as detached {@link Wallet} instances so the entity's debit/credit rules apply unchanged.
+ */
+class LedgerShard {
+
+    private final ExecutorService executor;
+    private final Map<Long, Wallet> wallets = new HashMap<>();
+    private final Function<Long, Optional<Wallet>> loader;
+
+    LedgerShard(int index, Function<Long, Optional<Wallet>> loader) {
+        this.loader = loader;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ledger-shard-" + index);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    <T> CompletableFuture<T> submit(Function<LedgerShard, T> task) {
+        return CompletableFuture.supplyAsync(() -> task.apply(this), executor);
+    }
+
+    void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ── Operations below run on the shard thread only ─────────────────────────
+
+    Wallet wallet(Long userId) {
+        Wallet wallet = wallets.get(userId);
+        if (wallet == null) {
+            wallet = loader.apply(userId).orElseThrow(() -> new BusinessException("Wallet not found"));
+            wallets.put(userId, wallet);
+        }
+        return wallet;
+    }
+
+    /** Same checks, same order and same errors as the DB transfer path. */
+    Snapshot debit(Long userId, BigDecimal amount) {
+        Wallet wallet = wallet(userId);
+        if (!wallet.hasSufficientBalance(amount)) {
+            throw new InsufficientBalanceException("Insufficient wallet balance");
+        }
+        if (wallet.isDailyLimitExceeded(amount)) {
+            throw new BusinessException("Daily transfer limit exceeded");
+        }
+        BigDecimal before = wallet.getBalance();
+        wallet.debit(amount);
+        return new Snapshot(before, wallet.getBalance());
+    }
+
+    /** Undoes a debit whose journal append failed, including the daily spend it consumed. */
+    void revertDebit(Long userId, BigDecimal amount) {
+        Wallet wallet = wallet(userId);
+        wallet.setBalance(wallet.getBalance().add(amount));
+        wallet.refundDailySpent(amount);
+    }
+
+    Snapshot credit(Long userId, BigDecimal amount) {
+        Wallet wallet = wallet(userId);
+        BigDecimal before = wallet.getBalance();
+        wallet.credit(amount);
+        return new Snapshot(before, wallet.getBalance());
+    }
+
+    Wallet copyOf(Long userId) {
+        Wallet wallet = wallet(userId);
+        return Wallet.builder()
+            .id(wallet.getId())
+            .balance(wallet.getBalance())
+            .dailySpent(wallet.getDailySpent())
+            .spendDate(wallet.getSpendDate())
+            .dailyLimit(wallet.getDailyLimit())
+            .version(wallet.getVersion())
+            .build();
+    }
+
+    record Snapshot(BigDecimal before, BigDecimal after) {}
+}
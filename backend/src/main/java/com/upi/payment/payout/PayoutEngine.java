@@ -0,0 +1,481 @@
+package com.upi.payment.payout;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upi.payment.entity.PayoutJob;
+import com.upi.payment.entity.Transaction;
+import com.upi.payment.entity.User;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.enums.PayoutJobStatus;
+import com.upi.payment.enums.TransactionStatus;
+import com.upi.payment.enums.TransactionType;
+import com.upi.payment.ledger.LedgerEngine;
+import com.upi.payment.repository.PayoutJobRepository;
+import com.upi.payment.repository.TransactionRepository;
+import com.upi.payment.repository.UserRepository;
+import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.service.AuditService;
+import com.upi.payment.service.impl.HotWalletService;
+import com.upi.payment.service.impl.WalletBalanceCache;
+import com.upi.payment.util.ReferenceIdGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes bulk payout files.
+ *
+ * The file is streamed in chunks of the job's {@code chunk-size} lines. For each chunk the lines are
+ * validated, receivers are resolved with one query, and the chunk's total is reserved from the payer's
+ * wallet in one locked update. Credits then run on {@code parallelism} workers, partitioned by receiver
+ * user ID so no two workers ever touch the same wallet, each partition in one DB transaction with its
+ * transaction rows inserted as a batch. Finally the unused part of the reservation is refunded and the
+ * checkpoint advanced in one transaction, after the chunk's results are appended to the result file.
+ *
+ * Every line is a transaction with idempotency key {@code PAYOUT-<job>-<line>}, so a job restarted
+ * mid-chunk skips the lines already paid and settles the reservation it still holds.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PayoutEngine {
+
+    static final String RESULT_HEADER = "line,status,reference_id,amount,message\n";
+
+    private final PayoutJobRepository jobRepository;
+    private final UserRepository userRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final HotWalletService hotWalletService;
+    private final WalletBalanceCache walletBalanceCache;
+    private final LedgerEngine ledgerEngine;
+    private final AuditService auditService;
+    private final ReferenceIdGenerator referenceIdGenerator;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.payout.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.payout.max-concurrent-jobs:2}")
+    private int maxConcurrentJobs;
+
+    @Value("${app.transaction.min-amount:1.00}")
+    private BigDecimal minAmount;
+
+    @Value("${app.transaction.single-limit:50000.00}")
+    private BigDecimal singleLimit;
+
+    private final Set<Long> activeJobs = ConcurrentHashMap.newKeySet();
+    private ExecutorService jobRunner;
+    private ExecutorService creditWorkers;
+    private TransactionTemplate tx;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        jobRunner = Executors.newFixedThreadPool(maxConcurrentJobs, daemonThreads("payout-job-"));
+        creditWorkers = Executors.newFixedThreadPool(parallelism, daemonThreads("payout-credit-"));
+        tx = new TransactionTemplate(transactionManager);
+        tx.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        running = true;
+    }
+
+    @PreDestroy
+    void stop() {
+        // Jobs stop at the next chunk boundary and stay RUNNING, so the next start resumes them
+        running = false;
+        jobRunner.shutdown();
+        try {
+            jobRunner.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        creditWorkers.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        List<PayoutJob> interrupted = jobRepository.findAllByStatusIn(List.of(PayoutJobStatus.PENDING, PayoutJobStatus.RUNNING));
+        if (ledgerEngine.isEnabled()) {
+            // Left as they are, to resume once the node runs without the ledger again
+            if (!interrupted.isEmpty()) {
+                log.warn("Not resuming {} payout jobs while the ledger is enabled", interrupted.size());
+            }
+            return;
+        }
+        for (PayoutJob job : interrupted) {
+            log.info("Resuming payout job {} from line {}", job.getId(), job.getNextLine());
+            submit(job.getId());
+        }
+    }
+
+    /** Runs the job in the background unless it is already running on this node. */
+    public void submit(Long jobId) {
+        if (activeJobs.add(jobId)) {
+            jobRunner.execute(() -> {
+                try {
+                    run(jobId);
+                } finally {
+                    activeJobs.remove(jobId);
+                }
+            });
+        }
+    }
+
+    void run(Long jobId) {
+        PayoutJob job = tx.execute(status -> {
+            PayoutJob locked = jobRepository.findByIdWithLock(jobId).orElseThrow();
+            locked.setStatus(PayoutJobStatus.RUNNING);
+            locked.setHaltReason(null);
+            return jobRepository.save(locked);
+        });
+        User payer = userRepository.findById(job.getPayerId()).orElseThrow();
+
+        try (PayoutFileReader reader = new PayoutFileReader(Path.of(job.getSourcePath()), job.getFormat(), objectMapper);
+             FileChannel results = FileChannel.open(Path.of(job.getResultPath()),
+                 StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+            // Anything past the checkpoint belongs to a chunk that did not commit
+            results.truncate(job.getResultOffset());
+            results.position(job.getResultOffset());
+            if (job.getResultOffset() == 0) {
+                results.write(StandardCharsets.UTF_8.encode(RESULT_HEADER));
+            }
+            reader.skipTo(job.getNextLine());
+
+            while (running) {
+                List<PayoutLine> chunk = reader.nextChunk(job.getChunkSize());
+                if (chunk.isEmpty()) {
+                    complete(jobId);
+                    return;
+                }
+                ChunkOutcome outcome = processChunk(jobId, payer, chunk);
+                writeResults(results, outcome.results().values());
+                results.force(false);
+                checkpoint(jobId, chunk, outcome, reader.position(), results.position());
+            }
+        } catch (HaltException e) {
+            halt(jobId, e.getMessage());
+        } catch (Exception e) {
+            log.error("Payout job {} stopped", jobId, e);
+            halt(jobId, "Stopped by an internal error; resume to continue");
+        }
+    }
+
+    private ChunkOutcome processChunk(Long jobId, User payer, List<PayoutLine> chunk) {
+        Map<Long, LineResult> results = new TreeMap<>();
+
+        // ── Validate ───────────────────────────────────────────────────────────
+        List<PayoutLine> valid = new ArrayList<>(chunk.size());
+        for (PayoutLine line : chunk) {
+            if (!line.isValid()) {
+                results.put(line.lineNumber(), LineResult.failed(line, line.error()));
+            } else if (line.amount().compareTo(minAmount) < 0) {
+                results.put(line.lineNumber(), LineResult.failed(line, "Minimum payout amount is ₹" + minAmount));
+            } else if (line.amount().compareTo(singleLimit) > 0) {
+                results.put(line.lineNumber(), LineResult.failed(line, "Maximum single payout is ₹" + singleLimit));
+            } else {
+                valid.add(line);
+            }
+        }
+
+        // ── Resolve receivers, one query per chunk ─────────────────────────────
+        Map<String, User> receivers = resolve(valid);
+        List<PayoutItem> payable = new ArrayList<>(valid.size());
+        for (PayoutLine line : valid) {
+            User receiver = receivers.get(line.receiver());
+            if (receiver == null) {
+                results.put(line.lineNumber(), LineResult.failed(line, "Receiver not found: " + line.receiver()));
+            } else if (receiver.getId().equals(payer.getId())) {
+                results.put(line.lineNumber(), LineResult.failed(line, "Cannot transfer to yourself"));
+            } else {
+                payable.add(new PayoutItem(line, receiver, idempotencyKey(jobId, line)));
+            }
+        }
+
+        // ── Lines already paid by an interrupted run of this chunk ────────────
+        if (!payable.isEmpty()) {
+            Map<String, Transaction> settled = new HashMap<>();
+            for (Transaction txn : transactionRepository.findAllByIdempotencyKeyIn(
+                    payable.stream().map(PayoutItem::idempotencyKey).toList())) {
+                settled.put(txn.getIdempotencyKey(), txn);
+            }
+            payable.removeIf(item -> {
+                Transaction txn = settled.get(item.idempotencyKey());
+                if (txn != null) {
+                    results.put(item.line().lineNumber(), LineResult.paid(item.line(), txn.getReferenceId()));
+                }
+                return txn != null;
+            });
+        }
+
+        // ── Reserve the chunk total from the payer ─────────────────────────────
+        if (!payable.isEmpty()) {
+            BigDecimal total = payable.stream().map(item -> item.line().amount()).reduce(BigDecimal.ZERO, BigDecimal::add);
+            reserve(jobId, payer.getId(), total, chunk.get(0).lineNumber());
+        }
+
+        // ── Credit receivers in parallel, partitioned by receiver ─────────────
+        List<List<PayoutItem>> partitions = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (PayoutItem item : payable) {
+            partitions.get((int) Math.floorMod(item.receiver().getId(), (long) parallelism)).add(item);
+        }
+        List<Future<List<LineResult>>> futures = new ArrayList<>(parallelism);
+        for (List<PayoutItem> partition : partitions) {
+            if (!partition.isEmpty()) {
+                futures.add(creditWorkers.submit(() -> credit(jobId, payer, partition)));
+            }
+        }
+        RuntimeException failure = null;
+        for (Future<List<LineResult>> future : futures) {
+            try {
+                future.get().forEach(result -> results.put(result.lineNumber(), result));
+            } catch (ExecutionException e) {
+                // Partitions that committed stay paid; the chunk is retried from its idempotency keys
+                failure = e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new IllegalStateException("Interrupted while crediting", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        BigDecimal credited = results.values().stream()
+            .filter(LineResult::success).map(LineResult::amount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        return new ChunkOutcome(results, credited);
+    }
+
+    /**
+     * One partition, one DB transaction. Credits are applied in receiver order so partitions of
+     * concurrent jobs lock wallets in the same order.
+     */
+    private List<LineResult> credit(Long jobId, User payer, List<PayoutItem> partition) {
+        partition.sort(Comparator.comparing((PayoutItem item) -> item.receiver().getId())
+            .thenComparing(item -> item.line().lineNumber()));
+        return tx.execute(status -> {
+            List<LineResult> results = new ArrayList<>(partition.size());
+            List<Transaction> rows = new ArrayList<>(partition.size());
+            for (PayoutItem item : partition) {
+                PayoutLine line = item.line();
+                if (walletRepository.credit(item.receiver().getId(), line.amount()) == 0) {
+                    results.add(LineResult.failed(line, "Receiver wallet not found"));
+                    continue;
+                }
+                Transaction txn = Transaction.builder()
+                    .referenceId(referenceIdGenerator.next())
+                    .idempotencyKey(item.idempotencyKey())
+                    .sender(payer)
+                    .receiver(item.receiver())
+                    .amount(line.amount())
+                    .type(TransactionType.PAYOUT)
+                    .status(TransactionStatus.SUCCESS)
+                    .description(line.description() != null ? line.description() : "Payout #" + jobId)
+                    .processedAt(LocalDateTime.now())
+                    .build();
+                rows.add(txn);
+                results.add(LineResult.paid(line, txn.getReferenceId()));
+            }
+            transactionRepository.saveAll(rows);
+            walletBalanceCache.publishChanged(walletRepository.findByUserIdIn(
+                rows.stream().map(txn -> txn.getReceiver().getId()).distinct().toList()));
+            return results;
+        });
+    }
+
+    private void reserve(Long jobId, Long payerId, BigDecimal total, long firstLine) {
+        tx.executeWithoutResult(status -> {
+            PayoutJob job = jobRepository.findByIdWithLock(jobId).orElseThrow();
+            if (job.getReservedAmount().signum() > 0) {
+                return;  // Still held from an interrupted run of this chunk
+            }
+            Wallet wallet = walletRepository.findByUserIdWithLock(payerId)
+                .orElseThrow(() -> new HaltException("Payer wallet not found"));
+            if (wallet.isHot() && !wallet.hasSufficientBalance(total)) {
+                hotWalletService.fold(wallet);
+            }
+            if (!wallet.hasSufficientBalance(total)) {
+                throw new HaltException(String.format(
+                    "Insufficient wallet balance: ₹%.2f needed for the chunk starting at line %d", total, firstLine));
+            }
+            if (wallet.isDailyLimitExceeded(total)) {
+                throw new HaltException("Daily transfer limit reached at line " + firstLine);
+            }
+            wallet.debit(total);
+            walletRepository.save(wallet);
+            walletBalanceCache.publishChanged(wallet);
+            job.setReservedAmount(total);
+            jobRepository.save(job);
+        });
+    }
+
+    private void checkpoint(Long jobId, List<PayoutLine> chunk, ChunkOutcome outcome, long nextLine, long resultOffset) {
+        tx.executeWithoutResult(status -> {
+            PayoutJob job = jobRepository.findByIdWithLock(jobId).orElseThrow();
+            BigDecimal refund = job.getReservedAmount().subtract(outcome.credited());
+            if (refund.signum() < 0) {
+                throw new IllegalStateException("Payout job " + jobId + " credited more than it reserved");
+            }
+            if (refund.signum() > 0) {
+                Wallet wallet = walletRepository.findByUserIdWithLock(job.getPayerId()).orElseThrow();
+                wallet.setBalance(wallet.getBalance().add(refund));
+                wallet.refundDailySpent(refund);
+                walletRepository.save(wallet);
+                walletBalanceCache.publishChanged(wallet);
+            }
+            long succeeded = outcome.results().values().stream().filter(LineResult::success).count();
+            job.setReservedAmount(BigDecimal.ZERO);
+            job.setNextLine(nextLine);
+            job.setResultOffset(resultOffset);
+            job.setSucceededCount(job.getSucceededCount() + succeeded);
+            job.setFailedCount(job.getFailedCount() + outcome.results().size() - succeeded);
+            job.setPaidAmount(job.getPaidAmount().add(outcome.credited()));
+            jobRepository.save(job);
+
+            auditService.log(job.getPayerId(), "PAYOUT_CHUNK",
+                String.format("Job %d lines %d-%d: %d paid, %d failed, ₹%.2f", jobId,
+                    chunk.get(0).lineNumber(), chunk.get(chunk.size() - 1).lineNumber(),
+                    succeeded, outcome.results().size() - succeeded, outcome.credited()),
+                "PayoutJob", jobId, null, true);
+        });
+    }
+
+    private void complete(Long jobId) {
+        PayoutJob job = tx.execute(status -> {
+            PayoutJob locked = jobRepository.findByIdWithLock(jobId).orElseThrow();
+            locked.setStatus(PayoutJobStatus.COMPLETED);
+            locked.setCompletedAt(LocalDateTime.now());
+            return jobRepository.save(locked);
+        });
+        auditService.log(job.getPayerId(), "PAYOUT_COMPLETED",
+            String.format("Job %d: %d paid, %d failed, ₹%.2f", jobId,
+                job.getSucceededCount(), job.getFailedCount(), job.getPaidAmount()),
+            "PayoutJob", jobId, null, true);
+        log.info("Payout job {} completed: {} paid, {} failed", jobId, job.getSucceededCount(), job.getFailedCount());
+    }
+
+    private void halt(Long jobId, String reason) {
+        tx.executeWithoutResult(status -> {
+            PayoutJob job = jobRepository.findByIdWithLock(jobId).orElseThrow();
+            job.setStatus(PayoutJobStatus.HALTED);
+            job.setHaltReason(reason);
+            jobRepository.save(job);
+        });
+        log.warn("Payout job {} halted: {}", jobId, reason);
+    }
+
+    private Map<String, User> resolve(List<PayoutLine> lines) {
+        Set<String> identifiers = new HashSet<>();
+        for (PayoutLine line : lines) {
+            identifiers.add(line.receiver());
+        }
+        Map<String, User> resolved = new HashMap<>();
+        if (identifiers.isEmpty()) {
+            return resolved;
+        }
+        for (User user : userRepository.findAllByIdentifierIn(identifiers)) {
+            for (String identifier : new String[] {user.getEmail(), user.getPhoneNumber(), user.getUpiId()}) {
+                if (identifier != null && identifiers.contains(identifier)) {
+                    resolved.put(identifier, user);
+                }
+            }
+        }
+        return resolved;
+    }
+
+    private static void writeResults(FileChannel out, Iterable<LineResult> results) throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (LineResult result : results) {
+            csv.append(result.lineNumber()).append(',')
+                .append(result.success() ? "PAID" : "FAILED").append(',')
+                .append(result.referenceId() != null ? result.referenceId() : "").append(',')
+                .append(result.amount() != null ? result.amount().toPlainString() : "").append(',')
+                .append(csvField(result.message())).append('\n');
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(csv.toString());
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    static String idempotencyKey(Long jobId, PayoutLine line) {
+        return "PAYOUT-" + jobId + "-" + line.lineNumber();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** Stops the job at a chunk boundary with a reason the payer can act on. */
+    static class HaltException extends RuntimeException {
+        HaltException(String message) {
+            super(message);
+        }
+    }
+
+    private record PayoutItem(PayoutLine line, User receiver, String idempotencyKey) {}
+
+    private record LineResult(long lineNumber, boolean success, String referenceId, BigDecimal amount, String message) {
+        static LineResult paid(PayoutLine line, String referenceId) {
+            return new LineResult(line.lineNumber(), true, referenceId, line.amount(), null);
+        }
+
+        static LineResult failed(PayoutLine line, String message) {
+            return new LineResult(line.lineNumber(), false, null, line.amount(), message);
+        }
+    }
+
+    private record ChunkOutcome(Map<Long, LineResult> results, BigDecimal credited) {}
+}
@@ -0,0 +1,164 @@
+package com.upi.payment.payout;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upi.payment.enums.PayoutFileFormat;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams a payout file one line at a time, so a file of any size is read in constant memory.
+ * Blank lines and a leading CSV header are skipped but still counted, so line numbers match
+ * what the payer sees in an editor.
+ */
+public class PayoutFileReader implements Closeable {
+
+    private final BufferedReader reader;
+    private final PayoutFileFormat format;
+    private final ObjectMapper objectMapper;
+    private long lineNumber;
+
+    public PayoutFileReader(Path path, PayoutFileFormat format, ObjectMapper objectMapper) throws IOException {
+        this.reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Physical lines consumed so far. */
+    public long position() {
+        return lineNumber;
+    }
+
+    /** Skips ahead to just after physical line {@code lines}, e.g. a job's checkpoint. */
+    public void skipTo(long lines) throws IOException {
+        while (lineNumber < lines && reader.readLine() != null) {
+            lineNumber++;
+        }
+    }
+
+    /** The next payout line, or {@code null} at end of file. */
+    public PayoutLine next() throws IOException {
+        String raw;
+        while ((raw = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && !raw.isEmpty() && raw.charAt(0) == '\uFEFF') {
+                raw = raw.substring(1);  // UTF-8 BOM
+            }
+            if (raw.isBlank() || (lineNumber == 1 && format == PayoutFileFormat.CSV && isHeader(raw))) {
+                continue;
+            }
+            return format == PayoutFileFormat.CSV ? parseCsv(raw) : parseJson(raw);
+        }
+        return null;
+    }
+
+    /** Up to {@code max} lines; empty at end of file. */
+    public List<PayoutLine> nextChunk(int max) throws IOException {
+        List<PayoutLine> chunk = new ArrayList<>(max);
+        PayoutLine line;
+        while (chunk.size() < max && (line = next()) != null) {
+            chunk.add(line);
+        }
+        return chunk;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static boolean isHeader(String raw) {
+        return raw.trim().toLowerCase().startsWith("receiver");
+    }
+
+    private PayoutLine parseCsv(String raw) {
+        List<String> fields = splitCsv(raw);
+        if (fields == null) {
+            return PayoutLine.invalid(lineNumber, "Unterminated quoted field");
+        }
+        if (fields.size() < 2 || fields.size() > 3) {
+            return PayoutLine.invalid(lineNumber, "Expected receiver,amount[,description]");
+        }
+        return line(fields.get(0), fields.get(1), fields.size() == 3 ? fields.get(2) : null);
+    }
+
+    private PayoutLine parseJson(String raw) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(raw);
+        } catch (IOException e) {
+            return PayoutLine.invalid(lineNumber, "Malformed JSON");
+        }
+        if (node == null || !node.isObject()) {
+            return PayoutLine.invalid(lineNumber, "Expected a JSON object");
+        }
+        return line(text(node, "receiver"), text(node, "amount"), text(node, "description"));
+    }
+
+    private PayoutLine line(String receiver, String amount, String description) {
+        if (receiver == null || receiver.isBlank()) {
+            return PayoutLine.invalid(lineNumber, "Receiver is required");
+        }
+        if (amount == null || amount.isBlank()) {
+            return PayoutLine.invalid(lineNumber, "Amount is required");
+        }
+        BigDecimal value;
+        try {
+            value = new BigDecimal(amount.trim());
+        } catch (NumberFormatException e) {
+            return PayoutLine.invalid(lineNumber, "Invalid amount: " + amount.trim());
+        }
+        if (value.scale() > 2) {
+            return PayoutLine.invalid(lineNumber, "Amount has more than 2 decimal places");
+        }
+        if (description != null && description.length() > 200) {
+            return PayoutLine.invalid(lineNumber, "Description too long");
+        }
+        return new PayoutLine(lineNumber, receiver.trim(), value, description, null);
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    // RFC 4180 fields on a single line; null if a quote is left open
+    private static List<String> splitCsv(String raw) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < raw.length() && raw.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
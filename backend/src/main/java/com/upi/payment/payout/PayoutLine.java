@@ -0,0 +1,18 @@
+package com.upi.payment.payout;
+
+import java.math.BigDecimal;
+
+/**
+ * One line of a payout file. {@code lineNumber} is the physical line in the file (1-based);
+ * {@code error} is set when the line could not be parsed.
+ */
+public record PayoutLine(long lineNumber, String receiver, BigDecimal amount, String description, String error) {
+
+    static PayoutLine invalid(long lineNumber, String error) {
+        return new PayoutLine(lineNumber, null, null, null, error);
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+}
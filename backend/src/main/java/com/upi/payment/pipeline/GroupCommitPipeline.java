@@ -0,0 +1,333 @@
+package com.upi.payment.pipeline;
+
+import com.upi.payment.dto.response.ApiResponse;
+import com.upi.payment.entity.AuditLog;
+import com.upi.payment.entity.Transaction;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.exception.BusinessException;
+import com.upi.payment.exception.DuplicateTransactionException;
+import com.upi.payment.exception.InsufficientBalanceException;
+import com.upi.payment.idempotency.IdempotencyStore;
+import com.upi.payment.repository.AuditLogRepository;
+import com.upi.payment.repository.TransactionRepository;
+import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.repository.WalletStripeRepository;
+import com.upi.payment.service.impl.HotWalletService;
+import com.upi.payment.service.impl.WalletBalanceCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Group-commit stage for P2P transfers (optional, {@code app.transfer.group-commit.enabled}).
+ *
+ * Validated transfers are queued into a bounded ring buffer. A single committer thread takes up to
+ * {@code max-batch} of them, or whatever arrived within {@code max-wait-micros}, and commits them in
+ * one DB transaction: every wallet involved is locked in user-ID order with one statement, the
+ * transfers are applied in arrival order, and the transaction, audit and idempotency rows go in as
+ * JDBC batches.
+ * One commit (and one fsync) then covers the whole group.
+ *
+ * Every caller still gets its own outcome: a transfer that fails its balance or limit check is
+ * rejected without affecting the rest of the group, and if the group transaction itself fails the
+ * transfers are retried one per transaction so only the offending one fails.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GroupCommitPipeline {
+
+    private final WalletRepository walletRepository;
+    private final HotWalletService hotWalletService;
+    private final WalletBalanceCache walletBalanceCache;
+    private final IdempotencyStore idempotencyStore;
+    private final TransactionRepository transactionRepository;
+    private final AuditLogRepository auditLogRepository;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.transfer.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.transfer.group-commit.max-batch:64}")
+    private int maxBatch;
+
+    @Value("${app.transfer.group-commit.max-wait-micros:2000}")
+    private long maxWaitMicros;
+
+    @Value("${app.transfer.group-commit.queue-capacity:4096}")
+    private int queueCapacity;
+
+    @Value("${app.transfer.group-commit.ack-timeout-ms:5000}")
+    private long ackTimeoutMs;
+
+    private ArrayBlockingQueue<PendingTransfer> ring;
+    private TransactionTemplate groupTx;
+    private Thread committer;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        ring = new ArrayBlockingQueue<>(queueCapacity);
+        groupTx = new TransactionTemplate(transactionManager);
+        groupTx.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        running = true;
+        committer = new Thread(this::commitLoop, "transfer-group-commit");
+        committer.setDaemon(true);
+        committer.start();
+        log.info("Group-commit transfer pipeline started: max batch {}, max wait {} µs", maxBatch, maxWaitMicros);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        committer.interrupt();
+        try {
+            committer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a transfer for the next group and waits for its own outcome.
+     * {@code transaction} is the fully populated, not yet persisted record; once its ID, balance snapshots
+     * and timestamps are filled in, {@code responder} turns it into the response that is stored under the
+     * idempotency key and returned.
+     */
+    public ApiResponse.TransactionResponse submit(Transaction transaction,
+                                                  Function<Transaction, ApiResponse.TransactionResponse> responder) {
+        PendingTransfer pending = new PendingTransfer(transaction, responder, new CompletableFuture<>());
+        if (!ring.offer(pending)) {
+            throw new BusinessException("Payment system is busy. Please retry shortly.");
+        }
+        try {
+            return pending.outcome().get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new BusinessException("Payment is still processing. Check history before retrying. Ref: "
+                + transaction.getReferenceId());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Payment interrupted. Ref: " + transaction.getReferenceId());
+        }
+    }
+
+    public int queueDepth() {
+        return enabled ? ring.size() : 0;
+    }
+
+    // ── Committer thread ──────────────────────────────────────────────────────
+
+    private void commitLoop() {
+        List<PendingTransfer> group = new ArrayList<>(maxBatch);
+        while (running || !ring.isEmpty()) {
+            try {
+                PendingTransfer first = ring.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                group.add(first);
+                fillGroup(group);
+                commit(group);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    ring.drainTo(group);
+                    if (!group.isEmpty()) commit(group);
+                    return;
+                }
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void fillGroup(List<PendingTransfer> group) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        while (group.size() < maxBatch) {
+            ring.drainTo(group, maxBatch - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= maxBatch || remaining <= 0) {
+                return;
+            }
+            PendingTransfer next = ring.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    private void commit(List<PendingTransfer> group) {
+        Map<PendingTransfer, RuntimeException> rejected = new HashMap<>();
+        Map<PendingTransfer, ApiResponse.TransactionResponse> responses = new HashMap<>();
+        try {
+            groupTx.executeWithoutResult(status -> applyGroup(group, rejected, responses));
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                group.get(0).outcome().completeExceptionally(translate(e));
+                return;
+            }
+            log.warn("Group commit of {} transfers failed ({}), committing them one by one", group.size(), e.getMessage());
+            for (PendingTransfer pending : group) {
+                pending.transaction().setId(null);  // allocated in the rolled-back attempt
+                commit(List.of(pending));
+            }
+            return;
+        }
+
+        // Outcomes are released only after the group has committed
+        for (PendingTransfer pending : group) {
+            RuntimeException failure = rejected.get(pending);
+            if (failure != null) {
+                pending.outcome().completeExceptionally(failure);
+            } else {
+                pending.outcome().complete(responses.get(pending));
+            }
+        }
+        log.debug("Group-committed {} transfers ({} rejected)", group.size() - rejected.size(), rejected.size());
+    }
+
+    private void applyGroup(List<PendingTransfer> group, Map<PendingTransfer, RuntimeException> rejected,
+                            Map<PendingTransfer, ApiResponse.TransactionResponse> responses) {
+        rejected.clear();
+        responses.clear();
+
+        // Hot receivers are credited through stripes and stay out of the lock set
+        Map<Long, Optional<WalletStripeRepository.StripedWallet>> striped = new HashMap<>();
+        TreeSet<Long> lockIds = new TreeSet<>();
+        for (PendingTransfer pending : group) {
+            Long receiverId = pending.transaction().getReceiver().getId();
+            lockIds.add(pending.transaction().getSender().getId());
+            if (striped.computeIfAbsent(receiverId, hotWalletService::stripedWallet).isEmpty()) {
+                lockIds.add(receiverId);
+            }
+        }
+
+        Map<Long, Wallet> wallets = new HashMap<>();
+        for (Wallet wallet : walletRepository.findAllByUserIdInWithLock(lockIds)) {
+            wallets.put(wallet.getUser().getId(), wallet);
+        }
+
+        List<PendingTransfer> applied = new ArrayList<>(group.size());
+        for (PendingTransfer pending : group) {
+            try {
+                apply(pending.transaction(), wallets, striped);
+                applied.add(pending);
+            } catch (BusinessException | InsufficientBalanceException e) {
+                rejected.put(pending, e);
+            }
+        }
+        walletRepository.saveAll(wallets.values());
+        walletBalanceCache.publishChanged(wallets.values());
+
+        if (!applied.isEmpty()) {
+            // IDs are block-allocated, so the whole group's rows go out as one JDBC batch per table at flush
+            entityManager.unwrap(Session.class).setJdbcBatchSize(Math.max(maxBatch, 1));
+            transactionRepository.saveAll(applied.stream().map(PendingTransfer::transaction).toList());
+            auditLogRepository.saveAll(applied.stream().map(pending -> auditEntry(pending.transaction())).toList());
+        }
+        for (PendingTransfer pending : applied) {
+            Transaction txn = pending.transaction();
+            ApiResponse.TransactionResponse response = pending.responder().apply(txn);
+            idempotencyStore.record(txn.getIdempotencyKey(), txn.getSender().getId(), response);
+            responses.put(pending, response);
+        }
+    }
+
+    private void apply(Transaction txn, Map<Long, Wallet> wallets,
+                       Map<Long, Optional<WalletStripeRepository.StripedWallet>> striped) {
+        BigDecimal amount = txn.getAmount();
+        Wallet senderWallet = wallets.get(txn.getSender().getId());
+        Optional<WalletStripeRepository.StripedWallet> stripedReceiver = striped.get(txn.getReceiver().getId());
+        Wallet receiverWallet = stripedReceiver.isPresent() ? null : wallets.get(txn.getReceiver().getId());
+        if (senderWallet == null || (stripedReceiver.isEmpty() && receiverWallet == null)) {
+            throw new BusinessException("Wallet not found");
+        }
+
+        if (senderWallet.isHot() && !senderWallet.hasSufficientBalance(amount)) {
+            hotWalletService.fold(senderWallet);
+        }
+        if (!senderWallet.hasSufficientBalance(amount)) {
+            throw new InsufficientBalanceException("Insufficient wallet balance");
+        }
+        if (senderWallet.isDailyLimitExceeded(amount)) {
+            throw new BusinessException("Daily transfer limit exceeded");
+        }
+
+        // The stripe credit is the last step that can reject the transfer, so it goes before any
+        // wallet in the group is changed; a rejected transfer must leave the sender untouched
+        if (receiverWallet == null) {
+            hotWalletService.creditStripe(stripedReceiver.get(), amount);
+        }
+
+        txn.setSenderBalanceBefore(senderWallet.getBalance());
+        senderWallet.debit(amount);
+        txn.setSenderBalanceAfter(senderWallet.getBalance());
+
+        if (receiverWallet != null) {
+            txn.setReceiverBalanceBefore(receiverWallet.getBalance());
+            receiverWallet.credit(amount);
+            txn.setReceiverBalanceAfter(receiverWallet.getBalance());
+        }
+
+        txn.setProcessedAt(LocalDateTime.now());
+    }
+
+    private static AuditLog auditEntry(Transaction txn) {
+        return AuditLog.builder()
+            .userId(txn.getSender().getId())
+            .action("TRANSFER_SUCCESS")
+            .details(String.format("₹%.2f to %s (Ref: %s)",
+                txn.getAmount(), txn.getReceiver().getUpiId(), txn.getReferenceId()))
+            .entityType("Transaction")
+            .entityId(txn.getId())
+            .ipAddress(txn.getIpAddress())
+            .isSuccess(true)
+            .build();
+    }
+
+    private static RuntimeException translate(RuntimeException e) {
+        if (e instanceof DataIntegrityViolationException) {
+            return new DuplicateTransactionException("Duplicate transaction. Retry with a new idempotency key.");
+        }
+        return e;
+    }
+
+    private record PendingTransfer(Transaction transaction,
+                                   Function<Transaction, ApiResponse.TransactionResponse> responder,
+                                   CompletableFuture<ApiResponse.TransactionResponse> outcome) {}
+}
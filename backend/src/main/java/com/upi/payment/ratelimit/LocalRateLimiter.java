@@ -0,0 +1,43 @@
+package com.upi.payment.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process buckets. A bucket is a single theoretical arrival time (the instant it would be full
+ * again, GCRA) advanced by compare-and-set, so acquiring never locks. Buckets live in a map bounded
+ * to {@code maxKeys}; an idle bucket is full again within a minute, so dropping it after two minutes
+ * without access loses nothing.
+ */
+public class LocalRateLimiter implements RateLimiter {
+
+    private final Cache<String, AtomicLong> buckets;
+
+    public LocalRateLimiter(long maxKeys) {
+        this.buckets = Caffeine.newBuilder()
+            .maximumSize(maxKeys)
+            .expireAfterAccess(Duration.ofMinutes(2))
+            .build();
+    }
+
+    @Override
+    public long tryAcquire(String key, int permitsPerMinute) {
+        long interval = NANOS_PER_MINUTE / permitsPerMinute;
+        long now = System.nanoTime();
+        AtomicLong tat = buckets.get(key, k -> new AtomicLong(now));
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + interval;
+            long wait = next - now - NANOS_PER_MINUTE;
+            if (wait > 0) {
+                return wait;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
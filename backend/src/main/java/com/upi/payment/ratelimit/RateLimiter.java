@@ -0,0 +1,17 @@
+package com.upi.payment.ratelimit;
+
+/**
+ * Token buckets keyed by caller. Each bucket holds up to one minute's worth of permits and refills
+ * continuously at {@code permitsPerMinute}.
+ */
+public interface RateLimiter {
+
+    long NANOS_PER_MINUTE = 60_000_000_000L;
+
+    /**
+     * Takes one permit from {@code key}'s bucket.
+     *
+     * @return 0 when the permit was granted, otherwise the nanoseconds until one becomes available
+     */
+    long tryAcquire(String key, int permitsPerMinute);
+}
@@ -0,0 +1,75 @@
+package com.upi.payment.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buckets shared by every node through Redis: the same arrival-time bucket as {@link LocalRateLimiter},
+ * updated by one script against the Redis clock, so nodes need neither synchronised clocks nor a
+ * read-modify-write round trip. While Redis is unreachable each node falls back to its local buckets
+ * and retries Redis after {@code retryMs}.
+ */
+@Slf4j
+public class RedisRateLimiter implements RateLimiter {
+
+    // Microseconds; KEYS[1] bucket, ARGV[1] emission interval, ARGV[2] bucket span (one minute).
+    // Returns 0 when granted, else the microseconds to wait.
+    private static final RedisScript<Long> ACQUIRE = new DefaultRedisScript<>("""
+        local t = redis.call('TIME')
+        local now = tonumber(t[1]) * 1000000 + tonumber(t[2])
+        local tat = tonumber(redis.call('GET', KEYS[1]) or now)
+        if tat < now then tat = now end
+        local nxt = tat + tonumber(ARGV[1])
+        local wait = nxt - now - tonumber(ARGV[2])
+        if wait > 0 then return math.ceil(wait) end
+        redis.call('SET', KEYS[1], string.format('%.0f', nxt), 'PX', math.ceil((nxt - now) / 1000) + 1000)
+        return 0
+        """, Long.class);
+
+    private static final String SPAN_MICROS = String.valueOf(TimeUnit.NANOSECONDS.toMicros(NANOS_PER_MINUTE));
+
+    private final StringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+    private final RateLimiter fallback;
+    private final long retryNanos;
+    private final Counter errors;
+    private volatile long unavailableUntil = Long.MIN_VALUE;
+    private volatile boolean unavailable;
+
+    public RedisRateLimiter(StringRedisTemplate redisTemplate, String keyPrefix, RateLimiter fallback,
+                            long retryMs, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+        this.fallback = fallback;
+        this.retryNanos = TimeUnit.MILLISECONDS.toNanos(retryMs);
+        this.errors = meterRegistry.counter("rate_limit.redis.errors");
+    }
+
+    @Override
+    public long tryAcquire(String key, int permitsPerMinute) {
+        if (unavailable && System.nanoTime() - unavailableUntil < 0) {
+            return fallback.tryAcquire(key, permitsPerMinute);
+        }
+        try {
+            String interval = String.valueOf(TimeUnit.NANOSECONDS.toMicros(NANOS_PER_MINUTE / permitsPerMinute));
+            Long waitMicros = redisTemplate.execute(ACQUIRE, List.of(keyPrefix + key), interval, SPAN_MICROS);
+            unavailable = false;
+            return waitMicros == null ? 0 : TimeUnit.MICROSECONDS.toNanos(waitMicros);
+        } catch (RuntimeException e) {
+            errors.increment();
+            if (!unavailable) {
+                log.warn("Redis rate limiter unavailable, using local buckets: {}", e.getMessage());
+            }
+            unavailableUntil = System.nanoTime() + retryNanos;
+            unavailable = true;
+            return fallback.tryAcquire(key, permitsPerMinute);
+        }
+    }
+}
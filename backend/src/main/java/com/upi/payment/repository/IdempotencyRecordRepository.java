@@ -0,0 +1,24 @@
+package com.upi.payment.repository;
+
+import com.upi.payment.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    @Query("SELECT r.idempotencyKey FROM IdempotencyRecord r WHERE r.expiresAt > :now")
+    Stream<String> streamLiveKeys(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,28 @@
+package com.upi.payment.repository;
+
+import com.upi.payment.entity.PayoutJob;
+import com.upi.payment.enums.PayoutJobStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PayoutJobRepository extends JpaRepository<PayoutJob, Long> {
+
+    Optional<PayoutJob> findByIdempotencyKey(String idempotencyKey);
+
+    Optional<PayoutJob> findByIdAndPayerId(Long id, Long payerId);
+
+    List<PayoutJob> findAllByStatusIn(Collection<PayoutJobStatus> statuses);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM PayoutJob j WHERE j.id = :id")
+    Optional<PayoutJob> findByIdWithLock(@Param("id") Long id);
+}
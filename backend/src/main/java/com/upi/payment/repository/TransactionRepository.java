@@ -1,19 +1,27 @@
 package com.upi.payment.repository;
 
 import com.upi.payment.entity.Transaction;
+import com.upi.payment.enums.FraudRiskLevel;
 import com.upi.payment.enums.TransactionStatus;
 import com.upi.payment.enums.TransactionType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
@@ -22,6 +30,11 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
 
     Optional<Transaction> findByIdempotencyKey(String idempotencyKey);
 
+    boolean existsByReferenceId(String referenceId);
+
+    // Lines of a payout chunk already settled by an earlier run of the job
+    List<Transaction> findAllByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+
     Page<Transaction> findBySenderIdOrReceiverIdOrderByCreatedAtDesc(
         Long senderId, Long receiverId, Pageable pageable);
 
@@ -43,6 +56,41 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     long countRecentTransactionsByUser(@Param("userId") Long userId,
                                        @Param("since") LocalDateTime since);
 
+    // Successful P2P transfers since a point in time, oldest first — rebuilds in-memory velocity counters.
+    // Rows are sender id, receiver id, amount, createdAt, referenceId
+    @Query("""
+        SELECT t.sender.id, t.receiver.id, t.amount, t.createdAt, t.referenceId FROM Transaction t
+        WHERE t.type = 'TRANSFER'
+        AND t.status != 'FAILED'
+        AND t.createdAt >= :since
+        ORDER BY t.createdAt
+        """)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamTransfersSince(@Param("since") LocalDateTime since);
+
+    // Sender/receiver ids of every successful P2P transfer, unordered and not de-duplicated — rebuilds the known-payee filter
+    @Query("""
+        SELECT t.sender.id, t.receiver.id FROM Transaction t
+        WHERE t.type = 'TRANSFER'
+        AND t.status != 'FAILED'
+        """)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamTransferPairs();
+
+    // Every P2P transfer attempt in [from, to), oldest first — drives fraud rule replay
+    @Query("""
+        SELECT t.id, t.sender.id, t.receiver.id, t.amount, t.createdAt, t.status FROM Transaction t
+        WHERE t.type = 'TRANSFER'
+        AND t.createdAt >= :from
+        AND t.createdAt < :to
+        ORDER BY t.createdAt, t.id
+        """)
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Object[]> streamTransfersBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
     // Sum of amounts sent today — for daily limit enforcement
     @Query("""
         SELECT COALESCE(SUM(t.amount), 0) FROM Transaction t
@@ -88,4 +136,17 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     List<Transaction> findRecentByUserAndType(@Param("userId") Long userId,
                                                @Param("since") LocalDateTime since,
                                                @Param("type") TransactionType type);
+
+    // Fraud score computed after commit, for transfers that did not wait for it
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE Transaction t
+        SET t.fraudScore = :score, t.fraudRiskLevel = :level, t.isFlagged = :flagged
+        WHERE t.referenceId = :referenceId
+        """)
+    int updateFraudAssessment(@Param("referenceId") String referenceId,
+                              @Param("score") int score,
+                              @Param("level") FraudRiskLevel level,
+                              @Param("flagged") boolean flagged);
 }
@@ -11,6 +11,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -33,6 +35,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.email = :identifier OR u.phoneNumber = :identifier OR u.upiId = :identifier")
     Optional<User> findByIdentifier(@Param("identifier") String identifier);
 
+    // Transfer receiver lookups, one per unique index; see ReceiverResolver
+    @Query("SELECT u.id AS id, u.upiId AS upiId, u.fullName AS fullName, u.status AS status FROM User u WHERE u.upiId = :upiId")
+    Optional<ReceiverRow> findReceiverByUpiId(@Param("upiId") String upiId);
+
+    @Query("SELECT u.id AS id, u.upiId AS upiId, u.fullName AS fullName, u.status AS status FROM User u WHERE u.phoneNumber = :phoneNumber")
+    Optional<ReceiverRow> findReceiverByPhoneNumber(@Param("phoneNumber") String phoneNumber);
+
+    @Query("SELECT u.id AS id, u.upiId AS upiId, u.fullName AS fullName, u.status AS status FROM User u WHERE u.email = :email")
+    Optional<ReceiverRow> findReceiverByEmail(@Param("email") String email);
+
+    @Query("SELECT u.status FROM User u WHERE u.id = :userId")
+    Optional<AccountStatus> findStatusById(@Param("userId") Long userId);
+
+    // Resolves a chunk of identifiers in one query; callers match each back by email, phone or UPI ID
+    @Query("SELECT u FROM User u WHERE u.email IN :identifiers OR u.phoneNumber IN :identifiers OR u.upiId IN :identifiers")
+    List<User> findAllByIdentifierIn(@Param("identifiers") Collection<String> identifiers);
+
    @Modifying
 @Transactional
 @Query("UPDATE User u SET u.failedLoginAttempts = u.failedLoginAttempts + 1 WHERE u.id = :userId")
@@ -47,4 +66,11 @@ void resetFailedLoginAttempts(@Param("userId") Long userId);
 @Transactional
 @Query("UPDATE User u SET u.status = :status WHERE u.id = :userId")
 void updateStatus(@Param("userId") Long userId, @Param("status") AccountStatus status);
+
+    interface ReceiverRow {
+        Long getId();
+        String getUpiId();
+        String getFullName();
+        AccountStatus getStatus();
+    }
 }
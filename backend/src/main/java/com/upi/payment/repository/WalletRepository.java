@@ -10,6 +10,9 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,15 +20,69 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
 
     Optional<Wallet> findByUserId(Long userId);
 
+    List<Wallet> findByUserIdIn(Collection<Long> userIds);
+
     // Pessimistic WRITE lock — used for concurrent balance update safety
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT w FROM Wallet w WHERE w.user.id = :userId")
     Optional<Wallet> findByUserIdWithLock(@Param("userId") Long userId);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.id = :id")
+    Optional<Wallet> findByIdWithLock(@Param("id") Long id);
+
+    // Locks several wallets in one statement, in user-ID order (same order as the two-wallet transfer path)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.user.id IN :userIds ORDER BY w.user.id")
+    List<Wallet> findAllByUserIdInWithLock(@Param("userIds") Collection<Long> userIds);
+
+    // Ledger projection — balances are applied as deltas so entries commute. Daily spend restarts
+    // when the entry is from a later day than the row's; dailySpent is assigned before spendDate
+    // because MySQL evaluates SET left to right.
     @Modifying
-    @Query("UPDATE Wallet w SET w.dailySpent = 0 WHERE w.dailySpent > 0")
-    int resetDailySpentForAllWallets();
+    @Query("""
+        UPDATE Wallet w
+        SET w.balance = w.balance + :balanceDelta,
+            w.dailySpent = CASE
+                WHEN w.spendDate IS NULL OR w.spendDate < :spendDate THEN :dailySpentDelta
+                WHEN w.spendDate = :spendDate THEN w.dailySpent + :dailySpentDelta
+                ELSE w.dailySpent END,
+            w.spendDate = CASE
+                WHEN w.spendDate IS NULL OR w.spendDate < :spendDate THEN :spendDate
+                ELSE w.spendDate END,
+            w.version = w.version + 1
+        WHERE w.user.id = :userId
+        """)
+    int applyLedgerDelta(@Param("userId") Long userId,
+                         @Param("balanceDelta") BigDecimal balanceDelta,
+                         @Param("dailySpentDelta") BigDecimal dailySpentDelta,
+                         @Param("spendDate") LocalDate spendDate);
+
+    // Single-statement debit: 0 rows updated means insufficient balance or daily limit reached.
+    // Spend recorded on an earlier day counts as zero and is replaced (see Wallet.debit).
+    // debitIfAllowed and credit bypass the persistence context, so pending changes are flushed
+    // first and the context is cleared after: a Wallet loaded earlier in the transaction (e.g.
+    // through User.wallet) would otherwise be handed back unchanged by the next read.
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("""
+        UPDATE Wallet w
+        SET w.balance = w.balance - :amount,
+            w.dailySpent = CASE WHEN w.spendDate = :today THEN w.dailySpent + :amount ELSE :amount END,
+            w.spendDate = :today,
+            w.version = w.version + 1
+        WHERE w.user.id = :userId
+          AND w.balance >= :amount
+          AND CASE WHEN w.spendDate = :today THEN w.dailySpent ELSE 0 END + :amount <= w.dailyLimit
+        """)
+    int debitIfAllowed(@Param("userId") Long userId, @Param("amount") BigDecimal amount,
+                       @Param("today") LocalDate today);
 
-    @Query("SELECT w.balance FROM Wallet w WHERE w.user.id = :userId")
-    Optional<BigDecimal> getBalanceByUserId(@Param("userId") Long userId);
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("""
+        UPDATE Wallet w
+        SET w.balance = w.balance + :amount,
+            w.version = w.version + 1
+        WHERE w.user.id = :userId
+        """)
+    int credit(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
 }
@@ -0,0 +1,52 @@
+package com.upi.payment.repository;
+
+import com.upi.payment.entity.WalletStripe;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WalletStripeRepository extends JpaRepository<WalletStripe, Long> {
+
+    // Lightweight lookup used on every transfer — present only for hot wallets
+    @Query("SELECT w.id AS walletId, w.creditStripes AS creditStripes FROM Wallet w WHERE w.user.id = :userId AND w.creditStripes > 0")
+    Optional<StripedWallet> findStripedWalletByUserId(@Param("userId") Long userId);
+
+    // Single-row credit — locks only the chosen stripe, never the wallet row
+    @Modifying
+    @Query("""
+        UPDATE WalletStripe s
+        SET s.balance = s.balance + :amount, s.version = s.version + 1
+        WHERE s.walletId = :walletId AND s.stripeIndex = :stripeIndex
+        """)
+    int credit(@Param("walletId") Long walletId,
+               @Param("stripeIndex") int stripeIndex,
+               @Param("amount") BigDecimal amount);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM WalletStripe s WHERE s.walletId = :walletId ORDER BY s.stripeIndex")
+    List<WalletStripe> findByWalletIdWithLock(@Param("walletId") Long walletId);
+
+    @Query("SELECT COALESCE(SUM(s.balance), 0) FROM WalletStripe s WHERE s.walletId = :walletId")
+    BigDecimal sumBalanceByWalletId(@Param("walletId") Long walletId);
+
+    @Query("SELECT DISTINCT s.walletId FROM WalletStripe s WHERE s.balance <> 0")
+    List<Long> findWalletIdsWithBalance();
+
+    @Modifying
+    @Query("DELETE FROM WalletStripe s WHERE s.walletId = :walletId")
+    int deleteByWalletId(@Param("walletId") Long walletId);
+
+    interface StripedWallet {
+        Long getWalletId();
+        Integer getCreditStripes();
+    }
+}
@@ -0,0 +1,41 @@
+package com.upi.payment.security;
+
+import com.upi.payment.enums.AccountStatus;
+import com.upi.payment.event.AccountStatusChangedEvent;
+import com.upi.payment.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Current account status per user, checked on every authenticated request. Entries are dropped
+ * when the status changes, so steady-state requests make no user query.
+ *
+ * The drop reaches other nodes only through the Redis cache tier ({@code app.cache.redis.enabled}).
+ * Without it, a node that did not make the change keeps the old status until its entry expires,
+ * so {@code app.cache.specs.accountStatus} is kept to seconds: a freeze takes that long to apply
+ * everywhere.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AccountStatusCache {
+
+    private final UserRepository userRepository;
+
+    // null when the user no longer exists
+    @Cacheable(value = "accountStatus", key = "#userId")
+    public AccountStatus statusOf(Long userId) {
+        return userRepository.findStatusById(userId).orElse(null);
+    }
+
+    // After commit, so a request racing the change cannot cache the old status again
+    @TransactionalEventListener(fallbackExecution = true)
+    @CacheEvict(value = "accountStatus", key = "#event.userId()")
+    public void onStatusChanged(AccountStatusChangedEvent event) {
+        log.debug("Account status of user {} is now {}", event.userId(), event.status());
+    }
+}
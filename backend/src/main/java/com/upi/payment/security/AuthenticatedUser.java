@@ -0,0 +1,23 @@
+package com.upi.payment.security;
+
+import com.upi.payment.enums.UserRole;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * Principal of a JWT-authenticated request, built from the access token's claims alone.
+ */
+public record AuthenticatedUser(Long id, String email, UserRole role) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public List<GrantedAuthority> authorities() {
+        return List.of(new SimpleGrantedAuthority(role.name()));
+    }
+}
@@ -1,8 +1,12 @@
 package com.upi.payment.security;
 
+import com.upi.payment.entity.User;
+import com.upi.payment.enums.AccountStatus;
+import com.upi.payment.enums.UserRole;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -18,6 +22,11 @@ import java.util.function.Function;
 @Slf4j
 public class JwtService {
 
+    // Claims that let a request be authenticated without loading the user
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_STATUS = "st";
+
     @Value("${jwt.secret}")
     private String secretKey;
 
@@ -27,34 +36,69 @@ public class JwtService {
     @Value("${jwt.refresh-expiration}")
     private long refreshExpiration;
 
-    public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails, jwtExpiration);
+    // Derived once; both are immutable and thread-safe
+    private Key signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(
+            java.util.Base64.getEncoder().encodeToString(secretKey.getBytes())
+        );
+        signingKey = Keys.hmacShaKeyFor(keyBytes);
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
+    public String generateToken(User user) {
+        return generateToken(userClaims(user), user.getEmail(), jwtExpiration);
     }
 
-    public String generateRefreshToken(UserDetails userDetails) {
-        return generateToken(Map.of("type", "refresh"), userDetails, refreshExpiration);
+    public String generateRefreshToken(User user) {
+        Map<String, Object> claims = userClaims(user);
+        claims.put("type", "refresh");
+        return generateToken(claims, user.getEmail(), refreshExpiration);
     }
 
-    public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration) {
+    public String generateToken(Map<String, Object> extraClaims, String subject, long expiration) {
         return Jwts.builder()
             .setClaims(extraClaims)
-            .setSubject(userDetails.getUsername())
+            .setSubject(subject)
             .setIssuedAt(new Date())
             .setExpiration(new Date(System.currentTimeMillis() + expiration))
-            .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+            .signWith(signingKey, SignatureAlgorithm.HS256)
             .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
         try {
-            final String username = extractUsername(token);
-            return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+            // Parsing rejects expired tokens
+            return extractUsername(token).equals(userDetails.getUsername());
         } catch (JwtException e) {
             log.warn("Invalid JWT token: {}", e.getMessage());
             return false;
         }
     }
 
+    /**
+     * The principal carried by a signed, unexpired token, and the account status it was issued
+     * under. Throws {@link JwtException} for a bad token; returns null for tokens without the
+     * user claims (issued before they were added). Requests go through {@link TokenVerifier},
+     * which caches the result.
+     */
+    public TokenPrincipal parsePrincipal(String token) {
+        Claims claims = extractAllClaims(token);
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        String status = claims.get(CLAIM_STATUS, String.class);
+        Date expiration = claims.getExpiration();
+        if (userId == null || role == null || status == null || expiration == null) {
+            return null;
+        }
+        return new TokenPrincipal(
+            new AuthenticatedUser(userId.longValue(), claims.getSubject(), UserRole.valueOf(role)),
+            AccountStatus.valueOf(status), expiration.getTime());
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -68,26 +112,21 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private static Map<String, Object> userClaims(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, user.getId());
+        claims.put(CLAIM_ROLE, user.getRole().name());
+        claims.put(CLAIM_STATUS, user.getStatus().name());
+        return claims;
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-            .setSigningKey(getSigningKey())
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
-    }
-
-    private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(
-            java.util.Base64.getEncoder().encodeToString(secretKey.getBytes())
-        );
-        return Keys.hmacShaKeyFor(keyBytes);
+        return parser.parseClaimsJws(token).getBody();
     }
 
     public long getExpirationTime() {
         return jwtExpiration;
     }
+
+    public record TokenPrincipal(AuthenticatedUser user, AccountStatus issuedStatus, long expiresAtMillis) {}
 }
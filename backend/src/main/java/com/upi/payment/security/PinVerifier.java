@@ -0,0 +1,226 @@
+package com.upi.payment.security;
+
+import com.upi.payment.entity.User;
+import com.upi.payment.exception.BusinessException;
+import com.upi.payment.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks UPI PINs on a dedicated, bounded BCrypt pool instead of the request thread.
+ *
+ * At most {@code hash-threads} hashes run at once and {@code queue-capacity} wait; beyond that,
+ * or when a hash does not finish within {@code timeout-ms}, the caller gets a
+ * {@link ServiceBusyException} (503) straight away rather than queueing behind a burst.
+ *
+ * A successful check grants the session (the bearer token it came in on) a PIN-verified window of
+ * {@code grant-ttl-seconds}: repeating the same PIN in that window is confirmed with an HMAC
+ * instead of another BCrypt round. The grant is bound to the stored PIN hash, so changing the PIN
+ * invalidates it, and a wrong PIN revokes it.
+ */
+@Component
+@Slf4j
+public class PinVerifier {
+
+    @Value("${app.security.pin.hash-threads:0}")
+    private int hashThreads = 0;
+
+    @Value("${app.security.pin.queue-capacity:64}")
+    private int queueCapacity = 64;
+
+    @Value("${app.security.pin.timeout-ms:2000}")
+    private long timeoutMs = 2000;
+
+    @Value("${app.security.pin.grant-ttl-seconds:60}")
+    private long grantTtlSeconds = 60;
+
+    @Value("${app.security.pin.max-grants:100000}")
+    private int maxGrants = 100000;
+
+    private final PasswordEncoder passwordEncoder;
+    private final MeterRegistry meterRegistry;
+
+    // "userId:session digest" → proof of the PIN last verified in that session
+    private final Map<String, Grant> grants = new ConcurrentHashMap<>();
+    private final byte[] grantKey = new byte[32];
+
+    private ThreadPoolExecutor executor;
+    private Timer queueWait;
+    private Timer hashTime;
+
+    public PinVerifier(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.meterRegistry = meterRegistry;
+        new SecureRandom().nextBytes(grantKey);
+    }
+
+    @PostConstruct
+    void start() {
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger sequence = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), r -> {
+                Thread t = new Thread(r, "pin-hash-" + sequence.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.AbortPolicy());
+
+        queueWait = Timer.builder("upi.pin.queue.wait")
+            .description("Time a PIN check waited for a hashing thread")
+            .register(meterRegistry);
+        hashTime = Timer.builder("upi.pin.hash")
+            .description("BCrypt time per PIN check")
+            .register(meterRegistry);
+        Gauge.builder("upi.pin.queue.depth", executor, e -> e.getQueue().size())
+            .description("PIN checks waiting for a hashing thread")
+            .register(meterRegistry);
+        Gauge.builder("upi.pin.grants", grants, Map::size)
+            .description("Sessions holding a PIN-verified grant")
+            .register(meterRegistry);
+        log.info("PIN verifier started with {} hashing threads, queue capacity {}", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Throws {@link BusinessException} if {@code rawPin} is not the user's UPI PIN, and
+     * {@link ServiceBusyException} if the hashing pool cannot take the check.
+     */
+    public void verify(User user, String rawPin) {
+        if (user.getUpiPin() == null) {
+            throw new BusinessException("UPI PIN not set. Please set your UPI PIN first.");
+        }
+        if (rawPin == null) {
+            throw new BusinessException("Incorrect UPI PIN");
+        }
+
+        String session = currentSession();
+        String grantId = session == null ? null : user.getId() + ":" + session;
+        byte[] proof = grantId == null ? null : proof(grantId, rawPin, user.getUpiPin());
+        if (grantId != null) {
+            Grant grant = grants.get(grantId);
+            if (grant != null && grant.expiresAt() > System.currentTimeMillis()
+                    && MessageDigest.isEqual(grant.proof(), proof)) {
+                meterRegistry.counter("upi.pin.grant", "result", "hit").increment();
+                return;
+            }
+            meterRegistry.counter("upi.pin.grant", "result", "miss").increment();
+        }
+
+        if (!hash(rawPin, user.getUpiPin())) {
+            if (grantId != null) {
+                grants.remove(grantId);
+            }
+            throw new BusinessException("Incorrect UPI PIN");
+        }
+
+        if (grantId != null) {
+            grant(grantId, proof);
+        }
+    }
+
+    private boolean hash(String rawPin, String encodedPin) {
+        long submitted = System.nanoTime();
+        Future<Boolean> result;
+        try {
+            result = executor.submit(() -> {
+                long started = System.nanoTime();
+                queueWait.record(started - submitted, TimeUnit.NANOSECONDS);
+                try {
+                    return passwordEncoder.matches(rawPin, encodedPin);
+                } finally {
+                    hashTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            meterRegistry.counter("upi.pin.rejected", "reason", "queue_full").increment();
+            throw new ServiceBusyException("PIN verification is busy. Please retry shortly.");
+        }
+
+        try {
+            return result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            meterRegistry.counter("upi.pin.rejected", "reason", "timeout").increment();
+            throw new ServiceBusyException("PIN verification is busy. Please retry shortly.");
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("PIN verification was interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("PIN verification failed", e.getCause());
+        }
+    }
+
+    private void grant(String grantId, byte[] proof) {
+        long now = System.currentTimeMillis();
+        if (grants.size() >= maxGrants) {
+            grants.values().removeIf(g -> g.expiresAt() <= now);
+            if (grants.size() >= maxGrants) {
+                return;
+            }
+        }
+        grants.put(grantId, new Grant(proof, now + grantTtlSeconds * 1000));
+    }
+
+    // The bearer token identifies the session; requests without one (jobs, tests) never get a grant
+    private static String currentSession() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return null;
+        }
+        String header = attributes.getRequest().getHeader("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(header.substring(7).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] proof(String grantId, String rawPin, String encodedPin) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(grantKey, "HmacSHA256"));
+            return mac.doFinal((grantId + '\n' + encodedPin + '\n' + rawPin).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Grant(byte[] proof, long expiresAt) {}
+}
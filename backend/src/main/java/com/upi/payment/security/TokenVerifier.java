@@ -0,0 +1,98 @@
+package com.upi.payment.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies access tokens for {@code JwtAuthFilter}. Each token is parsed and signature-checked
+ * once; the resulting principal is then served from a bounded cache keyed by the SHA-256 of the
+ * whole token, until the token expires or {@code max-ttl-seconds} passes, whichever is first.
+ * Only successfully verified tokens are cached, and the cache holds no token text.
+ */
+@Component
+public class TokenVerifier {
+
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private long maxSize = 10000;
+
+    @Value("${jwt.verified-cache.max-ttl-seconds:300}")
+    private long maxTtlSeconds = 300;
+
+    private final JwtService jwtService;
+    private final MeterRegistry meterRegistry;
+
+    private Cache<String, JwtService.TokenPrincipal> verified;
+
+    public TokenVerifier(JwtService jwtService, MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        long maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtlSeconds);
+        verified = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new Expiry<String, JwtService.TokenPrincipal>() {
+                @Override
+                public long expireAfterCreate(String key, JwtService.TokenPrincipal token, long currentTime) {
+                    long untilExpiry = TimeUnit.MILLISECONDS.toNanos(token.expiresAtMillis() - System.currentTimeMillis());
+                    return Math.max(0, Math.min(untilExpiry, maxTtlNanos));
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, JwtService.TokenPrincipal token, long currentTime,
+                                              long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(String key, JwtService.TokenPrincipal token, long currentTime,
+                                            long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt.verified");
+    }
+
+    /**
+     * Same contract as {@link JwtService#parsePrincipal}: throws {@link JwtException} for an
+     * invalid or expired token, null for a token without user claims.
+     */
+    public JwtService.TokenPrincipal verify(String token) {
+        String key = digest(token);
+        JwtService.TokenPrincipal cached = verified.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        JwtService.TokenPrincipal parsed = jwtService.parsePrincipal(token);
+        if (parsed != null) {
+            verified.put(key, parsed);
+        }
+        return parsed;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -2,13 +2,17 @@ package com.upi.payment.service.impl;
 
 import com.upi.payment.dto.response.ApiResponse;
 import com.upi.payment.entity.Transaction;
+import com.upi.payment.entity.User;
 import com.upi.payment.enums.AccountStatus;
+import com.upi.payment.event.AccountStatusChangedEvent;
 import com.upi.payment.exception.BusinessException;
+import com.upi.payment.fraud.TransactionGraph;
 import com.upi.payment.repository.TransactionRepository;
 import com.upi.payment.repository.UserRepository;
 import com.upi.payment.repository.WalletRepository;
 import com.upi.payment.service.AuditService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
@@ -18,6 +22,8 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -27,6 +33,9 @@ public class AdminService {
     private final TransactionRepository transactionRepository;
     private final WalletRepository walletRepository;
     private final AuditService auditService;
+    private final HotWalletService hotWalletService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionGraph transactionGraph;
 
     @Transactional(readOnly = true)
     public ApiResponse.DashboardStats getDashboardStats() {
@@ -56,18 +65,36 @@ public class AdminService {
             .orElseThrow(() -> new BusinessException("User not found"));
 
         userRepository.updateStatus(targetUserId, AccountStatus.FROZEN);
+        eventPublisher.publishEvent(new AccountStatusChangedEvent(targetUserId, AccountStatus.FROZEN));
         auditService.log(adminId, "ACCOUNT_FROZEN", "Frozen user ID: " + targetUserId, "User", targetUserId, null, true);
     }
 
+    // No admin involved: a transfer scored after commit reached the block threshold
+    @Transactional
+    public void freezeForFraud(Long targetUserId, String details) {
+        userRepository.updateStatus(targetUserId, AccountStatus.FROZEN);
+        eventPublisher.publishEvent(new AccountStatusChangedEvent(targetUserId, AccountStatus.FROZEN));
+        auditService.log(null, "ACCOUNT_FROZEN_FRAUD", "Frozen user ID: " + targetUserId + ", " + details,
+            "User", targetUserId, null, true);
+    }
+
     @Transactional
     public void unfreezeAccount(Long targetUserId, Long adminId) {
         userRepository.findById(targetUserId)
             .orElseThrow(() -> new BusinessException("User not found"));
 
         userRepository.updateStatus(targetUserId, AccountStatus.ACTIVE);
+        eventPublisher.publishEvent(new AccountStatusChangedEvent(targetUserId, AccountStatus.ACTIVE));
         auditService.log(adminId, "ACCOUNT_UNFROZEN", "Unfrozen user ID: " + targetUserId, "User", targetUserId, null, true);
     }
 
+    @Transactional
+    public void configureHotWallet(Long targetUserId, int stripes, Long adminId) {
+        hotWalletService.configure(targetUserId, stripes);
+        auditService.log(adminId, "HOT_WALLET_CONFIGURED", "User ID: " + targetUserId + ", stripes: " + stripes,
+            "User", targetUserId, null, true);
+    }
+
     @Transactional(readOnly = true)
     public ApiResponse.PageResponse<ApiResponse.TransactionResponse> getFlaggedTransactions(int page, int size) {
         var pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
@@ -99,6 +126,31 @@ public class AdminService {
             .build();
     }
 
+    @Transactional(readOnly = true)
+    public List<ApiResponse.MuleSuspectResponse> getMuleSuspects(int limit) {
+        List<TransactionGraph.Suspect> suspects = transactionGraph.topSuspects(Math.min(Math.max(limit, 1), 100));
+        var users = userRepository.findAllById(suspects.stream().map(TransactionGraph.Suspect::userId).toList())
+            .stream().collect(Collectors.toMap(User::getId, Function.identity()));
+
+        return suspects.stream()
+            .map(s -> {
+                User user = users.get(s.userId());
+                return ApiResponse.MuleSuspectResponse.builder()
+                    .userId(s.userId())
+                    .fullName(user != null ? user.getFullName() : null)
+                    .upiId(user != null ? user.getUpiId() : null)
+                    .status(user != null ? user.getStatus() : null)
+                    .risk(s.risk())
+                    .pattern(s.pattern())
+                    .payers(s.inDegree())
+                    .payees(s.outDegree())
+                    .inFlow(s.inFlow())
+                    .outFlow(s.outFlow())
+                    .build();
+            })
+            .toList();
+    }
+
     @Transactional(readOnly = true)
     public ApiResponse.PageResponse<ApiResponse.UserResponse> getAllUsers(int page, int size) {
         var pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
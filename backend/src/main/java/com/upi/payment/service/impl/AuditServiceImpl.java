@@ -3,12 +3,23 @@ package com.upi.payment.service.impl;
 import com.upi.payment.entity.AuditLog;
 import com.upi.payment.repository.AuditLogRepository;
 import com.upi.payment.service.AuditService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
@@ -16,30 +27,108 @@ import org.springframework.transaction.annotation.Transactional;
 public class AuditServiceImpl implements AuditService {
 
     private final AuditLogRepository auditLogRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManager entityManager;
+
+    @Value("${app.audit.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.audit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private BlockingQueue<AuditLog> queue;
+    private TransactionTemplate writeTx;
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        writeTx = new TransactionTemplate(transactionManager);
+        writeTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        running = true;
+        writer = new Thread(this::writeLoop, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
     /**
-     * Runs in a new transaction so audit log is always saved,
-     * even if the main transaction rolls back.
-     * Async to not block the main request thread.
+     * Queued and written by a background writer in its own transaction, so the audit log is
+     * always saved even if the caller's transaction rolls back, and never blocks the request thread.
+     * Entries that arrive together are inserted as one JDBC batch.
      */
-    @Async
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     @Override
     public void log(Long userId, String action, String details, String entityType,
                     Long entityId, String ipAddress, boolean success) {
+        AuditLog entry = AuditLog.builder()
+            .userId(userId)
+            .action(action)
+            .details(details)
+            .entityType(entityType)
+            .entityId(entityId)
+            .ipAddress(ipAddress)
+            .isSuccess(success)
+            .build();
+        if (!queue.offer(entry)) {
+            log.error("Audit queue full, writing {} inline", action);
+            write(List.of(entry));
+        }
+    }
+
+    private void writeLoop() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditLog first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    queue.drainTo(batch);
+                    if (!batch.isEmpty()) write(batch);
+                    return;
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<AuditLog> batch) {
         try {
-            AuditLog log = AuditLog.builder()
-                .userId(userId)
-                .action(action)
-                .details(details)
-                .entityType(entityType)
-                .entityId(entityId)
-                .ipAddress(ipAddress)
-                .isSuccess(success)
-                .build();
-            auditLogRepository.save(log);
+            writeTx.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+                auditLogRepository.saveAll(batch);
+            });
         } catch (Exception e) {
-            log.error("Failed to save audit log for action {}: {}", action, e.getMessage());
+            if (batch.size() == 1) {
+                log.error("Failed to save audit log entry {}: {}", batch.get(0).getAction(), e.getMessage());
+                return;
+            }
+            // One bad entry fails the whole batch; save the rest one by one so only that entry is lost
+            log.warn("Failed to save {} audit log entries as a batch, retrying one at a time: {}",
+                batch.size(), e.getMessage());
+            for (AuditLog entry : batch) {
+                entry.setId(null);
+                try {
+                    writeTx.executeWithoutResult(status -> auditLogRepository.save(entry));
+                } catch (Exception entryFailure) {
+                    log.error("Failed to save audit log entry {}: {}", entry.getAction(), entryFailure.getMessage());
+                }
+            }
         }
     }
 }
@@ -71,8 +71,7 @@ public class AuthService {
         log.info("New user registered: {} with UPI ID: {}", user.getEmail(), upiId);
         auditService.log(user.getId(), "USER_REGISTERED", "User registered successfully", "User", user.getId(), null, true);
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(user.getEmail());
-        return buildAuthResponse(userDetails, user);
+        return buildAuthResponse(user);
     }
 
     public ApiResponse.AuthResponse login(AuthRequest.Login request) {
@@ -94,8 +93,7 @@ public class AuthService {
             userRepository.resetFailedLoginAttempts(user.getId());
             auditService.log(user.getId(), "USER_LOGIN", "Login successful", "User", user.getId(), null, true);
 
-            UserDetails userDetails = userDetailsService.loadUserByUsername(user.getEmail());
-            return buildAuthResponse(userDetails, user);
+            return buildAuthResponse(user);
 
         } catch (BadCredentialsException e) {
             userRepository.incrementFailedLoginAttempts(user.getId());
@@ -115,7 +113,12 @@ public class AuthService {
         User user = userRepository.findByEmail(username)
             .orElseThrow(() -> new BusinessException("User not found"));
 
-        return buildAuthResponse(userDetails, user);
+        // Access tokens carry the status they were issued under, and only ACTIVE ones authenticate
+        if (user.getStatus() != AccountStatus.ACTIVE) {
+            throw new BusinessException("Account is " + user.getStatus().name().toLowerCase() + ". Contact support.");
+        }
+
+        return buildAuthResponse(user);
     }
 
     @Transactional
@@ -142,9 +145,9 @@ public class AuthService {
         return base;
     }
 
-    private ApiResponse.AuthResponse buildAuthResponse(UserDetails userDetails, User user) {
-        String accessToken = jwtService.generateToken(userDetails);
-        String refreshToken = jwtService.generateRefreshToken(userDetails);
+    private ApiResponse.AuthResponse buildAuthResponse(User user) {
+        String accessToken = jwtService.generateToken(user);
+        String refreshToken = jwtService.generateRefreshToken(user);
 
         return ApiResponse.AuthResponse.builder()
             .accessToken(accessToken)
@@ -0,0 +1,150 @@
+package com.upi.payment.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.upi.payment.enums.ConcurrencyMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Chooses the wallet concurrency strategy per attempt, and retries attempts that lose a race.
+ *
+ * In OPTIMISTIC mode an attempt runs at READ_COMMITTED without row locks and relies on the
+ * {@code @Version} check at commit. A wallet whose attempt conflicts is marked hot for
+ * {@code hot-cooldown-ms}; attempts touching a hot wallet take the pessimistic path instead,
+ * so contended wallets stop burning retries. Hot marks expire on their own, so a wallet that
+ * conflicted once and is never used again does not stay counted. In ATOMIC mode every attempt uses conditional
+ * UPDATE statements and never reads a wallet first. Conflicts in any mode (version mismatch,
+ * deadlock, serialization failure) are retried with full-jitter exponential backoff.
+ */
+@Component
+@Slf4j
+public class ConcurrencyControl {
+
+    @Value("${app.transaction.concurrency-mode:PESSIMISTIC}")
+    private ConcurrencyMode mode = ConcurrencyMode.PESSIMISTIC;
+
+    @Value("${app.transaction.max-attempts:4}")
+    private int maxAttempts = 4;
+
+    @Value("${app.transaction.retry-backoff-base-ms:5}")
+    private long backoffBaseMs = 5;
+
+    @Value("${app.transaction.retry-backoff-max-ms:100}")
+    private long backoffMaxMs = 100;
+
+    @Value("${app.transaction.hot-cooldown-ms:30000}")
+    private long hotCooldownMs = 30000;
+
+    // Beyond this many hot wallets the least recently marked are let back onto the optimistic path
+    private static final long MAX_HOT_WALLETS = 100_000;
+
+    private final MeterRegistry meterRegistry;
+
+    // user ID → time (ms) until which its wallet is handled pessimistically; evicted at that time
+    private final Cache<Long, Long> hotUntil = Caffeine.newBuilder()
+        .maximumSize(MAX_HOT_WALLETS)
+        .expireAfter(new Expiry<Long, Long>() {
+            @Override
+            public long expireAfterCreate(Long userId, Long until, long currentTime) {
+                return TimeUnit.MILLISECONDS.toNanos(Math.max(0, until - System.currentTimeMillis()));
+            }
+
+            @Override
+            public long expireAfterUpdate(Long userId, Long until, long currentTime, long currentDuration) {
+                return expireAfterCreate(userId, until, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(Long userId, Long until, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        })
+        .build();
+
+    public ConcurrencyControl(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("wallet.concurrency.hot.wallets", hotUntil, cache -> {
+                cache.cleanUp();
+                return cache.estimatedSize();
+            })
+            .description("Wallets currently forced onto the pessimistic path")
+            .register(meterRegistry);
+    }
+
+    public ConcurrencyMode mode() {
+        return mode;
+    }
+
+    /**
+     * Runs {@code attempt} until it commits or {@code max-attempts} is reached. The argument passed
+     * to it is the mode this attempt should use: the configured one, except that OPTIMISTIC
+     * attempts touching a hot wallet are run PESSIMISTIC.
+     */
+    public <T> T execute(String operation, List<Long> userIds, Function<ConcurrencyMode, T> attempt) {
+        for (int n = 1; ; n++) {
+            ConcurrencyMode effective = mode == ConcurrencyMode.OPTIMISTIC && anyHot(userIds)
+                ? ConcurrencyMode.PESSIMISTIC : mode;
+            String path = effective.name().toLowerCase();
+            counter("wallet.concurrency.attempts", operation, path).increment();
+            try {
+                return attempt.apply(effective);
+            } catch (ConcurrencyFailureException e) {
+                counter("wallet.concurrency.conflicts", operation, path).increment();
+                if (effective == ConcurrencyMode.OPTIMISTIC) {
+                    markHot(userIds);
+                }
+                if (n >= maxAttempts) {
+                    counter("wallet.concurrency.exhausted", operation, path).increment();
+                    log.warn("{} gave up after {} attempts: {}", operation, n, e.getMessage());
+                    throw e;
+                }
+                counter("wallet.concurrency.retries", operation, path).increment();
+                backoff(n);
+            }
+        }
+    }
+
+    private boolean anyHot(List<Long> userIds) {
+        for (Long userId : userIds) {
+            if (hotUntil.getIfPresent(userId) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void markHot(List<Long> userIds) {
+        long until = System.currentTimeMillis() + hotCooldownMs;
+        for (Long userId : userIds) {
+            if (hotUntil.asMap().put(userId, until) == null) {
+                log.debug("Wallet of user {} marked hot for {} ms", userId, hotCooldownMs);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        long cap = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
+    }
+
+    private Counter counter(String name, String operation, String path) {
+        return meterRegistry.counter(name, "operation", operation, "path", path);
+    }
+}
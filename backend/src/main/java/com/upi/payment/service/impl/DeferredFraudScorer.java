@@ -0,0 +1,164 @@
+package com.upi.payment.service.impl;
+
+import com.upi.payment.event.DeferredFraudCheckEvent;
+import com.upi.payment.fraud.DeferredFraudQueue;
+import com.upi.payment.repository.TransactionRepository;
+import com.upi.payment.service.AuditService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores transfers that committed without waiting for fraud detection ({@link DeferredFraudCheckEvent}),
+ * on {@code app.fraud.async.threads} workers fed by the {@link DeferredFraudQueue}.
+ *
+ * A score above zero is written to the transaction (score, risk level, flag). A score at the block
+ * threshold cannot stop money that has already moved, so it freezes the sender instead
+ * ({@code app.fraud.async.freeze-on-block}). Nothing is dropped: when the queue is full the check
+ * runs on the committing thread, and on shutdown whatever is queued is scored before exit. A ledger
+ * transfer's row may not be projected yet, so a missing row is retried for a few seconds.
+ */
+@Service
+@Slf4j
+public class DeferredFraudScorer {
+
+    private static final int MAX_ROW_ATTEMPTS = 10;
+
+    @Value("${app.fraud.async.threads:2}")
+    private int threads = 2;
+
+    @Value("${app.fraud.async.freeze-on-block:true}")
+    private boolean freezeOnBlock = true;
+
+    private final DeferredFraudQueue queue;
+    private final FraudDetectionService fraudDetectionService;
+    private final TransactionRepository transactionRepository;
+    private final AdminService adminService;
+    private final AuditService auditService;
+    private final MeterRegistry meterRegistry;
+    private final Counter overflow;
+    private final Counter unmatched;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "fraud-async-retry");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean running;
+
+    public DeferredFraudScorer(DeferredFraudQueue queue, FraudDetectionService fraudDetectionService,
+                               TransactionRepository transactionRepository, AdminService adminService,
+                               AuditService auditService, MeterRegistry meterRegistry) {
+        this.queue = queue;
+        this.fraudDetectionService = fraudDetectionService;
+        this.transactionRepository = transactionRepository;
+        this.adminService = adminService;
+        this.auditService = auditService;
+        this.meterRegistry = meterRegistry;
+        this.overflow = Counter.builder("fraud.async.overflow")
+            .description("Deferred fraud checks scored on the committing thread because the queue was full")
+            .register(meterRegistry);
+        this.unmatched = Counter.builder("fraud.async.unmatched")
+            .description("Deferred fraud scores whose transaction row never appeared")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        for (int i = 1; i <= threads; i++) {
+            Thread worker = new Thread(this::workLoop, "fraud-async-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        retries.shutdown();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeferredCheck(DeferredFraudCheckEvent event) {
+        if (!queue.offer(event.referenceId(), event.context())) {
+            overflow.increment();
+            score(new DeferredFraudQueue.Entry(event.referenceId(), event.context(), System.nanoTime()));
+        }
+    }
+
+    private void workLoop() {
+        while (true) {
+            DeferredFraudQueue.Entry entry;
+            try {
+                entry = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                entry = null;
+            }
+            if (entry == null) {
+                if (!running) return;
+                continue;
+            }
+            try {
+                score(entry);
+            } catch (RuntimeException e) {
+                log.error("Deferred fraud check failed for {}", entry.referenceId(), e);
+            }
+        }
+    }
+
+    private void score(DeferredFraudQueue.Entry entry) {
+        FraudDetectionService.FraudAssessment fraud = fraudDetectionService.assess(entry.context());
+        queue.scored(entry);
+        meterRegistry.counter("fraud.async.scored", "level", fraud.riskLevel().name()).increment();
+        if (fraud.score() > 0) {
+            apply(entry, fraud, 1);
+        }
+    }
+
+    private void apply(DeferredFraudQueue.Entry entry, FraudDetectionService.FraudAssessment fraud, int attempt) {
+        int updated = transactionRepository.updateFraudAssessment(
+            entry.referenceId(), fraud.score(), fraud.riskLevel(), fraud.shouldFlag());
+        if (updated == 0) {
+            if (attempt < MAX_ROW_ATTEMPTS && !retries.isShutdown()) {
+                retries.schedule(() -> apply(entry, fraud, attempt + 1), 1, TimeUnit.SECONDS);
+            } else {
+                unmatched.increment();
+                log.warn("Deferred fraud score {} for {} not recorded: transaction not found", fraud.score(),
+                    entry.referenceId());
+            }
+            return;
+        }
+
+        Long senderId = entry.context().sender().getId();
+        if (fraud.shouldBlock() && freezeOnBlock) {
+            log.warn("Freezing user {} after deferred fraud score {} on {}: {}",
+                senderId, fraud.score(), entry.referenceId(), fraud.reasons());
+            adminService.freezeForFraud(senderId, "deferred fraud score " + fraud.score() + " on "
+                + entry.referenceId() + ": " + fraud.reasons());
+        } else if (fraud.shouldFlag()) {
+            auditService.log(senderId, "TRANSACTION_FLAGGED", "Deferred fraud score " + fraud.score()
+                + " on " + entry.referenceId() + ": " + fraud.reasons(), "Transaction", null, null, true);
+        }
+    }
+}
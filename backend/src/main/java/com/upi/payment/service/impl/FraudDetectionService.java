@@ -1,91 +1,79 @@
 package com.upi.payment.service.impl;
 
-import com.upi.payment.entity.Transaction;
 import com.upi.payment.entity.User;
 import com.upi.payment.enums.FraudRiskLevel;
-import com.upi.payment.enums.TransactionType;
-import com.upi.payment.repository.TransactionRepository;
+import com.upi.payment.fraud.FraudContext;
+import com.upi.payment.fraud.FraudData;
+import com.upi.payment.fraud.FraudRuleEngine;
+import com.upi.payment.fraud.FraudTriage;
+import com.upi.payment.fraud.ShadowFraudEvaluator;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Fraud Detection Engine
- * Calculates a risk score (0–100) per transaction based on:
+ * Calculates a risk score (0–100) per transaction from the {@code FraudRule} beans, e.g.:
  *  - Transaction velocity (too many in short window)
- *  - High-value amount flag
- *  - Unusual time of day
- *  - First transaction to this recipient
+ *  - Amount or time of day unusual for this sender's own spending profile
+ *    (global high-value and odd-hours thresholds until the sender has enough history)
+ *  - Rapid repeat transfers to the same recipient
+ *  - First transfer to this recipient
+ * See {@link FraudRuleEngine} for ordering, short-circuiting and the latency budget, and
+ * {@link ShadowFraudEvaluator} for scoring a candidate rule set alongside without affecting the decision.
+ *
+ * Routine transfers ({@link FraudTriage}) are not scored here: they come back {@link FraudAssessment#deferred()}
+ * with the inputs captured, commit straight away, and are scored after commit by {@code DeferredFraudScorer}.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FraudDetectionService {
 
-    private final TransactionRepository transactionRepository;
+    private final FraudRuleEngine fraudRuleEngine;
+    private final ShadowFraudEvaluator shadowFraudEvaluator;
+    private final FraudTriage fraudTriage;
 
-    @Value("${app.fraud.max-transactions-per-hour:10}")
-    private int maxTxnPerHour;
+    // Inputs the triage and shadow rules read beyond the live rules'
+    private Set<FraudData> extraInputs = Set.of();
 
-    @Value("${app.fraud.high-value-threshold:10000.00}")
-    private BigDecimal highValueThreshold;
-
-    @Value("${app.fraud.suspicious-velocity-count:5}")
-    private int suspiciousVelocityCount;
+    @PostConstruct
+    void init() {
+        Set<FraudData> extra = EnumSet.noneOf(FraudData.class);
+        extra.addAll(fraudTriage.required());
+        extra.addAll(shadowFraudEvaluator.required());
+        extraInputs = extra;
+    }
 
+    // receiver is null for a split transfer, which is assessed once on its total
     public FraudAssessment assess(User sender, User receiver, BigDecimal amount) {
-        int score = 0;
-        StringBuilder reasons = new StringBuilder();
-
-        // 1. Velocity check — count txns in last 1 hour
-        long txnLastHour = transactionRepository.countRecentTransactionsByUser(
-            sender.getId(), LocalDateTime.now().minusHours(1));
-
-        if (txnLastHour >= maxTxnPerHour) {
-            score += 40;
-            reasons.append("HIGH_VELOCITY;");
-            log.warn("High velocity detected for user {}: {} txns in last hour", sender.getId(), txnLastHour);
-        } else if (txnLastHour >= suspiciousVelocityCount) {
-            score += 20;
-            reasons.append("ELEVATED_VELOCITY;");
-        }
-
-        // 2. High-value transaction check
-        if (amount.compareTo(highValueThreshold) >= 0) {
-            score += 25;
-            reasons.append("HIGH_VALUE;");
-        }
-
-        // 3. Off-hours check (11 PM – 4 AM IST = suspicious window)
-        int hour = LocalDateTime.now().getHour();
-        if (hour >= 23 || hour <= 4) {
-            score += 10;
-            reasons.append("ODD_HOURS;");
-        }
-
-        // 4. Rapid repeat transfer to same receiver in last 10 minutes
-        long recentToSameReceiver = transactionRepository.countRecentTransactionsByUser(
-            sender.getId(), LocalDateTime.now().minusMinutes(10));
-        if (recentToSameReceiver >= 3) {
-            score += 20;
-            reasons.append("RAPID_REPEAT;");
+        FraudContext context = fraudRuleEngine.context(sender, receiver, amount, extraInputs);
+        if (fraudTriage.canDefer(context)) {
+            return FraudAssessment.deferred(context);
         }
+        return assess(context);
+    }
 
-        // Cap at 100
-        score = Math.min(score, 100);
+    /** Scores inputs captured earlier; used inline and for deferred transfers. */
+    public FraudAssessment assess(FraudContext context) {
+        User sender = context.sender();
+        FraudRuleEngine.Evaluation evaluation = fraudRuleEngine.evaluate(context);
+        shadowFraudEvaluator.observe(context, evaluation);
+        int score = evaluation.score();
 
         FraudRiskLevel level = scoreToLevel(score);
-        boolean shouldFlag = score >= 40;
-        boolean shouldBlock = score >= 80;
+        boolean shouldFlag = score >= FraudRuleEngine.FLAG_SCORE;
+        boolean shouldBlock = score >= FraudRuleEngine.BLOCK_SCORE;
 
         log.info("Fraud assessment for user {}: score={}, level={}, reasons={}",
-            sender.getId(), score, level, reasons);
+            sender.getId(), score, level, evaluation.reasons());
 
-        return new FraudAssessment(score, level, shouldFlag, shouldBlock, reasons.toString());
+        return new FraudAssessment(score, level, shouldFlag, shouldBlock, evaluation.reasons());
     }
 
     private FraudRiskLevel scoreToLevel(int score) {
@@ -100,6 +88,22 @@ public class FraudDetectionService {
         FraudRiskLevel riskLevel,
         boolean shouldFlag,
         boolean shouldBlock,
-        String reasons
-    ) {}
+        String reasons,
+        FraudContext deferredContext
+    ) {
+
+        public FraudAssessment(int score, FraudRiskLevel riskLevel, boolean shouldFlag, boolean shouldBlock,
+                               String reasons) {
+            this(score, riskLevel, shouldFlag, shouldBlock, reasons, null);
+        }
+
+        // Allowed for now; the real score is written to the transaction once it has been computed
+        static FraudAssessment deferred(FraudContext context) {
+            return new FraudAssessment(0, FraudRiskLevel.LOW, false, false, "", context);
+        }
+
+        public boolean deferred() {
+            return deferredContext != null;
+        }
+    }
 }
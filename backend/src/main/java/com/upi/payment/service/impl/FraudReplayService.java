@@ -0,0 +1,128 @@
+package com.upi.payment.service.impl;
+
+import com.upi.payment.dto.request.AdminRequest;
+import com.upi.payment.dto.response.ApiResponse;
+import com.upi.payment.exception.BusinessException;
+import com.upi.payment.fraud.FraudReplayer;
+import com.upi.payment.fraud.ReplayReport;
+import com.upi.payment.service.AuditService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs fraud rule replays ({@link FraudReplayer}) one at a time in the background. Jobs are kept
+ * in memory only, the most recent {@code MAX_JOBS} of them; a replay is cheap to run again.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FraudReplayService {
+
+    private static final int MAX_JOBS = 20;
+
+    private final FraudReplayer fraudReplayer;
+    private final AuditService auditService;
+
+    @Value("${app.fraud.replay.max-days:62}")
+    private int maxDays = 62;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "fraud-replay");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicLong ids = new AtomicLong();
+    private final ConcurrentSkipListMap<Long, Job> jobs = new ConcurrentSkipListMap<>();
+
+    public synchronized ApiResponse.FraudReplayResponse start(AdminRequest.FraudReplay request, Long adminId) {
+        if (!request.getFrom().isBefore(request.getTo())) {
+            throw new BusinessException("Replay window must end after it starts");
+        }
+        if (Duration.between(request.getFrom(), request.getTo()).toDays() > maxDays) {
+            throw new BusinessException("Replay window cannot exceed " + maxDays + " days");
+        }
+        if (jobs.values().stream().anyMatch(job -> job.completedAt == null)) {
+            throw new BusinessException("A fraud replay is already running");
+        }
+
+        Job job = new Job(ids.incrementAndGet(), request.getFrom(), request.getTo(), Map.copyOf(request.getOverrides()));
+        jobs.put(job.id, job);
+        while (jobs.size() > MAX_JOBS) {
+            jobs.pollFirstEntry();
+        }
+        auditService.log(adminId, "FRAUD_REPLAY_STARTED",
+            "Replay " + job.id + " " + job.from + " to " + job.to + ", overrides " + job.overrides,
+            "FraudReplay", job.id, null, true);
+        runner.execute(() -> run(job));
+        return toResponse(job);
+    }
+
+    public ApiResponse.FraudReplayResponse get(Long replayId) {
+        Job job = jobs.get(replayId);
+        if (job == null) {
+            throw new BusinessException("Fraud replay not found");
+        }
+        return toResponse(job);
+    }
+
+    @PreDestroy
+    void stop() {
+        runner.shutdownNow();
+    }
+
+    private void run(Job job) {
+        try {
+            job.report = fraudReplayer.replay(job.from, job.to, job.overrides, job.read);
+        } catch (RuntimeException e) {
+            log.error("Fraud replay {} failed", job.id, e);
+            job.error = e.getMessage();
+        } finally {
+            job.completedAt = LocalDateTime.now();
+        }
+    }
+
+    private ApiResponse.FraudReplayResponse toResponse(Job job) {
+        return ApiResponse.FraudReplayResponse.builder()
+            .id(job.id)
+            .status(job.completedAt == null ? "RUNNING" : job.error != null ? "FAILED" : "COMPLETED")
+            .from(job.from)
+            .to(job.to)
+            .overrides(job.overrides)
+            .transfersRead(job.read.get())
+            .report(job.report)
+            .error(job.error)
+            .startedAt(job.startedAt)
+            .completedAt(job.completedAt)
+            .build();
+    }
+
+    private static final class Job {
+        final Long id;
+        final LocalDateTime from;
+        final LocalDateTime to;
+        final Map<String, String> overrides;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final AtomicLong read = new AtomicLong();
+        volatile ReplayReport report;
+        volatile String error;
+        volatile LocalDateTime completedAt;
+
+        Job(Long id, LocalDateTime from, LocalDateTime to, Map<String, String> overrides) {
+            this.id = id;
+            this.from = from;
+            this.to = to;
+            this.overrides = overrides;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.upi.payment.service.impl;
+
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.entity.WalletStripe;
+import com.upi.payment.exception.BusinessException;
+import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.repository.WalletStripeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Hot-account (merchant fan-in) support.
+ *
+ * A hot wallet's credits are spread over N stripe rows so concurrent payers only contend on
+ * 1/N of the receiver's locks instead of all queueing on the single wallet row. Debits still go
+ * through the wallet row and fold the stripes in when the main balance alone is not enough;
+ * reads add the stripes to the main balance.
+ *
+ * While the ledger is enabled its shards hold each wallet's balance in memory, loaded once as the row
+ * plus its stripes, so the stripes are left alone: nothing consolidates them and hot-account mode
+ * cannot be reconfigured.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HotWalletService {
+
+    private final WalletRepository walletRepository;
+    private final WalletStripeRepository stripeRepository;
+    private final WalletBalanceCache walletBalanceCache;
+
+    @Value("${app.wallet.hot.max-stripes:32}")
+    private int maxStripes;
+
+    // Not LedgerEngine.isEnabled(): the ledger depends on this service
+    @Value("${app.ledger.enabled:false}")
+    private boolean ledgerEnabled;
+
+    public Optional<WalletStripeRepository.StripedWallet> stripedWallet(Long userId) {
+        return stripeRepository.findStripedWalletByUserId(userId);
+    }
+
+    /** Credit one randomly chosen stripe; must run inside the caller's transaction. */
+    public void creditStripe(WalletStripeRepository.StripedWallet wallet, BigDecimal amount) {
+        int stripe = ThreadLocalRandom.current().nextInt(wallet.getCreditStripes());
+        if (stripeRepository.credit(wallet.getWalletId(), stripe, amount) == 0) {
+            // Stripe count changed under us (hot mode being reconfigured)
+            throw new BusinessException("Receiver wallet is being updated. Please retry.");
+        }
+    }
+
+    /**
+     * Moves every stripe balance into the wallet row. The wallet must already be locked by the caller;
+     * stripes are locked after it, the same order the consolidator uses.
+     */
+    public BigDecimal fold(Wallet lockedWallet) {
+        List<WalletStripe> stripes = stripeRepository.findByWalletIdWithLock(lockedWallet.getId());
+        BigDecimal total = BigDecimal.ZERO;
+        for (WalletStripe stripe : stripes) {
+            total = total.add(stripe.getBalance());
+            stripe.setBalance(BigDecimal.ZERO);
+        }
+        if (total.signum() != 0) {
+            lockedWallet.credit(total);
+        }
+        return total;
+    }
+
+    /** Main balance plus un-consolidated stripe credits. */
+    public BigDecimal totalBalance(Wallet wallet) {
+        if (!wallet.isHot()) {
+            return wallet.getBalance();
+        }
+        return wallet.getBalance().add(stripeRepository.sumBalanceByWalletId(wallet.getId()));
+    }
+
+    public List<Long> walletsToConsolidate() {
+        if (ledgerEnabled) {
+            // A fold between a shard reading the row and summing the stripes would count it twice
+            return List.of();
+        }
+        return stripeRepository.findWalletIdsWithBalance();
+    }
+
+    @Transactional
+    public void consolidate(Long walletId) {
+        walletRepository.findByIdWithLock(walletId).ifPresent(wallet -> {
+            BigDecimal folded = fold(wallet);
+            if (folded.signum() != 0) {
+                walletRepository.save(wallet);
+                log.debug("Consolidated ₹{} of stripe credits into wallet {}", folded, walletId);
+            }
+        });
+    }
+
+    /**
+     * Turns hot-account mode on ({@code stripes > 0}), resizes it, or turns it off ({@code stripes == 0}).
+     * Existing stripe balances are folded into the wallet first so no credit is lost.
+     */
+    @Transactional
+    public void configure(Long userId, int stripes) {
+        if (ledgerEnabled) {
+            throw new BusinessException("Hot-account mode cannot be changed while the ledger is enabled");
+        }
+        if (stripes < 0 || stripes > maxStripes) {
+            throw new BusinessException("Stripe count must be between 0 and " + maxStripes);
+        }
+        Wallet wallet = walletRepository.findByUserIdWithLock(userId)
+            .orElseThrow(() -> new BusinessException("Wallet not found"));
+
+        fold(wallet);
+        stripeRepository.deleteByWalletId(wallet.getId());
+        stripeRepository.saveAll(IntStream.range(0, stripes)
+            .mapToObj(i -> WalletStripe.builder().walletId(wallet.getId()).stripeIndex(i).build())
+            .toList());
+
+        wallet.setCreditStripes(stripes);
+        walletRepository.save(wallet);
+        walletBalanceCache.publishChanged(wallet);
+        log.info("Hot-account mode for user {} set to {} stripes", userId, stripes);
+    }
+}
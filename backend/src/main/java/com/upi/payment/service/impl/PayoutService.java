@@ -0,0 +1,224 @@
+package com.upi.payment.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upi.payment.dto.response.ApiResponse;
+import com.upi.payment.entity.PayoutJob;
+import com.upi.payment.entity.User;
+import com.upi.payment.enums.PayoutFileFormat;
+import com.upi.payment.enums.PayoutJobStatus;
+import com.upi.payment.exception.BusinessException;
+import com.upi.payment.exception.DuplicateTransactionException;
+import com.upi.payment.ledger.LedgerEngine;
+import com.upi.payment.payout.PayoutEngine;
+import com.upi.payment.payout.PayoutFileReader;
+import com.upi.payment.payout.PayoutLine;
+import com.upi.payment.repository.PayoutJobRepository;
+import com.upi.payment.repository.UserRepository;
+import com.upi.payment.security.PinVerifier;
+import com.upi.payment.service.AuditService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Accepts bulk payout files (payroll, cashback) and reports on them; {@link PayoutEngine} does the paying.
+ *
+ * The PIN is checked and the whole file is fraud-screened once, on its total, when it is submitted.
+ * Per-line velocity scoring would flag every payout after the first few lines of a file.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PayoutService {
+
+    private final PayoutJobRepository jobRepository;
+    private final UserRepository userRepository;
+    private final PinVerifier pinVerifier;
+    private final FraudDetectionService fraudDetectionService;
+    private final AuditService auditService;
+    private final PayoutEngine payoutEngine;
+    private final LedgerEngine ledgerEngine;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.payout.dir:data/payouts}")
+    private String payoutDir;
+
+    @Value("${app.payout.chunk-size:500}")
+    private int chunkSize;
+
+    public ApiResponse.PayoutJobResponse submit(Long payerId, MultipartFile file, String upiPin,
+                                                String idempotencyKey, String ipAddress) {
+        requireLedgerDisabled();
+        if (idempotencyKey == null || idempotencyKey.length() < 10 || idempotencyKey.length() > 100) {
+            throw new BusinessException("Idempotency key must be 10 to 100 characters");
+        }
+        var existing = jobRepository.findByIdempotencyKey(idempotencyKey);
+        if (existing.isPresent()) {
+            return replay(existing.get(), payerId);
+        }
+
+        User payer = userRepository.findById(payerId)
+            .orElseThrow(() -> new BusinessException("User not found"));
+        pinVerifier.verify(payer, upiPin);
+
+        PayoutFileFormat format = formatOf(file.getOriginalFilename());
+        Path source = store(file, format);
+        try {
+            // ── Scan: line count and total, without holding the file in memory ─
+            long lines = 0;
+            BigDecimal total = BigDecimal.ZERO;
+            try (PayoutFileReader reader = new PayoutFileReader(source, format, objectMapper)) {
+                PayoutLine line;
+                while ((line = reader.next()) != null) {
+                    lines++;
+                    if (line.isValid()) {
+                        total = total.add(line.amount());
+                    }
+                }
+            }
+            if (lines == 0) {
+                throw new BusinessException("Payout file has no lines");
+            }
+
+            FraudDetectionService.FraudAssessment fraud = fraudDetectionService.assess(payer, null, total);
+            if (fraud.shouldBlock()) {
+                auditService.log(payerId, "TRANSACTION_BLOCKED", "Payout file, fraud score: " + fraud.score(),
+                    "PayoutJob", null, ipAddress, false);
+                throw new BusinessException("Transaction blocked due to suspicious activity. Contact support.");
+            }
+
+            String base = source.getFileName().toString();
+            PayoutJob job = jobRepository.save(PayoutJob.builder()
+                .payerId(payerId)
+                .idempotencyKey(idempotencyKey)
+                .fileName(file.getOriginalFilename())
+                .format(format)
+                .sourcePath(source.toString())
+                .resultPath(source.resolveSibling(base.substring(0, base.lastIndexOf('.')) + ".results.csv").toString())
+                .chunkSize(chunkSize)
+                .totalLines(lines)
+                .totalAmount(total)
+                .build());
+
+            auditService.log(payerId, "PAYOUT_SUBMITTED",
+                String.format("Job %d: %d lines, ₹%.2f (%s)", job.getId(), lines, total, file.getOriginalFilename()),
+                "PayoutJob", job.getId(), ipAddress, true);
+            log.info("Payout job {} submitted by user {}: {} lines, ₹{}", job.getId(), payerId, lines, total);
+
+            payoutEngine.submit(job.getId());
+            return toResponse(job);
+        } catch (DataIntegrityViolationException e) {
+            deleteQuietly(source);
+            // Same key submitted concurrently
+            return replay(jobRepository.findByIdempotencyKey(idempotencyKey).orElseThrow(() -> e), payerId);
+        } catch (IOException e) {
+            deleteQuietly(source);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            deleteQuietly(source);
+            throw e;
+        }
+    }
+
+    public ApiResponse.PayoutJobResponse getJob(Long payerId, Long jobId) {
+        return toResponse(findJob(payerId, jobId));
+    }
+
+    public Path resultFile(Long payerId, Long jobId) {
+        Path results = Path.of(findJob(payerId, jobId).getResultPath());
+        if (!Files.exists(results)) {
+            throw new BusinessException("No results yet");
+        }
+        return results;
+    }
+
+    /** Restarts a halted job from its checkpoint, e.g. after topping up the wallet. */
+    public ApiResponse.PayoutJobResponse resume(Long payerId, Long jobId) {
+        requireLedgerDisabled();
+        PayoutJob job = findJob(payerId, jobId);
+        if (job.getStatus() != PayoutJobStatus.HALTED) {
+            throw new BusinessException("Only a halted payout job can be resumed");
+        }
+        job.setStatus(PayoutJobStatus.PENDING);
+        job = jobRepository.save(job);
+        payoutEngine.submit(job.getId());
+        return toResponse(job);
+    }
+
+    // Payouts write wallet rows directly, which the ledger's in-memory balances would never see
+    private void requireLedgerDisabled() {
+        if (ledgerEngine.isEnabled()) {
+            throw new BusinessException("Bulk payouts are not available while the ledger is enabled");
+        }
+    }
+
+    private PayoutJob findJob(Long payerId, Long jobId) {
+        return jobRepository.findByIdAndPayerId(jobId, payerId)
+            .orElseThrow(() -> new BusinessException("Payout job not found"));
+    }
+
+    private ApiResponse.PayoutJobResponse replay(PayoutJob job, Long payerId) {
+        if (!job.getPayerId().equals(payerId)) {
+            throw new DuplicateTransactionException("Idempotency key already used. Retry with a new key.");
+        }
+        log.info("Idempotent replay of payout job {}", job.getId());
+        return toResponse(job);
+    }
+
+    private Path store(MultipartFile file, PayoutFileFormat format) {
+        try {
+            Path dir = Path.of(payoutDir);
+            Files.createDirectories(dir);
+            Path source = Files.createTempFile(dir, "payout-", "." + format.name().toLowerCase(Locale.ROOT));
+            file.transferTo(source);
+            return source;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store payout file", e);
+        }
+    }
+
+    private static PayoutFileFormat formatOf(String fileName) {
+        String name = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return PayoutFileFormat.CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return PayoutFileFormat.NDJSON;
+        }
+        throw new BusinessException("Payout file must be .csv, .ndjson or .jsonl");
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static ApiResponse.PayoutJobResponse toResponse(PayoutJob job) {
+        return ApiResponse.PayoutJobResponse.builder()
+            .id(job.getId())
+            .fileName(job.getFileName())
+            .status(job.getStatus())
+            .totalLines(job.getTotalLines())
+            .succeededCount(job.getSucceededCount())
+            .failedCount(job.getFailedCount())
+            .totalAmount(job.getTotalAmount())
+            .paidAmount(job.getPaidAmount())
+            .haltReason(job.getHaltReason())
+            .createdAt(job.getCreatedAt())
+            .completedAt(job.getCompletedAt())
+            .build();
+    }
+}
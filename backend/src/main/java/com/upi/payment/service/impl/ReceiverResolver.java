@@ -0,0 +1,117 @@
+package com.upi.payment.service.impl;
+
+import com.upi.payment.cache.TwoLevelCache;
+import com.upi.payment.cache.TwoLevelCacheManager;
+import com.upi.payment.entity.User;
+import com.upi.payment.enums.AccountStatus;
+import com.upi.payment.event.AccountStatusChangedEvent;
+import com.upi.payment.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves a transfer's receiver identifier (UPI ID, phone number or email) to the receiver.
+ *
+ * The identifier is normalised and its kind decides which unique index is queried, instead of
+ * one OR across all three. Hits are cached in the {@code receivers} cache under the normalised
+ * identifier, so a repeat payee costs no query. Entries carry the account status and are dropped
+ * for all of a user's identifiers when it changes; misses are not cached, so a newly registered
+ * receiver resolves immediately.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReceiverResolver {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[\\s()-]");
+    private static final Pattern PHONE = Pattern.compile("(?:\\+?91|0)?(\\d{10})");
+
+    private final UserRepository userRepository;
+    private final TwoLevelCacheManager cacheManager;
+
+    private TwoLevelCache receivers;
+
+    /** What a transfer needs to know about its receiver. */
+    public record Receiver(Long userId, String upiId, String fullName, AccountStatus status) implements Serializable {
+
+        static Receiver of(UserRepository.ReceiverRow row) {
+            return new Receiver(row.getId(), row.getUpiId(), row.getFullName(), row.getStatus());
+        }
+
+        // Not managed: only the id is written, as the transaction's receiver_id
+        User toUser() {
+            return User.builder().id(userId).upiId(upiId).fullName(fullName).status(status).build();
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        receivers = cacheManager.getCache("receivers");
+    }
+
+    /**
+     * The receiver, as a {@link User} carrying only its id, UPI ID, name and status, or empty when
+     * no user has the identifier.
+     */
+    public Optional<User> resolve(String identifier) {
+        String key = normalise(identifier);
+        if (key == null) {
+            return Optional.empty();
+        }
+        Receiver receiver = receivers.get(key, Receiver.class);
+        if (receiver == null) {
+            receiver = load(key).map(Receiver::of).orElse(null);
+            if (receiver == null) {
+                return Optional.empty();
+            }
+            receivers.put(key, receiver);
+        }
+        return Optional.of(receiver.toUser());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(AccountStatusChangedEvent event) {
+        userRepository.findById(event.userId()).ifPresent(user -> {
+            for (String identifier : new String[] {user.getUpiId(), user.getPhoneNumber(), user.getEmail()}) {
+                String key = normalise(identifier);
+                if (key != null) {
+                    receivers.evict(key);
+                }
+            }
+        });
+    }
+
+    private Optional<UserRepository.ReceiverRow> load(String key) {
+        int at = key.indexOf('@');
+        if (at < 0) {
+            return userRepository.findReceiverByPhoneNumber(key);
+        }
+        // UPI handles never contain a dot, but an email domain may lack one too
+        if (key.indexOf('.', at) > 0) {
+            return userRepository.findReceiverByEmail(key);
+        }
+        return userRepository.findReceiverByUpiId(key).or(() -> userRepository.findReceiverByEmail(key));
+    }
+
+    /**
+     * Lower-cased UPI ID or email, or a phone number as its 10 digits without separators or the
+     * +91 / 0 prefix. Null when the identifier cannot name any user.
+     */
+    static String normalise(String identifier) {
+        if (identifier == null || identifier.isBlank()) {
+            return null;
+        }
+        String trimmed = identifier.trim();
+        if (trimmed.indexOf('@') >= 0) {
+            return trimmed.toLowerCase(Locale.ROOT);
+        }
+        var phone = PHONE.matcher(SEPARATORS.matcher(trimmed).replaceAll(""));
+        return phone.matches() ? phone.group(1) : null;
+    }
+}
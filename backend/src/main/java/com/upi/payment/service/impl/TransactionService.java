@@ -6,29 +6,50 @@ import com.upi.payment.entity.BankAccount;
 import com.upi.payment.entity.Transaction;
 import com.upi.payment.entity.User;
 import com.upi.payment.entity.Wallet;
+import com.upi.payment.enums.ConcurrencyMode;
+import com.upi.payment.enums.FraudRiskLevel;
 import com.upi.payment.enums.TransactionStatus;
 import com.upi.payment.enums.TransactionType;
+import com.upi.payment.event.DeferredFraudCheckEvent;
+import com.upi.payment.event.TransferCompletedEvent;
 import com.upi.payment.exception.BusinessException;
 import com.upi.payment.exception.DuplicateTransactionException;
 import com.upi.payment.exception.InsufficientBalanceException;
+import com.upi.payment.idempotency.IdempotencyStore;
+import com.upi.payment.ledger.LedgerEngine;
+import com.upi.payment.ledger.LedgerEntry;
+import com.upi.payment.pipeline.GroupCommitPipeline;
 import com.upi.payment.repository.BankAccountRepository;
 import com.upi.payment.repository.TransactionRepository;
 import com.upi.payment.repository.UserRepository;
 import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.repository.WalletStripeRepository;
+import com.upi.payment.security.PinVerifier;
 import com.upi.payment.service.AuditService;
+import com.upi.payment.util.ReferenceIdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -41,7 +62,17 @@ public class TransactionService {
     private final BankAccountRepository bankAccountRepository;
     private final FraudDetectionService fraudDetectionService;
     private final AuditService auditService;
-    private final PasswordEncoder passwordEncoder;
+    private final PinVerifier pinVerifier;
+    private final LedgerEngine ledgerEngine;
+    private final GroupCommitPipeline groupCommitPipeline;
+    private final IdempotencyStore idempotencyStore;
+    private final ReferenceIdGenerator referenceIdGenerator;
+    private final ConcurrencyControl concurrencyControl;
+    private final HotWalletService hotWalletService;
+    private final WalletBalanceCache walletBalanceCache;
+    private final ReceiverResolver receiverResolver;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Peer-to-peer transfer.
@@ -50,83 +81,238 @@ public class TransactionService {
      *  - Double spending
      *  - Partial updates
      *
-     * Idempotency key ensures safe client retries without duplicate payments.
+     * With {@code app.transaction.concurrency-mode: OPTIMISTIC} uncontended wallets are updated at
+     * READ_COMMITTED and protected by their {@code @Version} check instead; with {@code ATOMIC} each
+     * wallet is moved by one conditional UPDATE. See {@link ConcurrencyControl}.
+     *
+     * With {@code app.ledger.enabled} the wallet movement is handed to the in-memory
+     * {@link LedgerEngine} instead, and no DB transaction is held while it is journaled.
+     * With {@code app.transfer.group-commit.enabled} validated transfers are committed in groups
+     * by the {@link GroupCommitPipeline}, under the same wallet locks.
+     *
+     * Idempotency key ensures safe client retries without duplicate payments:
+     * a retry gets the original response back without touching any wallet.
      */
-    @Transactional(isolation = Isolation.SERIALIZABLE, rollbackFor = Exception.class)
     public ApiResponse.TransactionResponse transfer(Long senderId, TransactionRequest.Transfer request, String ipAddress) {
+        return idempotent(request.getIdempotencyKey(), senderId, () -> {
+            if (ledgerEngine.isEnabled()) {
+                return transferViaLedger(senderId, request, ipAddress);
+            }
+            if (groupCommitPipeline.isEnabled()) {
+                return transferViaPipeline(senderId, request, ipAddress);
+            }
+            TransferParties parties = prepareTransfer(senderId, request, ipAddress);
+            return concurrencyControl.execute("transfer", List.of(senderId, parties.receiver().getId()),
+                mode -> inTransaction(
+                    mode == ConcurrencyMode.PESSIMISTIC
+                        ? TransactionDefinition.ISOLATION_SERIALIZABLE : TransactionDefinition.ISOLATION_READ_COMMITTED,
+                    () -> transferInDatabase(parties, request, ipAddress, mode)));
+        });
+    }
 
-        // ── Idempotency check ──────────────────────────────────────────────────
-        transactionRepository.findByIdempotencyKey(request.getIdempotencyKey())
-            .ifPresent(existing -> {
-                throw new DuplicateTransactionException(
-                    "Duplicate transaction. Original ref: " + existing.getReferenceId());
-            });
+    private ApiResponse.TransactionResponse transferInDatabase(TransferParties parties, TransactionRequest.Transfer request,
+                                                               String ipAddress, ConcurrencyMode mode) {
+        Long senderId = parties.sender().getId();
+        User sender = parties.sender();
+        User receiver = parties.receiver();
+        FraudDetectionService.FraudAssessment fraud = parties.fraud();
 
-        // ── Load sender ────────────────────────────────────────────────────────
-        User sender = userRepository.findById(senderId)
-            .orElseThrow(() -> new BusinessException("Sender not found"));
+        WalletMovement movement = mode == ConcurrencyMode.ATOMIC
+            ? moveAtomically(sender, receiver, request.getAmount())
+            : moveLocked(sender, receiver, request.getAmount(), mode == ConcurrencyMode.PESSIMISTIC);
 
-        // ── Verify UPI PIN ─────────────────────────────────────────────────────
-        if (sender.getUpiPin() == null) {
-            throw new BusinessException("UPI PIN not set. Please set your UPI PIN first.");
+        // ── Persist transaction record ─────────────────────────────────────────
+        Transaction txn = Transaction.builder()
+            .referenceId(generateReferenceId())
+            .idempotencyKey(request.getIdempotencyKey())
+            .sender(sender)
+            .receiver(receiver)
+            .amount(request.getAmount())
+            .type(TransactionType.TRANSFER)
+            .status(TransactionStatus.SUCCESS)
+            .fraudRiskLevel(fraud.riskLevel())
+            .fraudScore(fraud.score())
+            .isFlagged(fraud.shouldFlag())
+            .description(request.getDescription())
+            .senderBalanceBefore(movement.senderBefore())
+            .senderBalanceAfter(movement.senderAfter())
+            .receiverBalanceBefore(movement.receiverBefore())
+            .receiverBalanceAfter(movement.receiverAfter())
+            .processedAt(LocalDateTime.now())
+            .ipAddress(ipAddress)
+            .build();
+
+        txn = transactionRepository.save(txn);
+        publishCompleted(senderId, receiver.getId(), request.getAmount(), txn.getReferenceId());
+        publishDeferredCheck(txn.getReferenceId(), fraud);
+
+        auditService.log(senderId, "TRANSFER_SUCCESS",
+            String.format("₹%.2f to %s (Ref: %s)", request.getAmount(), receiver.getUpiId(), txn.getReferenceId()),
+            "Transaction", txn.getId(), ipAddress, true);
+
+        log.info("Transfer success: {} -> {} | Amount: {} | Ref: {}",
+            sender.getUpiId(), receiver.getUpiId(), request.getAmount(), txn.getReferenceId());
+
+        var response = toResponse(txn, sender, receiver, movement.senderAfter());
+        idempotencyStore.record(request.getIdempotencyKey(), senderId, response);
+        return response;
+    }
+
+    /**
+     * Reads both wallets (locked when {@code pessimistic}), checks them and saves the mutated entities.
+     */
+    private WalletMovement moveLocked(User sender, User receiver, BigDecimal amount, boolean pessimistic) {
+        // ── Lock wallets ───────────────────────────────────────────────────────
+        // (optimistic attempts read them unlocked and rely on the version check at commit)
+        // A hot receiver is credited through one of its stripes, so its wallet row is never locked
+        Optional<WalletStripeRepository.StripedWallet> stripedReceiver = hotWalletService.stripedWallet(receiver.getId());
+        Wallet senderWallet;
+        Wallet receiverWallet = null;
+
+        if (stripedReceiver.isPresent()) {
+            senderWallet = loadWallet(sender.getId(), pessimistic);
+        } else {
+            // Lower ID first to prevent deadlock
+            Long firstId = Math.min(sender.getId(), receiver.getId());
+            Long secondId = Math.max(sender.getId(), receiver.getId());
+
+            Wallet firstWallet = loadWallet(firstId, pessimistic);
+            Wallet secondWallet = loadWallet(secondId, pessimistic);
+
+            senderWallet = sender.getId().equals(firstId) ? firstWallet : secondWallet;
+            receiverWallet = receiver.getId().equals(firstId) ? firstWallet : secondWallet;
         }
-        if (!passwordEncoder.matches(request.getUpiPin(), sender.getUpiPin())) {
-            throw new BusinessException("Incorrect UPI PIN");
+
+        // ── Balance checks ─────────────────────────────────────────────────────
+        if (senderWallet.isHot() && !senderWallet.hasSufficientBalance(amount)) {
+            hotWalletService.fold(senderWallet);
         }
+        checkDebit(senderWallet, amount);
 
-        // ── Load receiver ──────────────────────────────────────────────────────
-        User receiver = userRepository.findByIdentifier(request.getReceiverIdentifier())
-            .orElseThrow(() -> new BusinessException("Receiver not found: " + request.getReceiverIdentifier()));
+        // ── Snapshot balances for audit ────────────────────────────────────────
+        // (not tracked for a striped receiver — its balance is spread over several rows)
+        BigDecimal senderBefore = senderWallet.getBalance();
+        BigDecimal receiverBefore = receiverWallet != null ? receiverWallet.getBalance() : null;
 
-        if (sender.getId().equals(receiver.getId())) {
-            throw new BusinessException("Cannot transfer to yourself");
+        // ── Perform the atomic debit/credit ───────────────────────────────────
+        senderWallet.debit(amount);
+        walletRepository.save(senderWallet);
+
+        if (receiverWallet != null) {
+            receiverWallet.credit(amount);
+            walletRepository.save(receiverWallet);
+            walletBalanceCache.publishChanged(List.of(senderWallet, receiverWallet));
+        } else {
+            hotWalletService.creditStripe(stripedReceiver.get(), amount);
+            walletBalanceCache.publishChanged(senderWallet);
         }
 
-        // ── Fraud detection ────────────────────────────────────────────────────
-        FraudDetectionService.FraudAssessment fraud =
-            fraudDetectionService.assess(sender, receiver, request.getAmount());
+        return new WalletMovement(senderBefore, senderWallet.getBalance(),
+            receiverBefore, receiverWallet != null ? receiverWallet.getBalance() : null);
+    }
 
-        if (fraud.shouldBlock()) {
-            // Record blocked attempt
-            saveFailedTransaction(sender, receiver, request, ipAddress, fraud,
-                "Blocked by fraud detection: " + fraud.reasons());
-            auditService.log(senderId, "TRANSACTION_BLOCKED", "Fraud score: " + fraud.score(), "Transaction", null, ipAddress, false);
-            throw new BusinessException("Transaction blocked due to suspicious activity. Contact support.");
+    /**
+     * One conditional UPDATE per wallet, issued in user-ID order like the locked path. The balance
+     * checks are in the debit's WHERE clause. Each UPDATE clears the persistence context, so the
+     * rows read back afterwards (already held by this transaction) come from the DB with their new
+     * balance and version; those are published for the balance cache, and the before-balances are
+     * the read-back balances less the movement.
+     */
+    private WalletMovement moveAtomically(User sender, User receiver, BigDecimal amount) {
+        Optional<WalletStripeRepository.StripedWallet> stripedReceiver = hotWalletService.stripedWallet(receiver.getId());
+        boolean creditFirst = stripedReceiver.isEmpty() && receiver.getId() < sender.getId();
+
+        if (creditFirst) {
+            creditAtomically(receiver.getId(), amount);
+        }
+        Wallet senderWallet = debitAtomically(sender.getId(), amount);
+        BigDecimal senderAfter = senderWallet.getBalance();
+        BigDecimal receiverAfter = null;
+        if (stripedReceiver.isPresent()) {
+            hotWalletService.creditStripe(stripedReceiver.get(), amount);
+            walletBalanceCache.publishChanged(senderWallet);
+        } else {
+            if (!creditFirst) {
+                creditAtomically(receiver.getId(), amount);
+            }
+            Wallet receiverWallet = loadWallet(receiver.getId(), false);
+            receiverAfter = receiverWallet.getBalance();
+            walletBalanceCache.publishChanged(List.of(senderWallet, receiverWallet));
         }
 
-        // ── Lock both wallets (lower ID first to prevent deadlock) ─────────────
-        Long firstId = Math.min(sender.getId(), receiver.getId());
-        Long secondId = Math.max(sender.getId(), receiver.getId());
+        return new WalletMovement(senderAfter.add(amount), senderAfter,
+            receiverAfter != null ? receiverAfter.subtract(amount) : null, receiverAfter);
+    }
 
-        Wallet firstWallet = walletRepository.findByUserIdWithLock(firstId)
-            .orElseThrow(() -> new BusinessException("Wallet not found"));
-        Wallet secondWallet = walletRepository.findByUserIdWithLock(secondId)
-            .orElseThrow(() -> new BusinessException("Wallet not found"));
+    private Wallet debitAtomically(Long userId, BigDecimal amount) {
+        if (walletRepository.debitIfAllowed(userId, amount, Wallet.today()) == 0) {
+            // Rejected (or stripe credits need folding in): take the lock to tell which
+            Wallet wallet = loadWallet(userId, true);
+            if (wallet.isHot() && !wallet.hasSufficientBalance(amount)) {
+                hotWalletService.fold(wallet);
+            }
+            checkDebit(wallet, amount);
+            wallet.debit(amount);
+            walletRepository.save(wallet);
+            return wallet;
+        }
+        return loadWallet(userId, false);
+    }
 
-        Wallet senderWallet = sender.getId().equals(firstId) ? firstWallet : secondWallet;
-        Wallet receiverWallet = receiver.getId().equals(firstId) ? firstWallet : secondWallet;
+    private void creditAtomically(Long userId, BigDecimal amount) {
+        if (walletRepository.credit(userId, amount) == 0) {
+            throw new BusinessException("Wallet not found");
+        }
+    }
 
-        // ── Balance checks ─────────────────────────────────────────────────────
-        if (!senderWallet.hasSufficientBalance(request.getAmount())) {
+    private static void checkDebit(Wallet wallet, BigDecimal amount) {
+        if (!wallet.hasSufficientBalance(amount)) {
             throw new InsufficientBalanceException("Insufficient wallet balance");
         }
-        if (senderWallet.isDailyLimitExceeded(request.getAmount())) {
+        if (wallet.isDailyLimitExceeded(amount)) {
             throw new BusinessException("Daily transfer limit exceeded");
         }
+    }
 
-        // ── Snapshot balances for audit ────────────────────────────────────────
-        BigDecimal senderBefore = senderWallet.getBalance();
-        BigDecimal receiverBefore = receiverWallet.getBalance();
+    private ApiResponse.TransactionResponse transferViaLedger(Long senderId, TransactionRequest.Transfer request,
+                                                              String ipAddress) {
+        checkIdempotency(request.getIdempotencyKey(), "Duplicate transaction. Original ref: ");
+        TransferParties parties = prepareTransfer(senderId, request, ipAddress);
+        User sender = parties.sender();
+        User receiver = parties.receiver();
+        FraudDetectionService.FraudAssessment fraud = parties.fraud();
+
+        LedgerEntry posted = ledgerEngine.transfer(new LedgerEntry(
+            0, generateReferenceId(), request.getIdempotencyKey(), TransactionType.TRANSFER,
+            sender.getId(), receiver.getId(), request.getAmount(),
+            null, null, null, null,
+            request.getDescription(), fraud.score(), fraud.riskLevel(), fraud.shouldFlag(),
+            ipAddress, LocalDateTime.now()));
+        publishCompleted(senderId, receiver.getId(), request.getAmount(), posted.referenceId());
+        publishDeferredCheck(posted.referenceId(), fraud);
 
-        // ── Perform the atomic debit/credit ───────────────────────────────────
-        senderWallet.debit(request.getAmount());
-        receiverWallet.credit(request.getAmount());
+        auditService.log(senderId, "TRANSFER_SUCCESS",
+            String.format("₹%.2f to %s (Ref: %s)", request.getAmount(), receiver.getUpiId(), posted.referenceId()),
+            "Transaction", null, ipAddress, true);
 
-        walletRepository.save(senderWallet);
-        walletRepository.save(receiverWallet);
+        log.info("Transfer success (ledger #{}): {} -> {} | Amount: {} | Ref: {}", posted.sequence(),
+            sender.getUpiId(), receiver.getUpiId(), request.getAmount(), posted.referenceId());
 
-        // ── Persist transaction record ─────────────────────────────────────────
-        Transaction txn = Transaction.builder()
+        var response = toResponse(posted.toTransaction(sender, receiver), sender, receiver, posted.senderBalanceAfter());
+        idempotencyStore.record(request.getIdempotencyKey(), senderId, response);
+        return response;
+    }
+
+    private ApiResponse.TransactionResponse transferViaPipeline(Long senderId, TransactionRequest.Transfer request,
+                                                                String ipAddress) {
+        TransferParties parties = prepareTransfer(senderId, request, ipAddress);
+        User sender = parties.sender();
+        User receiver = parties.receiver();
+        FraudDetectionService.FraudAssessment fraud = parties.fraud();
+
+        // Balance checks, wallet updates, the transaction row, its audit entry and its idempotency
+        // record are all written by the pipeline, in the group's DB transaction
+        var response = groupCommitPipeline.submit(Transaction.builder()
             .referenceId(generateReferenceId())
             .idempotencyKey(request.getIdempotencyKey())
             .sender(sender)
@@ -138,65 +324,302 @@ public class TransactionService {
             .fraudScore(fraud.score())
             .isFlagged(fraud.shouldFlag())
             .description(request.getDescription())
-            .senderBalanceBefore(senderBefore)
-            .senderBalanceAfter(senderWallet.getBalance())
-            .receiverBalanceBefore(receiverBefore)
-            .receiverBalanceAfter(receiverWallet.getBalance())
-            .processedAt(LocalDateTime.now())
             .ipAddress(ipAddress)
+            .build(),
+            txn -> toResponse(txn, sender, receiver, txn.getSenderBalanceAfter()));
+        publishCompleted(senderId, receiver.getId(), request.getAmount(), response.getReferenceId());
+        publishDeferredCheck(response.getReferenceId(), fraud);
+
+        log.info("Transfer success (group commit): {} -> {} | Amount: {} | Ref: {}",
+            sender.getUpiId(), receiver.getUpiId(), request.getAmount(), response.getReferenceId());
+
+        return response;
+    }
+
+    /**
+     * Pays several receivers from one wallet in a single DB transaction: one PIN check, one fraud
+     * assessment on the total, every wallet locked once in user-ID order and all transaction rows
+     * inserted as one batch. Either every leg commits or none does.
+     *
+     * Leg {@code i} is stored under idempotency key {@code <key>#<i>}, so a retried request gets
+     * the original legs back.
+     */
+    public ApiResponse.SplitTransferResponse splitTransfer(Long senderId, TransactionRequest.SplitTransfer request,
+                                                           String ipAddress) {
+        if (ledgerEngine.isEnabled()) {
+            throw new BusinessException("Split transfers are not available while the ledger is enabled");
+        }
+        List<String> legKeys = new ArrayList<>(request.getLegs().size());
+        for (int i = 0; i < request.getLegs().size(); i++) {
+            legKeys.add(request.getIdempotencyKey() + "#" + i);
+        }
+
+        Optional<ApiResponse.SplitTransferResponse> original = replaySplit(legKeys, senderId, false);
+        if (original.isPresent()) {
+            log.info("Idempotent replay of split transfer for key {}", request.getIdempotencyKey());
+            return original.get();
+        }
+        try {
+            SplitParties parties = prepareSplit(senderId, request, legKeys, ipAddress);
+            List<Long> userIds = new ArrayList<>();
+            userIds.add(senderId);
+            parties.receivers().forEach(receiver -> userIds.add(receiver.getId()));
+            return concurrencyControl.execute("splitTransfer", userIds,
+                mode -> inTransaction(TransactionDefinition.ISOLATION_READ_COMMITTED,
+                    () -> splitTransferInDatabase(parties, request, legKeys, ipAddress)));
+        } catch (DuplicateTransactionException | DataIntegrityViolationException e) {
+            return replaySplit(legKeys, senderId, true)
+                .orElseThrow(() -> e instanceof DuplicateTransactionException duplicate ? duplicate
+                    : new DuplicateTransactionException("Duplicate transaction. Retry with a new idempotency key."));
+        }
+    }
+
+    private ApiResponse.SplitTransferResponse splitTransferInDatabase(SplitParties parties,
+                                                                      TransactionRequest.SplitTransfer request,
+                                                                      List<String> legKeys, String ipAddress) {
+        User sender = parties.sender();
+        List<TransactionRequest.SplitTransfer.Leg> legs = request.getLegs();
+        FraudDetectionService.FraudAssessment fraud = parties.fraud();
+
+        // ── Lock every wallet once, in user-ID order ──────────────────────────
+        // Hot receivers are credited through stripes and stay out of the lock set
+        Map<Long, Optional<WalletStripeRepository.StripedWallet>> striped = new HashMap<>();
+        TreeSet<Long> lockIds = new TreeSet<>();
+        lockIds.add(sender.getId());
+        for (User receiver : parties.receivers()) {
+            if (striped.computeIfAbsent(receiver.getId(), hotWalletService::stripedWallet).isEmpty()) {
+                lockIds.add(receiver.getId());
+            }
+        }
+        Map<Long, Wallet> wallets = new HashMap<>();
+        for (Wallet wallet : walletRepository.findAllByUserIdInWithLock(lockIds)) {
+            wallets.put(wallet.getUser().getId(), wallet);
+        }
+        Wallet senderWallet = wallets.get(sender.getId());
+        if (senderWallet == null || wallets.size() != lockIds.size()) {
+            throw new BusinessException("Wallet not found");
+        }
+
+        // ── Balance checks on the total ───────────────────────────────────────
+        if (senderWallet.isHot() && !senderWallet.hasSufficientBalance(parties.total())) {
+            hotWalletService.fold(senderWallet);
+        }
+        checkDebit(senderWallet, parties.total());
+
+        // ── Apply legs in request order ───────────────────────────────────────
+        List<Transaction> txns = new ArrayList<>(legs.size());
+        for (int i = 0; i < legs.size(); i++) {
+            TransactionRequest.SplitTransfer.Leg leg = legs.get(i);
+            User receiver = parties.receivers().get(i);
+            Wallet receiverWallet = wallets.get(receiver.getId());
+
+            BigDecimal senderBefore = senderWallet.getBalance();
+            BigDecimal receiverBefore = receiverWallet != null ? receiverWallet.getBalance() : null;
+            senderWallet.debit(leg.getAmount());
+            if (receiverWallet != null) {
+                receiverWallet.credit(leg.getAmount());
+            } else {
+                hotWalletService.creditStripe(striped.get(receiver.getId()).get(), leg.getAmount());
+            }
+
+            txns.add(Transaction.builder()
+                .referenceId(generateReferenceId())
+                .idempotencyKey(legKeys.get(i))
+                .sender(sender)
+                .receiver(receiver)
+                .amount(leg.getAmount())
+                .type(TransactionType.TRANSFER)
+                .status(TransactionStatus.SUCCESS)
+                .fraudRiskLevel(fraud.riskLevel())
+                .fraudScore(fraud.score())
+                .isFlagged(fraud.shouldFlag())
+                .description(leg.getDescription())
+                .senderBalanceBefore(senderBefore)
+                .senderBalanceAfter(senderWallet.getBalance())
+                .receiverBalanceBefore(receiverBefore)
+                .receiverBalanceAfter(receiverWallet != null ? receiverWallet.getBalance() : null)
+                .processedAt(LocalDateTime.now())
+                .ipAddress(ipAddress)
+                .build());
+        }
+        walletRepository.saveAll(wallets.values());
+        walletBalanceCache.publishChanged(wallets.values());
+
+        // IDs are block-allocated, so the rows go out as JDBC batches at flush
+        txns = transactionRepository.saveAll(txns);
+
+        List<ApiResponse.TransactionResponse> responses = new ArrayList<>(txns.size());
+        for (int i = 0; i < txns.size(); i++) {
+            Transaction txn = txns.get(i);
+            User receiver = parties.receivers().get(i);
+            publishCompleted(sender.getId(), receiver.getId(), txn.getAmount(), txn.getReferenceId());
+            auditService.log(sender.getId(), "TRANSFER_SUCCESS",
+                String.format("₹%.2f to %s (Ref: %s, split %d/%d)",
+                    txn.getAmount(), receiver.getUpiId(), txn.getReferenceId(), i + 1, txns.size()),
+                "Transaction", txn.getId(), ipAddress, true);
+            var response = toResponse(txn, sender, receiver, txn.getSenderBalanceAfter());
+            idempotencyStore.record(legKeys.get(i), sender.getId(), response);
+            responses.add(response);
+        }
+
+        log.info("Split transfer success: {} -> {} receivers | Amount: {}",
+            sender.getUpiId(), txns.size(), parties.total());
+
+        return ApiResponse.SplitTransferResponse.builder()
+            .transfers(responses)
+            .totalAmount(parties.total())
+            .balanceAfter(senderWallet.getBalance())
             .build();
+    }
 
-        txn = transactionRepository.save(txn);
+    /**
+     * PIN, receivers and fraud for a split transfer; the batch is scored once, on its total.
+     */
+    private SplitParties prepareSplit(Long senderId, TransactionRequest.SplitTransfer request,
+                                      List<String> legKeys, String ipAddress) {
+        User sender = userRepository.findById(senderId)
+            .orElseThrow(() -> new BusinessException("Sender not found"));
 
-        auditService.log(senderId, "TRANSFER_SUCCESS",
-            String.format("₹%.2f to %s (Ref: %s)", request.getAmount(), receiver.getUpiId(), txn.getReferenceId()),
-            "Transaction", txn.getId(), ipAddress, true);
+        pinVerifier.verify(sender, request.getUpiPin());
+
+        // Same receiver may appear in several legs; resolve each identifier once
+        Map<String, User> byIdentifier = new HashMap<>();
+        List<User> receivers = new ArrayList<>(request.getLegs().size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (TransactionRequest.SplitTransfer.Leg leg : request.getLegs()) {
+            User receiver = byIdentifier.computeIfAbsent(leg.getReceiverIdentifier(), identifier ->
+                receiverResolver.resolve(identifier)
+                    .orElseThrow(() -> new BusinessException("Receiver not found: " + identifier)));
+            if (sender.getId().equals(receiver.getId())) {
+                throw new BusinessException("Cannot transfer to yourself");
+            }
+            receivers.add(receiver);
+            total = total.add(leg.getAmount());
+        }
 
-        log.info("Transfer success: {} -> {} | Amount: {} | Ref: {}",
-            sender.getUpiId(), receiver.getUpiId(), request.getAmount(), txn.getReferenceId());
+        // Receiver is null: the batch has several
+        FraudDetectionService.FraudAssessment fraud = fraudDetectionService.assess(sender, null, total);
 
-        return toResponse(txn, sender, receiver, senderWallet.getBalance());
+        if (fraud.shouldBlock()) {
+            List<Transaction> failed = new ArrayList<>(receivers.size());
+            for (int i = 0; i < receivers.size(); i++) {
+                failed.add(Transaction.builder()
+                    .referenceId(generateReferenceId())
+                    .idempotencyKey(legKeys.get(i))
+                    .sender(sender)
+                    .receiver(receivers.get(i))
+                    .amount(request.getLegs().get(i).getAmount())
+                    .type(TransactionType.TRANSFER)
+                    .status(TransactionStatus.FAILED)
+                    .fraudRiskLevel(fraud.riskLevel())
+                    .fraudScore(fraud.score())
+                    .isFlagged(true)
+                    .failureReason("Blocked by fraud detection: " + fraud.reasons())
+                    .ipAddress(ipAddress)
+                    .build());
+            }
+            transactionRepository.saveAll(failed);
+            auditService.log(senderId, "TRANSACTION_BLOCKED", "Fraud score: " + fraud.score() + " (split)",
+                "Transaction", null, ipAddress, false);
+            throw new BusinessException("Transaction blocked due to suspicious activity. Contact support.");
+        }
+
+        return new SplitParties(sender, receivers, total, fraud);
     }
 
     /**
-     * Add money from bank account to wallet.
-     * Also ACID-compliant with pessimistic locks on both bank account and wallet.
+     * The original split response when every leg key is known. {@code fromTable} skips the caches,
+     * for use after a concurrent duplicate lost the insert race.
      */
-    @Transactional(isolation = Isolation.READ_COMMITTED, rollbackFor = Exception.class)
-    public ApiResponse.TransactionResponse addMoney(Long userId, TransactionRequest.AddMoney request, String ipAddress) {
+    private Optional<ApiResponse.SplitTransferResponse> replaySplit(List<String> legKeys, Long userId, boolean fromTable) {
+        List<ApiResponse.TransactionResponse> legs = new ArrayList<>(legKeys.size());
+        for (String key : legKeys) {
+            Optional<ApiResponse.TransactionResponse> leg = fromTable
+                ? idempotencyStore.reload(key, userId) : idempotencyStore.find(key, userId);
+            if (leg.isEmpty()) {
+                return Optional.empty();
+            }
+            legs.add(leg.get());
+        }
+        return Optional.of(ApiResponse.SplitTransferResponse.builder()
+            .transfers(legs)
+            .totalAmount(legs.stream().map(ApiResponse.TransactionResponse::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add))
+            .balanceAfter(legs.get(legs.size() - 1).getBalanceAfter())
+            .build());
+    }
 
-        // Idempotency check
-        transactionRepository.findByIdempotencyKey(request.getIdempotencyKey())
-            .ifPresent(existing -> {
-                throw new DuplicateTransactionException("Duplicate deposit. Ref: " + existing.getReferenceId());
-            });
+    /**
+     * Everything that must pass before any wallet is touched:
+     * UPI PIN, receiver resolution and fraud screening.
+     */
+    private TransferParties prepareTransfer(Long senderId, TransactionRequest.Transfer request, String ipAddress) {
 
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new BusinessException("User not found"));
+        // ── Load sender ────────────────────────────────────────────────────────
+        User sender = userRepository.findById(senderId)
+            .orElseThrow(() -> new BusinessException("Sender not found"));
 
-        // Lock bank account
-        BankAccount bankAccount = bankAccountRepository.findByIdWithLock(request.getBankAccountId())
-            .orElseThrow(() -> new BusinessException("Bank account not found"));
+        // ── Verify UPI PIN ─────────────────────────────────────────────────────
+        pinVerifier.verify(sender, request.getUpiPin());
 
-        if (!bankAccount.getUser().getId().equals(userId)) {
-            throw new BusinessException("Bank account does not belong to this user");
+        // ── Load receiver ──────────────────────────────────────────────────────
+        User receiver = receiverResolver.resolve(request.getReceiverIdentifier())
+            .orElseThrow(() -> new BusinessException("Receiver not found: " + request.getReceiverIdentifier()));
+
+        if (sender.getId().equals(receiver.getId())) {
+            throw new BusinessException("Cannot transfer to yourself");
         }
-        if (bankAccount.getBankBalance().compareTo(request.getAmount()) < 0) {
-            throw new InsufficientBalanceException("Insufficient bank balance");
+
+        // ── Fraud detection ────────────────────────────────────────────────────
+        FraudDetectionService.FraudAssessment fraud =
+            fraudDetectionService.assess(sender, receiver, request.getAmount());
+
+        if (fraud.shouldBlock()) {
+            // Record blocked attempt
+            saveFailedTransaction(sender, receiver, request, ipAddress, fraud,
+                "Blocked by fraud detection: " + fraud.reasons());
+            auditService.log(senderId, "TRANSACTION_BLOCKED", "Fraud score: " + fraud.score(), "Transaction", null, ipAddress, false);
+            throw new BusinessException("Transaction blocked due to suspicious activity. Contact support.");
         }
 
-        // Lock wallet
-        Wallet wallet = walletRepository.findByUserIdWithLock(userId)
-            .orElseThrow(() -> new BusinessException("Wallet not found"));
+        return new TransferParties(sender, receiver, fraud);
+    }
 
-        BigDecimal walletBefore = wallet.getBalance();
+    /**
+     * Add money from bank account to wallet.
+     * Also ACID-compliant with pessimistic locks on both bank account and wallet.
+     */
+    public ApiResponse.TransactionResponse addMoney(Long userId, TransactionRequest.AddMoney request, String ipAddress) {
+        if (ledgerEngine.isEnabled()) {
+            return idempotent(request.getIdempotencyKey(), userId, () -> addMoneyViaLedger(userId, request, ipAddress));
+        }
+        return idempotent(request.getIdempotencyKey(), userId, () -> concurrencyControl.execute("addMoney", List.of(userId),
+            mode -> inTransaction(TransactionDefinition.ISOLATION_READ_COMMITTED,
+                () -> addMoneyInDatabase(userId, request, ipAddress, mode))));
+    }
 
-        // Deduct from bank, credit wallet
-        bankAccount.setBankBalance(bankAccount.getBankBalance().subtract(request.getAmount()));
-        wallet.credit(request.getAmount());
+    private ApiResponse.TransactionResponse addMoneyInDatabase(Long userId, TransactionRequest.AddMoney request,
+                                                               String ipAddress, ConcurrencyMode mode) {
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new BusinessException("User not found"));
 
-        bankAccountRepository.save(bankAccount);
-        walletRepository.save(wallet);
+        // Deduct from bank, credit wallet
+        BankAccount bankAccount = debitBank(userId, request, mode != ConcurrencyMode.OPTIMISTIC);
+
+        Wallet wallet;
+        BigDecimal walletBefore;
+        if (mode == ConcurrencyMode.ATOMIC) {
+            creditAtomically(userId, request.getAmount());
+            wallet = loadWallet(userId, false);
+            walletBefore = wallet.getBalance().subtract(request.getAmount());
+        } else {
+            // Lock wallet
+            wallet = loadWallet(userId, mode == ConcurrencyMode.PESSIMISTIC);
+            walletBefore = wallet.getBalance();
+            wallet.credit(request.getAmount());
+            walletRepository.save(wallet);
+        }
+        BigDecimal walletAfter = wallet.getBalance();
+        walletBalanceCache.publishChanged(wallet);
 
         Transaction txn = Transaction.builder()
             .referenceId(generateReferenceId())
@@ -207,7 +630,7 @@ public class TransactionService {
             .status(TransactionStatus.SUCCESS)
             .description("Add money from " + bankAccount.getBankName())
             .receiverBalanceBefore(walletBefore)
-            .receiverBalanceAfter(wallet.getBalance())
+            .receiverBalanceAfter(walletAfter)
             .processedAt(LocalDateTime.now())
             .ipAddress(ipAddress)
             .build();
@@ -218,7 +641,76 @@ public class TransactionService {
             String.format("₹%.2f added from bank (Ref: %s)", request.getAmount(), txn.getReferenceId()),
             "Transaction", txn.getId(), ipAddress, true);
 
-        return toResponse(txn, null, user, wallet.getBalance());
+        var response = toResponse(txn, null, user, walletAfter);
+        idempotencyStore.record(request.getIdempotencyKey(), userId, response);
+        return response;
+    }
+
+    /**
+     * The bank debit commits first; only then is the wallet credit posted to the ledger, with no DB
+     * transaction held. If the ledger does not take the deposit the bank debit is refunded, also
+     * when that only becomes known after the caller stopped waiting. The deposit row arrives with
+     * the ledger projection.
+     */
+    private ApiResponse.TransactionResponse addMoneyViaLedger(Long userId, TransactionRequest.AddMoney request,
+                                                              String ipAddress) {
+        checkIdempotency(request.getIdempotencyKey(), "Duplicate deposit. Ref: ");
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new BusinessException("User not found"));
+        BankAccount bankAccount = inTransaction(TransactionDefinition.ISOLATION_READ_COMMITTED,
+            () -> debitBank(userId, request, true));
+
+        String referenceId = generateReferenceId();
+        LedgerEntry posted = ledgerEngine.deposit(new LedgerEntry(
+            0, referenceId, request.getIdempotencyKey(), TransactionType.DEPOSIT,
+            null, user.getId(), request.getAmount(),
+            null, null, null, null,
+            "Add money from " + bankAccount.getBankName(), 0, FraudRiskLevel.LOW, false,
+            ipAddress, LocalDateTime.now()),
+            () -> refundBank(bankAccount.getId(), request.getAmount(), referenceId));
+
+        auditService.log(user.getId(), "DEPOSIT_SUCCESS",
+            String.format("₹%.2f added from bank (Ref: %s)", request.getAmount(), posted.referenceId()),
+            "Transaction", null, ipAddress, true);
+
+        var response = toResponse(posted.toTransaction(null, user), null, user, posted.receiverBalanceAfter());
+        idempotencyStore.record(request.getIdempotencyKey(), user.getId(), response);
+        return response;
+    }
+
+    /** Checks and debits the user's bank account; must run inside the caller's transaction. */
+    private BankAccount debitBank(Long userId, TransactionRequest.AddMoney request, boolean lock) {
+        BankAccount bankAccount = (lock
+                ? bankAccountRepository.findByIdWithLock(request.getBankAccountId())
+                : bankAccountRepository.findById(request.getBankAccountId()))
+            .orElseThrow(() -> new BusinessException("Bank account not found"));
+
+        if (!bankAccount.getUser().getId().equals(userId)) {
+            throw new BusinessException("Bank account does not belong to this user");
+        }
+        if (bankAccount.getBankBalance().compareTo(request.getAmount()) < 0) {
+            throw new InsufficientBalanceException("Insufficient bank balance");
+        }
+        bankAccount.setBankBalance(bankAccount.getBankBalance().subtract(request.getAmount()));
+        bankAccountRepository.save(bankAccount);
+        return bankAccount;
+    }
+
+    private void refundBank(Long bankAccountId, BigDecimal amount, String referenceId) {
+        try {
+            inTransaction(TransactionDefinition.ISOLATION_READ_COMMITTED, () -> {
+                BankAccount bankAccount = bankAccountRepository.findByIdWithLock(bankAccountId)
+                    .orElseThrow(() -> new BusinessException("Bank account not found"));
+                bankAccount.setBankBalance(bankAccount.getBankBalance().add(amount));
+                bankAccountRepository.save(bankAccount);
+                return null;
+            });
+            log.warn("Deposit {} was not taken by the ledger; ₹{} returned to bank account {}",
+                referenceId, amount, bankAccountId);
+        } catch (RuntimeException e) {
+            log.error("Deposit {} failed and ₹{} could not be returned to bank account {}: {}",
+                referenceId, amount, bankAccountId, e.getMessage());
+        }
     }
 
     @Transactional(readOnly = true)
@@ -266,6 +758,63 @@ public class TransactionService {
 
     // ── Private helpers ────────────────────────────────────────────────────────
 
+    /**
+     * Runs a money movement under its idempotency key. A key that was already used returns the stored
+     * response without touching any wallet; a request that loses a race with a concurrent one for the
+     * same key (unique-key conflict on insert) returns the winner's response.
+     */
+    private ApiResponse.TransactionResponse idempotent(String idempotencyKey, Long userId,
+                                                       Supplier<ApiResponse.TransactionResponse> movement) {
+        Optional<ApiResponse.TransactionResponse> original = idempotencyStore.find(idempotencyKey, userId);
+        if (original.isPresent()) {
+            log.info("Idempotent replay of {} for key {}", original.get().getReferenceId(), idempotencyKey);
+            return original.get();
+        }
+        try {
+            return movement.get();
+        } catch (DuplicateTransactionException | DataIntegrityViolationException e) {
+            return idempotencyStore.reload(idempotencyKey, userId)
+                .orElseThrow(() -> e instanceof DuplicateTransactionException duplicate ? duplicate
+                    : new DuplicateTransactionException("Duplicate transaction. Retry with a new idempotency key."));
+        }
+    }
+
+    /**
+     * Ledger mode only: keys the ledger has acknowledged but not yet projected, and projected keys
+     * whose idempotency record was not written (the ledger acknowledges before the record is stored).
+     */
+    private void checkIdempotency(String idempotencyKey, String message) {
+        if (ledgerEngine.isPending(idempotencyKey)) {
+            throw new DuplicateTransactionException(message + ledgerEngine.pendingReference(idempotencyKey));
+        }
+        transactionRepository.findByIdempotencyKey(idempotencyKey)
+            .ifPresent(existing -> {
+                throw new DuplicateTransactionException(message + existing.getReferenceId());
+            });
+    }
+
+    // Listeners run after the surrounding transaction commits, or at once outside one
+    private void publishCompleted(Long senderId, Long receiverId, BigDecimal amount, String referenceId) {
+        eventPublisher.publishEvent(new TransferCompletedEvent(senderId, receiverId, amount, Instant.now(), referenceId));
+    }
+
+    private void publishDeferredCheck(String referenceId, FraudDetectionService.FraudAssessment fraud) {
+        if (fraud.deferred()) {
+            eventPublisher.publishEvent(new DeferredFraudCheckEvent(referenceId, fraud.deferredContext()));
+        }
+    }
+
+    private Wallet loadWallet(Long userId, boolean lock) {
+        return (lock ? walletRepository.findByUserIdWithLock(userId) : walletRepository.findByUserId(userId))
+            .orElseThrow(() -> new BusinessException("Wallet not found"));
+    }
+
+    private <T> T inTransaction(int isolationLevel, Supplier<T> action) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setIsolationLevel(isolationLevel);
+        return template.execute(status -> action.get());
+    }
+
     private void saveFailedTransaction(User sender, User receiver, TransactionRequest.Transfer request,
                                        String ipAddress, FraudDetectionService.FraudAssessment fraud, String reason) {
         Transaction txn = Transaction.builder()
@@ -306,7 +855,15 @@ public class TransactionService {
             .build();
     }
 
+    private record TransferParties(User sender, User receiver, FraudDetectionService.FraudAssessment fraud) {}
+
+    private record SplitParties(User sender, List<User> receivers, BigDecimal total,
+                                FraudDetectionService.FraudAssessment fraud) {}
+
+    private record WalletMovement(BigDecimal senderBefore, BigDecimal senderAfter,
+                                  BigDecimal receiverBefore, BigDecimal receiverAfter) {}
+
     private String generateReferenceId() {
-        return "TXN" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 6).toUpperCase();
+        return referenceIdGenerator.next();
     }
 }
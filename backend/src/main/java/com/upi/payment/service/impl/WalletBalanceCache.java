@@ -0,0 +1,108 @@
+package com.upi.payment.service.impl;
+
+import com.upi.payment.cache.TwoLevelCache;
+import com.upi.payment.cache.TwoLevelCacheManager;
+import com.upi.payment.cache.Versioned;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.event.WalletBalanceChangedEvent;
+import com.upi.payment.repository.WalletRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Write-through cache of wallet state for balance reads.
+ *
+ * Every path that changes a wallet row publishes the row's new state with its version via
+ * {@link #publishChanged}; once the transaction commits the entry is overwritten with it, never
+ * evicted and reloaded. Reads that miss fill the entry from the DB. Both writes keep whichever
+ * state has the higher version, so an event or read that arrives late cannot replace a newer balance.
+ *
+ * Hot wallets take credits on stripe rows without touching the wallet row's version, so they are
+ * kept as a marker that sends reads to the DB.
+ *
+ * Entries live in the {@code walletBalance} cache of {@link TwoLevelCacheManager}; with the Redis tier
+ * enabled a snapshot written on one node replaces the entry for every node.
+ */
+@Component
+@RequiredArgsConstructor
+public class WalletBalanceCache {
+
+    private final WalletRepository walletRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final TwoLevelCacheManager cacheManager;
+
+    private TwoLevelCache entries;
+    private Counter staleWrites;
+
+    /** Wallet state as of one row version. */
+    public record Snapshot(Long walletId, BigDecimal balance, BigDecimal dailySpent, LocalDate spendDate,
+                           BigDecimal dailyLimit, boolean hot, long version) implements Versioned, Serializable {
+
+        public static Snapshot of(Wallet wallet) {
+            return new Snapshot(wallet.getId(), wallet.getBalance(), wallet.getDailySpent(), wallet.getSpendDate(),
+                wallet.getDailyLimit(), wallet.isHot(), wallet.getVersion() != null ? wallet.getVersion() : 0);
+        }
+
+        public BigDecimal spentToday() {
+            return Wallet.today().equals(spendDate) ? dailySpent : BigDecimal.ZERO;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        entries = cacheManager.getCache("walletBalance");
+        staleWrites = meterRegistry.counter("wallet.cache.stale_writes");
+    }
+
+    /** Cached state of the user's wallet, or null when it must be read from the DB. */
+    public Snapshot get(Long userId) {
+        Snapshot snapshot = entries.get(userId, Snapshot.class);
+        return snapshot == null || snapshot.hot() ? null : snapshot;
+    }
+
+    /** Caches state read from the DB, unless a newer version is already cached. */
+    public void fill(Long userId, Wallet wallet) {
+        put(userId, Snapshot.of(wallet));
+    }
+
+    /**
+     * Publishes the state of wallets changed in the current transaction. Call after the last change
+     * to them: pending changes are flushed first so each snapshot carries the version it was written with.
+     */
+    public void publishChanged(Collection<Wallet> wallets) {
+        if (wallets.isEmpty()) {
+            return;
+        }
+        walletRepository.flush();
+        for (Wallet wallet : wallets) {
+            eventPublisher.publishEvent(new WalletBalanceChangedEvent(wallet.getUser().getId(), Snapshot.of(wallet)));
+        }
+    }
+
+    public void publishChanged(Wallet wallet) {
+        publishChanged(List.of(wallet));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBalanceChanged(WalletBalanceChangedEvent event) {
+        put(event.userId(), event.snapshot());
+    }
+
+    private void put(Long userId, Snapshot snapshot) {
+        if (!entries.putIfNewer(userId, snapshot)) {
+            staleWrites.increment();
+        }
+    }
+}
@@ -3,10 +3,9 @@ package com.upi.payment.service.impl;
 import com.upi.payment.dto.response.ApiResponse;
 import com.upi.payment.entity.Wallet;
 import com.upi.payment.exception.BusinessException;
+import com.upi.payment.ledger.LedgerEngine;
 import com.upi.payment.repository.WalletRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,26 +16,41 @@ import java.math.BigDecimal;
 public class WalletService {
 
     private final WalletRepository walletRepository;
+    private final LedgerEngine ledgerEngine;
+    private final HotWalletService hotWalletService;
+    private final WalletBalanceCache walletBalanceCache;
 
-    @Cacheable(value = "walletBalance", key = "#userId")
+    // In ledger mode the in-memory wallet is authoritative and the DB row may lag, so skip the cache.
+    // Cached state keeps its spend date, so today's spend is worked out at read time.
     @Transactional(readOnly = true)
     public ApiResponse.WalletResponse getWallet(Long userId) {
+        if (ledgerEngine.isEnabled()) {
+            // Ledger wallets already include stripe credits (folded in when loaded)
+            Wallet wallet = ledgerEngine.wallet(userId);
+            return toResponse(WalletBalanceCache.Snapshot.of(wallet), wallet.getBalance());
+        }
+
+        WalletBalanceCache.Snapshot cached = walletBalanceCache.get(userId);
+        if (cached != null) {
+            return toResponse(cached, cached.balance());
+        }
+
         Wallet wallet = walletRepository.findByUserId(userId)
             .orElseThrow(() -> new BusinessException("Wallet not found"));
+        walletBalanceCache.fill(userId, wallet);
+        return toResponse(WalletBalanceCache.Snapshot.of(wallet), hotWalletService.totalBalance(wallet));
+    }
 
-        BigDecimal availableToday = wallet.getDailyLimit().subtract(wallet.getDailySpent());
+    private static ApiResponse.WalletResponse toResponse(WalletBalanceCache.Snapshot wallet, BigDecimal balance) {
+        BigDecimal spentToday = wallet.spentToday();
+        BigDecimal availableToday = wallet.dailyLimit().subtract(spentToday);
 
         return ApiResponse.WalletResponse.builder()
-            .id(wallet.getId())
-            .balance(wallet.getBalance())
-            .dailySpent(wallet.getDailySpent())
-            .dailyLimit(wallet.getDailyLimit())
+            .id(wallet.walletId())
+            .balance(balance)
+            .dailySpent(spentToday)
+            .dailyLimit(wallet.dailyLimit())
             .availableToday(availableToday.max(BigDecimal.ZERO))
             .build();
     }
-
-    @CacheEvict(value = "walletBalance", key = "#userId")
-    public void evictCache(Long userId) {
-        // Cache eviction on balance change
-    }
 }
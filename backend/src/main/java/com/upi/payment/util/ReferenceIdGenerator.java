@@ -0,0 +1,116 @@
+package com.upi.payment.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake-style transaction reference IDs: 41 bits of milliseconds since 2024-01-01,
+ * 10 bits of node ID and a 12-bit per-node sequence (4096 IDs per ms per node).
+ *
+ * The last timestamp and sequence live in one {@link AtomicLong} and are advanced with a CAS, so
+ * generation is lock-free. When a millisecond's sequence runs out, or the clock steps backwards,
+ * the generator carries on from the last timestamp used instead of waiting, so IDs never repeat
+ * and never go backwards.
+ *
+ * Rendered as {@code TXN} + 13 Crockford base32 characters. The encoding is fixed-width and the
+ * alphabet is in ASCII order, so reference IDs sort by time as strings too.
+ */
+@Component
+@Slf4j
+public class ReferenceIdGenerator {
+
+    public static final String PREFIX = "TXN";
+
+    static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+
+    // (millis since epoch << SEQUENCE_BITS) | sequence of the last ID handed out
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public ReferenceIdGenerator(@Value("${app.reference-id.node-id:-1}") int nodeId) {
+        this(nodeId >= 0 ? nodeId : hostNodeId(), System::currentTimeMillis);
+    }
+
+    public ReferenceIdGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    /** Next reference ID, e.g. {@code TXN0C9RW3JS00G01}. */
+    public String next() {
+        return encode(nextId());
+    }
+
+    /** Next raw 63-bit ID; increasing per node and roughly time-ordered across nodes. */
+    public long nextId() {
+        long now = clock.getAsLong() - EPOCH_MILLIS;
+        while (true) {
+            long last = state.get();
+            long candidate = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, candidate)) {
+                long millis = candidate >>> SEQUENCE_BITS;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (candidate & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    public static String encode(long id) {
+        char[] out = new char[PREFIX.length() + ENCODED_LENGTH];
+        PREFIX.getChars(0, PREFIX.length(), out, 0);
+        for (int i = out.length - 1; i >= PREFIX.length(); i--) {
+            out[i] = CROCKFORD[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(out);
+    }
+
+    /** Creation time encoded in a reference ID produced by this generator. */
+    public static Instant timestampOf(String referenceId) {
+        long id = 0;
+        for (int i = PREFIX.length(); i < referenceId.length(); i++) {
+            char c = referenceId.charAt(i);
+            int digit = c <= '9' ? c - '0' : indexOf(c);
+            id = (id << 5) | digit;
+        }
+        return Instant.ofEpochMilli((id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS);
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 10; i < CROCKFORD.length; i++) {
+            if (CROCKFORD[i] == c) return i;
+        }
+        throw new IllegalArgumentException("Not a reference ID character: " + c);
+    }
+
+    private static int hostNodeId() {
+        try {
+            int nodeId = InetAddress.getLocalHost().getHostName().hashCode() & MAX_NODE_ID;
+            log.warn("app.reference-id.node-id not set, using {} derived from the host name", nodeId);
+            return nodeId;
+        } catch (UnknownHostException e) {
+            log.warn("app.reference-id.node-id not set and host name unavailable, using node 0");
+            return 0;
+        }
+    }
+}
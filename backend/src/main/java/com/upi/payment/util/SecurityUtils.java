@@ -2,9 +2,9 @@ package com.upi.payment.util;
 
 import com.upi.payment.exception.BusinessException;
 import com.upi.payment.repository.UserRepository;
+import com.upi.payment.security.AuthenticatedUser;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -21,8 +21,10 @@ public class SecurityUtils {
         if (auth == null || !auth.isAuthenticated()) {
             throw new BusinessException("Not authenticated");
         }
-        String email = ((UserDetails) auth.getPrincipal()).getUsername();
-        return userRepository.findByEmail(email)
+        if (auth.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.id();
+        }
+        return userRepository.findByEmail(auth.getName())
             .orElseThrow(() -> new BusinessException("User not found"))
             .getId();
     }
@@ -30,6 +32,6 @@ public class SecurityUtils {
     public static String getCurrentUserEmail() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null) return null;
-        return ((UserDetails) auth.getPrincipal()).getUsername();
+        return auth.getName();
     }
 }
@@ -0,0 +1,135 @@
+package com.upi.payment;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upi.payment.entity.BankAccount;
+import com.upi.payment.entity.Transaction;
+import com.upi.payment.entity.User;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.enums.FraudRiskLevel;
+import com.upi.payment.repository.BankAccountRepository;
+import com.upi.payment.repository.TransactionRepository;
+import com.upi.payment.repository.UserRepository;
+import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.security.JwtService;
+import com.upi.payment.service.impl.FraudDetectionService;
+import com.upi.payment.service.impl.WalletBalanceCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * ATOMIC-mode transfers and deposits through the HTTP API, where the request's persistence context
+ * already holds the wallets (open-in-view, User.wallet) before the conditional UPDATEs run: the
+ * response, the transaction's balance snapshots and the balance cache must all show the updated row.
+ */
+@SpringBootTest(properties = "app.transaction.concurrency-mode=ATOMIC")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AtomicWalletUpdateTest {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired JwtService jwtService;
+    @Autowired WalletBalanceCache walletBalanceCache;
+    @Autowired UserRepository userRepository;
+    @Autowired WalletRepository walletRepository;
+    @Autowired BankAccountRepository bankAccountRepository;
+    @Autowired TransactionRepository transactionRepository;
+
+    @MockBean PasswordEncoder passwordEncoder;
+    @MockBean FraudDetectionService fraudDetectionService;
+
+    @BeforeEach
+    void setUp() {
+        when(passwordEncoder.matches(any(), any())).thenReturn(true);
+        when(fraudDetectionService.assess(any(), any(), any()))
+            .thenReturn(new FraudDetectionService.FraudAssessment(0, FraudRiskLevel.LOW, false, false, ""));
+    }
+
+    @Test
+    void transferReportsAndCachesTheDebitedBalance() throws Exception {
+        User sender = createUser("1000.00");
+        User receiver = createUser("50.00");
+
+        JsonNode data = postAs(sender, "/api/v1/transactions/transfer", Map.of(
+            "receiverIdentifier", receiver.getUpiId(), "amount", "300.00", "upiPin", "1234",
+            "idempotencyKey", UUID.randomUUID().toString()));
+
+        assertThat(data.get("balanceAfter").decimalValue()).isEqualByComparingTo("700.00");
+        Transaction txn = transactionRepository.findByReferenceId(data.get("referenceId").asText()).orElseThrow();
+        assertThat(txn.getSenderBalanceBefore()).isEqualByComparingTo("1000.00");
+        assertThat(txn.getSenderBalanceAfter()).isEqualByComparingTo("700.00");
+        assertThat(txn.getReceiverBalanceBefore()).isEqualByComparingTo("50.00");
+        assertThat(txn.getReceiverBalanceAfter()).isEqualByComparingTo("350.00");
+        assertCachedAsInDb(sender, "700.00");
+        assertCachedAsInDb(receiver, "350.00");
+    }
+
+    @Test
+    void addMoneyReportsAndCachesTheCreditedBalance() throws Exception {
+        User user = createUser("100.00");
+        BankAccount bankAccount = bankAccountRepository.save(BankAccount.builder().user(user)
+            .accountNumber("99" + (10000000L + SEQUENCE.incrementAndGet())).bankName("Test Bank")
+            .ifscCode("TEST0000001").accountHolderName(user.getFullName()).build());
+
+        JsonNode data = postAs(user, "/api/v1/transactions/add-money", Map.of(
+            "bankAccountId", bankAccount.getId(), "amount", "50.00",
+            "idempotencyKey", UUID.randomUUID().toString()));
+
+        assertThat(data.get("balanceAfter").decimalValue()).isEqualByComparingTo("150.00");
+        Transaction txn = transactionRepository.findByReferenceId(data.get("referenceId").asText()).orElseThrow();
+        assertThat(txn.getReceiverBalanceBefore()).isEqualByComparingTo("100.00");
+        assertThat(txn.getReceiverBalanceAfter()).isEqualByComparingTo("150.00");
+        assertCachedAsInDb(user, "150.00");
+    }
+
+    private JsonNode postAs(User user, String path, Map<String, Object> body) throws Exception {
+        String response = mockMvc.perform(post(path)
+                .header("Authorization", "Bearer " + jwtService.generateToken(user))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(body)))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("data");
+    }
+
+    private void assertCachedAsInDb(User user, String balance) {
+        Wallet row = walletRepository.findByUserId(user.getId()).orElseThrow();
+        assertThat(row.getBalance()).isEqualByComparingTo(balance);
+        WalletBalanceCache.Snapshot cached = walletBalanceCache.get(user.getId());
+        assertThat(cached).isNotNull();
+        assertThat(cached.balance()).isEqualByComparingTo(row.getBalance());
+        assertThat(cached.version()).isEqualTo(row.getVersion());
+    }
+
+    private User createUser(String balance) {
+        int n = SEQUENCE.incrementAndGet();
+        User user = userRepository.save(User.builder()
+            .fullName("Atomic " + n).email("atomic" + n + "@test.com").phoneNumber(String.valueOf(7500000000L + n))
+            .password("x").upiId("atomic" + n + "@upi").upiPin("pin").build());
+        walletRepository.save(Wallet.builder().user(user).balance(new BigDecimal(balance))
+            .dailyLimit(new BigDecimal("100000.00")).build());
+        return user;
+    }
+}
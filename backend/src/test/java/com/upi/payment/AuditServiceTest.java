@@ -0,0 +1,52 @@
+package com.upi.payment;
+
+import com.upi.payment.entity.AuditLog;
+import com.upi.payment.repository.AuditLogRepository;
+import com.upi.payment.service.impl.AuditServiceImpl;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AuditServiceTest {
+
+    private final AuditLogRepository auditLogRepository = mock(AuditLogRepository.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private AuditServiceImpl auditService;
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(auditService, "stop");
+    }
+
+    @Test
+    void oneBadEntryDoesNotLoseTheRestOfItsBatch() {
+        when(entityManager.unwrap(Session.class)).thenReturn(mock(Session.class));
+        when(auditLogRepository.saveAll(anyList())).thenThrow(new IllegalStateException("value too long"));
+        when(auditLogRepository.save(argThat(entry -> entry != null && "BAD".equals(entry.getAction()))))
+            .thenThrow(new IllegalStateException("value too long"));
+        auditService = new AuditServiceImpl(auditLogRepository, mock(PlatformTransactionManager.class), entityManager);
+        ReflectionTestUtils.setField(auditService, "batchSize", 100);
+        ReflectionTestUtils.setField(auditService, "queueCapacity", 100);
+        ReflectionTestUtils.invokeMethod(auditService, "start");
+
+        ReflectionTestUtils.invokeMethod(auditService, "write",
+            List.of(entry("LOGIN"), entry("BAD"), entry("TRANSFER")));
+
+        verify(auditLogRepository).saveAll(anyList());
+        verify(auditLogRepository).save(argThat(entry -> "LOGIN".equals(entry.getAction())));
+        verify(auditLogRepository).save(argThat(entry -> "TRANSFER".equals(entry.getAction())));
+        verify(auditLogRepository, times(3)).save(any());
+    }
+
+    private static AuditLog entry(String action) {
+        return AuditLog.builder().id(1L).userId(1L).action(action).isSuccess(true).build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.upi.payment;
+
+import com.upi.payment.entity.User;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.repository.UserRepository;
+import com.upi.payment.repository.WalletRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Daily spend is kept per spend date and restarts on the first debit of a new day, with no
+ * midnight job touching every wallet.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class DailySpendTest {
+
+    private static final BigDecimal LIMIT = new BigDecimal("1000.00");
+
+    @Autowired UserRepository userRepository;
+    @Autowired WalletRepository walletRepository;
+    @Autowired EntityManager entityManager;
+
+    @Test
+    void yesterdaysSpendDoesNotCountAgainstToday() {
+        Wallet wallet = Wallet.builder().balance(new BigDecimal("5000.00")).dailyLimit(LIMIT)
+            .dailySpent(LIMIT).spendDate(Wallet.today().minusDays(1)).build();
+
+        assertThat(wallet.spentToday()).isEqualByComparingTo("0");
+        assertThat(wallet.isDailyLimitExceeded(new BigDecimal("600.00"))).isFalse();
+
+        wallet.debit(new BigDecimal("600.00"));
+        assertThat(wallet.getDailySpent()).isEqualByComparingTo("600.00");
+        assertThat(wallet.getSpendDate()).isEqualTo(Wallet.today());
+        assertThat(wallet.isDailyLimitExceeded(new BigDecimal("600.00"))).isTrue();
+    }
+
+    @Test
+    void atomicDebitRestartsTheDayInTheSameStatement() {
+        Long userId = wallet("1", LIMIT, Wallet.today().minusDays(1));
+        Long spentUserId = wallet("2", LIMIT, Wallet.today());
+
+        assertThat(walletRepository.debitIfAllowed(userId, new BigDecimal("400.00"), Wallet.today())).isEqualTo(1);
+        assertThat(walletRepository.debitIfAllowed(spentUserId, new BigDecimal("400.00"), Wallet.today())).isZero();
+        entityManager.clear();
+
+        Wallet wallet = walletRepository.findByUserId(userId).orElseThrow();
+        assertThat(wallet.getDailySpent()).isEqualByComparingTo("400.00");
+        assertThat(wallet.getSpendDate()).isEqualTo(Wallet.today());
+        assertThat(wallet.getBalance()).isEqualByComparingTo("4600.00");
+    }
+
+    @Test
+    void ledgerProjectionNeverMovesSpendBackToAnEarlierDay() {
+        LocalDate today = Wallet.today();
+        Long userId = wallet("3", new BigDecimal("300.00"), today.minusDays(1));
+
+        walletRepository.applyLedgerDelta(userId, new BigDecimal("-100.00"), new BigDecimal("100.00"), today);
+        walletRepository.applyLedgerDelta(userId, new BigDecimal("-50.00"), new BigDecimal("50.00"), today);
+        walletRepository.applyLedgerDelta(userId, new BigDecimal("-20.00"), new BigDecimal("20.00"), today.minusDays(1));
+        entityManager.clear();
+
+        Wallet wallet = walletRepository.findByUserId(userId).orElseThrow();
+        assertThat(wallet.getDailySpent()).isEqualByComparingTo("150.00");
+        assertThat(wallet.getSpendDate()).isEqualTo(today);
+        assertThat(wallet.getBalance()).isEqualByComparingTo("4830.00");
+    }
+
+    private Long wallet(String suffix, BigDecimal spent, LocalDate spendDate) {
+        User user = userRepository.save(User.builder().fullName("Spender " + suffix).email("spend" + suffix + "@day.test")
+            .phoneNumber("900000000" + suffix).password("x").upiId("spend" + suffix + "@upi").build());
+        walletRepository.save(Wallet.builder().user(user).balance(new BigDecimal("5000.00")).dailyLimit(LIMIT)
+            .dailySpent(spent).spendDate(spendDate).build());
+        entityManager.flush();
+        return user.getId();
+    }
+}
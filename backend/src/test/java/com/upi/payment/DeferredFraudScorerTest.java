@@ -0,0 +1,111 @@
+package com.upi.payment;
+
+import com.upi.payment.entity.User;
+import com.upi.payment.enums.FraudRiskLevel;
+import com.upi.payment.event.DeferredFraudCheckEvent;
+import com.upi.payment.fraud.DeferredFraudQueue;
+import com.upi.payment.fraud.FraudContext;
+import com.upi.payment.fraud.FraudTriage;
+import com.upi.payment.fraud.SpendingProfile;
+import com.upi.payment.fraud.VelocitySnapshot;
+import com.upi.payment.repository.TransactionRepository;
+import com.upi.payment.service.AuditService;
+import com.upi.payment.service.impl.AdminService;
+import com.upi.payment.service.impl.DeferredFraudScorer;
+import com.upi.payment.service.impl.FraudDetectionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DeferredFraudScorerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FraudDetectionService fraudDetectionService = mock(FraudDetectionService.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final AdminService adminService = mock(AdminService.class);
+    private final AuditService auditService = mock(AuditService.class);
+    private DeferredFraudScorer scorer;
+
+    @AfterEach
+    void tearDown() {
+        if (scorer != null) {
+            ReflectionTestUtils.invokeMethod(scorer, "stop");
+        }
+    }
+
+    @Test
+    void onlyRoutineTransfersAreDeferredAndOnlyWithinTheLagBound() {
+        DeferredFraudQueue queue = new DeferredFraudQueue(10, meterRegistry);
+        FraudTriage triage = new FraudTriage(queue, meterRegistry);
+
+        assertThat(triage.canDefer(context("500.00", true, 1))).isTrue();
+        assertThat(triage.canDefer(context("500.00", false, 1))).isFalse();
+        assertThat(triage.canDefer(context("5000.00", true, 1))).isFalse();
+        assertThat(triage.canDefer(context("500.00", true, 5))).isFalse();
+        // Far above the ₹500 the sender usually pays
+        assertThat(triage.canDefer(context("1900.00", true, 1))).isFalse();
+
+        queue.offer("TXN-OLD", context("500.00", true, 1));
+        ReflectionTestUtils.setField(queue, "maxLagMs", 0L);
+        assertThat(triage.canDefer(context("500.00", true, 1))).isFalse();
+        assertThat(meterRegistry.counter("fraud.triage", "path", "deferred").count()).isEqualTo(1);
+    }
+
+    @Test
+    void flaggedScoreIsWrittenOnceTheRowExists() {
+        when(fraudDetectionService.assess(any(FraudContext.class))).thenReturn(
+            new FraudDetectionService.FraudAssessment(45, FraudRiskLevel.MEDIUM, true, false, "NEW_DEVICE;"));
+        when(transactionRepository.updateFraudAssessment("TXN-1", 45, FraudRiskLevel.MEDIUM, true))
+            .thenReturn(0, 1);
+        scorer = scorer(10, 1);
+
+        scorer.onDeferredCheck(new DeferredFraudCheckEvent("TXN-1", context("500.00", true, 1)));
+
+        verify(transactionRepository, timeout(3000).times(2))
+            .updateFraudAssessment("TXN-1", 45, FraudRiskLevel.MEDIUM, true);
+        verify(auditService, timeout(1000)).log(eq(1L), eq("TRANSACTION_FLAGGED"), contains("TXN-1"),
+            eq("Transaction"), isNull(), isNull(), eq(true));
+        verifyNoInteractions(adminService);
+    }
+
+    @Test
+    void blockingScoreFreezesTheSenderEvenWhenTheQueueIsFull() {
+        when(fraudDetectionService.assess(any(FraudContext.class))).thenReturn(
+            new FraudDetectionService.FraudAssessment(85, FraudRiskLevel.CRITICAL, true, true, "VELOCITY;"));
+        when(transactionRepository.updateFraudAssessment(anyString(), anyInt(), any(), anyBoolean())).thenReturn(1);
+        // No workers: the first check waits in the queue, the second is scored on the caller
+        scorer = scorer(1, 0);
+
+        scorer.onDeferredCheck(new DeferredFraudCheckEvent("TXN-1", context("500.00", true, 1)));
+        scorer.onDeferredCheck(new DeferredFraudCheckEvent("TXN-2", context("500.00", true, 1)));
+
+        verify(transactionRepository).updateFraudAssessment("TXN-2", 85, FraudRiskLevel.CRITICAL, true);
+        verify(adminService).freezeForFraud(eq(1L), contains("TXN-2"));
+        verify(transactionRepository, never()).updateFraudAssessment(eq("TXN-1"), anyInt(), any(), anyBoolean());
+        assertThat(meterRegistry.counter("fraud.async.overflow").count()).isEqualTo(1);
+    }
+
+    private DeferredFraudScorer scorer(int capacity, int threads) {
+        DeferredFraudScorer scorer = new DeferredFraudScorer(new DeferredFraudQueue(capacity, meterRegistry),
+            fraudDetectionService, transactionRepository, adminService, auditService, meterRegistry);
+        ReflectionTestUtils.setField(scorer, "threads", threads);
+        ReflectionTestUtils.invokeMethod(scorer, "start");
+        return scorer;
+    }
+
+    private static FraudContext context(String amount, boolean knownPayee, int hourlyTransfers) {
+        VelocitySnapshot velocity = new VelocitySnapshot(0, 0, 0, 0, hourlyTransfers, 0, hourlyTransfers, 0);
+        SpendingProfile profile = new SpendingProfile(40, true, Math.log(50_000), 0.5, Math.log(50_000),
+            new int[24], 3);
+        return new FraudContext(User.builder().id(1L).build(), User.builder().id(2L).build(),
+            new BigDecimal(amount), LocalDateTime.of(2026, 3, 1, 14, 0), velocity, velocity, knownPayee, profile, null);
+    }
+}
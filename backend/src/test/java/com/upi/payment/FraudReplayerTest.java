@@ -0,0 +1,102 @@
+package com.upi.payment;
+
+import com.upi.payment.entity.User;
+import com.upi.payment.enums.TransactionStatus;
+import com.upi.payment.fraud.CandidateRules;
+import com.upi.payment.fraud.FraudContext;
+import com.upi.payment.fraud.FraudData;
+import com.upi.payment.fraud.FraudReplayer;
+import com.upi.payment.fraud.FraudRuleEngine;
+import com.upi.payment.fraud.FraudSources;
+import com.upi.payment.fraud.ReplayReport;
+import com.upi.payment.fraud.SpendingProfile;
+import com.upi.payment.fraud.SpendingProfileStore;
+import com.upi.payment.fraud.rule.FirstTimePayeeRule;
+import com.upi.payment.fraud.rule.HighValueRule;
+import com.upi.payment.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class FraudReplayerTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 3, 1, 0, 0);
+    private static final LocalDateTime TO = FROM.plusDays(7);
+
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final CandidateRules candidateRules = new CandidateRules(
+        List.of(new HighValueRule(), new FirstTimePayeeRule()), new StandardEnvironment(), new DefaultListableBeanFactory());
+
+    @Test
+    void replayReportsDecisionChangesAgainstRebuiltState() {
+        when(transactionRepository.streamTransfersBetween(any(), any())).thenReturn(Stream.of(
+            row(1, 1L, 2L, "100.00", FROM.minusDays(1), TransactionStatus.SUCCESS),
+            row(2, 1L, 2L, "15000.00", FROM.plusHours(1), TransactionStatus.SUCCESS),
+            row(3, 1L, 3L, "15000.00", FROM.plusHours(2), TransactionStatus.SUCCESS),
+            row(4, 4L, 5L, "15000.00", FROM.plusHours(3), TransactionStatus.FAILED),
+            row(5, 4L, 5L, "15000.00", FROM.plusHours(4), TransactionStatus.SUCCESS),
+            row(6, 4L, 5L, "200.00", FROM.plusHours(5), TransactionStatus.SUCCESS)));
+        FraudReplayer replayer = new FraudReplayer(transactionRepository, transactionManager, candidateRules,
+            new SpendingProfileStore(transactionRepository, transactionManager, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(replayer, "partitions", 2);
+        ReflectionTestUtils.setField(replayer, "chunkSize", 2);
+        ReflectionTestUtils.setField(replayer, "knownPayeeMb", 1L);
+        AtomicLong read = new AtomicLong();
+
+        ReplayReport report = replayer.replay(FROM, TO, Map.of("app.fraud.high-value-threshold", "20000"), read);
+
+        assertThat(read.get()).isEqualTo(6);
+        assertThat(report.warmupTransfers()).isEqualTo(1);
+        assertThat(report.evaluated()).isEqualTo(5);
+        // New payee (15) + high value (25) flags ids 3, 4 and 5; the failed attempt 4 never made 5 a known payee
+        assertThat(report.currentFlagged()).isEqualTo(3);
+        assertThat(report.candidateFlagged()).isZero();
+        assertThat(report.noLongerFlagged()).isEqualTo(3);
+        assertThat(report.decisions().get("FLAG").get("ALLOW")).isEqualTo(3);
+        assertThat(report.decisions().get("ALLOW").get("ALLOW")).isEqualTo(2);
+        assertThat(report.changes()).extracting(ReplayReport.Change::transactionId).containsExactly(3L, 4L, 5L);
+        assertThat(report.ruleHits().get("current")).containsEntry("HIGH_VALUE", 4L).containsEntry("NEW_PAYEE", 3L);
+        assertThat(report.ruleHits().get("candidate")).doesNotContainKey("HIGH_VALUE");
+    }
+
+    @Test
+    void candidateOverridesApplyWithoutTouchingLiveDefaults() {
+        FraudSources sources = new FraudSources(null, null, null, null);
+        FraudRuleEngine candidate = candidateRules.engine(
+            Map.of("app.fraud.disabled-rules", "NEW_PAYEE", "app.fraud.high-value-threshold", "500"),
+            sources, new SimpleMeterRegistry());
+        FraudRuleEngine current = candidateRules.engine(Map.of(), sources, new SimpleMeterRegistry());
+        try {
+            assertThat(candidate.required()).doesNotContain(FraudData.KNOWN_PAYEE);
+            assertThat(current.required()).contains(FraudData.KNOWN_PAYEE);
+
+            FraudContext context = new FraudContext(User.builder().id(1L).build(), null, new BigDecimal("1000.00"),
+                FROM, null, null, null, SpendingProfile.NONE, null);
+            assertThat(candidate.evaluate(context).reasons()).isEqualTo("HIGH_VALUE;");
+            assertThat(current.evaluate(context).score()).isZero();
+        } finally {
+            candidateRules.release(candidate);
+            candidateRules.release(current);
+        }
+    }
+
+    private static Object[] row(long id, Long senderId, Long receiverId, String amount, LocalDateTime at,
+                                TransactionStatus status) {
+        return new Object[]{id, senderId, receiverId, new BigDecimal(amount), at, status};
+    }
+}
@@ -0,0 +1,126 @@
+package com.upi.payment;
+
+import com.upi.payment.entity.User;
+import com.upi.payment.fraud.FraudContext;
+import com.upi.payment.fraud.FraudData;
+import com.upi.payment.fraud.FraudRule;
+import com.upi.payment.fraud.FraudRuleEngine;
+import com.upi.payment.fraud.KnownPayeeIndex;
+import com.upi.payment.fraud.SpendingProfileStore;
+import com.upi.payment.fraud.VelocitySnapshot;
+import com.upi.payment.fraud.VelocityTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FraudRuleEngineTest {
+
+    private final VelocityTracker velocityTracker = mock(VelocityTracker.class);
+    private final KnownPayeeIndex knownPayeeIndex = mock(KnownPayeeIndex.class);
+    private final SpendingProfileStore spendingProfileStore = mock(SpendingProfileStore.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final User sender = User.builder().id(1L).build();
+    private final User receiver = User.builder().id(2L).build();
+    private FraudRuleEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(engine, "stop");
+    }
+
+    @Test
+    void blockingScore_skipsRemainingRules() {
+        StubRule block = new StubRule("BLOCK", FraudRule.Cost.CHEAP, 80, Set.of(), ctx -> new FraudRule.RuleHit(80, "BLOCK"));
+        StubRule small = new StubRule("SMALL", FraudRule.Cost.CHEAP, 10, Set.of(), ctx -> new FraudRule.RuleHit(10, "SMALL"));
+        StubRule slow = new StubRule("SLOW", FraudRule.Cost.EXPENSIVE, 50, Set.of(), ctx -> new FraudRule.RuleHit(50, "SLOW"));
+        start(List.of(small, slow, block), "");
+
+        var evaluation = engine.evaluate(sender, receiver, BigDecimal.TEN);
+
+        assertThat(evaluation.score()).isEqualTo(80);
+        assertThat(evaluation.reasons()).isEqualTo("BLOCK;");
+        assertThat(small.calls.get() + slow.calls.get()).isZero();
+        assertThat(count("SMALL", "skipped")).isEqualTo(1);
+        assertThat(count("SLOW", "skipped")).isEqualTo(1);
+    }
+
+    @Test
+    void expensiveRulesOverBudget_areSkipped() {
+        StubRule fast = new StubRule("FAST", FraudRule.Cost.EXPENSIVE, 20, Set.of(), ctx -> new FraudRule.RuleHit(20, "FAST"));
+        StubRule hung = new StubRule("HUNG", FraudRule.Cost.EXPENSIVE, 50, Set.of(), ctx -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new FraudRule.RuleHit(50, "HUNG");
+        });
+        start(List.of(fast, hung), "");
+
+        long started = System.nanoTime();
+        var evaluation = engine.evaluate(sender, receiver, BigDecimal.TEN);
+
+        assertThat((System.nanoTime() - started) / 1_000_000).isLessThan(1000);
+        assertThat(evaluation.score()).isEqualTo(20);
+        assertThat(evaluation.reasons()).isEqualTo("FAST;");
+        assertThat(count("HUNG", "timeout")).isEqualTo(1);
+        assertThat(meterRegistry.timer("fraud.rule.latency", "rule", "FAST").count()).isEqualTo(1);
+    }
+
+    @Test
+    void sharedData_isLoadedOnceAndOnlyWhenRequired() {
+        when(velocityTracker.sender(1L)).thenReturn(new VelocitySnapshot(0, 0, 0, 0, 7, 0, 7, 0));
+        StubRule first = new StubRule("FIRST", FraudRule.Cost.CHEAP, 20, Set.of(FraudData.SENDER_VELOCITY),
+            ctx -> ctx.senderVelocity().count1h() > 5 ? new FraudRule.RuleHit(20, "FIRST") : null);
+        StubRule second = new StubRule("SECOND", FraudRule.Cost.CHEAP, 10, Set.of(FraudData.SENDER_VELOCITY),
+            ctx -> ctx.senderVelocity().count24h() > 100 ? new FraudRule.RuleHit(10, "SECOND") : null);
+        StubRule off = new StubRule("OFF", FraudRule.Cost.CHEAP, 30, Set.of(FraudData.PAIR_VELOCITY),
+            ctx -> new FraudRule.RuleHit(30, "OFF"));
+        start(List.of(first, second, off), "OFF");
+
+        var evaluation = engine.evaluate(sender, receiver, BigDecimal.TEN);
+
+        assertThat(evaluation.score()).isEqualTo(20);
+        assertThat(off.calls.get()).isZero();
+        verify(velocityTracker, times(1)).sender(1L);
+        verify(velocityTracker, never()).pair(any(), any());
+        verifyNoInteractions(knownPayeeIndex);
+        assertThat(count("SECOND", "miss")).isEqualTo(1);
+    }
+
+    private void start(List<FraudRule> rules, String disabled) {
+        engine = new FraudRuleEngine(rules, velocityTracker, knownPayeeIndex, spendingProfileStore, null,
+            meterRegistry);
+        ReflectionTestUtils.setField(engine, "budgetMs", 100L);
+        ReflectionTestUtils.setField(engine, "disabledRules", disabled.isEmpty() ? Set.of() : Set.of(disabled));
+        ReflectionTestUtils.invokeMethod(engine, "start");
+    }
+
+    private double count(String rule, String result) {
+        return meterRegistry.counter("fraud.rule.evaluations", "rule", rule, "result", result).count();
+    }
+
+    private record StubRule(String name, Cost cost, int maxScore, Set<FraudData> requires,
+                            Function<FraudContext, RuleHit> body, AtomicInteger calls) implements FraudRule {
+
+        StubRule(String name, Cost cost, int maxScore, Set<FraudData> requires, Function<FraudContext, RuleHit> body) {
+            this(name, cost, maxScore, requires, body, new AtomicInteger());
+        }
+
+        @Override
+        public RuleHit evaluate(FraudContext context) {
+            calls.incrementAndGet();
+            return body.apply(context);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.upi.payment;
+
+import com.upi.payment.dto.response.ApiResponse;
+import com.upi.payment.entity.Transaction;
+import com.upi.payment.entity.User;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.exception.BusinessException;
+import com.upi.payment.exception.DuplicateTransactionException;
+import com.upi.payment.exception.InsufficientBalanceException;
+import com.upi.payment.idempotency.IdempotencyStore;
+import com.upi.payment.pipeline.GroupCommitPipeline;
+import com.upi.payment.repository.AuditLogRepository;
+import com.upi.payment.repository.TransactionRepository;
+import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.repository.WalletStripeRepository;
+import com.upi.payment.service.impl.HotWalletService;
+import com.upi.payment.service.impl.WalletBalanceCache;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Transfers queued together share one commit but each caller gets its own outcome: rejected
+ * transfers leave every wallet untouched, and a failed group is retried one transfer at a time.
+ */
+class GroupCommitPipelineTest {
+
+    private static final Long MERCHANT_ID = 30L;
+
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final WalletStripeRepository stripeRepository = mock(WalletStripeRepository.class);
+    private final IdempotencyStore idempotencyStore = mock(IdempotencyStore.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final ExecutorService callers = Executors.newFixedThreadPool(4);
+    private final Map<Long, String> balances = new HashMap<>();
+    private GroupCommitPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        WalletBalanceCache walletBalanceCache = mock(WalletBalanceCache.class);
+        pipeline = new GroupCommitPipeline(walletRepository,
+            new HotWalletService(walletRepository, stripeRepository, walletBalanceCache), walletBalanceCache,
+            idempotencyStore, transactionRepository, mock(AuditLogRepository.class), entityManager,
+            mock(PlatformTransactionManager.class));
+
+        // Every attempt locks the committed rows afresh, as a rolled-back group would
+        when(walletRepository.findAllByUserIdInWithLock(any())).thenAnswer(inv -> inv.<Collection<Long>>getArgument(0)
+            .stream().filter(balances::containsKey).map(this::wallet).toList());
+        when(transactionRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(entityManager.unwrap(Session.class)).thenReturn(mock(Session.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(pipeline, "stop");
+        callers.shutdownNow();
+    }
+
+    @Test
+    void rejectedTransfersInAMixedGroupLeaveTheirWalletsUntouched() throws Exception {
+        balances.putAll(Map.of(1L, "1000.00", 2L, "100.00", 3L, "1000.00", 4L, "0.00"));
+        WalletStripeRepository.StripedWallet merchant = mock(WalletStripeRepository.StripedWallet.class);
+        when(merchant.getWalletId()).thenReturn(MERCHANT_ID);
+        when(merchant.getCreditStripes()).thenReturn(4);
+        when(stripeRepository.findStripedWalletByUserId(MERCHANT_ID)).thenReturn(Optional.of(merchant));
+        // The merchant's stripes are being resized, so no stripe takes the credit
+        when(stripeRepository.credit(eq(MERCHANT_ID), anyInt(), any())).thenReturn(0);
+        start(3);
+
+        Transaction toMerchant = transfer(1L, MERCHANT_ID, "300.00", "key-1");
+        Transaction overdrawn = transfer(2L, 4L, "500.00", "key-2");
+        Transaction accepted = transfer(3L, 4L, "250.00", "key-3");
+        List<Future<ApiResponse.TransactionResponse>> outcomes = submitAll(toMerchant, overdrawn, accepted);
+
+        assertThatThrownBy(outcomes.get(0)::get).hasCauseInstanceOf(BusinessException.class)
+            .hasMessageContaining("being updated");
+        assertThatThrownBy(outcomes.get(1)::get).hasCauseInstanceOf(InsufficientBalanceException.class);
+        assertThat(outcomes.get(2).get().getReferenceId()).isEqualTo("REF-key-3");
+
+        assertThat(toMerchant.getSenderBalanceAfter()).isNull();
+        assertThat(accepted.getSenderBalanceAfter()).isEqualByComparingTo("750.00");
+        assertThat(accepted.getReceiverBalanceAfter()).isEqualByComparingTo("250.00");
+        verify(walletRepository).saveAll(argThat(wallets -> {
+            Map<Long, BigDecimal> saved = new HashMap<>();
+            wallets.forEach(wallet -> saved.put(wallet.getUser().getId(), wallet.getBalance()));
+            return saved.get(1L).compareTo(new BigDecimal("1000.00")) == 0
+                && saved.get(2L).compareTo(new BigDecimal("100.00")) == 0
+                && saved.get(4L).compareTo(new BigDecimal("250.00")) == 0;
+        }));
+        verify(transactionRepository).saveAll(List.of(accepted));
+        verify(idempotencyStore).record(eq("key-3"), eq(3L), any());
+        verifyNoMoreInteractions(idempotencyStore);
+    }
+
+    @Test
+    void failedGroupIsRetriedOneTransferAtATime() throws Exception {
+        balances.putAll(Map.of(1L, "1000.00", 2L, "1000.00", 3L, "0.00"));
+        when(transactionRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Transaction> rows = inv.getArgument(0);
+            if (rows.stream().anyMatch(txn -> "key-used".equals(txn.getIdempotencyKey()))) {
+                throw new DataIntegrityViolationException("unique constraint on idempotency_key");
+            }
+            return rows;
+        });
+        start(2);
+
+        List<Future<ApiResponse.TransactionResponse>> outcomes = submitAll(
+            transfer(1L, 3L, "100.00", "key-used"), transfer(2L, 3L, "200.00", "key-new"));
+
+        assertThatThrownBy(outcomes.get(0)::get).hasCauseInstanceOf(DuplicateTransactionException.class);
+        assertThat(outcomes.get(1).get().getReferenceId()).isEqualTo("REF-key-new");
+        // One attempt as a group, then one per transfer
+        verify(transactionRepository, times(3)).saveAll(anyList());
+        verify(idempotencyStore).record(eq("key-new"), eq(2L), any());
+        verifyNoMoreInteractions(idempotencyStore);
+    }
+
+    private void start(int groupSize) {
+        ReflectionTestUtils.setField(pipeline, "enabled", true);
+        ReflectionTestUtils.setField(pipeline, "maxBatch", groupSize);
+        // Long enough that every submitted transfer joins the first group
+        ReflectionTestUtils.setField(pipeline, "maxWaitMicros", 5_000_000L);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 16);
+        ReflectionTestUtils.setField(pipeline, "ackTimeoutMs", 10_000L);
+        ReflectionTestUtils.invokeMethod(pipeline, "start");
+    }
+
+    private List<Future<ApiResponse.TransactionResponse>> submitAll(Transaction... transfers) {
+        return List.of(transfers).stream()
+            .map(txn -> callers.submit(() -> pipeline.submit(txn,
+                posted -> ApiResponse.TransactionResponse.builder().referenceId(posted.getReferenceId()).build())))
+            .toList();
+    }
+
+    private Wallet wallet(Long userId) {
+        return Wallet.builder().id(userId).user(user(userId)).balance(new BigDecimal(balances.get(userId))).build();
+    }
+
+    private static Transaction transfer(Long senderId, Long receiverId, String amount, String idempotencyKey) {
+        return Transaction.builder()
+            .referenceId("REF-" + idempotencyKey).idempotencyKey(idempotencyKey)
+            .sender(user(senderId)).receiver(user(receiverId)).amount(new BigDecimal(amount))
+            .build();
+    }
+
+    private static User user(Long id) {
+        return User.builder().id(id).upiId("90000000" + id + "@upi").build();
+    }
+}
@@ -0,0 +1,137 @@
+package com.upi.payment;
+
+import com.upi.payment.dto.request.TransactionRequest;
+import com.upi.payment.entity.User;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.enums.FraudRiskLevel;
+import com.upi.payment.repository.UserRepository;
+import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.service.impl.FraudDetectionService;
+import com.upi.payment.service.impl.HotWalletService;
+import com.upi.payment.service.impl.TransactionService;
+import com.upi.payment.service.impl.WalletService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Merchant fan-in: many payers paying one receiver concurrently, with and without credit stripes.
+ * Run with {@code mvn test -Pbenchmark -Dtest=HotWalletContentionBenchmark -Dlogging.level.com.upi.payment=WARN}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class HotWalletContentionBenchmark {
+
+    private static final int PAYERS = 32;
+    private static final int TRANSFERS_PER_PAYER = 25;
+    private static final BigDecimal AMOUNT = new BigDecimal("10.00");
+
+    @Autowired TransactionService transactionService;
+    @Autowired WalletService walletService;
+    @Autowired HotWalletService hotWalletService;
+    @Autowired UserRepository userRepository;
+    @Autowired WalletRepository walletRepository;
+
+    @MockBean PasswordEncoder passwordEncoder;
+    @MockBean FraudDetectionService fraudDetectionService;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Test
+    void receiverFanIn() throws Exception {
+        when(passwordEncoder.matches(any(), any())).thenReturn(true);
+        when(fraudDetectionService.assess(any(), any(), any()))
+            .thenReturn(new FraudDetectionService.FraudAssessment(0, FraudRiskLevel.LOW, false, false, ""));
+
+        Result single = run("single-row", 0);
+        Result striped = run("striped-16", 16);
+
+        System.out.printf("%n%-12s %10s %10s %10s %8s%n", "mode", "txn/s", "p50 ms", "p99 ms", "retries");
+        for (Result r : List.of(single, striped)) {
+            System.out.printf("%-12s %10.0f %10.2f %10.2f %8d%n", r.mode, r.throughput, r.p50, r.p99, r.failures);
+        }
+        System.out.printf("receiver-side throughput gain: %.2fx%n%n", striped.throughput / single.throughput);
+    }
+
+    private Result run(String mode, int stripes) throws Exception {
+        User merchant = createUser("merchant-" + mode, BigDecimal.ZERO);
+        hotWalletService.configure(merchant.getId(), stripes);
+        List<User> payers = new ArrayList<>();
+        for (int i = 0; i < PAYERS; i++) {
+            payers.add(createUser(mode + "-payer-" + i, new BigDecimal("100000.00")));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(PAYERS);
+        long[] latencies = new long[PAYERS * TRANSFERS_PER_PAYER];
+        AtomicInteger slot = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (User payer : payers) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < TRANSFERS_PER_PAYER; i++) {
+                    long t0 = System.nanoTime();
+                    while (true) {
+                        try {
+                            transactionService.transfer(payer.getId(), request(merchant), "127.0.0.1");
+                            break;
+                        } catch (RuntimeException e) {
+                            failures.incrementAndGet();  // lock timeout / serialization failure: retry
+                        }
+                    }
+                    latencies[slot.getAndIncrement()] = System.nanoTime() - t0;
+                }
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        BigDecimal expected = AMOUNT.multiply(BigDecimal.valueOf((long) PAYERS * TRANSFERS_PER_PAYER));
+        assertThat(walletService.getWallet(merchant.getId()).getBalance()).isEqualByComparingTo(expected);
+
+        Arrays.sort(latencies);
+        return new Result(mode, latencies.length / seconds,
+            latencies[latencies.length / 2] / 1e6, latencies[(int) (latencies.length * 0.99)] / 1e6, failures.get());
+    }
+
+    private TransactionRequest.Transfer request(User merchant) {
+        var request = new TransactionRequest.Transfer();
+        request.setReceiverIdentifier(merchant.getUpiId());
+        request.setAmount(AMOUNT);
+        request.setUpiPin("1234");
+        request.setIdempotencyKey("bench-" + sequence.incrementAndGet() + "-" + System.nanoTime());
+        return request;
+    }
+
+    private User createUser(String name, BigDecimal balance) {
+        int n = sequence.incrementAndGet();
+        User user = userRepository.save(User.builder()
+            .fullName(name).email(name + "@bench.test").phoneNumber(String.valueOf(7000000000L + n))
+            .password("x").upiId(name + "@upi").upiPin("pin").build());
+        walletRepository.save(Wallet.builder().user(user).balance(balance)
+            .dailyLimit(new BigDecimal("10000000.00")).build());
+        return user;
+    }
+
+    private record Result(String mode, double throughput, double p50, double p99, int failures) {}
+}
@@ -0,0 +1,191 @@
+package com.upi.payment;
+
+import com.upi.payment.config.ScheduledTasks;
+import com.upi.payment.dto.request.TransactionRequest;
+import com.upi.payment.entity.User;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.enums.FraudRiskLevel;
+import com.upi.payment.exception.BusinessException;
+import com.upi.payment.repository.UserRepository;
+import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.repository.WalletStripeRepository;
+import com.upi.payment.service.impl.FraudDetectionService;
+import com.upi.payment.service.impl.HotWalletService;
+import com.upi.payment.service.impl.TransactionService;
+import com.upi.payment.service.impl.WalletService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Credits to a hot wallet land on its stripes without touching the wallet row, and every way the
+ * stripes are folded back into the row (a debit, the consolidator) moves each credit exactly once.
+ */
+@SpringBootTest(properties = "app.wallet.hot.consolidate-interval-ms=600000")
+@ActiveProfiles("test")
+class HotWalletServiceTest {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired HotWalletService hotWalletService;
+    @Autowired ScheduledTasks scheduledTasks;
+    @Autowired TransactionService transactionService;
+    @Autowired WalletService walletService;
+    @Autowired UserRepository userRepository;
+    @Autowired WalletRepository walletRepository;
+    @Autowired WalletStripeRepository stripeRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @MockBean PasswordEncoder passwordEncoder;
+    @MockBean FraudDetectionService fraudDetectionService;
+
+    @BeforeEach
+    void setUp() {
+        when(passwordEncoder.matches(any(), any())).thenReturn(true);
+        when(fraudDetectionService.assess(any(), any(), any()))
+            .thenReturn(new FraudDetectionService.FraudAssessment(0, FraudRiskLevel.LOW, false, false, ""));
+    }
+
+    @Test
+    void creditGoesToAStripeAndADebitFoldsThemIn() throws Exception {
+        User payer = createUser("1000.00");
+        User merchant = createUser("0.00");
+        hotWalletService.configure(merchant.getId(), 4);
+
+        // The merchant's wallet row stays locked for the whole credit, which must not need it
+        ExecutorService payerThread = Executors.newSingleThreadExecutor();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                Wallet locked = walletRepository.findByUserIdWithLock(merchant.getId()).orElseThrow();
+                Future<?> credit = payerThread.submit(() -> transfer(payer, merchant, "300.00"));
+                assertThatCode(() -> credit.get(10, TimeUnit.SECONDS)).doesNotThrowAnyException();
+
+                assertThat(locked.getBalance()).isEqualByComparingTo("0.00");
+                assertThat(stripeRepository.sumBalanceByWalletId(locked.getId())).isEqualByComparingTo("300.00");
+            });
+        } finally {
+            payerThread.shutdown();
+        }
+        assertThat(walletService.getWallet(merchant.getId()).getBalance()).isEqualByComparingTo("300.00");
+
+        // The row alone cannot cover the refund, so the debit folds the stripes in first
+        transfer(merchant, payer, "200.00");
+
+        Wallet folded = wallet(merchant);
+        assertThat(folded.getBalance()).isEqualByComparingTo("100.00");
+        assertThat(stripeRepository.sumBalanceByWalletId(folded.getId())).isEqualByComparingTo("0");
+        assertThat(wallet(payer).getBalance()).isEqualByComparingTo("900.00");
+    }
+
+    @Test
+    void concurrentConsolidationMovesEachCreditOnce() throws Exception {
+        User merchant = createUser("0.00");
+        hotWalletService.configure(merchant.getId(), 4);
+        List<User> payers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            payers.add(createUser("100.00"));
+        }
+
+        // Payments and consolidation runs interleave
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> work = new ArrayList<>();
+        try {
+            for (User payer : payers) {
+                work.add(pool.submit(() -> {
+                    for (int i = 0; i < 5; i++) {
+                        transferRetryingConflicts(payer, merchant, "10.00");
+                        scheduledTasks.consolidateHotWallets();
+                    }
+                }));
+            }
+            for (Future<?> future : work) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        scheduledTasks.consolidateHotWallets();
+        scheduledTasks.consolidateHotWallets();
+
+        Wallet consolidated = wallet(merchant);
+        assertThat(consolidated.getBalance()).isEqualByComparingTo("200.00");
+        assertThat(stripeRepository.sumBalanceByWalletId(consolidated.getId())).isEqualByComparingTo("0");
+        assertThat(walletService.getWallet(merchant.getId()).getBalance()).isEqualByComparingTo("200.00");
+    }
+
+    @Test
+    void ledgerModeLeavesStripesAlone() {
+        User merchant = createUser("0.00");
+        hotWalletService.configure(merchant.getId(), 2);
+
+        ReflectionTestUtils.setField(hotWalletService, "ledgerEnabled", true);
+        try {
+            assertThat(hotWalletService.walletsToConsolidate()).isEmpty();
+            assertThatThrownBy(() -> hotWalletService.configure(merchant.getId(), 0))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("ledger");
+        } finally {
+            ReflectionTestUtils.setField(hotWalletService, "ledgerEnabled", false);
+        }
+        assertThat(wallet(merchant).getCreditStripes()).isEqualTo(2);
+    }
+
+    private void transfer(User sender, User receiver, String amount) {
+        var request = new TransactionRequest.Transfer();
+        request.setReceiverIdentifier(receiver.getUpiId());
+        request.setAmount(new BigDecimal(amount));
+        request.setUpiPin("1234");
+        request.setIdempotencyKey(UUID.randomUUID().toString());
+        transactionService.transfer(sender.getId(), request, "127.0.0.1");
+    }
+
+    private void transferRetryingConflicts(User sender, User receiver, String amount) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transfer(sender, receiver, amount);
+                return;
+            } catch (ConcurrencyFailureException e) {
+                // Serialization failure against a fold on H2: nothing committed, so pay again
+                if (attempt == 10) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private Wallet wallet(User user) {
+        return walletRepository.findByUserId(user.getId()).orElseThrow();
+    }
+
+    private User createUser(String balance) {
+        int n = SEQUENCE.incrementAndGet();
+        User user = userRepository.save(User.builder()
+            .fullName("Hot " + n).email("hot" + n + "@test.com").phoneNumber(String.valueOf(7400000000L + n))
+            .password("x").upiId("hot" + n + "@upi").upiPin("pin").build());
+        walletRepository.save(Wallet.builder().user(user).balance(new BigDecimal(balance))
+            .dailyLimit(new BigDecimal("100000.00")).build());
+        return user;
+    }
+}
@@ -0,0 +1,83 @@
+package com.upi.payment;
+
+import com.upi.payment.entity.AuditLog;
+import com.upi.payment.entity.User;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.repository.AuditLogRepository;
+import com.upi.payment.repository.UserRepository;
+import com.upi.payment.repository.WalletRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Table-allocated IDs let Hibernate batch inserts; with IDENTITY every row was its own statement.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class IdAllocationBatchingTest {
+
+    @Autowired AuditLogRepository auditLogRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired WalletRepository walletRepository;
+    @Autowired EntityManager entityManager;
+    @Autowired EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void auditInserts_areBatched() {
+        auditLogRepository.saveAll(IntStream.range(0, 100)
+            .mapToObj(i -> AuditLog.builder().userId(1L).action("TEST").details("entry " + i).isSuccess(true).build())
+            .toList());
+        entityManager.flush();
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(100);
+        // 4 batches of 25 plus one block reservation (select + update on id_allocations)
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(8);
+    }
+
+    @Test
+    void registrations_areBatched() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            users.add(User.builder().fullName("User " + i).email("user" + i + "@batch.test")
+                .phoneNumber(String.valueOf(8000000000L + i)).password("x").upiId("user" + i + "@upi").build());
+        }
+        userRepository.saveAll(users);
+        walletRepository.saveAll(users.stream().map(u -> Wallet.builder().user(u).balance(BigDecimal.ZERO).build()).toList());
+        entityManager.flush();
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(40);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(8);
+    }
+
+    @Test
+    void ids_areAllocatedBeforeInsert() {
+        AuditLog entry = auditLogRepository.save(AuditLog.builder().action("TEST").isSuccess(true).build());
+
+        assertThat(entry.getId()).isNotNull();
+        assertThat(statistics.getEntityInsertCount()).isZero();
+    }
+}
@@ -0,0 +1,101 @@
+package com.upi.payment;
+
+import com.upi.payment.entity.User;
+import com.upi.payment.enums.AccountStatus;
+import com.upi.payment.enums.UserRole;
+import com.upi.payment.filter.JwtAuthFilter;
+import com.upi.payment.security.AccountStatusCache;
+import com.upi.payment.security.AuthenticatedUser;
+import com.upi.payment.security.JwtService;
+import com.upi.payment.security.TokenVerifier;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtAuthFilterTest {
+
+    private final JwtService jwtService = new JwtService();
+    private final AccountStatusCache accountStatusCache = mock(AccountStatusCache.class);
+    private final TokenVerifier tokenVerifier = new TokenVerifier(jwtService, new SimpleMeterRegistry());
+    private final JwtAuthFilter filter = new JwtAuthFilter(tokenVerifier, accountStatusCache);
+
+    private final User user = User.builder()
+        .id(42L).email("alice@test.com").role(UserRole.ROLE_ADMIN).status(AccountStatus.ACTIVE).build();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtService, "secretKey", "test-secret-key-for-unit-testing-only-must-be-long-enough");
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 60_000L);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        ReflectionTestUtils.invokeMethod(tokenVerifier, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void activeUser_isAuthenticatedFromClaims() throws Exception {
+        when(accountStatusCache.statusOf(42L)).thenReturn(AccountStatus.ACTIVE);
+
+        Authentication auth = filter(jwtService.generateToken(user));
+
+        assertThat(auth).isNotNull();
+        assertThat(auth.getPrincipal()).isEqualTo(new AuthenticatedUser(42L, "alice@test.com", UserRole.ROLE_ADMIN));
+        assertThat(auth.getName()).isEqualTo("alice@test.com");
+        assertThat(auth.getAuthorities()).extracting("authority").containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void frozenUser_isRejectedWithTheSameToken() throws Exception {
+        String token = jwtService.generateToken(user);
+        when(accountStatusCache.statusOf(42L)).thenReturn(AccountStatus.FROZEN);
+
+        assertThat(filter(token)).isNull();
+    }
+
+    @Test
+    void tokenWithoutUserClaims_isRejectedWithoutLookup() throws Exception {
+        String legacy = jwtService.generateToken(Map.of(), "alice@test.com", 60_000L);
+
+        assertThat(filter(legacy)).isNull();
+        verifyNoInteractions(accountStatusCache);
+    }
+
+    @Test
+    void repeatedToken_isVerifiedOnce() throws Exception {
+        JwtService spied = spy(jwtService);
+        TokenVerifier verifier = new TokenVerifier(spied, new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(verifier, "init");
+        String token = jwtService.generateToken(user);
+
+        assertThat(verifier.verify(token)).isEqualTo(verifier.verify(token));
+        verify(spied, times(1)).parsePrincipal(token);
+
+        // A tampered token never matches the cached entry
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        assertThatThrownBy(() -> verifier.verify(tampered)).isInstanceOf(JwtException.class);
+    }
+
+    private Authentication filter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,89 @@
+package com.upi.payment;
+
+import com.upi.payment.entity.User;
+import com.upi.payment.enums.AccountStatus;
+import com.upi.payment.enums.UserRole;
+import com.upi.payment.security.JwtService;
+import com.upi.payment.security.TokenVerifier;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request access-token verification cost: the previous filter path (key and parser rebuilt,
+ * token parsed three times), one parse with the cached parser, and a {@link TokenVerifier} hit.
+ * Run with {@code mvn test -Pbenchmark -Dtest=JwtVerificationBenchmark}.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-that-is-long-enough-for-hs256";
+
+    private JwtService jwtService;
+    private TokenVerifier tokenVerifier;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 3_600_000L);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        tokenVerifier = new TokenVerifier(jwtService, new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(tokenVerifier, "init");
+        token = jwtService.generateToken(User.builder()
+            .id(42L).email("bench@test.com").role(UserRole.ROLE_USER).status(AccountStatus.ACTIVE).build());
+    }
+
+    @Benchmark
+    public boolean previous() {
+        // extractUsername, then isTokenValid: extractUsername + extractExpiration
+        String username = previousClaims(token).getSubject();
+        return previousClaims(token).getSubject().equals(username)
+            && !previousClaims(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public JwtService.TokenPrincipal parseOnce() {
+        return jwtService.parsePrincipal(token);
+    }
+
+    @Benchmark
+    public JwtService.TokenPrincipal cached() {
+        return tokenVerifier.verify(token);
+    }
+
+    @Test
+    void run() throws Exception {
+        // In-process: surefire's classpath is not visible to a forked JMH JVM
+        new Runner(new OptionsBuilder()
+            .include(JwtVerificationBenchmark.class.getName())
+            .forks(0)
+            .build()).run();
+    }
+
+    private static Claims previousClaims(String token) {
+        byte[] keyBytes = Decoders.BASE64.decode(Base64.getEncoder().encodeToString(SECRET.getBytes()));
+        Key key = Keys.hmacShaKeyFor(keyBytes);
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+    }
+}
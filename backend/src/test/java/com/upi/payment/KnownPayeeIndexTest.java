@@ -0,0 +1,76 @@
+package com.upi.payment;
+
+import com.upi.payment.event.TransferCompletedEvent;
+import com.upi.payment.fraud.KnownPayeeIndex;
+import com.upi.payment.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class KnownPayeeIndexTest {
+
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private KnownPayeeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new KnownPayeeIndex(transactionRepository, mock(PlatformTransactionManager.class), meterRegistry);
+        ReflectionTestUtils.setField(index, "memoryMb", 1L);
+    }
+
+    @Test
+    void rebuildLoadsHistoryAndEventsAddPairs() {
+        when(transactionRepository.streamTransferPairs())
+            .thenReturn(Stream.of(new Object[]{1L, 2L}, new Object[]{1L, 2L}, new Object[]{3L, 1L}));
+        index.rebuild();
+
+        assertThat(index.hasPaid(1L, 2L)).isTrue();
+        assertThat(index.hasPaid(3L, 1L)).isTrue();
+        assertThat(index.hasPaid(2L, 1L)).isFalse();
+        assertThat(index.hasPaid(1L, 3L)).isFalse();
+
+        transfer(1L, 3L);
+        transfer(5L, null);
+        assertThat(index.hasPaid(1L, 3L)).isTrue();
+        assertThat(meterRegistry.get("fraud.known_payee.pairs").gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    void transfersCommittedDuringRebuildSurviveTheSwap() {
+        when(transactionRepository.streamTransferPairs()).thenReturn(Stream.<Object[]>of(new Object[]{1L, 2L})
+            .peek(row -> transfer(7L, 8L)));
+        index.rebuild();
+
+        assertThat(index.hasPaid(1L, 2L)).isTrue();
+        assertThat(index.hasPaid(7L, 8L)).isTrue();
+    }
+
+    @Test
+    void falsePositiveRateStaysNearOnePercentAtTenBitsPerPair() {
+        // 1 MB = 8.4M bits, ~10 bits per pair
+        when(transactionRepository.streamTransferPairs())
+            .thenReturn(LongStream.range(0, 800_000).mapToObj(i -> new Object[]{i, i + 1_000_000}));
+        index.rebuild();
+
+        long falsePositives = LongStream.range(0, 100_000)
+            .filter(i -> index.hasPaid(i + 1_000_000, i))
+            .count();
+        assertThat(falsePositives).isLessThan(2_000);
+        assertThat(index.hasPaid(799_999L, 1_799_999L)).isTrue();
+    }
+
+    private void transfer(Long senderId, Long receiverId) {
+        index.onTransferCompleted(new TransferCompletedEvent(senderId, receiverId, BigDecimal.TEN, Instant.now(), null));
+    }
+}
@@ -0,0 +1,184 @@
+package com.upi.payment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upi.payment.entity.User;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.enums.FraudRiskLevel;
+import com.upi.payment.enums.TransactionType;
+import com.upi.payment.exception.BusinessException;
+import com.upi.payment.exception.DuplicateTransactionException;
+import com.upi.payment.exception.InsufficientBalanceException;
+import com.upi.payment.ledger.LedgerEngine;
+import com.upi.payment.ledger.LedgerEntry;
+import com.upi.payment.repository.TransactionRepository;
+import com.upi.payment.repository.UserRepository;
+import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.service.impl.HotWalletService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Entries are journaled before they are acknowledged, projected into the DB afterwards and
+ * replayed from the journal after a restart; an idempotency key is held until its entry is
+ * projected and freed as soon as its entry fails.
+ */
+class LedgerEngineTest {
+
+    @TempDir Path dir;
+
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<LedgerEngine> started = new ArrayList<>();
+    private final Map<Long, String> balances = Map.of(1L, "1000.00", 2L, "0.00");
+
+    @BeforeEach
+    void setUp() {
+        when(walletRepository.findByUserId(anyLong())).thenAnswer(inv -> Optional.ofNullable(
+            balances.get(inv.<Long>getArgument(0))).map(balance -> wallet(inv.getArgument(0), balance)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        started.forEach(engine -> ReflectionTestUtils.invokeMethod(engine, "stop"));
+    }
+
+    @Test
+    void transferIsJournaledBeforeItsAckAndItsKeyHeldUntilProjected() throws Exception {
+        CountDownLatch projectionHeld = new CountDownLatch(1);
+        when(transactionRepository.save(any())).thenAnswer(inv -> {
+            projectionHeld.await(10, TimeUnit.SECONDS);
+            return inv.getArgument(0);
+        });
+        LedgerEngine engine = start();
+
+        LedgerEntry posted = engine.transfer(entry("REF1", "key-1", 1L, 2L, "300.00"));
+
+        assertThat(posted.sequence()).isEqualTo(1);
+        assertThat(posted.senderBalanceAfter()).isEqualByComparingTo("700.00");
+        assertThat(posted.receiverBalanceAfter()).isEqualByComparingTo("300.00");
+        assertThat(Files.readAllLines(journal())).singleElement().asString().contains("\"REF1\"");
+        assertThat(engine.wallet(1L).getBalance()).isEqualByComparingTo("700.00");
+
+        // Acknowledged but not yet in the transactions table: the key still answers retries
+        assertThat(engine.isPending("key-1")).isTrue();
+        assertThatThrownBy(() -> engine.transfer(entry("REF2", "key-1", 1L, 2L, "300.00")))
+            .isInstanceOf(DuplicateTransactionException.class)
+            .hasMessageContaining("REF1");
+
+        projectionHeld.countDown();
+        await(() -> !engine.isPending("key-1"));
+        verify(walletRepository).applyLedgerDelta(eq(1L), argThat(delta -> delta.compareTo(new BigDecimal("-300.00")) == 0),
+            argThat(spent -> spent.compareTo(new BigDecimal("300.00")) == 0), any());
+        verify(walletRepository).applyLedgerDelta(eq(2L), argThat(delta -> delta.compareTo(new BigDecimal("300.00")) == 0),
+            argThat(spent -> spent.signum() == 0), any());
+        verify(transactionRepository).save(argThat(txn -> "REF1".equals(txn.getReferenceId())));
+        assertThat(engine.wallet(1L).getBalance()).isEqualByComparingTo("700.00");
+    }
+
+    @Test
+    void failedEntriesFreeTheirKeyAndRunTheCompensation() {
+        LedgerEngine engine = start();
+        AtomicInteger refunds = new AtomicInteger();
+
+        assertThatThrownBy(() -> engine.transfer(entry("REF1", "key-1", 1L, 2L, "5000.00")))
+            .isInstanceOf(InsufficientBalanceException.class);
+        assertThatThrownBy(() -> engine.deposit(entry("REF2", "key-2", null, 9L, "50.00"), refunds::incrementAndGet))
+            .isInstanceOf(BusinessException.class)
+            .hasMessageContaining("Wallet not found");
+
+        assertThat(refunds).hasValue(1);
+        assertThat(engine.isPending("key-1")).isFalse();
+        assertThat(engine.isPending("key-2")).isFalse();
+        assertThat(engine.transfer(entry("REF3", "key-1", 1L, 2L, "500.00")).senderBalanceAfter())
+            .isEqualByComparingTo("500.00");
+        assertThat(engine.wallet(1L).getDailySpent()).isEqualByComparingTo("500.00");
+    }
+
+    @Test
+    void acknowledgedEntriesAreReplayedIntoTheDbAfterARestart() throws Exception {
+        // The DB is down, so nothing acknowledged before the restart reaches it
+        when(transactionRepository.save(any())).thenThrow(new IllegalStateException("connection refused"));
+        LedgerEngine beforeCrash = start();
+        beforeCrash.transfer(entry("REF1", "key-1", 1L, 2L, "300.00"));
+        beforeCrash.deposit(entry("REF2", "key-2", null, 2L, "40.00"), () -> {});
+        ReflectionTestUtils.invokeMethod(beforeCrash, "stop");
+        started.remove(beforeCrash);
+        // A group torn mid-write was never fsynced, so never acknowledged
+        Files.writeString(journal(), "{\"sequence\":3,\"referenceId\":\"RE", StandardOpenOption.APPEND);
+
+        reset(transactionRepository);
+        clearInvocations(walletRepository);
+        LedgerEngine afterRestart = start();
+
+        verify(walletRepository).applyLedgerDelta(eq(1L), argThat(delta -> delta.compareTo(new BigDecimal("-300.00")) == 0),
+            any(), any());
+        verify(walletRepository).applyLedgerDelta(eq(2L), argThat(delta -> delta.compareTo(new BigDecimal("300.00")) == 0),
+            any(), any());
+        verify(walletRepository).applyLedgerDelta(eq(2L), argThat(delta -> delta.compareTo(new BigDecimal("40.00")) == 0),
+            any(), any());
+        verify(transactionRepository, times(2)).save(any());
+        assertThat(Files.size(journal())).isZero();
+        assertThat(afterRestart.transfer(entry("REF4", "key-4", 1L, 2L, "10.00")).sequence()).isEqualTo(3);
+    }
+
+    private LedgerEngine start() {
+        LedgerEngine engine = new LedgerEngine(walletRepository, transactionRepository, mock(UserRepository.class),
+            mock(PlatformTransactionManager.class), objectMapper, mock(HotWalletService.class));
+        ReflectionTestUtils.setField(engine, "enabled", true);
+        ReflectionTestUtils.setField(engine, "shardCount", 2);
+        ReflectionTestUtils.setField(engine, "journalPath", journal().toString());
+        ReflectionTestUtils.setField(engine, "ackTimeoutMs", 5_000L);
+        ReflectionTestUtils.setField(engine, "projectionBatchSize", 16);
+        ReflectionTestUtils.setField(engine, "journalCompactBytes", Long.MAX_VALUE);
+        ReflectionTestUtils.invokeMethod(engine, "start");
+        started.add(engine);
+        return engine;
+    }
+
+    private Path journal() {
+        return dir.resolve("journal.ndjson");
+    }
+
+    private static LedgerEntry entry(String referenceId, String idempotencyKey, Long senderId, Long receiverId,
+                                     String amount) {
+        return new LedgerEntry(0, referenceId, idempotencyKey,
+            senderId == null ? TransactionType.DEPOSIT : TransactionType.TRANSFER, senderId, receiverId,
+            new BigDecimal(amount), null, null, null, null, "test", 0, FraudRiskLevel.LOW, false,
+            "127.0.0.1", LocalDateTime.now());
+    }
+
+    private static Wallet wallet(Long userId, String balance) {
+        return Wallet.builder().id(userId).user(User.builder().id(userId).build())
+            .balance(new BigDecimal(balance)).build();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(20);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,243 @@
+package com.upi.payment;
+
+import com.upi.payment.entity.PayoutJob;
+import com.upi.payment.entity.Transaction;
+import com.upi.payment.entity.User;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.enums.FraudRiskLevel;
+import com.upi.payment.enums.PayoutFileFormat;
+import com.upi.payment.enums.PayoutJobStatus;
+import com.upi.payment.enums.TransactionStatus;
+import com.upi.payment.enums.TransactionType;
+import com.upi.payment.exception.BusinessException;
+import com.upi.payment.ledger.LedgerEngine;
+import com.upi.payment.payout.PayoutEngine;
+import com.upi.payment.repository.PayoutJobRepository;
+import com.upi.payment.repository.TransactionRepository;
+import com.upi.payment.repository.UserRepository;
+import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.service.impl.FraudDetectionService;
+import com.upi.payment.service.impl.PayoutService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+    "app.payout.dir=target/payouts-test",
+    "app.payout.chunk-size=3",
+    "app.payout.parallelism=2"
+})
+@ActiveProfiles("test")
+class PayoutEngineTest {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired PayoutService payoutService;
+    @Autowired PayoutEngine payoutEngine;
+    @Autowired PayoutJobRepository jobRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired WalletRepository walletRepository;
+    @Autowired TransactionRepository transactionRepository;
+    @Autowired LedgerEngine ledgerEngine;
+
+    @MockBean PasswordEncoder passwordEncoder;
+    @MockBean FraudDetectionService fraudDetectionService;
+
+    @BeforeEach
+    void setUp() {
+        when(passwordEncoder.matches(any(), any())).thenReturn(true);
+        when(fraudDetectionService.assess(any(), any(), any()))
+            .thenReturn(new FraudDetectionService.FraudAssessment(0, FraudRiskLevel.LOW, false, false, ""));
+    }
+
+    @Test
+    void payoutFile_paysValidLinesAndReportsEveryLine() throws Exception {
+        User payer = createUser("1000.00");
+        User a = createUser("0.00");
+        User b = createUser("0.00");
+        String csv = """
+            receiver,amount,description
+            %s,100.00,salary
+            %s,50.50,"bonus, Q3"
+            nobody@upi,10.00,
+            %s,abc,
+
+            %s,0.50,too small
+            %s,25.00,self
+            %s,200.00,salary
+            """.formatted(a.getUpiId(), b.getUpiId(), a.getUpiId(), a.getUpiId(), payer.getUpiId(), b.getUpiId());
+
+        var response = payoutService.submit(payer.getId(), file("payroll.csv", csv), "1234", key(), "127.0.0.1");
+        PayoutJob job = awaitDone(response.getId());
+
+        assertThat(job.getStatus()).isEqualTo(PayoutJobStatus.COMPLETED);
+        assertThat(job.getTotalLines()).isEqualTo(7);
+        assertThat(job.getSucceededCount()).isEqualTo(3);
+        assertThat(job.getFailedCount()).isEqualTo(4);
+        assertThat(job.getPaidAmount()).isEqualByComparingTo("350.50");
+        assertThat(job.getReservedAmount()).isEqualByComparingTo("0");
+
+        assertThat(wallet(payer).getBalance()).isEqualByComparingTo("649.50");
+        assertThat(wallet(payer).getDailySpent()).isEqualByComparingTo("350.50");
+        assertThat(wallet(a).getBalance()).isEqualByComparingTo("100.00");
+        assertThat(wallet(b).getBalance()).isEqualByComparingTo("250.50");
+
+        List<String> results = Files.readAllLines(Path.of(job.getResultPath()));
+        assertThat(results).hasSize(8);
+        assertThat(results.get(0)).isEqualTo("line,status,reference_id,amount,message");
+        assertThat(results.get(1)).startsWith("2,PAID,TXN");
+        assertThat(results.get(3)).isEqualTo("4,FAILED,,10.00,Receiver not found: nobody@upi");
+        assertThat(results.get(4)).isEqualTo("5,FAILED,,,Invalid amount: abc");
+        assertThat(results.get(6)).isEqualTo("8,FAILED,,25.00,Cannot transfer to yourself");
+    }
+
+    @Test
+    void haltedJob_resumesFromCheckpointWithoutRepaying() throws Exception {
+        User payer = createUser("250.00");
+        User a = createUser("0.00");
+        String ndjson = """
+            {"receiver": "%1$s", "amount": 50}
+            {"receiver": "%1$s", "amount": 50}
+            {"receiver": "%1$s", "amount": 50}
+            {"receiver": "%1$s", "amount": 100}
+            {"receiver": "%1$s", "amount": 100}
+            """.formatted(a.getUpiId());
+
+        String key = key();
+        var response = payoutService.submit(payer.getId(), file("cashback.ndjson", ndjson), "1234", key, "127.0.0.1");
+        PayoutJob halted = awaitDone(response.getId());
+
+        // Second chunk needs 200 but only 100 is left
+        assertThat(halted.getStatus()).isEqualTo(PayoutJobStatus.HALTED);
+        assertThat(halted.getHaltReason()).contains("Insufficient wallet balance");
+        assertThat(halted.getNextLine()).isEqualTo(3);
+        assertThat(wallet(payer).getBalance()).isEqualByComparingTo("100.00");
+
+        Wallet topUp = wallet(payer);
+        topUp.setBalance(topUp.getBalance().add(new BigDecimal("100.00")));
+        walletRepository.save(topUp);
+
+        assertThat(payoutService.submit(payer.getId(), file("cashback.ndjson", ndjson), "1234", key, "127.0.0.1").getId())
+            .isEqualTo(response.getId());
+        payoutService.resume(payer.getId(), response.getId());
+        PayoutJob done = awaitDone(response.getId());
+
+        assertThat(done.getStatus()).isEqualTo(PayoutJobStatus.COMPLETED);
+        assertThat(done.getSucceededCount()).isEqualTo(5);
+        assertThat(wallet(a).getBalance()).isEqualByComparingTo("350.00");
+        assertThat(wallet(payer).getBalance()).isEqualByComparingTo("0.00");
+        assertThat(Files.readAllLines(Path.of(done.getResultPath()))).hasSize(6);
+    }
+
+    @Test
+    void interruptedChunk_settlesHeldReservation() throws Exception {
+        User payer = createUser("1000.00");
+        User a = createUser("0.00");
+        User b = createUser("0.00");
+        Path source = Files.createDirectories(Path.of("target/payouts-test")).resolve("crash-" + SEQUENCE.incrementAndGet() + ".csv");
+        Files.writeString(source, a.getUpiId() + ",100.00\n" + b.getUpiId() + ",200.00\n");
+
+        // State left by a run that reserved the chunk, paid line 1 and died
+        PayoutJob job = jobRepository.save(PayoutJob.builder()
+            .payerId(payer.getId()).idempotencyKey(key()).format(PayoutFileFormat.CSV)
+            .sourcePath(source.toString()).resultPath(source + ".results.csv")
+            .status(PayoutJobStatus.RUNNING).chunkSize(3).totalLines(2L).totalAmount(new BigDecimal("300.00"))
+            .reservedAmount(new BigDecimal("300.00"))
+            .build());
+        Wallet payerWallet = wallet(payer);
+        payerWallet.setBalance(new BigDecimal("700.00"));
+        walletRepository.save(payerWallet);
+        Wallet aWallet = wallet(a);
+        aWallet.setBalance(new BigDecimal("100.00"));
+        walletRepository.save(aWallet);
+        transactionRepository.save(Transaction.builder()
+            .referenceId("TXNCRASHED" + job.getId()).idempotencyKey("PAYOUT-" + job.getId() + "-1")
+            .sender(payer).receiver(a).amount(new BigDecimal("100.00"))
+            .type(TransactionType.PAYOUT).status(TransactionStatus.SUCCESS).build());
+        Files.writeString(Path.of(job.getResultPath()), "partial garbage\n");
+
+        payoutEngine.submit(job.getId());
+        PayoutJob done = awaitDone(job.getId());
+
+        assertThat(done.getStatus()).isEqualTo(PayoutJobStatus.COMPLETED);
+        assertThat(done.getSucceededCount()).isEqualTo(2);
+        assertThat(wallet(a).getBalance()).isEqualByComparingTo("100.00");
+        assertThat(wallet(b).getBalance()).isEqualByComparingTo("200.00");
+        assertThat(wallet(payer).getBalance()).isEqualByComparingTo("700.00");
+        assertThat(Files.readAllLines(Path.of(done.getResultPath())))
+            .containsExactly("line,status,reference_id,amount,message",
+                "1,PAID,TXNCRASHED" + job.getId() + ",100.00,",
+                Files.readAllLines(Path.of(done.getResultPath())).get(2));
+    }
+
+    @Test
+    void ledgerMode_rejectsPayoutBeforeTouchingTheWallet() {
+        User payer = createUser("500.00");
+        User a = createUser("0.00");
+        String key = key();
+
+        ReflectionTestUtils.setField(ledgerEngine, "enabled", true);
+        try {
+            assertThatThrownBy(() -> payoutService.submit(payer.getId(),
+                    file("payroll.csv", a.getUpiId() + ",100.00\n"), "1234", key, "127.0.0.1"))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("ledger");
+        } finally {
+            ReflectionTestUtils.setField(ledgerEngine, "enabled", false);
+        }
+
+        assertThat(jobRepository.findByIdempotencyKey(key)).isEmpty();
+        assertThat(wallet(payer).getBalance()).isEqualByComparingTo("500.00");
+    }
+
+    private PayoutJob awaitDone(Long jobId) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            PayoutJob job = jobRepository.findById(jobId).orElseThrow();
+            if (job.getStatus() == PayoutJobStatus.COMPLETED || job.getStatus() == PayoutJobStatus.HALTED) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Payout job " + jobId + " did not finish");
+    }
+
+    private Wallet wallet(User user) {
+        return walletRepository.findByUserId(user.getId()).orElseThrow();
+    }
+
+    private static MockMultipartFile file(String name, String content) {
+        return new MockMultipartFile("file", name, "text/plain", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String key() {
+        return "payout-test-" + SEQUENCE.incrementAndGet() + "-" + System.nanoTime();
+    }
+
+    private User createUser(String balance) {
+        int n = SEQUENCE.incrementAndGet();
+        User user = userRepository.save(User.builder()
+            .fullName("Payout " + n).email("payout" + n + "@test.com").phoneNumber(String.valueOf(7200000000L + n))
+            .password("x").upiId("payout" + n + "@upi").upiPin("pin").build());
+        walletRepository.save(Wallet.builder().user(user).balance(new BigDecimal(balance))
+            .dailyLimit(new BigDecimal("100000.00")).build());
+        return user;
+    }
+}
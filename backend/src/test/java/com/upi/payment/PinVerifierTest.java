@@ -0,0 +1,117 @@
+package com.upi.payment;
+
+import com.upi.payment.entity.User;
+import com.upi.payment.exception.BusinessException;
+import com.upi.payment.exception.ServiceBusyException;
+import com.upi.payment.security.PinVerifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PinVerifierTest {
+
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final User user = User.builder().id(1L).upiPin("$2a$12$hash").build();
+    private PinVerifier pinVerifier;
+
+    @BeforeEach
+    void setUp() {
+        pinVerifier = new PinVerifier(passwordEncoder, meterRegistry);
+        ReflectionTestUtils.setField(pinVerifier, "hashThreads", 1);
+        ReflectionTestUtils.setField(pinVerifier, "queueCapacity", 1);
+        ReflectionTestUtils.setField(pinVerifier, "timeoutMs", 5000L);
+        ReflectionTestUtils.invokeMethod(pinVerifier, "start");
+        when(passwordEncoder.matches(any(), any()))
+            .thenAnswer(inv -> "1234".equals(inv.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        ReflectionTestUtils.invokeMethod(pinVerifier, "stop");
+    }
+
+    @Test
+    void verifiedPin_isGrantedToTheSessionUntilAWrongPin() {
+        inSession("token-a");
+
+        pinVerifier.verify(user, "1234");
+        pinVerifier.verify(user, "1234");
+        verify(passwordEncoder, times(1)).matches(any(), any());
+
+        assertThatThrownBy(() -> pinVerifier.verify(user, "9999"))
+            .isInstanceOf(BusinessException.class).hasMessage("Incorrect UPI PIN");
+        pinVerifier.verify(user, "1234");
+        verify(passwordEncoder, times(3)).matches(any(), any());
+
+        // Another token is another session, and a changed PIN hash voids the grant
+        inSession("token-b");
+        pinVerifier.verify(user, "1234");
+        user.setUpiPin("$2a$12$other");
+        pinVerifier.verify(user, "1234");
+        verify(passwordEncoder, times(5)).matches(any(), any());
+        assertThat(meterRegistry.counter("upi.pin.grant", "result", "hit").count()).isEqualTo(1);
+        assertThat(meterRegistry.timer("upi.pin.hash").count()).isEqualTo(5);
+    }
+
+    @Test
+    void saturatedPool_rejectsImmediately() throws Exception {
+        CountDownLatch hashing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(passwordEncoder.matches(any(), any())).thenAnswer(inv -> {
+            hashing.countDown();
+            release.await();
+            return true;
+        });
+
+        CompletableFuture<Void> running = CompletableFuture.runAsync(() -> pinVerifier.verify(user, "1234"));
+        assertThat(hashing.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> queued = CompletableFuture.runAsync(() -> pinVerifier.verify(user, "1234"));
+        await(() -> meterRegistry.get("upi.pin.queue.depth").gauge().value() == 1);
+
+        assertThatThrownBy(() -> pinVerifier.verify(user, "1234")).isInstanceOf(ServiceBusyException.class);
+        assertThat(meterRegistry.counter("upi.pin.rejected", "reason", "queue_full").count()).isEqualTo(1);
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void missingPin_isRejectedWithoutHashing() {
+        assertThatThrownBy(() -> pinVerifier.verify(user, null)).isInstanceOf(BusinessException.class);
+        user.setUpiPin(null);
+        assertThatThrownBy(() -> pinVerifier.verify(user, "1234"))
+            .isInstanceOf(BusinessException.class).hasMessageContaining("UPI PIN not set");
+        verifyNoInteractions(passwordEncoder);
+    }
+
+    private static void inSession(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(20);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,128 @@
+package com.upi.payment;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.upi.payment.enums.UserRole;
+import com.upi.payment.filter.RateLimitFilter;
+import com.upi.payment.ratelimit.LocalRateLimiter;
+import com.upi.payment.ratelimit.RateLimiter;
+import com.upi.payment.ratelimit.RedisRateLimiter;
+import com.upi.payment.security.AuthenticatedUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        SecurityContextHolder.clearContext();
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @Test
+    void transfersHaveTheirOwnTighterBucketPerUser() throws Exception {
+        RateLimitFilter filter = filter(new LocalRateLimiter(1000));
+        authenticate(7L);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(send(filter, "POST", "/api/v1/transactions/transfer", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+        MockHttpServletResponse rejected = send(filter, "POST", "/api/v1/transactions/transfer", "10.0.0.1");
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        // One permit every 6s at 10 per minute
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("6");
+        assertThat(rejected.getContentAsString()).contains("\"success\":false");
+        // Reads still draw from the general bucket
+        assertThat(send(filter, "GET", "/api/v1/transactions/history", "10.0.0.1").getStatus()).isEqualTo(200);
+        authenticate(8L);
+        assertThat(send(filter, "POST", "/api/v1/transactions/transfer", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.counter("rate_limit.rejected", "class", "TRANSFER").count()).isEqualTo(1);
+    }
+
+    @Test
+    void authEndpointsAreLimitedPerClientIp() throws Exception {
+        RateLimitFilter filter = filter(new LocalRateLimiter(1000));
+
+        for (int i = 0; i < 20; i++) {
+            send(filter, "POST", "/api/v1/auth/login", "10.0.0.2");
+        }
+
+        assertThat(send(filter, "POST", "/api/v1/auth/login", "10.0.0.2").getStatus()).isEqualTo(429);
+        assertThat(send(filter, "POST", "/api/v1/auth/login", "10.0.0.3").getStatus()).isEqualTo(200);
+        assertThat(send(filter, "GET", "/api/v1/wallet", "10.0.0.2").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void redisBucketsAreSharedByNodesAndFallBackLocallyWhenRedisIsDown() throws Exception {
+        redisServer = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+            new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()),
+            LettuceClientConfiguration.builder().commandTimeout(Duration.ofSeconds(2)).build());
+        connectionFactory.afterPropertiesSet();
+        StringRedisTemplate template = new StringRedisTemplate(connectionFactory);
+        RateLimiter nodeA = new RedisRateLimiter(template, "rl:", new LocalRateLimiter(100), 60_000, meterRegistry);
+        RateLimiter nodeB = new RedisRateLimiter(template, "rl:", new LocalRateLimiter(100), 60_000, meterRegistry);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(nodeA.tryAcquire("transfer:7", 10)).isZero();
+            assertThat(nodeB.tryAcquire("transfer:7", 10)).isZero();
+        }
+        long wait = nodeB.tryAcquire("transfer:7", 10);
+        assertThat(wait).isBetween(5_000_000_000L, 6_000_000_000L);
+        assertThat(template.getExpire("rl:transfer:7")).isPositive();
+
+        redisServer.stop();
+        redisServer = null;
+        assertThat(nodeA.tryAcquire("transfer:7", 10)).isZero();
+        assertThat(meterRegistry.counter("rate_limit.redis.errors").count()).isEqualTo(1);
+        // Redis is skipped until the retry delay has passed
+        assertThat(nodeA.tryAcquire("transfer:7", 10)).isZero();
+        assertThat(meterRegistry.counter("rate_limit.redis.errors").count()).isEqualTo(1);
+    }
+
+    private RateLimitFilter filter(RateLimiter rateLimiter) {
+        RateLimitFilter filter = new RateLimitFilter(rateLimiter, meterRegistry);
+        ReflectionTestUtils.invokeMethod(filter, "init");
+        return filter;
+    }
+
+    private static void authenticate(Long userId) {
+        AuthenticatedUser user = new AuthenticatedUser(userId, "u" + userId + "@test.com", UserRole.ROLE_USER);
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(user, null, user.authorities()));
+    }
+
+    private static MockHttpServletResponse send(RateLimitFilter filter, String method, String path, String ip)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(ip);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,95 @@
+package com.upi.payment;
+
+import com.upi.payment.cache.TwoLevelCacheManager;
+import com.upi.payment.entity.User;
+import com.upi.payment.enums.AccountStatus;
+import com.upi.payment.event.AccountStatusChangedEvent;
+import com.upi.payment.repository.UserRepository;
+import com.upi.payment.service.impl.ReceiverResolver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Receiver identifiers are normalised, looked up on the index for their kind and cached until the
+ * receiver's account status changes.
+ */
+class ReceiverResolverTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private ReceiverResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(name -> "maximumSize=100", null,
+            new SimpleMeterRegistry());
+        resolver = new ReceiverResolver(userRepository, cacheManager);
+        ReflectionTestUtils.invokeMethod(resolver, "init");
+    }
+
+    @Test
+    void eachKindHitsItsOwnIndexOnceAndRepeatsAreCached() {
+        Optional<UserRepository.ReceiverRow> payee = row(7L, AccountStatus.ACTIVE);
+        when(userRepository.findReceiverByPhoneNumber("9000000007")).thenReturn(payee);
+        when(userRepository.findReceiverByUpiId("9000000007@upi")).thenReturn(payee);
+        when(userRepository.findReceiverByEmail("payee@shop.test")).thenReturn(payee);
+
+        for (String identifier : new String[] {"+91 90000-00007", "09000000007", "9000000007",
+                " 9000000007@UPI ", "9000000007@upi", "Payee@Shop.Test", "payee@shop.test"}) {
+            assertThat(resolver.resolve(identifier)).get()
+                .extracting(User::getId, User::getUpiId, User::getFullName, User::getStatus)
+                .containsExactly(7L, "9000000007@upi", "Payee", AccountStatus.ACTIVE);
+        }
+
+        verify(userRepository).findReceiverByPhoneNumber("9000000007");
+        verify(userRepository).findReceiverByUpiId("9000000007@upi");
+        verify(userRepository).findReceiverByEmail("payee@shop.test");
+        verifyNoMoreInteractions(userRepository);
+        assertThat(resolver.resolve("12345")).isEmpty();
+    }
+
+    @Test
+    void emailWithoutADotInItsDomainFallsBackToTheEmailIndex() {
+        Optional<UserRepository.ReceiverRow> payee = row(7L, AccountStatus.ACTIVE);
+        when(userRepository.findReceiverByUpiId("payee@localhost")).thenReturn(Optional.empty());
+        when(userRepository.findReceiverByEmail("payee@localhost")).thenReturn(payee);
+
+        assertThat(resolver.resolve("payee@localhost")).get().extracting(User::getId).isEqualTo(7L);
+    }
+
+    @Test
+    void statusChangeDropsEveryCachedIdentifierAndMissesAreNotCached() {
+        Optional<UserRepository.ReceiverRow> active = row(7L, AccountStatus.ACTIVE);
+        Optional<UserRepository.ReceiverRow> frozen = row(7L, AccountStatus.FROZEN);
+        when(userRepository.findReceiverByEmail("payee@shop.test")).thenReturn(Optional.empty(), active, frozen);
+        when(userRepository.findReceiverByPhoneNumber("9000000007")).thenReturn(active, frozen);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(User.builder().id(7L)
+            .email("payee@shop.test").phoneNumber("9000000007").upiId("9000000007@upi").build()));
+
+        assertThat(resolver.resolve("payee@shop.test")).isEmpty();
+        assertThat(resolver.resolve("payee@shop.test")).get().extracting(User::getStatus).isEqualTo(AccountStatus.ACTIVE);
+        assertThat(resolver.resolve("9000000007")).get().extracting(User::getStatus).isEqualTo(AccountStatus.ACTIVE);
+
+        resolver.onStatusChanged(new AccountStatusChangedEvent(7L, AccountStatus.FROZEN));
+
+        assertThat(resolver.resolve("payee@shop.test")).get().extracting(User::getStatus).isEqualTo(AccountStatus.FROZEN);
+        assertThat(resolver.resolve("9000000007")).get().extracting(User::getStatus).isEqualTo(AccountStatus.FROZEN);
+        verify(userRepository, never()).findReceiverByUpiId(any());
+    }
+
+    private static Optional<UserRepository.ReceiverRow> row(Long id, AccountStatus status) {
+        UserRepository.ReceiverRow row = mock(UserRepository.ReceiverRow.class);
+        when(row.getId()).thenReturn(id);
+        when(row.getUpiId()).thenReturn("900000000" + id + "@upi");
+        when(row.getFullName()).thenReturn("Payee");
+        when(row.getStatus()).thenReturn(status);
+        return Optional.of(row);
+    }
+}
@@ -0,0 +1,122 @@
+package com.upi.payment;
+
+import com.upi.payment.util.ReferenceIdGenerator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ReferenceIdGeneratorTest {
+
+    private static final int NODES = 4;
+    private static final int THREADS_PER_NODE = 4;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    @Test
+    void ids_areUniqueAcrossThreadsAndNodes() throws Exception {
+        List<String> ids = generate(NODES, THREADS_PER_NODE, IDS_PER_THREAD, System::currentTimeMillis);
+
+        assertThat(new HashSet<>(ids)).hasSize(NODES * THREADS_PER_NODE * IDS_PER_THREAD);
+        assertThat(ids).allSatisfy(id -> assertThat(id).matches("TXN[0-9A-HJKMNP-TV-Z]{13}"));
+    }
+
+    @Test
+    void ids_sortByTime() {
+        AtomicLong clock = new AtomicLong(Instant.parse("2026-01-01T00:00:00Z").toEpochMilli());
+        var generator = new ReferenceIdGenerator(7, clock::get);
+
+        String first = generator.next();
+        String sameMillis = generator.next();
+        clock.addAndGet(1);
+        String nextMillis = generator.next();
+        clock.addAndGet(60_000);
+        String nextMinute = generator.next();
+
+        assertThat(List.of(first, sameMillis, nextMillis, nextMinute)).isSorted();
+        assertThat(ReferenceIdGenerator.timestampOf(nextMinute)).isEqualTo(Instant.ofEpochMilli(clock.get()));
+    }
+
+    @Test
+    void ids_neverRepeatWhenClockStepsBackOrSequenceRunsOut() {
+        AtomicLong clock = new AtomicLong(Instant.parse("2026-01-01T00:00:00Z").toEpochMilli());
+        var generator = new ReferenceIdGenerator(1, clock::get);
+
+        Set<Long> seen = new HashSet<>();
+        long previous = -1;
+        for (int i = 0; i < 10_000; i++) {          // > 4096 per millisecond
+            if (i == 5_000) clock.addAndGet(-1_000); // NTP step backwards
+            long id = generator.nextId();
+            assertThat(id).isGreaterThan(previous);
+            assertThat(seen.add(id)).isTrue();
+            previous = id;
+        }
+    }
+
+    /**
+     * Run with {@code mvn test -Pbenchmark -Dtest=ReferenceIdGeneratorTest}.
+     */
+    @Test
+    @Tag("benchmark")
+    void throughput() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int perThread = 1_000_000;
+        var generator = new ReferenceIdGenerator(0, System::currentTimeMillis);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    generator.next();
+                }
+                return null;
+            }));
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        pool.shutdown();
+
+        System.out.printf("%n%d threads: %.1f M reference IDs/s%n%n", threads, threads * perThread / seconds / 1e6);
+    }
+
+    private static List<String> generate(int nodes, int threadsPerNode, int perThread,
+                                         LongSupplier clock) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(nodes * threadsPerNode);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int node = 0; node < nodes; node++) {
+            var generator = new ReferenceIdGenerator(node, clock);
+            for (int t = 0; t < threadsPerNode; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    List<String> out = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        out.add(generator.next());
+                    }
+                    return out;
+                }));
+            }
+        }
+        start.countDown();
+        List<String> all = new ArrayList<>();
+        for (Future<List<String>> f : futures) all.addAll(f.get());
+        pool.shutdown();
+        return all;
+    }
+}
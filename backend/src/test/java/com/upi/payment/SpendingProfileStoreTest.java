@@ -0,0 +1,124 @@
+package com.upi.payment;
+
+import com.upi.payment.event.TransferCompletedEvent;
+import com.upi.payment.fraud.SpendingProfile;
+import com.upi.payment.fraud.SpendingProfileStore;
+import com.upi.payment.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SpendingProfileStoreTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 3, 2, 0, 0);
+    private static final AtomicInteger REFERENCES = new AtomicInteger();
+
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void profileTracksTypicalAmountHourAndReceivers() {
+        SpendingProfileStore store = store("");
+        for (int i = 0; i < 12; i++) {
+            transfer(store, 1L, 10L + i % 3, i % 2 == 0 ? "180.00" : "220.00", DAY.plusDays(i).withHour(14));
+        }
+
+        SpendingProfile profile = store.profile(1L);
+        assertThat(profile.transfers()).isEqualTo(12);
+        assertThat(profile.established()).isTrue();
+        assertThat(profile.amountDeviation(new BigDecimal("200.00"))).isLessThan(1);
+        assertThat(profile.amountDeviation(new BigDecimal("50000.00"))).isGreaterThan(3);
+        assertThat(profile.amountDeviation(new BigDecimal("1.00"))).isGreaterThan(3);
+        assertThat(profile.hourShare(15)).isEqualTo(1.0);
+        assertThat(profile.hourShare(3)).isZero();
+        assertThat(profile.typicalReceivers()).isEqualTo(3);
+
+        assertThat(store.profile(2L)).isSameAs(SpendingProfile.NONE);
+        transfer(store, 2L, 1L, "10.00", DAY);
+        assertThat(store.profile(2L).established()).isFalse();
+    }
+
+    @Test
+    void snapshotRestoresProfilesAndReplaySkipsWhatItAlreadyHolds() {
+        String path = dir.resolve("profiles.bin").toString();
+        SpendingProfileStore first = store(path);
+        LocalDateTime last = DAY.plusDays(20).withHour(9);
+        for (int i = 0; i < 10; i++) {
+            transfer(first, 1L, 2L, "500.00", DAY.plusDays(i * 2).withHour(9));
+        }
+        transfer(first, 1L, 2L, "500.00", last, "REF-LAST");
+        first.snapshot();
+
+        // The replay window overlaps the snapshot: the last transfer comes back, alongside one in the
+        // same second and one stamped earlier that both committed after the snapshot, and a new one
+        when(transactionRepository.streamTransfersSince(any())).thenReturn(Stream.of(
+            row(1L, 2L, "500.00", last.minusSeconds(30), "REF-LATE"),
+            row(1L, 2L, "500.00", last, "REF-LAST"),
+            row(1L, 2L, "500.00", last, "REF-SAME-SECOND"),
+            row(1L, 3L, "700.00", last.plusMinutes(5), "REF-NEW"),
+            row(4L, 2L, "50.00", last.plusMinutes(6), "REF-OTHER")));
+        SpendingProfileStore second = store(path);
+        ReflectionTestUtils.invokeMethod(second, "init");
+
+        assertThat(second.profile(1L).transfers()).isEqualTo(14);
+        assertThat(second.profile(1L).hourShare(9)).isEqualTo(1.0);
+        assertThat(second.profile(1L).typicalReceivers()).isEqualTo(2);
+        assertThat(second.profile(4L).transfers()).isEqualTo(1);
+    }
+
+    @Test
+    void tableGrowsWithoutLosingProfiles() {
+        SpendingProfileStore store = store("");
+        for (long user = 1; user <= 5000; user++) {
+            transfer(store, user, user + 1, "100.00", DAY.withHour(10));
+            transfer(store, user, user + 2, "100.00", DAY.withHour(11));
+        }
+
+        for (long user = 1; user <= 5000; user++) {
+            assertThat(store.profile(user).transfers()).as("user %d", user).isEqualTo(2);
+        }
+        assertThat(store.profile(5001L)).isSameAs(SpendingProfile.NONE);
+    }
+
+    private SpendingProfileStore store(String snapshotPath) {
+        SpendingProfileStore store = new SpendingProfileStore(transactionRepository,
+            mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(store, "snapshotPath", snapshotPath);
+        return store;
+    }
+
+    private static void transfer(SpendingProfileStore store, Long senderId, Long receiverId, String amount,
+                                 LocalDateTime at) {
+        transfer(store, senderId, receiverId, amount, at, "REF-" + REFERENCES.incrementAndGet());
+    }
+
+    private static void transfer(SpendingProfileStore store, Long senderId, Long receiverId, String amount,
+                                 LocalDateTime at, String referenceId) {
+        store.onTransferCompleted(
+            new TransferCompletedEvent(senderId, receiverId, new BigDecimal(amount), instant(at), referenceId));
+    }
+
+    private static Object[] row(Long senderId, Long receiverId, String amount, LocalDateTime at, String referenceId) {
+        return new Object[]{senderId, receiverId, new BigDecimal(amount), at, referenceId};
+    }
+
+    private static Instant instant(LocalDateTime at) {
+        return at.atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
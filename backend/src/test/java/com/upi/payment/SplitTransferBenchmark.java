@@ -0,0 +1,121 @@
+package com.upi.payment;
+
+import com.upi.payment.dto.request.TransactionRequest;
+import com.upi.payment.entity.User;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.repository.UserRepository;
+import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.service.impl.TransactionService;
+import com.upi.payment.service.impl.WalletService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Paying N receivers: N sequential transfers against one split transfer, with the real BCrypt PIN
+ * check and fraud queries. Run with
+ * {@code mvn test -Pbenchmark -Dtest=SplitTransferBenchmark -Dlogging.level.com.upi.payment=WARN}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "app.fraud.max-transactions-per-hour=1000000")
+@ActiveProfiles("test")
+class SplitTransferBenchmark {
+
+    private static final int RECEIVERS = 10;
+    private static final int ROUNDS = 20;
+    private static final BigDecimal AMOUNT = new BigDecimal("10.00");
+
+    @Autowired TransactionService transactionService;
+    @Autowired WalletService walletService;
+    @Autowired UserRepository userRepository;
+    @Autowired WalletRepository walletRepository;
+    @Autowired PasswordEncoder passwordEncoder;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Test
+    void sequentialVersusSplit() {
+        String pin = passwordEncoder.encode("1234");
+
+        Result sequential = run("sequential", pin, (payer, receivers) -> {
+            for (User receiver : receivers) {
+                var request = new TransactionRequest.Transfer();
+                request.setReceiverIdentifier(receiver.getUpiId());
+                request.setAmount(AMOUNT);
+                request.setUpiPin("1234");
+                request.setIdempotencyKey(nextKey());
+                transactionService.transfer(payer.getId(), request, "127.0.0.1");
+            }
+        });
+        Result split = run("split", pin, (payer, receivers) -> {
+            var request = new TransactionRequest.SplitTransfer();
+            request.setUpiPin("1234");
+            request.setIdempotencyKey(nextKey());
+            request.setLegs(receivers.stream().map(receiver -> {
+                var leg = new TransactionRequest.SplitTransfer.Leg();
+                leg.setReceiverIdentifier(receiver.getUpiId());
+                leg.setAmount(AMOUNT);
+                return leg;
+            }).toList());
+            transactionService.splitTransfer(payer.getId(), request, "127.0.0.1");
+        });
+
+        System.out.printf("%n%-12s %12s %14s%n", "mode", "payments/s", "ms per batch");
+        for (Result r : List.of(sequential, split)) {
+            System.out.printf("%-12s %12.0f %14.2f%n", r.mode, r.paymentsPerSecond, r.msPerBatch);
+        }
+        System.out.printf("split speed-up for %d receivers: %.2fx%n%n", RECEIVERS, sequential.msPerBatch / split.msPerBatch);
+    }
+
+    private Result run(String mode, String pin, Batch batch) {
+        User payer = createUser(mode + "-payer", pin, new BigDecimal("1000000.00"));
+        List<User> receivers = new ArrayList<>();
+        for (int i = 0; i < RECEIVERS; i++) {
+            receivers.add(createUser(mode + "-receiver-" + i, pin, BigDecimal.ZERO));
+        }
+
+        batch.pay(payer, receivers);  // warm-up
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            batch.pay(payer, receivers);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        BigDecimal expected = AMOUNT.multiply(BigDecimal.valueOf(ROUNDS + 1));
+        for (User receiver : receivers) {
+            assertThat(walletService.getWallet(receiver.getId()).getBalance()).isEqualByComparingTo(expected);
+        }
+        return new Result(mode, (double) ROUNDS * RECEIVERS / seconds, seconds * 1000 / ROUNDS);
+    }
+
+    private String nextKey() {
+        return "bench-" + sequence.incrementAndGet() + "-" + System.nanoTime();
+    }
+
+    private User createUser(String name, String pin, BigDecimal balance) {
+        int n = sequence.incrementAndGet();
+        User user = userRepository.save(User.builder()
+            .fullName(name).email(name + "@bench.test").phoneNumber(String.valueOf(7100000000L + n))
+            .password("x").upiId(name + "@upi").upiPin(pin).build());
+        walletRepository.save(Wallet.builder().user(user).balance(balance)
+            .dailyLimit(new BigDecimal("10000000.00")).build());
+        return user;
+    }
+
+    @FunctionalInterface
+    private interface Batch {
+        void pay(User payer, List<User> receivers);
+    }
+
+    private record Result(String mode, double paymentsPerSecond, double msPerBatch) {}
+}
@@ -0,0 +1,107 @@
+package com.upi.payment;
+
+import com.upi.payment.event.TransferCompletedEvent;
+import com.upi.payment.fraud.GraphSignal;
+import com.upi.payment.fraud.TransactionGraph;
+import com.upi.payment.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TransactionGraphTest {
+
+    private static final Instant T0 = Instant.parse("2026-03-01T10:00:00Z");
+    private static final String AMOUNT = "5000.00";
+    private static final BigDecimal SIGNAL_AMOUNT = new BigDecimal(AMOUNT);
+
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TransactionGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        graph = new TransactionGraph(transactionRepository, mock(PlatformTransactionManager.class), meterRegistry);
+        ReflectionTestUtils.setField(graph, "memoryMb", 1L);
+        ReflectionTestUtils.setField(graph, "clock", Clock.fixed(T0.plusSeconds(3600), ZoneOffset.UTC));
+    }
+
+    @Test
+    void closingACycleMarksEveryMember() {
+        when(transactionRepository.streamTransfersSince(any())).thenReturn(Stream.<Object[]>of(
+            row(1L, 2L, AMOUNT, T0), row(2L, 3L, AMOUNT, T0.plusSeconds(60))));
+        ReflectionTestUtils.invokeMethod(graph, "init");
+        // Paying each other back is not a ring
+        transfer(2L, 1L, AMOUNT, T0.plusSeconds(90));
+        assertThat(graph.signal(1L, 2L, SIGNAL_AMOUNT).senderRisk()).isZero();
+
+        assertThat(graph.signal(3L, 1L, SIGNAL_AMOUNT).cycleLength()).isEqualTo(3);
+        assertThat(graph.signal(1L, 3L, SIGNAL_AMOUNT).cycleLength()).isZero();
+
+        transfer(3L, 1L, AMOUNT, T0.plusSeconds(120));
+
+        assertThat(graph.topSuspects(5))
+            .extracting(TransactionGraph.Suspect::userId, TransactionGraph.Suspect::pattern)
+            .containsExactlyInAnyOrder(tuple(1L, TransactionGraph.CYCLE), tuple(2L, TransactionGraph.CYCLE),
+                tuple(3L, TransactionGraph.CYCLE));
+        assertThat(graph.signal(1L, 2L, SIGNAL_AMOUNT).senderRisk()).isBetween(85, 90);
+    }
+
+    @Test
+    void passThroughHubIsMarkedButSmallEdgesAreIgnored() {
+        when(transactionRepository.streamTransfersSince(any())).thenReturn(Stream.empty());
+        ReflectionTestUtils.invokeMethod(graph, "init");
+        for (long payer = 100; payer < 112; payer++) {
+            transfer(payer, 50L, AMOUNT, T0.plusSeconds(payer));
+        }
+        transfer(50L, 51L, "50000.00", T0.plusSeconds(300));
+        transfer(51L, 100L, "10.00", T0.plusSeconds(360));
+
+        GraphSignal signal = graph.signal(7L, 50L, SIGNAL_AMOUNT);
+        assertThat(signal.receiverPattern()).isEqualTo(TransactionGraph.FAN_IN);
+        assertThat(signal.receiverRisk()).isGreaterThanOrEqualTo(60);
+        assertThat(graph.signal(100L, 50L, SIGNAL_AMOUNT).cycleLength()).isZero();
+
+        var top = graph.topSuspects(3);
+        assertThat(top).hasSize(1);
+        assertThat(top.get(0).userId()).isEqualTo(50L);
+        assertThat(top.get(0).inDegree()).isEqualTo(12);
+    }
+
+    @Test
+    void fullGraphEvictsOldestEdgesAndKeepsDetecting() {
+        when(transactionRepository.streamTransfersSince(any())).thenReturn(Stream.empty());
+        ReflectionTestUtils.setField(graph, "clock", Clock.fixed(T0.plusSeconds(30 * 86_400), ZoneOffset.UTC));
+        ReflectionTestUtils.invokeMethod(graph, "init");
+        int capacity = (int) ReflectionTestUtils.getField(graph, "edgeCapacity");
+        for (long i = 1; i <= 20_000; i++) {
+            transfer(i, i + 1, AMOUNT, T0.plusSeconds(i * 60));
+        }
+        assertThat(meterRegistry.get("fraud.graph.edges").gauge().value()).isLessThanOrEqualTo(capacity);
+
+        transfer(20_001L, 30_000L, AMOUNT, T0.plusSeconds(20_001 * 60));
+        assertThat(graph.signal(30_000L, 19_999L, SIGNAL_AMOUNT).cycleLength()).isEqualTo(4);
+        assertThat(graph.signal(3L, 1L, SIGNAL_AMOUNT).cycleLength()).isZero();
+    }
+
+    private void transfer(Long senderId, Long receiverId, String amount, Instant at) {
+        graph.onTransferCompleted(new TransferCompletedEvent(senderId, receiverId, new BigDecimal(amount), at, null));
+    }
+
+    private static Object[] row(Long senderId, Long receiverId, String amount, Instant at) {
+        return new Object[]{senderId, receiverId, new BigDecimal(amount), LocalDateTime.ofInstant(at, ZoneId.systemDefault()), null};
+    }
+}
@@ -1,30 +1,48 @@
 package com.upi.payment;
 
 import com.upi.payment.dto.request.TransactionRequest;
+import com.upi.payment.dto.response.ApiResponse;
+import com.upi.payment.entity.BankAccount;
 import com.upi.payment.entity.User;
 import com.upi.payment.entity.Wallet;
 import com.upi.payment.enums.AccountStatus;
+import com.upi.payment.enums.ConcurrencyMode;
 import com.upi.payment.enums.FraudRiskLevel;
 import com.upi.payment.enums.TransactionStatus;
+import com.upi.payment.event.TransferCompletedEvent;
 import com.upi.payment.exception.BusinessException;
-import com.upi.payment.exception.DuplicateTransactionException;
 import com.upi.payment.exception.InsufficientBalanceException;
+import com.upi.payment.idempotency.IdempotencyStore;
+import com.upi.payment.ledger.LedgerEngine;
+import com.upi.payment.pipeline.GroupCommitPipeline;
 import com.upi.payment.repository.BankAccountRepository;
 import com.upi.payment.repository.TransactionRepository;
 import com.upi.payment.repository.UserRepository;
 import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.security.PinVerifier;
 import com.upi.payment.service.AuditService;
+import com.upi.payment.service.impl.ConcurrencyControl;
 import com.upi.payment.service.impl.FraudDetectionService;
+import com.upi.payment.service.impl.HotWalletService;
+import com.upi.payment.service.impl.ReceiverResolver;
 import com.upi.payment.service.impl.TransactionService;
+import com.upi.payment.service.impl.WalletBalanceCache;
+import com.upi.payment.util.ReferenceIdGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -40,7 +58,17 @@ class TransactionServiceTest {
     @Mock BankAccountRepository bankAccountRepository;
     @Mock FraudDetectionService fraudDetectionService;
     @Mock AuditService auditService;
-    @Mock PasswordEncoder passwordEncoder;
+    @Mock PinVerifier pinVerifier;
+    @Mock LedgerEngine ledgerEngine;
+    @Mock GroupCommitPipeline groupCommitPipeline;
+    @Mock IdempotencyStore idempotencyStore;
+    @Mock ReferenceIdGenerator referenceIdGenerator;
+    @Mock HotWalletService hotWalletService;
+    @Mock WalletBalanceCache walletBalanceCache;
+    @Mock ReceiverResolver receiverResolver;
+    @Mock PlatformTransactionManager transactionManager;
+    @Mock ApplicationEventPublisher eventPublisher;
+    @Spy ConcurrencyControl concurrencyControl = new ConcurrencyControl(new SimpleMeterRegistry());
 
     @InjectMocks TransactionService transactionService;
 
@@ -87,10 +115,8 @@ class TransactionServiceTest {
         request.setUpiPin("1234");
         request.setIdempotencyKey("idempotency-key-001");
 
-        when(transactionRepository.findByIdempotencyKey(any())).thenReturn(Optional.empty());
         when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
-        when(passwordEncoder.matches("1234", sender.getUpiPin())).thenReturn(true);
-        when(userRepository.findByIdentifier("9000000002@upi")).thenReturn(Optional.of(receiver));
+        when(receiverResolver.resolve("9000000002@upi")).thenReturn(Optional.of(receiver));
         when(fraudDetectionService.assess(any(), any(), any()))
             .thenReturn(new FraudDetectionService.FraudAssessment(0, FraudRiskLevel.LOW, false, false, ""));
         when(walletRepository.findByUserIdWithLock(1L)).thenReturn(Optional.of(senderWallet));
@@ -107,6 +133,178 @@ class TransactionServiceTest {
         verify(walletRepository, times(2)).save(any());
     }
 
+    @Test
+    void transfer_optimisticConflict_retriesWithLocks() {
+        ReflectionTestUtils.setField(concurrencyControl, "mode", ConcurrencyMode.OPTIMISTIC);
+        ReflectionTestUtils.setField(concurrencyControl, "backoffBaseMs", 0L);
+
+        var request = new TransactionRequest.Transfer();
+        request.setReceiverIdentifier("9000000002@upi");
+        request.setAmount(new BigDecimal("500.00"));
+        request.setUpiPin("1234");
+        request.setIdempotencyKey("idempotency-key-007");
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
+        when(receiverResolver.resolve("9000000002@upi")).thenReturn(Optional.of(receiver));
+        when(fraudDetectionService.assess(any(), any(), any()))
+            .thenReturn(new FraudDetectionService.FraudAssessment(0, FraudRiskLevel.LOW, false, false, ""));
+        when(walletRepository.findByUserId(1L)).thenReturn(Optional.of(senderWallet));
+        when(walletRepository.findByUserId(2L)).thenReturn(Optional.of(receiverWallet));
+        when(walletRepository.findByUserIdWithLock(1L)).thenReturn(Optional.of(senderWallet));
+        when(walletRepository.findByUserIdWithLock(2L)).thenReturn(Optional.of(receiverWallet));
+        when(walletRepository.save(any()))
+            .thenThrow(new ObjectOptimisticLockingFailureException(Wallet.class, 1L))
+            .thenAnswer(inv -> inv.getArgument(0));
+        when(transactionRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        var result = transactionService.transfer(1L, request, "127.0.0.1");
+
+        // The conflict marks both wallets hot, so the retry locks them
+        assertThat(result.getStatus()).isEqualTo(TransactionStatus.SUCCESS);
+        verify(walletRepository).findByUserId(1L);
+        verify(walletRepository).findByUserIdWithLock(1L);
+        verify(walletRepository).findByUserIdWithLock(2L);
+        verify(concurrencyControl).execute(eq("transfer"), eq(List.of(1L, 2L)), any());
+    }
+
+    @Test
+    void hotWallets_areForgottenAfterTheCooldown() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConcurrencyControl control = new ConcurrencyControl(meterRegistry);
+        ReflectionTestUtils.setField(control, "mode", ConcurrencyMode.OPTIMISTIC);
+        ReflectionTestUtils.setField(control, "hotCooldownMs", 100L);
+        int[] attempts = {0};
+
+        ConcurrencyMode retriedAs = control.execute("transfer", List.of(1L, 2L), mode -> {
+            if (attempts[0]++ == 0) {
+                throw new ObjectOptimisticLockingFailureException(Wallet.class, 1L);
+            }
+            return mode;
+        });
+
+        assertThat(retriedAs).isEqualTo(ConcurrencyMode.PESSIMISTIC);
+        assertThat(meterRegistry.get("wallet.concurrency.hot.wallets").gauge().value()).isEqualTo(2);
+        // Neither wallet is used again, yet both leave the hot set once the cooldown has passed
+        Thread.sleep(200);
+        assertThat(meterRegistry.get("wallet.concurrency.hot.wallets").gauge().value()).isZero();
+        ConcurrencyMode cooledDown = control.execute("transfer", List.of(1L, 2L), mode -> mode);
+        assertThat(cooledDown).isEqualTo(ConcurrencyMode.OPTIMISTIC);
+    }
+
+    @Test
+    void transfer_atomic_usesConditionalUpdates() {
+        ReflectionTestUtils.setField(concurrencyControl, "mode", ConcurrencyMode.ATOMIC);
+
+        var request = new TransactionRequest.Transfer();
+        request.setReceiverIdentifier("9000000002@upi");
+        request.setAmount(new BigDecimal("500.00"));
+        request.setUpiPin("1234");
+        request.setIdempotencyKey("idempotency-key-008");
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
+        when(receiverResolver.resolve("9000000002@upi")).thenReturn(Optional.of(receiver));
+        when(fraudDetectionService.assess(any(), any(), any()))
+            .thenReturn(new FraudDetectionService.FraudAssessment(0, FraudRiskLevel.LOW, false, false, ""));
+        when(walletRepository.debitIfAllowed(eq(1L), eq(new BigDecimal("500.00")), any())).thenReturn(1);
+        when(walletRepository.credit(2L, new BigDecimal("500.00"))).thenReturn(1);
+        // The rows as the conditional updates left them
+        senderWallet.setBalance(new BigDecimal("4500.00"));
+        receiverWallet.setBalance(new BigDecimal("1500.00"));
+        when(walletRepository.findByUserId(1L)).thenReturn(Optional.of(senderWallet));
+        when(walletRepository.findByUserId(2L)).thenReturn(Optional.of(receiverWallet));
+        when(transactionRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        var result = transactionService.transfer(1L, request, "127.0.0.1");
+
+        assertThat(result.getStatus()).isEqualTo(TransactionStatus.SUCCESS);
+        assertThat(result.getBalanceAfter()).isEqualByComparingTo("4500.00");
+        verify(transactionRepository).save(argThat(txn ->
+            txn.getSenderBalanceBefore().compareTo(new BigDecimal("5000.00")) == 0
+                && txn.getReceiverBalanceBefore().compareTo(new BigDecimal("1000.00")) == 0));
+        verify(walletRepository, never()).findByUserIdWithLock(any());
+        verify(walletRepository, never()).save(any());
+        verify(walletBalanceCache).publishChanged(List.of(senderWallet, receiverWallet));
+    }
+
+    @Test
+    void transfer_atomic_rejectedDebit_reportsInsufficientBalance() {
+        ReflectionTestUtils.setField(concurrencyControl, "mode", ConcurrencyMode.ATOMIC);
+
+        var request = new TransactionRequest.Transfer();
+        request.setReceiverIdentifier("9000000002@upi");
+        request.setAmount(new BigDecimal("99999.00"));
+        request.setUpiPin("1234");
+        request.setIdempotencyKey("idempotency-key-009");
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
+        when(receiverResolver.resolve(any())).thenReturn(Optional.of(receiver));
+        when(fraudDetectionService.assess(any(), any(), any()))
+            .thenReturn(new FraudDetectionService.FraudAssessment(0, FraudRiskLevel.LOW, false, false, ""));
+        when(walletRepository.debitIfAllowed(eq(1L), any(), any())).thenReturn(0);
+        when(walletRepository.findByUserIdWithLock(1L)).thenReturn(Optional.of(senderWallet));
+
+        assertThatThrownBy(() -> transactionService.transfer(1L, request, "127.0.0.1"))
+            .isInstanceOf(InsufficientBalanceException.class);
+        verify(walletRepository, never()).credit(any(), any());
+    }
+
+    @Test
+    void splitTransfer_locksOnceAndBatchesLegs() {
+        User third = User.builder().id(3L).fullName("Third").phoneNumber("9000000003")
+            .upiId("9000000003@upi").status(AccountStatus.ACTIVE).build();
+        Wallet thirdWallet = Wallet.builder().id(3L).user(third).balance(BigDecimal.ZERO)
+            .dailySpent(BigDecimal.ZERO).dailyLimit(new BigDecimal("100000.00")).build();
+
+        var request = new TransactionRequest.SplitTransfer();
+        request.setUpiPin("1234");
+        request.setIdempotencyKey("idempotency-key-010");
+        request.setLegs(List.of(leg("9000000002@upi", "300.00"), leg("9000000003@upi", "200.00")));
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
+        when(receiverResolver.resolve("9000000002@upi")).thenReturn(Optional.of(receiver));
+        when(receiverResolver.resolve("9000000003@upi")).thenReturn(Optional.of(third));
+        when(fraudDetectionService.assess(eq(sender), isNull(), eq(new BigDecimal("500.00"))))
+            .thenReturn(new FraudDetectionService.FraudAssessment(0, FraudRiskLevel.LOW, false, false, ""));
+        when(walletRepository.findAllByUserIdInWithLock(any()))
+            .thenReturn(List.of(senderWallet, receiverWallet, thirdWallet));
+        when(transactionRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        var result = transactionService.splitTransfer(1L, request, "127.0.0.1");
+
+        assertThat(result.getTransfers()).hasSize(2);
+        assertThat(result.getTotalAmount()).isEqualByComparingTo("500.00");
+        assertThat(result.getBalanceAfter()).isEqualByComparingTo("4500.00");
+        assertThat(result.getTransfers().get(0).getBalanceAfter()).isEqualByComparingTo("4700.00");
+        assertThat(receiverWallet.getBalance()).isEqualByComparingTo("1300.00");
+        assertThat(thirdWallet.getBalance()).isEqualByComparingTo("200.00");
+        verify(pinVerifier, times(1)).verify(sender, "1234");
+        verify(eventPublisher, times(2)).publishEvent(any(TransferCompletedEvent.class));
+        verify(fraudDetectionService, times(1)).assess(any(), any(), any());
+        verify(walletRepository, times(1)).findAllByUserIdInWithLock(any());
+        verify(transactionRepository, never()).save(any());
+        verify(idempotencyStore).record(eq("idempotency-key-010#1"), eq(1L), any());
+    }
+
+    @Test
+    void splitTransfer_insufficientTotal_movesNothing() {
+        var request = new TransactionRequest.SplitTransfer();
+        request.setUpiPin("1234");
+        request.setIdempotencyKey("idempotency-key-011");
+        request.setLegs(List.of(leg("9000000002@upi", "3000.00"), leg("9000000002@upi", "3000.00")));
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
+        when(receiverResolver.resolve("9000000002@upi")).thenReturn(Optional.of(receiver));
+        when(fraudDetectionService.assess(any(), any(), any()))
+            .thenReturn(new FraudDetectionService.FraudAssessment(0, FraudRiskLevel.LOW, false, false, ""));
+        when(walletRepository.findAllByUserIdInWithLock(any())).thenReturn(List.of(senderWallet, receiverWallet));
+
+        assertThatThrownBy(() -> transactionService.splitTransfer(1L, request, "127.0.0.1"))
+            .isInstanceOf(InsufficientBalanceException.class);
+        assertThat(senderWallet.getBalance()).isEqualByComparingTo("5000.00");
+        verify(receiverResolver, times(1)).resolve(any());
+        verifyNoInteractions(transactionRepository);
+    }
+
     @Test
     void transfer_insufficientBalance_throws() {
         var request = new TransactionRequest.Transfer();
@@ -115,10 +313,8 @@ class TransactionServiceTest {
         request.setUpiPin("1234");
         request.setIdempotencyKey("idempotency-key-002");
 
-        when(transactionRepository.findByIdempotencyKey(any())).thenReturn(Optional.empty());
         when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
-        when(passwordEncoder.matches("1234", sender.getUpiPin())).thenReturn(true);
-        when(userRepository.findByIdentifier(any())).thenReturn(Optional.of(receiver));
+        when(receiverResolver.resolve(any())).thenReturn(Optional.of(receiver));
         when(fraudDetectionService.assess(any(), any(), any()))
             .thenReturn(new FraudDetectionService.FraudAssessment(0, FraudRiskLevel.LOW, false, false, ""));
         when(walletRepository.findByUserIdWithLock(1L)).thenReturn(Optional.of(senderWallet));
@@ -129,17 +325,18 @@ class TransactionServiceTest {
     }
 
     @Test
-    void transfer_duplicateIdempotencyKey_throws() {
+    void transfer_duplicateIdempotencyKey_returnsOriginalResponse() {
         var request = new TransactionRequest.Transfer();
         request.setIdempotencyKey("duplicate-key");
 
-        var existing = com.upi.payment.entity.Transaction.builder()
-            .referenceId("TXN123").build();
-        when(transactionRepository.findByIdempotencyKey("duplicate-key"))
-            .thenReturn(Optional.of(existing));
+        var original = ApiResponse.TransactionResponse.builder()
+            .referenceId("TXN123").status(TransactionStatus.SUCCESS).build();
+        when(idempotencyStore.find("duplicate-key", 1L)).thenReturn(Optional.of(original));
 
-        assertThatThrownBy(() -> transactionService.transfer(1L, request, "127.0.0.1"))
-            .isInstanceOf(DuplicateTransactionException.class);
+        var result = transactionService.transfer(1L, request, "127.0.0.1");
+
+        assertThat(result.getReferenceId()).isEqualTo("TXN123");
+        verifyNoInteractions(walletRepository, transactionRepository);
     }
 
     @Test
@@ -150,10 +347,8 @@ class TransactionServiceTest {
         request.setUpiPin("1234");
         request.setIdempotencyKey("key-003");
 
-        when(transactionRepository.findByIdempotencyKey(any())).thenReturn(Optional.empty());
         when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
-        when(passwordEncoder.matches("1234", sender.getUpiPin())).thenReturn(true);
-        when(userRepository.findByIdentifier("alice@test.com")).thenReturn(Optional.of(sender));
+        when(receiverResolver.resolve("alice@test.com")).thenReturn(Optional.of(sender));
 
         assertThatThrownBy(() -> transactionService.transfer(1L, request, "127.0.0.1"))
             .isInstanceOf(BusinessException.class)
@@ -168,10 +363,8 @@ class TransactionServiceTest {
         request.setUpiPin("1234");
         request.setIdempotencyKey("key-004");
 
-        when(transactionRepository.findByIdempotencyKey(any())).thenReturn(Optional.empty());
         when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
-        when(passwordEncoder.matches("1234", sender.getUpiPin())).thenReturn(true);
-        when(userRepository.findByIdentifier(any())).thenReturn(Optional.of(receiver));
+        when(receiverResolver.resolve(any())).thenReturn(Optional.of(receiver));
         when(fraudDetectionService.assess(any(), any(), any()))
             .thenReturn(new FraudDetectionService.FraudAssessment(90, FraudRiskLevel.CRITICAL, true, true, "HIGH_VELOCITY;"));
         when(transactionRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
@@ -180,4 +373,38 @@ class TransactionServiceTest {
             .isInstanceOf(BusinessException.class)
             .hasMessageContaining("blocked");
     }
+
+    @Test
+    void addMoney_ledgerRejectsDeposit_refundsCommittedBankDebit() {
+        var request = new TransactionRequest.AddMoney();
+        request.setBankAccountId(10L);
+        request.setAmount(new BigDecimal("700.00"));
+        request.setIdempotencyKey("key-005");
+        BankAccount bankAccount = BankAccount.builder()
+            .id(10L).user(sender).bankName("Test Bank").bankBalance(new BigDecimal("2000.00"))
+            .build();
+
+        when(ledgerEngine.isEnabled()).thenReturn(true);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
+        when(bankAccountRepository.findByIdWithLock(10L)).thenReturn(Optional.of(bankAccount));
+        when(ledgerEngine.deposit(any(), any())).thenAnswer(inv -> {
+            assertThat(bankAccount.getBankBalance()).isEqualByComparingTo("1300.00");
+            inv.<Runnable>getArgument(1).run();
+            throw new BusinessException("Ledger journal unavailable");
+        });
+
+        assertThatThrownBy(() -> transactionService.addMoney(1L, request, "127.0.0.1"))
+            .isInstanceOf(BusinessException.class)
+            .hasMessageContaining("journal");
+        assertThat(bankAccount.getBankBalance()).isEqualByComparingTo("2000.00");
+        verify(bankAccountRepository, times(2)).save(bankAccount);
+        verifyNoInteractions(walletRepository);
+    }
+
+    private static TransactionRequest.SplitTransfer.Leg leg(String receiverIdentifier, String amount) {
+        var leg = new TransactionRequest.SplitTransfer.Leg();
+        leg.setReceiverIdentifier(receiverIdentifier);
+        leg.setAmount(new BigDecimal(amount));
+        return leg;
+    }
 }
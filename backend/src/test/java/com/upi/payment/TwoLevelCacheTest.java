@@ -0,0 +1,212 @@
+package com.upi.payment;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.upi.payment.cache.RemoteCacheTier;
+import com.upi.payment.cache.TwoLevelCache;
+import com.upi.payment.cache.TwoLevelCacheManager;
+import com.upi.payment.cache.Versioned;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Two nodes sharing one Redis: near-cached copies are replaced through pub/sub invalidation and
+ * versioned entries never go back to an older value on either node.
+ */
+class TwoLevelCacheTest {
+
+    private static final String CHANNEL = "cache:invalidations";
+
+    record Entry(String value, long version) implements Versioned, Serializable {}
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private TwoLevelCacheManager nodeA;
+    private TwoLevelCacheManager nodeB;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        redisServer = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+            new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()),
+            LettuceClientConfiguration.builder().commandTimeout(Duration.ofSeconds(2)).build());
+        connectionFactory.afterPropertiesSet();
+        nodeA = node();
+        nodeB = node();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (RedisMessageListenerContainer container : containers) {
+            container.destroy();
+        }
+        connectionFactory.destroy();
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @Test
+    void writeOnOneNodeDropsTheOtherNodesNearCopy() throws InterruptedException {
+        nodeA.getCache("receivers").put(7L, "old");
+        assertThat(nodeB.getCache("receivers").get(7L, String.class)).isEqualTo("old");
+
+        nodeA.getCache("receivers").put(7L, "new");
+
+        await(() -> nodeB.getCache("receivers").getNativeCache().getIfPresent("7") == null);
+        assertThat(nodeB.getCache("receivers").get(7L, String.class)).isEqualTo("new");
+
+        nodeB.getCache("receivers").evict(7L);
+        await(() -> nodeA.getCache("receivers").getNativeCache().getIfPresent("7") == null);
+        assertThat(nodeA.getCache("receivers").get(7L)).isNull();
+    }
+
+    @Test
+    void olderVersionIsRejectedOnEveryNode() throws InterruptedException {
+        TwoLevelCache cacheA = nodeA.getCache("walletBalance");
+        TwoLevelCache cacheB = nodeB.getCache("walletBalance");
+        assertThat(cacheA.putIfNewer(1L, new Entry("v1", 1))).isTrue();
+        assertThat(cacheB.get(1L, Entry.class).version()).isEqualTo(1);
+
+        assertThat(cacheA.putIfNewer(1L, new Entry("v3", 3))).isTrue();
+        // B's near copy of v1 is replaced by a marker for v3, so its own late v2 cannot land
+        await(() -> cacheB.get(1L, Entry.class) == null || cacheB.get(1L, Entry.class).version() == 3);
+        assertThat(cacheB.putIfNewer(1L, new Entry("v2", 2))).isFalse();
+
+        assertThat(cacheB.get(1L, Entry.class).value()).isEqualTo("v3");
+        assertThat(cacheA.get(1L, Entry.class).value()).isEqualTo("v3");
+    }
+
+    @Test
+    void staleWriteIsRejectedByRedisBeforeTheInvalidationArrives() throws InterruptedException {
+        // A node without a listener never hears about other nodes' writes
+        TwoLevelCacheManager deaf = new TwoLevelCacheManager(name -> "maximumSize=100",
+            remote(), meterRegistry);
+        nodeA.getCache("walletBalance").putIfNewer(2L, new Entry("v5", 5));
+
+        assertThat(deaf.getCache("walletBalance").putIfNewer(2L, new Entry("v4", 4))).isFalse();
+        assertThat(deaf.getCache("walletBalance").get(2L, Entry.class).value()).isEqualTo("v5");
+    }
+
+    @Test
+    void nearCacheKeepsServingWhileRedisIsDown() throws IOException {
+        TwoLevelCache cache = nodeA.getCache("accountStatus");
+        cache.put(3L, "ACTIVE");
+        assertThat(cache.get(3L, String.class)).isEqualTo("ACTIVE");
+        assertThat(cache.get(4L)).isNull();
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "accountStatus").tag("result", "hit")
+            .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.hit.ratio").tag("cache", "accountStatus").gauge().value())
+            .isEqualTo(0.5);
+
+        redisServer.stop();
+        redisServer = null;
+        cache.put(5L, "FROZEN");
+
+        assertThat(cache.get(5L, String.class)).isEqualTo("FROZEN");
+        assertThat(meterRegistry.counter("cache.remote.errors").count()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidationsLostWhileRedisIsUnreachableAreReplayedOnRecovery() throws InterruptedException {
+        SwitchableTemplate template = new SwitchableTemplate(connectionFactory);
+        TwoLevelCacheManager flaky = node(new RemoteCacheTier(template, "cache:", CHANNEL, Duration.ofMinutes(5), 50,
+            meterRegistry));
+        flaky.getCache("receivers").put(7L, "old");
+        flaky.getCache("receivers").put(8L, "old");
+        assertThat(nodeB.getCache("receivers").get(7L, String.class)).isEqualTo("old");
+        assertThat(nodeB.getCache("receivers").get(8L, String.class)).isEqualTo("old");
+
+        template.down = true;
+        flaky.getCache("receivers").put(7L, "new");
+        flaky.getCache("receivers").evict(8L);
+        Thread.sleep(100);
+        assertThat(nodeB.getCache("receivers").get(7L, String.class)).isEqualTo("old");
+
+        template.down = false;
+        Thread.sleep(60);
+        // Any command that reaches Redis again replays what was lost
+        flaky.getCache("receivers").get(9L);
+
+        await(() -> nodeB.getCache("receivers").getNativeCache().getIfPresent("7") == null
+            && nodeB.getCache("receivers").getNativeCache().getIfPresent("8") == null);
+        assertThat(nodeB.getCache("receivers").get(7L)).isNull();
+        assertThat(nodeB.getCache("receivers").get(8L)).isNull();
+        assertThat(flaky.getCache("receivers").get(7L, String.class)).isEqualTo("new");
+    }
+
+    private TwoLevelCacheManager node() {
+        return node(remote());
+    }
+
+    private TwoLevelCacheManager node(RemoteCacheTier remote) {
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(name -> "maximumSize=100", remote, meterRegistry);
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(manager, new ChannelTopic(CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+        containers.add(container);
+        return manager;
+    }
+
+    private RemoteCacheTier remote() {
+        return new RemoteCacheTier(new StringRedisTemplate(connectionFactory), "cache:", CHANNEL,
+            Duration.ofMinutes(5), 60_000, meterRegistry);
+    }
+
+    /** Fails every command while {@code down}, like a Redis the node cannot reach. */
+    private static class SwitchableTemplate extends StringRedisTemplate {
+
+        volatile boolean down;
+
+        SwitchableTemplate(RedisConnectionFactory connectionFactory) {
+            super(connectionFactory);
+        }
+
+        @Override
+        public <T> T execute(RedisCallback<T> action, boolean exposeConnection, boolean pipeline) {
+            if (down) {
+                throw new RedisConnectionFailureException("Unable to connect to Redis");
+            }
+            return super.execute(action, exposeConnection, pipeline);
+        }
+
+        @Override
+        public <T extends Closeable> T executeWithStickyConnection(RedisCallback<T> callback) {
+            if (down) {
+                throw new RedisConnectionFailureException("Unable to connect to Redis");
+            }
+            return super.executeWithStickyConnection(callback);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(20);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
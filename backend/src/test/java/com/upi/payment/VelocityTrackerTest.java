@@ -0,0 +1,217 @@
+package com.upi.payment;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.upi.payment.event.TransferCompletedEvent;
+import com.upi.payment.fraud.SharedVelocityWindows;
+import com.upi.payment.fraud.VelocitySnapshot;
+import com.upi.payment.fraud.VelocityTracker;
+import com.upi.payment.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.assertj.core.api.InstanceOfAssertFactories.MAP;
+import static org.mockito.Mockito.mock;
+
+class VelocityTrackerTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T10:00:00Z");
+
+    private VelocityTracker tracker;
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+
+    @BeforeEach
+    void setUp() {
+        tracker = tracker(null);
+        at(Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @Test
+    void windowsSlideMinuteByMinuteAndHourByHour() {
+        transfer(1L, 2L, "100.00", Duration.ZERO);
+        transfer(1L, 2L, "50.50", Duration.ofMinutes(5));
+
+        at(Duration.ofMinutes(5));
+        assertSnapshot(tracker.sender(1L), 1, 2, 2, 2);
+        assertThat(tracker.sender(1L).amount10mPaise()).isEqualTo(15050);
+
+        at(Duration.ofMinutes(12));
+        assertSnapshot(tracker.sender(1L), 0, 1, 2, 2);
+
+        transfer(1L, 3L, "10.00", Duration.ofMinutes(30));
+        at(Duration.ofMinutes(61));
+        assertSnapshot(tracker.sender(1L), 0, 0, 2, 3);
+        assertThat(tracker.sender(1L).amount1h()).isEqualByComparingTo("60.50");
+
+        transfer(1L, 3L, "1.00", Duration.ofHours(3));
+        at(Duration.ofHours(3));
+        assertSnapshot(tracker.sender(1L), 1, 1, 1, 4);
+        assertThat(tracker.sender(1L).amount24h()).isEqualByComparingTo("161.50");
+
+        // Hour buckets: 10:xx leaves the 24-hour window at 10:00 the next day
+        at(Duration.ofHours(24));
+        assertSnapshot(tracker.sender(1L), 0, 0, 0, 1);
+        at(Duration.ofHours(28));
+        assertThat(tracker.sender(1L)).isEqualTo(VelocitySnapshot.EMPTY);
+    }
+
+    @Test
+    void pairsAreCountedSeparatelyFromSender() {
+        transfer(1L, 2L, "10.00", Duration.ZERO);
+        transfer(1L, 2L, "10.00", Duration.ofMinutes(1));
+        transfer(1L, 3L, "10.00", Duration.ofMinutes(2));
+        tracker.onTransferCompleted(new TransferCompletedEvent(4L, null, new BigDecimal("10.00"), START, null));
+
+        at(Duration.ofMinutes(2));
+        assertThat(tracker.pair(1L, 2L).count10m()).isEqualTo(2);
+        assertThat(tracker.pair(1L, 3L).count10m()).isEqualTo(1);
+        assertThat(tracker.pair(2L, 1L)).isEqualTo(VelocitySnapshot.EMPTY);
+        assertThat(tracker.sender(1L).count10m()).isEqualTo(3);
+        assertThat(tracker.sender(4L).count10m()).isEqualTo(1);
+    }
+
+    @Test
+    void olderTransfersLandInTheirOwnBuckets() {
+        transfer(1L, 2L, "10.00", Duration.ofMinutes(20));
+        transfer(1L, 2L, "10.00", Duration.ofMinutes(15));
+        transfer(1L, 2L, "10.00", Duration.ofMinutes(-90));
+
+        at(Duration.ofMinutes(20));
+        assertSnapshot(tracker.sender(1L), 1, 2, 2, 3);
+
+        at(Duration.ofMinutes(25));
+        assertSnapshot(tracker.sender(1L), 0, 1, 2, 3);
+    }
+
+    @Test
+    void idleWindowsAreEvicted() {
+        transfer(1L, 2L, "10.00", Duration.ZERO);
+
+        at(Duration.ofHours(23));
+        tracker.evictIdle();
+        assertThat(tracker.sender(1L).count24h()).isEqualTo(1);
+
+        at(Duration.ofHours(25));
+        tracker.evictIdle();
+        assertThat(ReflectionTestUtils.getField(tracker, "bySender")).asInstanceOf(MAP).isEmpty();
+        assertThat(ReflectionTestUtils.getField(tracker, "byPair")).asInstanceOf(MAP).isEmpty();
+    }
+
+    @Test
+    void sharedWindowsCountEveryNodesTransfersAndFallBackLocallyWhileRedisIsDown() throws Exception {
+        redisServer = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+            new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()),
+            LettuceClientConfiguration.builder().commandTimeout(Duration.ofSeconds(2)).build());
+        connectionFactory.afterPropertiesSet();
+        SwitchableTemplate flakyTemplate = new SwitchableTemplate(connectionFactory);
+        VelocityTracker nodeA = tracker(new SharedVelocityWindows(flakyTemplate, "vel:", 0, new SimpleMeterRegistry()));
+        VelocityTracker nodeB = tracker(new SharedVelocityWindows(
+            new StringRedisTemplate(connectionFactory), "vel:", 0, new SimpleMeterRegistry()));
+
+        transfer(nodeA, 1L, 2L, "100.00", Duration.ZERO);
+        transfer(nodeB, 1L, 2L, "50.00", Duration.ofMinutes(1));
+        transfer(nodeB, 1L, 3L, "10.00", Duration.ofMinutes(2));
+
+        at(nodeA, Duration.ofMinutes(2));
+        assertSnapshot(nodeA.sender(1L), 1, 3, 3, 3);
+        assertThat(nodeA.sender(1L).amount1h()).isEqualByComparingTo("160.00");
+        assertThat(nodeA.pair(1L, 2L).count10m()).isEqualTo(2);
+        assertThat(nodeA.pair(1L, 3L).count10m()).isEqualTo(1);
+        // One hash per subject, all tagged with the sender so a script stays in one cluster slot
+        assertThat(new StringRedisTemplate(connectionFactory).keys("vel:*"))
+            .containsExactlyInAnyOrder("vel:{1}:s", "vel:{1}:p:2", "vel:{1}:p:3");
+
+        // Node A only knows its own transfers until Redis answers again
+        flakyTemplate.down = true;
+        transfer(nodeA, 1L, 2L, "20.00", Duration.ofMinutes(2));
+        assertSnapshot(nodeA.sender(1L), 1, 2, 2, 2);
+        assertThat(nodeA.pair(1L, 3L)).isEqualTo(VelocitySnapshot.EMPTY);
+
+        flakyTemplate.down = false;
+        assertThat(nodeA.sender(1L).count10m()).isEqualTo(3);
+        // That first successful call wrote the transfer recorded while Redis was down
+        at(nodeB, Duration.ofMinutes(2));
+        assertSnapshot(nodeB.sender(1L), 2, 4, 4, 4);
+        assertThat(nodeB.pair(1L, 2L).amount1h()).isEqualByComparingTo("170.00");
+
+        at(nodeB, Duration.ofHours(25));
+        assertThat(nodeB.sender(1L)).isEqualTo(VelocitySnapshot.EMPTY);
+    }
+
+    private static VelocityTracker tracker(SharedVelocityWindows shared) {
+        return new VelocityTracker(mock(TransactionRepository.class), mock(PlatformTransactionManager.class),
+            new SimpleMeterRegistry(), shared);
+    }
+
+    private void transfer(Long senderId, Long receiverId, String amount, Duration offset) {
+        transfer(tracker, senderId, receiverId, amount, offset);
+    }
+
+    private static void transfer(VelocityTracker node, Long senderId, Long receiverId, String amount, Duration offset) {
+        node.onTransferCompleted(
+            new TransferCompletedEvent(senderId, receiverId, new BigDecimal(amount), START.plus(offset), null));
+    }
+
+    private void at(Duration offset) {
+        at(tracker, offset);
+    }
+
+    private static void at(VelocityTracker node, Duration offset) {
+        ReflectionTestUtils.setField(node, "clock", Clock.fixed(START.plus(offset), ZoneOffset.UTC));
+    }
+
+    private static void assertSnapshot(VelocitySnapshot snapshot, int count1m, int count10m, int count1h, int count24h) {
+        assertThat(snapshot.count1m()).as("1m").isEqualTo(count1m);
+        assertThat(snapshot.count10m()).as("10m").isEqualTo(count10m);
+        assertThat(snapshot.count1h()).as("1h").isEqualTo(count1h);
+        assertThat(snapshot.count24h()).as("24h").isEqualTo(count24h);
+    }
+
+    // Fails every command, as Redis does while unreachable
+    private static class SwitchableTemplate extends StringRedisTemplate {
+
+        volatile boolean down;
+
+        SwitchableTemplate(RedisConnectionFactory connectionFactory) {
+            super(connectionFactory);
+        }
+
+        @Override
+        public <T> T execute(RedisCallback<T> action, boolean exposeConnection, boolean pipeline) {
+            if (down) {
+                throw new RedisConnectionFailureException("Unable to connect to Redis");
+            }
+            return super.execute(action, exposeConnection, pipeline);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.upi.payment;
+
+import com.upi.payment.dto.request.TransactionRequest;
+import com.upi.payment.entity.User;
+import com.upi.payment.entity.Wallet;
+import com.upi.payment.enums.ConcurrencyMode;
+import com.upi.payment.enums.FraudRiskLevel;
+import com.upi.payment.event.WalletBalanceChangedEvent;
+import com.upi.payment.repository.UserRepository;
+import com.upi.payment.repository.WalletRepository;
+import com.upi.payment.service.impl.ConcurrencyControl;
+import com.upi.payment.service.impl.FraudDetectionService;
+import com.upi.payment.service.impl.TransactionService;
+import com.upi.payment.service.impl.WalletBalanceCache;
+import com.upi.payment.service.impl.WalletService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class WalletBalanceCacheTest {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired WalletBalanceCache walletBalanceCache;
+    @Autowired WalletService walletService;
+    @Autowired TransactionService transactionService;
+    @Autowired ConcurrencyControl concurrencyControl;
+    @Autowired UserRepository userRepository;
+    @Autowired WalletRepository walletRepository;
+    @Autowired MeterRegistry meterRegistry;
+
+    @MockBean PasswordEncoder passwordEncoder;
+    @MockBean FraudDetectionService fraudDetectionService;
+
+    @BeforeEach
+    void setUp() {
+        when(passwordEncoder.matches(any(), any())).thenReturn(true);
+        when(fraudDetectionService.assess(any(), any(), any()))
+            .thenReturn(new FraudDetectionService.FraudAssessment(0, FraudRiskLevel.LOW, false, false, ""));
+    }
+
+    @Test
+    void lateEventOrReadNeverReplacesANewerBalance() {
+        User user = createUser("100.00");
+        double before = meterRegistry.counter("wallet.cache.stale_writes").count();
+
+        walletBalanceCache.onBalanceChanged(event(user, "300.00", 7, false));
+        walletBalanceCache.onBalanceChanged(event(user, "200.00", 6, false));
+        walletBalanceCache.fill(user.getId(), wallet(user));
+
+        assertThat(walletService.getWallet(user.getId()).getBalance()).isEqualByComparingTo("300.00");
+        assertThat(meterRegistry.counter("wallet.cache.stale_writes").count() - before).isEqualTo(2);
+
+        // A wallet turned hot is read from the DB from then on
+        walletBalanceCache.onBalanceChanged(event(user, "300.00", 8, true));
+        assertThat(walletBalanceCache.get(user.getId())).isNull();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void cachedBalanceEqualsDatabaseAfterConcurrentTransfers(ConcurrencyMode mode) throws Exception {
+        ConcurrencyMode configured = concurrencyControl.mode();
+        ReflectionTestUtils.setField(concurrencyControl, "mode", mode);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            users.add(createUser("1000.00"));
+        }
+        users.forEach(user -> walletService.getWallet(user.getId()));
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger committed = new AtomicInteger();
+        List<Future<?>> writers = new ArrayList<>();
+        try {
+            for (int t = 0; t < 4; t++) {
+                writers.add(pool.submit(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        if (transferBetweenRandomUsers(users)) {
+                            committed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            // Readers keep refilling the cache while transfers commit
+            for (int t = 0; t < 4; t++) {
+                pool.submit(() -> {
+                    while (running.get()) {
+                        walletService.getWallet(users.get(ThreadLocalRandom.current().nextInt(users.size())).getId());
+                    }
+                });
+            }
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            running.set(false);
+            pool.shutdown();
+            assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+            ReflectionTestUtils.setField(concurrencyControl, "mode", configured);
+        }
+        assertThat(committed.get()).isPositive();
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (User user : users) {
+            Wallet stored = wallet(user);
+            WalletBalanceCache.Snapshot cached = walletBalanceCache.get(user.getId());
+            assertThat(cached).isNotNull();
+            assertThat(cached.balance()).isEqualByComparingTo(stored.getBalance());
+            assertThat(cached.dailySpent()).isEqualByComparingTo(stored.getDailySpent());
+            assertThat(cached.version()).isEqualTo(stored.getVersion());
+            total = total.add(cached.balance());
+        }
+        assertThat(total).isEqualByComparingTo("6000.00");
+    }
+
+    private boolean transferBetweenRandomUsers(List<User> users) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(users.size());
+        int to = (from + 1 + random.nextInt(users.size() - 1)) % users.size();
+
+        var request = new TransactionRequest.Transfer();
+        request.setReceiverIdentifier(users.get(to).getUpiId());
+        request.setAmount(BigDecimal.valueOf(random.nextInt(1, 50)));
+        request.setUpiPin("1234");
+        request.setIdempotencyKey(UUID.randomUUID().toString());
+        try {
+            transactionService.transfer(users.get(from).getId(), request, "127.0.0.1");
+            return true;
+        } catch (RuntimeException e) {
+            // Out of balance, or a lock timeout / serialization failure on H2: nothing committed
+            return false;
+        }
+    }
+
+    private WalletBalanceChangedEvent event(User user, String balance, long version, boolean hot) {
+        Wallet wallet = wallet(user);
+        return new WalletBalanceChangedEvent(user.getId(), new WalletBalanceCache.Snapshot(wallet.getId(),
+            new BigDecimal(balance), BigDecimal.ZERO, null, wallet.getDailyLimit(), hot, version));
+    }
+
+    private Wallet wallet(User user) {
+        return walletRepository.findByUserId(user.getId()).orElseThrow();
+    }
+
+    private User createUser(String balance) {
+        int n = SEQUENCE.incrementAndGet();
+        User user = userRepository.save(User.builder()
+            .fullName("Cached " + n).email("cached" + n + "@test.com").phoneNumber(String.valueOf(7300000000L + n))
+            .password("x").upiId("cached" + n + "@upi").upiPin("pin").build());
+        walletRepository.save(Wallet.builder().user(user).balance(new BigDecimal(balance))
+            .dailyLimit(new BigDecimal("100000.00")).build());
+        return user;
+    }
+}